@@ -0,0 +1,199 @@
+package com.one.learn.resttemplate.bean;
+
+import com.one.learn.resttemplate.util.ByteBuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 产品的紧凑表示：id 为基本类型 int，价格为定点数（long 型的未缩放值加小数位数），
+ * 文本和 JSON 形式直接写入 {@link ByteBuilder}，不经过装箱、BigDecimal 和字符串拼接。
+ * <p>
+ * 与 {@link Product} 可以互相转换，文本形式与 {@link Product#toString()} 相同，JSON 形式与 Jackson 序列化 Product 的结果相同。
+ * 字段为 null 的情况用 hasId / hasPrice 表示。未缩放值超出 long 范围的价格（很少见）仍以 BigDecimal 保存，
+ * 输出与 Product 相同，只是不再免去分配。
+ */
+public final class CompactProduct {
+    private static final byte[] TEXT_ID = "Product{id='".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_NAME = "', name='".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_PRICE = "', price='".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_END = "'}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_ID = "{\"id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_NAME = ",\"name\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_PRICE = ",\"price\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean hasId;
+    private final int id;
+    private final String name;
+    private final boolean hasPrice;
+    private final long unscaledPrice;
+    private final int priceScale;
+    /**
+     * 超出定点数范围的价格，不为 null 时不使用 unscaledPrice 和 priceScale
+     */
+    private final BigDecimal widePrice;
+
+    private CompactProduct(boolean hasId, int id, String name, boolean hasPrice, long unscaledPrice, int priceScale,
+                           BigDecimal widePrice) {
+        this.hasId = hasId;
+        this.id = id;
+        this.name = name;
+        this.hasPrice = hasPrice;
+        this.unscaledPrice = unscaledPrice;
+        this.priceScale = priceScale;
+        this.widePrice = widePrice;
+    }
+
+    /**
+     * @param unscaledPrice 价格的未缩放值，价格 = unscaledPrice × 10^-priceScale，如 666600 和 2 表示 6666.00
+     */
+    public static CompactProduct of(int id, String name, long unscaledPrice, int priceScale) {
+        return new CompactProduct(true, id, name, true, unscaledPrice, priceScale, null);
+    }
+
+    /**
+     * @param hasId    为 false 表示 id 为 null，此时忽略 id
+     * @param hasPrice 为 false 表示价格为 null，此时忽略 unscaledPrice 和 priceScale
+     */
+    public static CompactProduct of(boolean hasId, int id, String name,
+                                    boolean hasPrice, long unscaledPrice, int priceScale) {
+        return new CompactProduct(hasId, hasId ? id : 0, name, hasPrice,
+                hasPrice ? unscaledPrice : 0, hasPrice ? priceScale : 0, null);
+    }
+
+    /**
+     * 可以为 null 的字段按 null 保存，任何 BigDecimal 价格都可以表示
+     */
+    public static CompactProduct of(Integer id, String name, BigDecimal price) {
+        long unscaled = 0;
+        int scale = 0;
+        BigDecimal wide = null;
+        if (price != null) {
+            BigInteger unscaledValue = price.unscaledValue();
+            if (unscaledValue.bitLength() < Long.SIZE) {
+                unscaled = unscaledValue.longValue();
+                scale = price.scale();
+            } else {
+                wide = price;
+            }
+        }
+        return new CompactProduct(id != null, id != null ? id : 0, name, price != null, unscaled, scale, wide);
+    }
+
+    public static CompactProduct from(Product product) {
+        return of(product.getId(), product.getName(), product.getPrice());
+    }
+
+    public Product toProduct() {
+        return new Product(hasId ? id : null, name, getPrice());
+    }
+
+    public boolean hasId() {
+        return hasId;
+    }
+
+    /**
+     * @return id，{@link #hasId()} 为 false 时为 0
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean hasPrice() {
+        return hasPrice;
+    }
+
+    /**
+     * @return 价格能否用 unscaledPrice 和 priceScale 表示，为 false 时只能用 {@link #getPrice()}
+     */
+    public boolean isPriceCompact() {
+        return widePrice == null;
+    }
+
+    /**
+     * @return 价格的未缩放值，没有价格或 {@link #isPriceCompact()} 为 false 时为 0
+     */
+    public long getUnscaledPrice() {
+        return unscaledPrice;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * @return 价格，没有价格时为 null；每次调用都会创建 BigDecimal
+     */
+    public BigDecimal getPrice() {
+        if (widePrice != null) {
+            return widePrice;
+        }
+        return hasPrice ? BigDecimal.valueOf(unscaledPrice, priceScale) : null;
+    }
+
+    /**
+     * 写入文本形式，如 Product{id='1', name='ProductC', price='6666.0'}
+     */
+    public ByteBuilder writeText(ByteBuilder out) {
+        out.append(TEXT_ID, 0, TEXT_ID.length);
+        if (hasId) {
+            out.appendLong(id);
+        } else {
+            out.append(NULL, 0, NULL.length);
+        }
+        out.append(TEXT_NAME, 0, TEXT_NAME.length);
+        if (name != null) {
+            out.appendUtf8(name);
+        } else {
+            out.append(NULL, 0, NULL.length);
+        }
+        out.append(TEXT_PRICE, 0, TEXT_PRICE.length);
+        appendPrice(out);
+        return out.append(TEXT_END, 0, TEXT_END.length);
+    }
+
+    /**
+     * 写入 JSON 形式，如 {"id":1,"name":"ProductC","price":6666.0}
+     */
+    public ByteBuilder writeJson(ByteBuilder out) {
+        out.append(JSON_ID, 0, JSON_ID.length);
+        if (hasId) {
+            out.appendLong(id);
+        } else {
+            out.append(NULL, 0, NULL.length);
+        }
+        out.append(JSON_NAME, 0, JSON_NAME.length);
+        if (name != null) {
+            out.appendJsonString(name);
+        } else {
+            out.append(NULL, 0, NULL.length);
+        }
+        out.append(JSON_PRICE, 0, JSON_PRICE.length);
+        appendPrice(out);
+        return out.append((byte) '}');
+    }
+
+    /**
+     * 与 BigDecimal.toString() 相同，Product.toString() 和 Jackson 都这样输出价格
+     */
+    private void appendPrice(ByteBuilder out) {
+        if (widePrice != null) {
+            out.appendAscii(widePrice.toString());
+        } else if (hasPrice) {
+            out.appendDecimal(unscaledPrice, priceScale);
+        } else {
+            out.append(NULL, 0, NULL.length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return writeText(new ByteBuilder(64)).toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.one.learn.resttemplate.client;
+
+import java.time.Duration;
+
+/**
+ * {@link AsyncRestExecutor} 的参数
+ */
+public class AsyncClientSettings {
+    private int threads = 16;
+    private int queueCapacity = 1000;
+    private int maxConcurrentPerHost = 8;
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads 执行请求的线程数，也就是所有目标合计的最大并发请求数
+     */
+    public AsyncClientSettings setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity 等待执行的请求数上限（线程池和每个目标各自计算），超过时返回的 future 以
+     *                      RejectedExecutionException 失败
+     */
+    public AsyncClientSettings setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public int getMaxConcurrentPerHost() {
+        return maxConcurrentPerHost;
+    }
+
+    /**
+     * @param maxConcurrentPerHost 每个目标同时进行的请求数，不应超过连接池中该目标的连接数
+     */
+    public AsyncClientSettings setMaxConcurrentPerHost(int maxConcurrentPerHost) {
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+        return this;
+    }
+
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * @param defaultTimeout 从提交起算的默认期限（包括排队时间），到期时 future 以 TimeoutException 失败；
+     *                       null 表示不限时
+     */
+    public AsyncClientSettings setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+        return this;
+    }
+}
@@ -0,0 +1,87 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.bean.Product;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ProductClient} 的异步版本，调用在 {@link AsyncRestExecutor} 的线程池中执行，
+ * 同一服务的并发数受 {@link AsyncClientSettings#setMaxConcurrentPerHost(int)} 限制。
+ * <p>
+ * {@link #getAll(List)} 把每个 id 作为一个 get_product2 请求并发发出，结果按 id 的顺序排列；
+ * 一次取回很多产品时优先用 {@link ProductClient#getAll(List)} 的批量接口，这里适合只能逐个读取的场景。
+ */
+public class AsyncProductClient {
+    private final ProductClient client;
+    private final AsyncRestExecutor executor;
+    private final String host;
+
+    public AsyncProductClient(ProductClient client, AsyncRestExecutor executor) {
+        this.client = client;
+        this.executor = executor;
+        this.host = URI.create(client.getBaseUrl()).getAuthority();
+    }
+
+    public CompletableFuture<Product> getDefault() {
+        return executor.submit(host, client::getDefault);
+    }
+
+    /**
+     * @return 产品，不存在时为 null
+     */
+    public CompletableFuture<Product> get(int id) {
+        return executor.submit(host, () -> client.get(id));
+    }
+
+    /**
+     * 以默认期限并发读取多个产品
+     */
+    public CompletableFuture<List<Product>> getAll(List<Integer> ids) {
+        return getAll(ids, null);
+    }
+
+    /**
+     * 并发读取多个产品，任何一个失败时整体立即失败并取消其余的请求；取消返回的 future 也会取消全部请求
+     * @param timeout 整组请求的期限，null 时只有每个请求各自的默认期限
+     * @return 与 ids 一一对应，不存在的产品为 null
+     */
+    public CompletableFuture<List<Product>> getAll(List<Integer> ids, Duration timeout) {
+        CompletableFuture<List<Product>> all = new CompletableFuture<>();
+        if (ids.isEmpty()) {
+            all.complete(Collections.emptyList());
+            return all;
+        }
+        Product[] products = new Product[ids.size()];
+        List<CompletableFuture<Product>> futures = new ArrayList<>(ids.size());
+        AtomicInteger remaining = new AtomicInteger(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            int index = i;
+            CompletableFuture<Product> future = get(ids.get(i));
+            futures.add(future);
+            future.whenComplete((product, error) -> {
+                if (error != null) {
+                    all.completeExceptionally(error);
+                    return;
+                }
+                products[index] = product;
+                if (remaining.decrementAndGet() == 0) {
+                    all.complete(Arrays.asList(products));
+                }
+            });
+        }
+        executor.withDeadline(all, timeout);
+        all.whenComplete((list, error) -> {
+            if (error != null) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        });
+        return all;
+    }
+}
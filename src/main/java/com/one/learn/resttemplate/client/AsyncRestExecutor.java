@@ -0,0 +1,200 @@
+package com.one.learn.resttemplate.client;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在专用的有界线程池中执行阻塞的 RestTemplate 调用，返回 {@link CompletableFuture}。
+ * <p>
+ * <ul>
+ *     <li>线程数和等待队列都有上限，队列满时返回的 future 以 {@link RejectedExecutionException} 失败，不会无限制地创建线程</li>
+ *     <li>每个目标（host:port）同时进行的调用数有上限，超出的调用在该目标的队列中等待，不占用线程，
+ *     一个慢的目标不会占满整个线程池</li>
+ *     <li>期限从提交时算起，包括排队时间，到期时 future 以 {@link TimeoutException} 失败</li>
+ *     <li>future 被取消或超时时，还没开始的调用不再执行，正在执行的调用所在线程被中断。
+ *     HttpURLConnection 和 HttpComponents 的阻塞读不响应中断，请求会持续到读超时，结果被丢弃，
+ *     在此之前仍然占用该目标的并发名额</li>
+ * </ul>
+ * 线程安全，应当在应用中共享一个实例，{@link #close()} 时停止线程。
+ */
+public class AsyncRestExecutor implements Closeable {
+    private final ThreadPoolExecutor pool;
+    private final ScheduledThreadPoolExecutor timer;
+    private final int maxConcurrentPerHost;
+    private final int queueCapacity;
+    private final Duration defaultTimeout;
+    private final ConcurrentHashMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+
+    public AsyncRestExecutor(AsyncClientSettings settings) {
+        if (settings.getThreads() <= 0 || settings.getQueueCapacity() <= 0 || settings.getMaxConcurrentPerHost() <= 0) {
+            throw new IllegalArgumentException("threads、queueCapacity、maxConcurrentPerHost 必须为正数");
+        }
+        this.pool = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()), daemonThreads("async-rest-"));
+        this.pool.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads("async-rest-timer-"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.maxConcurrentPerHost = settings.getMaxConcurrentPerHost();
+        this.queueCapacity = settings.getQueueCapacity();
+        this.defaultTimeout = settings.getDefaultTimeout();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 以默认期限执行
+     * @param host 目标，如 localhost:8080，用于限制每个目标的并发数
+     */
+    public <T> CompletableFuture<T> submit(String host, Callable<T> call) {
+        return submit(host, call, defaultTimeout);
+    }
+
+    /**
+     * @param host    目标，如 localhost:8080，用于限制每个目标的并发数
+     * @param timeout 从现在起的期限，null 表示不限时
+     */
+    public <T> CompletableFuture<T> submit(String host, Callable<T> call, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HostQueue queue = hosts.computeIfAbsent(host, h -> new HostQueue());
+        Task<T> task = new Task<>(queue, call, result);
+        withDeadline(result, timeout);
+        // 取消或超时时中断正在执行的调用
+        result.whenComplete((value, error) -> task.interrupt());
+        queue.submit(task);
+        return result;
+    }
+
+    /**
+     * 给 future 加上期限，到期时以 TimeoutException 失败，用于给一组调用设置总的期限
+     * @param timeout null 表示不限时
+     * @return 传入的 future
+     */
+    public <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration timeout) {
+        if (timeout != null && !future.isDone()) {
+            ScheduledFuture<?> deadline = timer.schedule(
+                    () -> future.completeExceptionally(new TimeoutException("超过期限 " + timeout.toMillis() + "ms")),
+                    timeout.toNanos(), TimeUnit.NANOSECONDS);
+            future.whenComplete((value, error) -> deadline.cancel(false));
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * 一个目标正在执行的调用数和等待执行的调用
+     */
+    private final class HostQueue {
+        private int active;
+        private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+
+        void submit(Task<?> task) {
+            synchronized (this) {
+                if (active >= maxConcurrentPerHost) {
+                    if (pending.size() >= queueCapacity) {
+                        task.result.completeExceptionally(new RejectedExecutionException("目标的等待队列已满"));
+                        return;
+                    }
+                    pending.add(task);
+                    return;
+                }
+                active++;
+            }
+            execute(task);
+        }
+
+        /**
+         * 一个调用结束，把名额交给下一个等待的调用
+         */
+        void finished() {
+            Task<?> next;
+            synchronized (this) {
+                next = pending.poll();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+            execute(next);
+        }
+
+        private void execute(Task<?> task) {
+            try {
+                pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.result.completeExceptionally(e);
+                finished();
+            }
+        }
+    }
+
+    private static final class Task<T> implements Runnable {
+        private final HostQueue queue;
+        private final Callable<T> call;
+        final CompletableFuture<T> result;
+        private Thread runner;
+
+        Task(HostQueue queue, Callable<T> call, CompletableFuture<T> result) {
+            this.queue = queue;
+            this.call = call;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                synchronized (this) {
+                    if (result.isDone()) {
+                        // 排队时已被取消或超时
+                        return;
+                    }
+                    runner = Thread.currentThread();
+                }
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    synchronized (this) {
+                        runner = null;
+                        // 清除可能残留的中断标记，线程还要继续执行其它调用
+                        Thread.interrupted();
+                    }
+                }
+            } finally {
+                queue.finished();
+            }
+        }
+
+        synchronized void interrupt() {
+            // 调用自己完成 future 时也会回到这里，不能中断自己
+            if (runner != null && runner != Thread.currentThread()) {
+                runner.interrupt();
+            }
+        }
+    }
+}
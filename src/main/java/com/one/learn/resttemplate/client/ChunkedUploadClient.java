@@ -0,0 +1,128 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 基于 RestTemplate 的分块上传客户端，对应服务端的 /product/uploads 接口。
+ * <p>
+ * 分块在给定的线程池中并发上传，网络错误（{@link ResourceAccessException}）时单个分块重试，
+ * 整体失败后可以用 {@link #resume(String, Path)} 续传，只上传服务端缺少的分块。
+ */
+public class ChunkedUploadClient {
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+
+    /**
+     * @param baseUrl     服务地址，如 http://localhost:8080
+     * @param executor    上传分块的线程池，其大小即并发上传的分块数
+     * @param maxAttempts 每个分块最多尝试的次数
+     */
+    public ChunkedUploadClient(RestTemplate restTemplate, String baseUrl, ExecutorService executor, int maxAttempts) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 创建上传会话
+     */
+    public ChunkedUploadSession create(Path file, int chunkSize) throws IOException {
+        return restTemplate.postForObject(baseUrl + "/product/uploads?filename={filename}&size={size}&chunkSize={chunkSize}",
+                null, ChunkedUploadSession.class, file.getFileName().toString(), Files.size(file), chunkSize);
+    }
+
+    /**
+     * 创建会话，上传全部分块并提交
+     * @return 服务端提交后的响应文本
+     */
+    public String upload(Path file, int chunkSize) throws IOException {
+        return resume(create(file, chunkSize).getId(), file);
+    }
+
+    /**
+     * 查询会话状态，只上传服务端缺少的分块，然后提交
+     * @return 服务端提交后的响应文本
+     */
+    public String resume(String id, Path file) throws IOException {
+        ChunkedUploadSession status = restTemplate.getForObject(baseUrl + "/product/uploads/{id}", ChunkedUploadSession.class, id);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int[] range : status.getMissingChunks()) {
+                for (int i = range[0]; i <= range[1]; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> {
+                        putChunk(status, channel, index);
+                        return null;
+                    }));
+                }
+            }
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IOException("上传被中断", e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new IOException("部分分块上传失败，可以调用 resume 续传", e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return restTemplate.postForObject(baseUrl + "/product/uploads/{id}/commit", null, String.class, id);
+    }
+
+    private void putChunk(ChunkedUploadSession status, FileChannel channel, int index) {
+        long position = (long) index * status.getChunkSize();
+        long length = Math.min(status.getChunkSize(), status.getSize() - position);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                restTemplate.execute(baseUrl + "/product/uploads/{id}/chunks/{index}", HttpMethod.PUT, request -> {
+                    request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                    WritableByteChannel body = Channels.newChannel(request.getBody());
+                    long done = 0;
+                    while (done < length) {
+                        // 按位置读取，多个线程共用同一个 FileChannel
+                        long n = channel.transferTo(position + done, length - done, body);
+                        if (n <= 0) {
+                            // 位置已超出文件末尾，不检查会一直循环下去
+                            throw new IOException("源文件被截断，分块 " + index + " 缺少 " + (length - done) + " 字节");
+                        }
+                        done += n;
+                    }
+                }, null, status.getId(), index);
+                return;
+            } catch (ResourceAccessException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
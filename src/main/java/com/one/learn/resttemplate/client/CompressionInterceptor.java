@@ -0,0 +1,188 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.compression.ContentCoding;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RestTemplate 的透明压缩：请求带上 Accept-Encoding: gzip, deflate，响应按 Content-Encoding 边读边解压；
+ * 可选地把超过 minRequestSize 的请求体用 gzip 压缩后发送（Content-Encoding: gzip），服务端需要能解压，
+ * 本应用由 {@code CompressionFilter} 处理。
+ * <p>
+ * 只压缩文本类的请求体（JSON、NDJSON、XML、text/*，见 {@link ContentCoding#isCompressible}），
+ * 表单不压缩：很多服务端直接从原始请求体解析表单参数。调用方自己设置了 Accept-Encoding 或 Content-Encoding 时不做处理。
+ * <p>
+ * HttpURLConnection（SimpleClientHttpRequestFactory）不会自动解压，主要用于它；
+ * HttpComponents 默认自己发送 Accept-Encoding 并解压，这个拦截器看到的已经是解压后的响应，不会重复解压。
+ * 与 HttpCacheInterceptor 等拦截器一起使用时放在最后（离网络最近），它们看到的都是解压后的内容。线程安全。
+ */
+public class CompressionInterceptor implements ClientHttpRequestInterceptor {
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    /**
+     * 与 gzip 命令和 zlib 的默认级别相同
+     */
+    private static final int DEFAULT_LEVEL = 6;
+
+    private final int level;
+    private final int minRequestSize;
+    private final LongAdder compressedRequests = new LongAdder();
+    private final LongAdder requestBytesSaved = new LongAdder();
+    private final LongAdder decompressedResponses = new LongAdder();
+
+    /**
+     * 只解压响应，不压缩请求体
+     */
+    public CompressionInterceptor() {
+        this(DEFAULT_LEVEL, -1);
+    }
+
+    /**
+     * @param level          请求体的压缩级别 1-9，1 最快，9 压缩率最高
+     * @param minRequestSize 请求体达到这个字节数才压缩，-1 表示不压缩请求体
+     */
+    public CompressionInterceptor(int level, int minRequestSize) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("压缩级别应为 1 到 9: " + level);
+        }
+        this.level = level;
+        this.minRequestSize = minRequestSize;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        boolean acceptAdded = false;
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+            acceptAdded = true;
+        }
+        if (shouldCompress(headers, body)) {
+            byte[] compressed = gzip(body);
+            // 压缩后反而更大（已经压缩过的内容）时按原样发送
+            if (compressed.length < body.length) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, ContentCoding.GZIP.getName());
+                headers.setContentLength(compressed.length);
+                compressedRequests.increment();
+                requestBytesSaved.add(body.length - compressed.length);
+                body = compressed;
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        ContentCoding coding = ContentCoding.forName(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        // 调用方自己要求压缩时由调用方处理
+        if (coding == null || !acceptAdded) {
+            return response;
+        }
+        decompressedResponses.increment();
+        return new DecompressingResponse(response, coding);
+    }
+
+    private boolean shouldCompress(HttpHeaders headers, byte[] body) {
+        return minRequestSize >= 0 && body.length >= minRequestSize && body.length > 0
+                && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                && ContentCoding.isCompressible(headers.getContentType());
+    }
+
+    private byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream out = ContentCoding.GZIP.encode(bytes, level, false)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return 压缩后发送的请求数
+     */
+    public long getCompressedRequestCount() {
+        return compressedRequests.sum();
+    }
+
+    /**
+     * @return 压缩请求体省下的字节数
+     */
+    public long getRequestBytesSaved() {
+        return requestBytesSaved.sum();
+    }
+
+    /**
+     * @return 解压的响应数
+     */
+    public long getDecompressedResponseCount() {
+        return decompressedResponses.sum();
+    }
+
+    /**
+     * 响应体在读取时才解压；首部去掉 Content-Encoding 和 Content-Length（它们描述的是压缩后的数据）
+     */
+    private static final class DecompressingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse response;
+        private final ContentCoding coding;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        DecompressingResponse(ClientHttpResponse response, ContentCoding coding) {
+            this.response = response;
+            this.coding = coding;
+            HttpHeaders copy = new HttpHeaders();
+            copy.putAll(response.getHeaders());
+            copy.remove(HttpHeaders.CONTENT_ENCODING);
+            copy.remove(HttpHeaders.CONTENT_LENGTH);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(copy);
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = coding.decode(response.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (body != null) {
+                    // 释放 Inflater
+                    body.close();
+                }
+            } catch (IOException e) {
+                // 与 ClientHttpResponse.close() 一样忽略关闭时的错误
+            } finally {
+                response.close();
+            }
+        }
+    }
+}
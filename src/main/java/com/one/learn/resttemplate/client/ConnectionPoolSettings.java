@@ -0,0 +1,136 @@
+package com.one.learn.resttemplate.client;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link PooledRequestFactories} 创建的连接池的参数，默认值适合服务之间的内网调用
+ */
+public class ConnectionPoolSettings {
+    private int maxTotal = 200;
+    private int defaultMaxPerRoute = 50;
+    private final Map<String, Integer> maxPerRoute = new LinkedHashMap<>();
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration timeToLive = Duration.ofMinutes(5);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * @param maxTotal 所有目标合计的最大连接数
+     */
+    public ConnectionPoolSettings setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+
+    /**
+     * @param defaultMaxPerRoute 每个目标（scheme、主机、端口）的最大连接数
+     */
+    public ConnectionPoolSettings setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+        return this;
+    }
+
+    public Map<String, Integer> getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * 单独设置某个目标的最大连接数
+     * @param target 如 http://localhost:8080
+     */
+    public ConnectionPoolSettings setMaxPerRoute(String target, int max) {
+        maxPerRoute.put(target, max);
+        return this;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public ConnectionPoolSettings setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * @param connectionRequestTimeout 连接池满时等待空闲连接的时间，超时抛出 ResourceAccessException
+     */
+    public ConnectionPoolSettings setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        return this;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public ConnectionPoolSettings setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @param keepAlive 连接空闲时最多保持的时间；响应头 Keep-Alive: timeout=n 更短时以服务端为准
+     */
+    public ConnectionPoolSettings setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @param maxIdleTime 后台线程关闭空闲超过这个时间的连接，同时也清理过期的连接
+     */
+    public ConnectionPoolSettings setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @param timeToLive 连接从建立起的最长寿命，到期后不再复用，让 DNS 变化和负载均衡能够生效
+     */
+    public ConnectionPoolSettings setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+        return this;
+    }
+
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * @param validateAfterInactivity 连接空闲超过这个时间，取出复用前先检查是否已被对端关闭
+     */
+    public ConnectionPoolSettings setValidateAfterInactivity(Duration validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+        return this;
+    }
+}
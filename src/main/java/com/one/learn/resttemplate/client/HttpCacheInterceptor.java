@@ -0,0 +1,487 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RestTemplate 的客户端响应缓存，按 Cache-Control、Expires、ETag 和 Last-Modified 缓存 GET 请求的 200 响应。
+ * <p>
+ * <ul>
+ *     <li>缓存项未过期时直接返回，不发出请求（命中）</li>
+ *     <li>过期但有 ETag 或 Last-Modified 时带 If-None-Match / If-Modified-Since 重新验证，
+ *     服务端响应 304 时返回缓存的响应体，并用 304 的首部更新缓存项</li>
+ *     <li>过期时间取 Cache-Control: max-age，其次是 Expires 减 Date；都没有时，有 Last-Modified 的按
+ *     Date 与 Last-Modified 间隔的 10% 估算（RFC 7234 4.2.2），只有 ETag 的每次都重新验证。
+ *     /product/get_product1、get_product2 只返回 ETag，所以每次都会验证，数据不会过时</li>
+ *     <li>响应带 no-store、Vary: * 或者请求带 no-store、Authorization、条件首部时不缓存；请求带 no-cache 时总是验证</li>
+ *     <li>同一 URI 的 POST、PUT、PATCH、DELETE 成功后移除缓存项。经过其它 URI 的修改只能在重新验证时发现</li>
+ * </ul>
+ * 缓存项以 URI 为键，每个 URI 只保存一个变体：Vary 列出的请求首部与缓存时不同时当作未命中，并用新的响应替换。
+ * <p>
+ * 响应体以字节数组保存，按 LRU 淘汰，总大小（响应体加首部的字节数）不超过构造时给出的预算；
+ * 超过预算的响应不缓存，直接把响应流交给调用方。线程安全，一个实例可以加到多个 RestTemplate 中共用。
+ */
+public class HttpCacheInterceptor implements ClientHttpRequestInterceptor {
+    /**
+     * 每个缓存项除响应体和首部以外的大致开销
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * @param maxBytes 缓存占用的字节数上限
+     */
+    public HttpCacheInterceptor(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes 必须为正数");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        HttpMethod method = request.getMethod();
+        String key = request.getURI().toString();
+        if (method != HttpMethod.GET) {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (method != HttpMethod.HEAD && method != HttpMethod.OPTIONS && method != HttpMethod.TRACE
+                    && response.getStatusCode().is2xxSuccessful()) {
+                remove(key);
+            }
+            return response;
+        }
+        HttpHeaders requestHeaders = request.getHeaders();
+        CacheControl requestControl = CacheControl.parse(requestHeaders);
+        if (requestControl.noStore || body.length > 0 || !isCacheableRequest(requestHeaders)) {
+            return execution.execute(request, body);
+        }
+
+        Entry entry = get(key);
+        if (entry != null && !entry.varyMatches(requestHeaders)) {
+            entry = null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null && !requestControl.noCache && entry.isFresh(now)) {
+            hits.increment();
+            return entry.toResponse();
+        }
+        if (entry != null && entry.hasValidator()) {
+            revalidations.increment();
+            if (entry.etag != null) {
+                requestHeaders.set(HttpHeaders.IF_NONE_MATCH, entry.etag);
+            }
+            if (entry.lastModified != null) {
+                requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+            }
+        } else {
+            misses.increment();
+        }
+
+        long requestTime = now;
+        ClientHttpResponse response = execution.execute(request, body);
+        if (entry != null && response.getRawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+            notModified.increment();
+            HttpHeaders merged = merge(entry.headers, response.getHeaders());
+            response.close();
+            Entry updated = new Entry(key, merged, entry.body, entry.vary, requestTime, System.currentTimeMillis());
+            put(updated);
+            return updated.toResponse();
+        }
+        if (response.getRawStatusCode() != HttpStatus.OK.value()) {
+            remove(key);
+            return response;
+        }
+        return store(key, requestHeaders, response, requestTime);
+    }
+
+    /**
+     * 调用方自己设置了条件首部或者带认证信息时不经过缓存
+     */
+    private static boolean isCacheableRequest(HttpHeaders headers) {
+        return !headers.containsKey(HttpHeaders.IF_NONE_MATCH) && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                && !headers.containsKey(HttpHeaders.IF_MATCH) && !headers.containsKey(HttpHeaders.IF_UNMODIFIED_SINCE)
+                && !headers.containsKey(HttpHeaders.RANGE) && !headers.containsKey(HttpHeaders.AUTHORIZATION);
+    }
+
+    private ClientHttpResponse store(String key, HttpHeaders requestHeaders, ClientHttpResponse response, long requestTime)
+            throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        CacheControl control = CacheControl.parse(headers);
+        List<String> varyNames = headers.getVary();
+        boolean hasValidator = headers.getETag() != null || headers.getFirst(HttpHeaders.LAST_MODIFIED) != null;
+        boolean hasLifetime = !control.noCache && (control.maxAge > 0
+                || (control.maxAge < 0 && headers.getFirst(HttpHeaders.EXPIRES) != null));
+        // 既不能直接使用也不能验证的响应没有必要缓存
+        if (control.noStore || varyNames.contains("*") || (!hasValidator && !hasLifetime)) {
+            remove(key);
+            return response;
+        }
+        long headerBytes = headerBytes(headers);
+        long limit = maxBytes - headerBytes - ENTRY_OVERHEAD - key.length();
+        long contentLength = headers.getContentLength();
+        if (limit < 0 || contentLength > limit) {
+            remove(key);
+            return response;
+        }
+        InputStream in = response.getBody();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(contentLength >= 0 ? (int) contentLength : 256);
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, n);
+            if (buffer.size() > limit) {
+                // 没有 Content-Length 的大响应：已读的部分和剩余的流拼起来交给调用方
+                remove(key);
+                return new BufferedResponse(response, headers,
+                        new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), in));
+            }
+        }
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        Entry entry = new Entry(key, HttpHeaders.readOnlyHttpHeaders(copy), buffer.toByteArray(),
+                varyValues(varyNames, requestHeaders), requestTime, System.currentTimeMillis());
+        response.close();
+        put(entry);
+        return entry.toResponse();
+    }
+
+    private static Map<String, List<String>> varyValues(List<String> names, HttpHeaders requestHeaders) {
+        if (names.isEmpty()) {
+            return null;
+        }
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String name : names) {
+            values.put(name, requestHeaders.get(name));
+        }
+        return values;
+    }
+
+    /**
+     * 304 响应中的首部覆盖缓存的同名首部（RFC 7232 4.1），Content-Length 等描述响应体的首部保持不变
+     */
+    private static HttpHeaders merge(HttpHeaders cached, HttpHeaders notModified) {
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(cached);
+        for (Map.Entry<String, List<String>> header : notModified.entrySet()) {
+            String name = header.getKey();
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)
+                    && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)
+                    && !HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                merged.put(name, header.getValue());
+            }
+        }
+        return HttpHeaders.readOnlyHttpHeaders(merged);
+    }
+
+    private static long headerBytes(HttpHeaders headers) {
+        long bytes = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += header.getKey().length() + value.length() + 4;
+            }
+        }
+        return bytes;
+    }
+
+    private Entry get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void put(Entry entry) {
+        synchronized (entries) {
+            Entry old = entries.put(entry.key, entry);
+            if (old != null) {
+                currentBytes -= old.size;
+            }
+            currentBytes += entry.size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                currentBytes -= eldest.next().size;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                currentBytes -= old.size;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            currentBytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return 缓存项占用的字节数（估算）
+     */
+    public long getCurrentBytes() {
+        synchronized (entries) {
+            return currentBytes;
+        }
+    }
+
+    /**
+     * @return 未过期、直接返回缓存的请求数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return 没有可用的缓存项、发出普通请求的 GET 请求数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return 发出条件请求重新验证的次数
+     */
+    public long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return 重新验证时服务端响应 304 的次数
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * 只取缓存用到的 Cache-Control 指令
+     */
+    static final class CacheControl {
+        boolean noStore;
+        boolean noCache;
+        /**
+         * 秒，-1 表示没有 max-age
+         */
+        long maxAge = -1;
+
+        static CacheControl parse(HttpHeaders headers) {
+            CacheControl control = new CacheControl();
+            List<String> values = headers.get(HttpHeaders.CACHE_CONTROL);
+            if (values == null) {
+                if ("no-cache".equalsIgnoreCase(headers.getFirst(HttpHeaders.PRAGMA))) {
+                    control.noCache = true;
+                }
+                return control;
+            }
+            for (String value : values) {
+                for (String directive : value.split(",")) {
+                    String d = directive.trim().toLowerCase(Locale.ROOT);
+                    if (d.equals("no-store")) {
+                        control.noStore = true;
+                    } else if (d.startsWith("no-cache")) {
+                        control.noCache = true;
+                    } else if (d.startsWith("max-age=")) {
+                        control.maxAge = parseSeconds(d.substring("max-age=".length()));
+                    }
+                }
+            }
+            return control;
+        }
+
+        private static long parseSeconds(String s) {
+            if (s.length() > 1 && s.startsWith("\"") && s.endsWith("\"")) {
+                s = s.substring(1, s.length() - 1);
+            }
+            try {
+                return Math.max(0, Long.parseLong(s));
+            } catch (NumberFormatException e) {
+                // 无法解析的 max-age 按已过期处理
+                return 0;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final HttpHeaders headers;
+        final byte[] body;
+        final Map<String, List<String>> vary;
+        final String etag;
+        final String lastModified;
+        final long size;
+        /**
+         * 缓存项在本地变为过期的时刻，毫秒
+         */
+        final long expiresAt;
+
+        Entry(String key, HttpHeaders headers, byte[] body, Map<String, List<String>> vary,
+              long requestTime, long responseTime) {
+            this.key = key;
+            this.headers = headers;
+            this.body = body;
+            this.vary = vary;
+            this.etag = headers.getETag();
+            this.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            this.size = body.length + headerBytes(headers) + ENTRY_OVERHEAD + key.length();
+            this.expiresAt = responseTime + freshnessLifetime(headers) - initialAge(headers, requestTime, responseTime);
+        }
+
+        /**
+         * RFC 7234 4.2.1，没有明确过期时间时按 Last-Modified 估算
+         */
+        private static long freshnessLifetime(HttpHeaders headers) {
+            CacheControl control = CacheControl.parse(headers);
+            if (control.noCache) {
+                return 0;
+            }
+            if (control.maxAge >= 0) {
+                return TimeUnit.SECONDS.toMillis(control.maxAge);
+            }
+            long date = date(headers, HttpHeaders.DATE);
+            if (headers.getFirst(HttpHeaders.EXPIRES) != null) {
+                long expires = date(headers, HttpHeaders.EXPIRES);
+                return expires < 0 || date < 0 ? 0 : Math.max(0, expires - date);
+            }
+            long lastModified = date(headers, HttpHeaders.LAST_MODIFIED);
+            if (lastModified >= 0 && date > lastModified) {
+                return (date - lastModified) / 10;
+            }
+            return 0;
+        }
+
+        /**
+         * RFC 7234 4.2.3，收到响应时它已经存在的时间
+         */
+        private static long initialAge(HttpHeaders headers, long requestTime, long responseTime) {
+            long date = date(headers, HttpHeaders.DATE);
+            long apparentAge = date < 0 ? 0 : Math.max(0, responseTime - date);
+            long ageValue = 0;
+            String age = headers.getFirst(HttpHeaders.AGE);
+            if (age != null) {
+                try {
+                    ageValue = TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(age.trim())));
+                } catch (NumberFormatException e) {
+                    // 忽略无法解析的 Age
+                }
+            }
+            return Math.max(apparentAge, ageValue + (responseTime - requestTime));
+        }
+
+        private static long date(HttpHeaders headers, String name) {
+            try {
+                return headers.getFirstDate(name);
+            } catch (IllegalArgumentException e) {
+                return -1;
+            }
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean varyMatches(HttpHeaders requestHeaders) {
+            if (vary == null) {
+                return true;
+            }
+            for (Map.Entry<String, List<String>> header : vary.entrySet()) {
+                List<String> values = requestHeaders.get(header.getKey());
+                if (values == null ? header.getValue() != null : !values.equals(header.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        ClientHttpResponse toResponse() {
+            return new BufferedResponse(null, headers, new ByteArrayInputStream(body));
+        }
+    }
+
+    /**
+     * 状态为 200、响应体已经读到内存中（或部分在内存中）的响应
+     */
+    private static final class BufferedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final HttpHeaders headers;
+        private final InputStream body;
+
+        BufferedResponse(ClientHttpResponse delegate, HttpHeaders headers, InputStream body) {
+            this.delegate = delegate;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return HttpStatus.OK.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.one.learn.resttemplate.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把同一时间段内各个线程发出的单个产品查询（GET .../get_product2?id=N）合并为一个批量请求
+ * （POST .../batch，请求体为 id 的 JSON 数组），调用方的代码不需要改变。
+ * <p>
+ * 第一个到达的查询等待最多 maxWait，期间到达的查询加入同一批，达到 maxBatchSize 时立即发出。
+ * 批量响应按 id 拆开，每个调用方得到自己的产品：存在时为 200 和该产品的 JSON（与 get_product2 返回的字节相同），
+ * 不存在时为 404。批量请求失败时每个调用方得到同样的异常或错误响应。
+ * 服务端在 Product-ETags 首部中按顺序给出各个产品的 ETag 时（一批不超过 100 个），响应与 get_product2 一样带有
+ * ETag 和 Vary: Accept，放在前面的 {@link HttpCacheInterceptor} 可以缓存并在之后验证；
+ * 没有给出时响应没有 ETag，缓存不会保存它。
+ * <p>
+ * <ul>
+ *     <li>只合并 Accept 接受 JSON 的查询，带条件首部的查询（如 {@link HttpCacheInterceptor} 的验证请求）不合并；
+ *     其它首部（如 Authorization）不同的查询分在不同的批中</li>
+ *     <li>一批中只有一个查询时直接发出原来的请求</li>
+ *     <li>批量接口不存在（404、405、501）时，这一批的查询各自发出原来的请求，之后一分钟内不再尝试批量。
+ *     RestTemplate 的请求工厂都不支持 HTTP 管线化，所以不在一个连接上管线化发送，而是各自使用连接池中的连接</li>
+ * </ul>
+ * 代价是每个查询最多多等 maxWait，适合大量线程同时读取不同产品的场景。线程安全。
+ */
+public class MicroBatchInterceptor implements ClientHttpRequestInterceptor {
+    private static final long UNSUPPORTED_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String PRODUCT_ETAGS = "Product-ETags";
+
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    /**
+     * 正在收集的批，以批量接口的 URI 和请求首部为键
+     */
+    private final Map<String, Batch> open = new HashMap<>();
+    /**
+     * 批量接口不可用的 URI 和下次尝试的时间
+     */
+    private final ConcurrentHashMap<String, Long> unsupported = new ConcurrentHashMap<>();
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedLookups = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * 每批最多 100 个查询，最多等待 2ms
+     */
+    public MicroBatchInterceptor() {
+        this(100, Duration.ofMillis(2));
+    }
+
+    public MicroBatchInterceptor(int maxBatchSize, Duration maxWait) {
+        if (maxBatchSize < 2) {
+            throw new IllegalArgumentException("maxBatchSize 至少为 2");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Integer id = lookupId(request, body);
+        if (id == null) {
+            return execution.execute(request, body);
+        }
+        String path = request.getURI().getRawPath();
+        URI batchUri = request.getURI().resolve(path.substring(0, path.lastIndexOf('/') + 1) + "batch");
+        String batchUriString = batchUri.toString();
+        Long retryAt = unsupported.get(batchUriString);
+        if (retryAt != null) {
+            if (System.currentTimeMillis() < retryAt) {
+                return execution.execute(request, body);
+            }
+            unsupported.remove(batchUriString, retryAt);
+        }
+
+        String key = batchUriString + '\n' + headersWithoutAccept(request.getHeaders());
+        Batch batch;
+        CompletableFuture<Result> mine;
+        boolean leader;
+        synchronized (open) {
+            batch = open.get(key);
+            leader = batch == null;
+            if (leader) {
+                batch = new Batch(batchUri, request.getHeaders());
+                open.put(key, batch);
+            }
+            mine = batch.add(id);
+            if (batch.size == maxBatchSize) {
+                open.remove(key);
+                batch.closed = true;
+                open.notifyAll();
+            }
+        }
+        if (leader) {
+            awaitBatch(key, batch);
+            if (batch.size == 1) {
+                return execution.execute(request, body);
+            }
+            send(batch, execution);
+        }
+        Result result = await(mine);
+        if (result == Result.FALLBACK) {
+            fallbacks.increment();
+            return execution.execute(request, body);
+        }
+        return result.toResponse();
+    }
+
+    /**
+     * @return 可以合并的查询的 id，其它请求为 null
+     */
+    private static Integer lookupId(HttpRequest request, byte[] body) {
+        if (request.getMethod() != HttpMethod.GET || body.length > 0) {
+            return null;
+        }
+        URI uri = request.getURI();
+        String path = uri.getRawPath();
+        String query = uri.getRawQuery();
+        if (path == null || query == null || !(path.endsWith("/get_product2") || path.endsWith("/get-product-2"))
+                || !query.startsWith("id=") || !acceptsJson(request.getHeaders())
+                || request.getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)
+                || request.getHeaders().containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+            return null;
+        }
+        String value = query.substring(3);
+        if (value.isEmpty() || value.length() > 10) {
+            return null;
+        }
+        for (int i = value.charAt(0) == '-' ? 1 : 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return null;
+            }
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean acceptsJson(HttpHeaders headers) {
+        List<MediaType> accept = headers.getAccept();
+        if (accept.isEmpty()) {
+            return true;
+        }
+        for (MediaType type : accept) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String headersWithoutAccept(HttpHeaders headers) {
+        Map<String, List<String>> key = new LinkedHashMap<>(headers);
+        key.remove(HttpHeaders.ACCEPT);
+        key.remove(HttpHeaders.CONTENT_LENGTH);
+        return key.toString();
+    }
+
+    /**
+     * 等到这一批满了或者等待时间到了，然后关闭这一批
+     */
+    private void awaitBatch(String key, Batch batch) throws InterruptedIOException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        boolean interrupted = false;
+        synchronized (open) {
+            try {
+                long remaining;
+                while (!batch.closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(open, remaining);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (!batch.closed) {
+                open.remove(key, batch);
+                batch.closed = true;
+            }
+        }
+        if (interrupted) {
+            // 其它查询各自发出原来的请求
+            batch.completeAll(Result.FALLBACK);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并查询时被中断");
+        }
+    }
+
+    private void send(Batch batch, ClientHttpRequestExecution execution) {
+        Integer[] ids = batch.waiters.keySet().toArray(new Integer[0]);
+        byte[] requestBody = Arrays.toString(ids).replace(" ", "").getBytes(StandardCharsets.US_ASCII);
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(batch.headers);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(requestBody.length);
+        HttpRequest batchRequest = new BatchRequest(batch.uri, headers);
+        batches.increment();
+        batchedLookups.add(batch.size);
+        try (ClientHttpResponse response = execution.execute(batchRequest, requestBody)) {
+            int status = response.getRawStatusCode();
+            if (status == HttpStatus.NOT_FOUND.value() || status == HttpStatus.METHOD_NOT_ALLOWED.value()
+                    || status == HttpStatus.NOT_IMPLEMENTED.value()) {
+                unsupported.put(batch.uri.toString(), System.currentTimeMillis() + UNSUPPORTED_RETRY_MILLIS);
+                batch.completeAll(Result.FALLBACK);
+                return;
+            }
+            byte[] bytes = StreamUtils.copyToByteArray(response.getBody());
+            if (status != HttpStatus.OK.value()) {
+                HttpHeaders copy = new HttpHeaders();
+                copy.putAll(response.getHeaders());
+                batch.completeAll(new Result(status, response.getStatusText(), copy, bytes));
+                return;
+            }
+            List<byte[]> products = split(bytes, ids.length);
+            String[] etags = etags(response.getHeaders(), ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                batch.complete(ids[i], products.get(i) == null
+                        ? Result.NOT_FOUND : Result.product(products.get(i), etags != null ? etags[i] : null));
+            }
+        } catch (Throwable e) {
+            batch.completeAllExceptionally(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    /**
+     * @return Product-ETags 首部中各个产品的 ETag，不存在的产品为 null；没有这个首部或个数不符时返回 null
+     */
+    private static String[] etags(HttpHeaders headers, int expected) {
+        String value = headers.getFirst(PRODUCT_ETAGS);
+        if (value == null) {
+            return null;
+        }
+        String[] etags = value.split(",", -1);
+        if (etags.length != expected) {
+            return null;
+        }
+        for (int i = 0; i < etags.length; i++) {
+            etags[i] = etags[i].trim();
+            if (etags[i].isEmpty()) {
+                etags[i] = null;
+            }
+        }
+        return etags;
+    }
+
+    /**
+     * 把 JSON 数组拆成每个元素的原始字节，null 元素为 null
+     */
+    static List<byte[]> split(byte[] array, int expected) throws IOException {
+        List<byte[]> elements = new ArrayList<>(expected);
+        try (JsonParser parser = JSON_FACTORY.createParser(array)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("批量响应不是 JSON 数组");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("批量响应不完整");
+                }
+                if (token == JsonToken.VALUE_NULL) {
+                    elements.add(null);
+                    continue;
+                }
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                int end = (int) parser.getCurrentLocation().getByteOffset();
+                elements.add(Arrays.copyOfRange(array, start, end));
+            }
+        }
+        if (elements.size() != expected) {
+            throw new IOException("批量响应有 " + elements.size() + " 个元素，应为 " + expected);
+        }
+        return elements;
+    }
+
+    private static Result await(CompletableFuture<Result> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待批量请求时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * @return 发出的批量请求数
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return 通过批量请求完成的查询数
+     */
+    public long getBatchedLookupCount() {
+        return batchedLookups.sum();
+    }
+
+    /**
+     * @return 批量接口不可用、改为单独发出的查询数
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    private static final class Batch {
+        final URI uri;
+        final HttpHeaders headers;
+        /**
+         * 同一个 id 可能被多个线程同时查询，共用批量响应中的一个元素
+         */
+        final Map<Integer, List<CompletableFuture<Result>>> waiters = new LinkedHashMap<>();
+        int size;
+        boolean closed;
+
+        Batch(URI uri, HttpHeaders headers) {
+            this.uri = uri;
+            this.headers = headers;
+        }
+
+        CompletableFuture<Result> add(int id) {
+            CompletableFuture<Result> future = new CompletableFuture<>();
+            waiters.computeIfAbsent(id, k -> new ArrayList<>(1)).add(future);
+            size++;
+            return future;
+        }
+
+        // 批关闭以后 waiters 不再变化，下面的方法不需要加锁
+
+        void complete(int id, Result result) {
+            for (CompletableFuture<Result> future : waiters.get(id)) {
+                future.complete(result);
+            }
+        }
+
+        void completeAll(Result result) {
+            for (List<CompletableFuture<Result>> futures : waiters.values()) {
+                futures.forEach(future -> future.complete(result));
+            }
+        }
+
+        void completeAllExceptionally(Throwable error) {
+            for (List<CompletableFuture<Result>> futures : waiters.values()) {
+                futures.forEach(future -> future.completeExceptionally(error));
+            }
+        }
+    }
+
+    private static final class BatchRequest implements HttpRequest {
+        private final URI uri;
+        private final HttpHeaders headers;
+
+        BatchRequest(URI uri, HttpHeaders headers) {
+            this.uri = uri;
+            this.headers = headers;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return HttpMethod.POST.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    /**
+     * 一个查询的结果，每个调用方各自读取同一份字节
+     */
+    private static final class Result {
+        static final Result FALLBACK = new Result(0, null, null, null);
+        static final Result NOT_FOUND = new Result(HttpStatus.NOT_FOUND.value(),
+                HttpStatus.NOT_FOUND.getReasonPhrase(), HttpHeaders.EMPTY, new byte[0]);
+
+        final int status;
+        final String statusText;
+        final HttpHeaders headers;
+        final byte[] body;
+
+        Result(int status, String statusText, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.statusText = statusText;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * @param etag 产品的 ETag，可以为 null
+         */
+        static Result product(byte[] json, String etag) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(json.length);
+            headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+            if (etag != null) {
+                headers.set(HttpHeaders.ETAG, etag);
+            }
+            return new Result(HttpStatus.OK.value(), HttpStatus.OK.getReasonPhrase(), headers, json);
+        }
+
+        ClientHttpResponse toResponse() {
+            InputStream in = new ByteArrayInputStream(body);
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatus getStatusCode() {
+                    return HttpStatus.valueOf(status);
+                }
+
+                @Override
+                public int getRawStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return statusText;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return in;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.one.learn.resttemplate.client;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建基于 HttpComponents 连接池的 {@link HttpComponentsClientHttpRequestFactory}，代替
+ * SimpleClientHttpRequestFactory。
+ * <p>
+ * SimpleClientHttpRequestFactory 每个请求一个 HttpURLConnection，JDK 对每个目标最多只缓存 http.maxConnections（默认 5）
+ * 个空闲连接，并发超过时多出的连接用完即关闭，高负载下大量 TIME_WAIT 占满本地端口。这里的连接池按目标限制连接数，
+ * 连接用完放回池中复用；空闲连接由后台线程定期关闭，连接到达寿命后不再复用。
+ * <p>
+ * 返回的工厂持有连接池和后台线程，不再使用时调用 {@link HttpComponentsClientHttpRequestFactory#destroy()}
+ * 或关闭其中的 HttpClient。
+ */
+public final class PooledRequestFactories {
+
+    private PooledRequestFactories() {
+    }
+
+    public static HttpComponentsClientHttpRequestFactory create(ConnectionPoolSettings settings) {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(settings.getTimeToLive().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(settings.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.getDefaultMaxPerRoute());
+        for (Map.Entry<String, Integer> route : settings.getMaxPerRoute().entrySet()) {
+            connectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(route.getKey())), route.getValue());
+        }
+        connectionManager.setValidateAfterInactivity((int) settings.getValidateAfterInactivity().toMillis());
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy(settings.getKeepAlive().toMillis()))
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout((int) settings.getConnectTimeout().toMillis());
+        factory.setConnectionRequestTimeout((int) settings.getConnectionRequestTimeout().toMillis());
+        factory.setReadTimeout((int) settings.getReadTimeout().toMillis());
+        return factory;
+    }
+
+    /**
+     * 优先使用响应头 Keep-Alive: timeout=n，但不超过 maxMillis；没有这个头时保持 maxMillis。
+     * HttpClient 默认的策略在没有这个头时永久保持，连接可能在服务端超时关闭后仍留在池中
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(long maxMillis) {
+        return (HttpResponse response, HttpContext context) -> {
+            BasicHeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, maxMillis);
+                    } catch (NumberFormatException e) {
+                        // 忽略格式错误的值
+                    }
+                }
+            }
+            return maxMillis;
+        };
+    }
+}
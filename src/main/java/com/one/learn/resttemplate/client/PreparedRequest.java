@@ -0,0 +1,327 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预先编译好的请求：请求方法、URI 模板、固定的请求头、请求体的转换器和响应的提取器在创建时确定一次，
+ * 之后每次调用只替换 URI 变量并执行。不可变，线程安全，适合在高 QPS 的调用方保存为字段反复使用。
+ * <pre>
+ * PreparedRequest&lt;Product&gt; getProduct = PreparedRequest.builder(restTemplate, HttpMethod.GET,
+ *         "http://localhost:8080/product/get_product2?id={id}").build(Product.class);
+ * Product product = getProduct.execute(101);
+ * </pre>
+ * 与 RestTemplate 的 getForObject 等方法相比：
+ * <ul>
+ *     <li>URI 模板只解析、编码一次；变量值按 {@link UriUtils#encode(String, java.nio.charset.Charset)} 严格编码，
+ *     与 UriComponentsBuilder.encode() 相同，'/'、'&amp;' 等保留字符也会编码（RestTemplate 默认只编码非法字符）</li>
+ *     <li>Accept 根据响应类型和 RestTemplate 的转换器在创建时算好，请求体的转换器在创建时选好</li>
+ *     <li>仍然通过 {@link RestTemplate#execute(URI, HttpMethod, RequestCallback, ResponseExtractor)} 执行，
+ *     使用 RestTemplate 的请求工厂、拦截器和错误处理</li>
+ * </ul>
+ * 创建之后再修改 RestTemplate 的转换器不会影响已经创建的请求。
+ */
+public final class PreparedRequest<T> {
+    private final RestTemplate restTemplate;
+    private final HttpMethod method;
+    /**
+     * 编码后的模板按变量拆开：literals 比 variables 多一个，依次交替拼接
+     */
+    private final String[] literals;
+    private final String[] variables;
+    private final MultiValueMap<String, String> headers;
+    private final Class<?> bodyType;
+    private final MediaType contentType;
+    private final HttpMessageConverter<Object> bodyConverter;
+    private final ResponseExtractor<T> responseExtractor;
+    private final RequestCallback noBody;
+
+    private PreparedRequest(Builder builder, Type responseType) {
+        this.restTemplate = builder.restTemplate;
+        this.method = builder.method;
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        compile(builder.uriTemplate, literals, variables);
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+
+        List<HttpMessageConverter<?>> converters = restTemplate.getMessageConverters();
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(builder.headers);
+        List<HttpMessageConverter<?>> readers = responseType == Void.class ? Collections.emptyList()
+                : readers(converters, responseType);
+        if (headers.getAccept().isEmpty() && !readers.isEmpty()) {
+            headers.setAccept(acceptableMediaTypes(readers, responseType));
+        }
+        this.contentType = builder.contentType;
+        if (contentType != null) {
+            headers.setContentType(contentType);
+        }
+        this.headers = new LinkedMultiValueMap<>(headers);
+        this.bodyType = builder.bodyType;
+        this.bodyConverter = bodyType != null ? writer(converters, bodyType, contentType) : null;
+        this.responseExtractor = readers.isEmpty() ? null : new HttpMessageConverterExtractor<>(responseType, readers);
+        this.noBody = request -> request.getHeaders().addAll(this.headers);
+    }
+
+    /**
+     * @param uriTemplate 完整的 URL 模板，变量写作 {name}，按出现的顺序对应 {@link #execute(Object...)} 的参数
+     */
+    public static Builder builder(RestTemplate restTemplate, HttpMethod method, String uriTemplate) {
+        return new Builder(restTemplate, method, uriTemplate);
+    }
+
+    /**
+     * 执行没有请求体的请求
+     * @param uriVariables 按模板中出现的顺序给出的变量值，null 替换为空字符串
+     * @return 响应体，响应类型为 Void 或没有响应体时为 null
+     */
+    public T execute(Object... uriVariables) throws RestClientException {
+        return restTemplate.execute(expand(uriVariables), method, noBody, responseExtractor);
+    }
+
+    /**
+     * 执行没有请求体的请求，URI 变量按名称取值
+     */
+    public T execute(Map<String, ?> uriVariables) throws RestClientException {
+        return restTemplate.execute(expand(uriVariables), method, noBody, responseExtractor);
+    }
+
+    /**
+     * 执行带请求体的请求
+     * @param body 请求体，类型必须是创建时给出的类型
+     * @throws IllegalStateException 创建时没有指定请求体类型
+     */
+    public T executeWithBody(Object body, Object... uriVariables) throws RestClientException {
+        return restTemplate.execute(expand(uriVariables), method, bodyCallback(body), responseExtractor);
+    }
+
+    public T executeWithBody(Object body, Map<String, ?> uriVariables) throws RestClientException {
+        return restTemplate.execute(expand(uriVariables), method, bodyCallback(body), responseExtractor);
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return 每次请求都带上的请求头，包括算好的 Accept 和 Content-Type
+     */
+    public HttpHeaders getHeaders() {
+        return HttpHeaders.readOnlyHttpHeaders(new HttpHeaders(headers));
+    }
+
+    private RequestCallback bodyCallback(Object body) {
+        if (bodyConverter == null) {
+            throw new IllegalStateException("创建请求时没有指定请求体类型");
+        }
+        if (!bodyType.isInstance(body)) {
+            throw new IllegalArgumentException("请求体应为 " + bodyType.getName() + "，实际为 "
+                    + (body == null ? "null" : body.getClass().getName()));
+        }
+        return request -> {
+            request.getHeaders().addAll(headers);
+            bodyConverter.write(body, contentType, request);
+        };
+    }
+
+    URI expand(Object... values) {
+        if (values.length < variables.length) {
+            throw new IllegalArgumentException("URI 模板需要 " + variables.length + " 个变量，只给出了 " + values.length + " 个");
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < variables.length; i++) {
+            sb.append(literals[i]);
+            appendValue(sb, values[i]);
+        }
+        sb.append(literals[variables.length]);
+        return URI.create(sb.toString());
+    }
+
+    URI expand(Map<String, ?> values) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < variables.length; i++) {
+            sb.append(literals[i]);
+            if (!values.containsKey(variables[i])) {
+                throw new IllegalArgumentException("缺少 URI 变量 '" + variables[i] + "'");
+            }
+            appendValue(sb, values.get(variables[i]));
+        }
+        sb.append(literals[variables.length]);
+        return URI.create(sb.toString());
+    }
+
+    private static void appendValue(StringBuilder sb, Object value) {
+        if (value != null) {
+            sb.append(UriUtils.encode(value.toString(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 用 UriComponentsBuilder 编码模板中的字面部分（变量保持原样），再按 {name} 拆开。
+     * 变量名中 ':' 之后的正则部分忽略
+     */
+    private static void compile(String uriTemplate, List<String> literals, List<String> variables) {
+        String encoded = UriComponentsBuilder.fromUriString(uriTemplate).encode().build().toUriString();
+        int start = 0;
+        int open;
+        while ((open = encoded.indexOf('{', start)) >= 0) {
+            int depth = 1;
+            int close = open + 1;
+            for (; close < encoded.length() && depth > 0; close++) {
+                char c = encoded.charAt(close);
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                }
+            }
+            if (depth > 0) {
+                throw new IllegalArgumentException("URI 模板中的 '{' 没有闭合：" + uriTemplate);
+            }
+            literals.add(encoded.substring(start, open));
+            String name = encoded.substring(open + 1, close - 1);
+            int colon = name.indexOf(':');
+            variables.add((colon >= 0 ? name.substring(0, colon) : name).trim());
+            start = close;
+        }
+        literals.add(encoded.substring(start));
+    }
+
+    /**
+     * 与 RestTemplate 判断的方式相同：响应类型是 Class 时用 canRead(Class, null)，泛型类型只考虑 GenericHttpMessageConverter
+     */
+    private static List<HttpMessageConverter<?>> readers(List<HttpMessageConverter<?>> converters, Type responseType) {
+        List<HttpMessageConverter<?>> readers = new ArrayList<>();
+        for (HttpMessageConverter<?> converter : converters) {
+            boolean canRead = responseType instanceof Class ? converter.canRead((Class<?>) responseType, null)
+                    : converter instanceof GenericHttpMessageConverter
+                    && ((GenericHttpMessageConverter<?>) converter).canRead(responseType, null, null);
+            if (canRead) {
+                readers.add(converter);
+            }
+        }
+        if (readers.isEmpty()) {
+            throw new IllegalArgumentException("没有可以读取 " + responseType.getTypeName() + " 的 HttpMessageConverter");
+        }
+        return readers;
+    }
+
+    /**
+     * 与 RestTemplate 生成 Accept 的方式相同：可读转换器支持的类型去掉 charset，按具体程度排序
+     */
+    private static List<MediaType> acceptableMediaTypes(List<HttpMessageConverter<?>> readers, Type responseType) {
+        Class<?> responseClass = responseClass(responseType);
+        Set<MediaType> types = new LinkedHashSet<>();
+        for (HttpMessageConverter<?> converter : readers) {
+            List<MediaType> supported = responseClass != null
+                    ? converter.getSupportedMediaTypes(responseClass) : converter.getSupportedMediaTypes();
+            for (MediaType type : supported) {
+                types.add(type.getCharset() != null ? new MediaType(type.getType(), type.getSubtype()) : type);
+            }
+        }
+        List<MediaType> result = new ArrayList<>(types);
+        MediaType.sortBySpecificity(result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpMessageConverter<Object> writer(List<HttpMessageConverter<?>> converters, Class<?> bodyType,
+                                                       MediaType contentType) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof GenericHttpMessageConverter
+                    ? ((GenericHttpMessageConverter<?>) converter).canWrite(bodyType, bodyType, contentType)
+                    : converter.canWrite(bodyType, contentType)) {
+                return (HttpMessageConverter<Object>) converter;
+            }
+        }
+        throw new IllegalArgumentException("没有可以写出 " + bodyType.getName()
+                + (contentType != null ? " 为 " + contentType : "") + " 的 HttpMessageConverter");
+    }
+
+    private static Class<?> responseClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() instanceof Class) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return null;
+    }
+
+    public static final class Builder {
+        private final RestTemplate restTemplate;
+        private final HttpMethod method;
+        private final String uriTemplate;
+        private final HttpHeaders headers = new HttpHeaders();
+        private Class<?> bodyType;
+        private MediaType contentType;
+
+        private Builder(RestTemplate restTemplate, HttpMethod method, String uriTemplate) {
+            this.restTemplate = restTemplate;
+            this.method = method;
+            this.uriTemplate = uriTemplate;
+        }
+
+        public Builder header(String name, String... values) {
+            for (String value : values) {
+                headers.add(name, value);
+            }
+            return this;
+        }
+
+        /**
+         * 指定 Accept，不指定时按响应类型和转换器生成
+         */
+        public Builder accept(MediaType... mediaTypes) {
+            headers.setAccept(Arrays.asList(mediaTypes));
+            return this;
+        }
+
+        /**
+         * 请求带请求体，用 {@link #executeWithBody(Object, Object...)} 执行
+         * @param contentType 请求体的类型，null 时由转换器决定
+         */
+        public Builder body(Class<?> bodyType, MediaType contentType) {
+            this.bodyType = bodyType;
+            this.contentType = contentType;
+            return this;
+        }
+
+        /**
+         * @param responseType 响应体的类型，Void.class 表示忽略响应体
+         */
+        public <T> PreparedRequest<T> build(Class<T> responseType) {
+            return new PreparedRequest<>(this, responseType);
+        }
+
+        public <T> PreparedRequest<T> build(ParameterizedTypeReference<T> responseType) {
+            return new PreparedRequest<>(this, responseType.getType());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.bean.Product;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * /product 接口的类型化客户端，线程安全，应当在应用中共享一个实例。
+ * <p>
+ * 用 {@link #ProductClient(String, ConnectionPoolSettings)} 创建时使用 {@link PooledRequestFactories} 的连接池，
+ * {@link #close()} 时关闭；也可以传入已有的 RestTemplate，此时 close 不做任何事。
+ * 各个接口的请求在创建时编译为 {@link PreparedRequest}，调用时只替换参数。
+ * 产品不存在时 {@link #get(int)} 返回 null、{@link #delete(int)} 返回 false，其它错误抛出 {@link RestClientException}。
+ */
+public class ProductClient implements Closeable {
+    private static final ParameterizedTypeReference<List<Product>> PRODUCT_LIST =
+            new ParameterizedTypeReference<List<Product>>() {
+            };
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    /**
+     * 自己创建的连接池，传入 RestTemplate 时为 null
+     */
+    private final Closeable ownedHttpClient;
+    private final PreparedRequest<Product> getDefault;
+    private final PreparedRequest<Product> get;
+    private final PreparedRequest<List<Product>> getAll;
+    private final PreparedRequest<Product> save;
+    private final PreparedRequest<Void> update;
+    private final PreparedRequest<Void> delete;
+
+    /**
+     * @param baseUrl 服务地址，如 http://localhost:8080
+     */
+    public ProductClient(String baseUrl, ConnectionPoolSettings settings) {
+        this(new RestTemplate(PooledRequestFactories.create(settings)), baseUrl, true);
+    }
+
+    public ProductClient(RestTemplate restTemplate, String baseUrl) {
+        this(restTemplate, baseUrl, false);
+    }
+
+    private ProductClient(RestTemplate restTemplate, String baseUrl, boolean owned) {
+        this.restTemplate = restTemplate;
+        this.ownedHttpClient = owned
+                ? (Closeable) ((HttpComponentsClientHttpRequestFactory) restTemplate.getRequestFactory()).getHttpClient()
+                : null;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        String base = this.baseUrl + "/product";
+        this.getDefault = PreparedRequest.builder(restTemplate, HttpMethod.GET, base + "/get_product1")
+                .accept(MediaType.APPLICATION_JSON)
+                .build(Product.class);
+        this.get = PreparedRequest.builder(restTemplate, HttpMethod.GET, base + "/get_product2?id={id}")
+                .accept(MediaType.APPLICATION_JSON)
+                .build(Product.class);
+        this.getAll = PreparedRequest.builder(restTemplate, HttpMethod.POST, base + "/batch")
+                .accept(MediaType.APPLICATION_JSON)
+                .body(List.class, MediaType.APPLICATION_JSON)
+                .build(PRODUCT_LIST);
+        this.save = PreparedRequest.builder(restTemplate, HttpMethod.POST, base + "/post_product2")
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Product.class, MediaType.APPLICATION_JSON)
+                .build(Product.class);
+        this.update = PreparedRequest.builder(restTemplate, HttpMethod.PUT, base + "/update")
+                .body(MultiValueMap.class, MediaType.APPLICATION_FORM_URLENCODED)
+                .build(Void.class);
+        this.delete = PreparedRequest.builder(restTemplate, HttpMethod.DELETE, base + "/delete/{id}")
+                .build(Void.class);
+    }
+
+    /**
+     * @return 默认的产品
+     */
+    public Product getDefault() {
+        return getDefault.execute();
+    }
+
+    /**
+     * @return 产品，不存在时返回 null
+     */
+    public Product get(int id) {
+        try {
+            return get.execute(id);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一次请求取回多个产品
+     * @return 与 ids 一一对应，不存在的产品为 null
+     */
+    public List<Product> getAll(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getAll.executeWithBody(ids);
+    }
+
+    /**
+     * 以 JSON 提交产品，有 id 时服务端保存
+     * @return 服务端收到的产品
+     */
+    public Product save(Product product) {
+        return save.executeWithBody(product);
+    }
+
+    /**
+     * 更新产品，不存在时新增，等待服务端写入完成
+     * @throws IllegalArgumentException 产品没有 id
+     */
+    public void update(Product product) {
+        if (product.getId() == null) {
+            throw new IllegalArgumentException("更新的产品必须有 id");
+        }
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("id", product.getId().toString());
+        if (product.getName() != null) {
+            form.add("name", product.getName());
+        }
+        if (product.getPrice() != null) {
+            form.add("price", product.getPrice().toPlainString());
+        }
+        update.executeWithBody(form);
+    }
+
+    /**
+     * 删除产品，等待服务端删除完成
+     * @return 产品不存在时返回 false
+     */
+    public boolean delete(int id) {
+        try {
+            delete.execute(id);
+            return true;
+        } catch (HttpClientErrorException.NotFound e) {
+            return false;
+        }
+    }
+
+    /**
+     * 下载 /product/upload 上传的文件，响应体经 {@link ResponseExtractors#toFile(Path)} 直接写到磁盘，不经过堆中的大数组。
+     * RestTemplate 上有 HttpCacheInterceptor 或 SingleFlightInterceptor 时它们仍会缓冲响应体
+     * @return 下载的字节数
+     * @throws HttpClientErrorException.NotFound 文件不存在
+     */
+    public long download(String filename, Path target) {
+        return restTemplate.execute(baseUrl + "/product/download/{filename}", HttpMethod.GET, null,
+                ResponseExtractors.toFile(target), filename);
+    }
+
+    /**
+     * @return 服务地址，不以 '/' 结尾
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownedHttpClient != null) {
+            ownedHttpClient.close();
+        }
+    }
+}
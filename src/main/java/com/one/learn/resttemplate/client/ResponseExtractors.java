@@ -0,0 +1,226 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.util.ByteArrayPool;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以流的方式处理响应体的 {@link ResponseExtractor}，配合 {@code RestTemplate.execute(...)} 使用，
+ * 内存占用与响应体大小无关。
+ * <p>
+ * getForObject(url, String.class / byte[].class) 会把整个响应体读进堆里（byte[] 还要再复制一次），
+ * 大文件下载时很容易内存溢出；{@code new byte[body.available()]} 加一次 read() 更是只能读到已经到达的一部分。
+ * 这里的提取器都只用 {@link ByteArrayPool} 中可复用的缓冲区：
+ * <ul>
+ *     <li>{@link #toFile(Path)} 经 FileChannel 写到临时文件，完整后再改名为目标文件</li>
+ *     <li>{@link #process(BodyConsumer)} 把响应体分块交给回调，比如计算摘要或转发</li>
+ *     <li>{@link #withBody(long, BodyReader)} 交给回调一个有界的 InputStream</li>
+ * </ul>
+ * 响应有 Content-Length 时检查实际收到的字节数，连接提前断开时抛出 IOException，不会把不完整的数据当作结果。
+ * 提取器在 RestTemplate 的错误处理之后调用，只会看到成功的响应。
+ * <p>
+ * 注意 RestTemplate 上的 HttpCacheInterceptor、SingleFlightInterceptor 会把响应体整个读入内存，
+ * 下载大文件应使用没有这些拦截器的 RestTemplate。
+ */
+public final class ResponseExtractors {
+    private static final ByteArrayPool DEFAULT_POOL = new ByteArrayPool(64 * 1024, 64);
+
+    private ResponseExtractors() {
+    }
+
+    /**
+     * 使用默认的缓冲池（64KB 的缓冲区）
+     * @see #toFile(Path, ByteArrayPool)
+     */
+    public static ResponseExtractor<Long> toFile(Path target) {
+        return toFile(target, DEFAULT_POOL);
+    }
+
+    /**
+     * 把响应体写到 target 所在目录的临时文件中，完整收到后原子地改名为 target（覆盖已有的文件），失败时删除临时文件
+     * @return 写入的字节数
+     */
+    public static ResponseExtractor<Long> toFile(Path target, ByteArrayPool pool) {
+        return response -> {
+            Path directory = target.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, ".download-", ".part");
+            long written = 0;
+            byte[] buffer = pool.acquire();
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    InputStream in = response.getBody();
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                        written += n;
+                    }
+                }
+                checkLength(response.getHeaders(), written);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            } finally {
+                pool.release(buffer);
+            }
+            return written;
+        };
+    }
+
+    /**
+     * 使用默认的缓冲池（64KB 的缓冲区）
+     * @see #process(BodyConsumer, ByteArrayPool)
+     */
+    public static ResponseExtractor<Long> process(BodyConsumer consumer) {
+        return process(consumer, DEFAULT_POOL);
+    }
+
+    /**
+     * 逐块读取响应体交给 consumer，每块都放在同一个从池中借出的缓冲区里
+     * @return 响应体的字节数
+     */
+    public static ResponseExtractor<Long> process(BodyConsumer consumer, ByteArrayPool pool) {
+        return response -> {
+            long total = 0;
+            byte[] buffer = pool.acquire();
+            try {
+                InputStream in = response.getBody();
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    consumer.accept(buffer, 0, n);
+                    total += n;
+                }
+            } finally {
+                pool.release(buffer);
+            }
+            checkLength(response.getHeaders(), total);
+            return total;
+        };
+    }
+
+    /**
+     * 把响应体以有界的 InputStream 交给 reader：读到 Content-Length 即结束，
+     * 超过 maxBytes 时抛出 IOException（Content-Length 超过 maxBytes 时不读取直接失败）。
+     * 流在 reader 返回后失效，不能留到提取器之外使用；reader 不必关闭它
+     *
+     * @param maxBytes 最多读取的字节数
+     */
+    public static <T> ResponseExtractor<T> withBody(long maxBytes, BodyReader<T> reader) {
+        return response -> {
+            HttpHeaders headers = response.getHeaders();
+            long contentLength = headers.getContentLength();
+            if (contentLength > maxBytes) {
+                throw new IOException("响应体长度 " + contentLength + " 超过上限 " + maxBytes);
+            }
+            BoundedInputStream body = new BoundedInputStream(response.getBody(), contentLength, maxBytes);
+            T result = reader.read(body, headers);
+            if (body.isExhausted()) {
+                checkLength(headers, body.getCount());
+            }
+            return result;
+        };
+    }
+
+    private static void checkLength(HttpHeaders headers, long actual) throws IOException {
+        long expected = headers.getContentLength();
+        if (expected >= 0 && actual != expected) {
+            throw new IOException("响应体不完整：Content-Length 为 " + expected + "，实际收到 " + actual + " 字节");
+        }
+    }
+
+    @FunctionalInterface
+    public interface BodyConsumer {
+        /**
+         * @param buffer 缓冲区在回调返回后会被复用，不能保留对它的引用
+         */
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body, HttpHeaders headers) throws IOException;
+    }
+
+    /**
+     * 响应体的有界视图：读到 Content-Length 返回 -1，超过上限时抛出异常，close 不关闭底层的流（由 RestTemplate 关闭响应）
+     */
+    static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        /**
+         * Content-Length，-1 表示未知
+         */
+        private final long length;
+        private final long maxBytes;
+        private final byte[] single = new byte[1];
+        private long count;
+        private boolean exhausted;
+
+        BoundedInputStream(InputStream in, long length, long maxBytes) {
+            this.in = in;
+            this.length = length;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (length >= 0 && count >= length) {
+                exhausted = true;
+                return -1;
+            }
+            if (length >= 0) {
+                len = (int) Math.min(len, length - count);
+            } else if (count >= maxBytes) {
+                // 还有数据说明超过了上限，多读一个字节确认
+                len = 1;
+            }
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                exhausted = true;
+                return -1;
+            }
+            count += n;
+            if (count > maxBytes) {
+                throw new IOException("响应体超过上限 " + maxBytes + " 字节");
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            int available = in.available();
+            return length >= 0 ? (int) Math.min(available, length - count) : available;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        boolean isExhausted() {
+            return exhausted;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.one.learn.resttemplate.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.one.learn.resttemplate.bean.Product;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 创建共用一组消息转换器的 RestTemplate。
+ * <p>
+ * {@code new RestTemplate()} 每次都新建全部默认转换器，其中 JSON、Smile 和表单转换器各自构造 ObjectMapper，
+ * 新实例的 ObjectMapper 还要重新生成 Product 等类型的序列化器，所以每个方法甚至每次调用都 new 一个 RestTemplate 很慢。
+ * 这里的转换器与 {@code new RestTemplate()} 的默认列表相同（顺序和 Accept 也相同），只在类加载时创建一次，
+ * 并预先生成 Product 的 JSON 序列化器和反序列化器；之后创建 RestTemplate 只复制列表。
+ * <p>
+ * 转换器和 ObjectMapper 被所有实例共用，不要修改它们的配置；需要定制时在自己的 RestTemplate 中换成新的转换器。
+ */
+public final class RestTemplates {
+    private static final List<HttpMessageConverter<?>> CONVERTERS = createConverters();
+    private static final ObjectMapper OBJECT_MAPPER = findJsonConverter(CONVERTERS).getObjectMapper();
+
+    static {
+        warmUp(OBJECT_MAPPER);
+    }
+
+    private RestTemplates() {
+    }
+
+    public static RestTemplate create() {
+        return create(new SimpleClientHttpRequestFactory());
+    }
+
+    public static RestTemplate create(ClientHttpRequestFactory requestFactory) {
+        RestTemplate restTemplate = new RestTemplate(CONVERTERS);
+        restTemplate.setRequestFactory(requestFactory);
+        return restTemplate;
+    }
+
+    /**
+     * 创建用于上传大文件的 RestTemplate：请求体不缓冲，直接写到 HttpURLConnection 上，
+     * 长度已知时使用定长模式（setFixedLengthStreamingMode），否则使用 chunked；
+     * 并加上 {@link StreamingMultipartHttpMessageConverter}，可以用 {@link StreamingMultipartBody} 作为请求体。
+     * 不要再添加拦截器，拦截器会把请求体整个缓冲下来。
+     */
+    public static RestTemplate createStreaming() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        // 默认 4KB 一个 chunk，与转换器的缓冲区一致可以少写一些 chunk 头
+        requestFactory.setChunkSize(64 * 1024);
+        return createStreaming(requestFactory);
+    }
+
+    /**
+     * @param requestFactory 需要已经关闭请求体缓冲，如 {@code HttpComponentsClientHttpRequestFactory#setBufferRequestBody(false)}
+     */
+    public static RestTemplate createStreaming(ClientHttpRequestFactory requestFactory) {
+        RestTemplate restTemplate = create(requestFactory);
+        restTemplate.getMessageConverters().add(0, new StreamingMultipartHttpMessageConverter());
+        return restTemplate;
+    }
+
+    /**
+     * @return 共用的转换器，不可修改
+     */
+    public static List<HttpMessageConverter<?>> messageConverters() {
+        return CONVERTERS;
+    }
+
+    /**
+     * @return 共用的 JSON 转换器使用的 ObjectMapper
+     */
+    public static ObjectMapper objectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    private static List<HttpMessageConverter<?>> createConverters() {
+        return Collections.unmodifiableList(new ArrayList<>(new RestTemplate().getMessageConverters()));
+    }
+
+    static MappingJackson2HttpMessageConverter findJsonConverter(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                return (MappingJackson2HttpMessageConverter) converter;
+            }
+        }
+        throw new IllegalStateException("默认转换器中没有 MappingJackson2HttpMessageConverter");
+    }
+
+    /**
+     * 写出、读取一次 Product 和 Product 列表，让 ObjectMapper 缓存它们的序列化器和反序列化器
+     */
+    static void warmUp(ObjectMapper objectMapper) {
+        Product product = new Product(1, "ProductC", new BigDecimal("6666.0"));
+        JavaType list = objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class);
+        try {
+            byte[] one = objectMapper.writeValueAsBytes(product);
+            objectMapper.readValue(one, Product.class);
+            byte[] many = objectMapper.writerFor(list).writeValueAsBytes(Collections.singletonList(product));
+            objectMapper.readValue(many, list);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并并发的相同 GET 请求（single flight）：同一时刻方法、URI 和指定请求首部都相同的请求只有第一个真正发出，
+ * 其余请求等待它完成并得到同样的响应（状态、首部和响应体），失败时也一起得到同样的异常。
+ * <p>
+ * 热门产品的缓存过期时，大量线程同时读取同一个 URL，服务端只会收到一个请求。
+ * 请求完成后立即从在途表中移除，之后到达的请求重新发出，所以不会返回过时的数据。
+ * <p>
+ * 默认所有请求首部都参与区分请求，带不同 Authorization、Cookie 的请求不会合并，一个用户不会拿到另一个用户的响应。
+ * 请求带有每次都不同的首部（如跟踪 id）时，可以指定参与区分的首部，凭据首部总是参与区分。
+ * <p>
+ * 响应体需要在调用方之间共享，会整个读到内存中，只适合产品这样的小响应。
+ * 与 {@link HttpCacheInterceptor} 一起使用时放在缓存后面，验证请求也会被合并。线程安全。
+ */
+public class SingleFlightInterceptor implements ClientHttpRequestInterceptor {
+    private static final List<String> CREDENTIAL_HEADERS =
+            Arrays.asList(HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, HttpHeaders.PROXY_AUTHORIZATION);
+
+    /**
+     * 参与区分请求的首部，null 表示全部首部
+     */
+    private final List<String> keyHeaders;
+    private final ConcurrentHashMap<String, CompletableFuture<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder upstream = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 以方法、URI 和全部请求首部区分请求
+     */
+    public SingleFlightInterceptor() {
+        this.keyHeaders = null;
+    }
+
+    /**
+     * @param keyHeaders 参与区分请求的请求首部，值不同的请求不会合并。
+     *                   Authorization、Cookie 和 Proxy-Authorization 总是参与区分，不需要列出
+     */
+    public SingleFlightInterceptor(String... keyHeaders) {
+        List<String> names = new ArrayList<>(Arrays.asList(keyHeaders));
+        for (String name : CREDENTIAL_HEADERS) {
+            if (names.stream().noneMatch(name::equalsIgnoreCase)) {
+                names.add(name);
+            }
+        }
+        this.keyHeaders = Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (request.getMethod() != HttpMethod.GET || body.length > 0) {
+            return execution.execute(request, body);
+        }
+        String key = key(request);
+        CompletableFuture<SharedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing).toResponse();
+        }
+
+        upstream.increment();
+        SharedResponse shared;
+        try {
+            try (ClientHttpResponse response = execution.execute(request, body)) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.putAll(response.getHeaders());
+                shared = new SharedResponse(response.getRawStatusCode(), response.getStatusText(),
+                        HttpHeaders.readOnlyHttpHeaders(headers), StreamUtils.copyToByteArray(response.getBody()));
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        // 先移除再通知等待的请求：之后到达的请求不会再拿到这个响应
+        inFlight.remove(key, flight);
+        flight.complete(shared);
+        return shared.toResponse();
+    }
+
+    private String key(HttpRequest request) {
+        StringBuilder key = new StringBuilder(128).append(request.getURI());
+        HttpHeaders headers = request.getHeaders();
+        if (keyHeaders == null) {
+            Map<String, List<String>> all = new LinkedHashMap<>(headers);
+            all.remove(HttpHeaders.CONTENT_LENGTH);
+            return key.append('\n').append(all).toString();
+        }
+        for (String name : keyHeaders) {
+            key.append('\n');
+            List<String> values = headers.get(name);
+            if (values != null) {
+                key.append(values);
+            }
+        }
+        return key.toString();
+    }
+
+    private static SharedResponse await(CompletableFuture<SharedResponse> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并的请求时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                // 每个调用方一个新的异常，保留各自的调用栈
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * @return 实际发出的请求数
+     */
+    public long getUpstreamCount() {
+        return upstream.sum();
+    }
+
+    /**
+     * @return 合并到其它请求、没有发出的请求数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return 正在进行的请求数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static final class SharedResponse {
+        final int status;
+        final String statusText;
+        final HttpHeaders headers;
+        final byte[] body;
+
+        SharedResponse(int status, String statusText, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.statusText = statusText;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        ClientHttpResponse toResponse() {
+            InputStream in = new ByteArrayInputStream(body);
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatus getStatusCode() {
+                    return HttpStatus.valueOf(status);
+                }
+
+                @Override
+                public int getRawStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return statusText;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return in;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
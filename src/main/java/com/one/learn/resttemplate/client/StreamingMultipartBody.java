@@ -0,0 +1,225 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 以流的方式发送的 multipart/form-data 请求体，由 {@link StreamingMultipartHttpMessageConverter} 写出，
+ * RestTemplate 用 {@link RestTemplates#createStreaming()} 创建。
+ * <p>
+ * 文件部分的内容来自 InputStream、ReadableByteChannel 或文件，显式给出文件名和长度，写出时边读边发，
+ * 不会整个读入内存。所有部分的长度都已知时请求带 Content-Length（定长模式），否则使用 chunked。
+ * <p>
+ * 数据源只能读取一次，所以请求体不能重复发送；写出结束后（无论成败）转换器关闭传入的 InputStream 和 Channel。
+ * <pre>
+ * StreamingMultipartBody body = new StreamingMultipartBody()
+ *         .field("comment", "This is a binary file")
+ *         .part("file", "data.bin", in, length)
+ *         .onProgress(progress -> log.info("{}", progress), 8 * 1024 * 1024);
+ * restTemplate.postForObject(url, body, String.class);
+ * </pre>
+ */
+public class StreamingMultipartBody {
+    private static final MediaType TEXT_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final List<Part> parts = new ArrayList<>();
+    private ProgressListener progressListener;
+    private long progressInterval;
+
+    /**
+     * 普通表单字段，以 UTF-8 编码
+     */
+    public StreamingMultipartBody field(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        parts.add(new Part(name, null, TEXT_UTF8, bytes.length, bytes, null, null));
+        return this;
+    }
+
+    /**
+     * 文件部分，Content-Type 按文件名的扩展名推断
+     * @param length 内容的字节数，-1 表示未知（请求使用 chunked）
+     */
+    public StreamingMultipartBody part(String name, String filename, InputStream in, long length) {
+        return part(name, filename, guessContentType(filename), in, length);
+    }
+
+    /**
+     * @param length 内容的字节数，-1 表示未知（请求使用 chunked）
+     */
+    public StreamingMultipartBody part(String name, String filename, MediaType contentType, InputStream in, long length) {
+        parts.add(new Part(name, requireFilename(filename), contentType, checkLength(length), null, () -> in, in));
+        return this;
+    }
+
+    /**
+     * 文件部分，Content-Type 按文件名的扩展名推断
+     * @param length 内容的字节数，-1 表示未知（请求使用 chunked）
+     */
+    public StreamingMultipartBody part(String name, String filename, ReadableByteChannel channel, long length) {
+        return part(name, filename, guessContentType(filename), channel, length);
+    }
+
+    /**
+     * @param length 内容的字节数，-1 表示未知（请求使用 chunked）
+     */
+    public StreamingMultipartBody part(String name, String filename, MediaType contentType, ReadableByteChannel channel, long length) {
+        parts.add(new Part(name, requireFilename(filename), contentType, checkLength(length),
+                null, () -> Channels.newInputStream(channel), channel));
+        return this;
+    }
+
+    /**
+     * 文件部分，内容和长度取自磁盘上的文件，文件名取最后一段路径。写出时才打开文件
+     */
+    public StreamingMultipartBody file(String name, Path file) throws IOException {
+        String filename = file.getFileName().toString();
+        parts.add(new Part(name, filename, guessContentType(filename), Files.size(file), null,
+                () -> Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), null));
+        return this;
+    }
+
+    /**
+     * 写出请求体时报告进度，每写出 interval 字节报告一次，全部写出后再报告一次（{@link UploadProgress#isDone()}）。
+     * 监听器在写出请求体的线程中调用，不应阻塞
+     */
+    public StreamingMultipartBody onProgress(ProgressListener listener, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval 必须为正数");
+        }
+        this.progressListener = listener;
+        this.progressInterval = interval;
+        return this;
+    }
+
+    public List<Part> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * 关闭调用方传入的数据源，写出结束后由转换器调用
+     */
+    void closeSources() throws IOException {
+        IOException failure = null;
+        for (Part part : parts) {
+            if (part.resource == null) {
+                continue;
+            }
+            try {
+                part.resource.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static String requireFilename(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            throw new IllegalArgumentException("文件部分必须给出文件名");
+        }
+        return filename;
+    }
+
+    private static long checkLength(long length) {
+        if (length < -1) {
+            throw new IllegalArgumentException("长度不合法: " + length);
+        }
+        return length;
+    }
+
+    private static MediaType guessContentType(String filename) {
+        return MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(UploadProgress progress);
+    }
+
+    @FunctionalInterface
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * 请求体中的一个部分
+     */
+    public static final class Part {
+        private final String name;
+        private final String filename;
+        private final MediaType contentType;
+        private final long length;
+        /**
+         * 表单字段的内容，文件部分为 null
+         */
+        final byte[] value;
+        final Source source;
+        /**
+         * 调用方传入、需要由转换器关闭的数据源
+         */
+        final Closeable resource;
+
+        Part(String name, String filename, MediaType contentType, long length, byte[] value, Source source, Closeable resource) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("部分的名称不能为空");
+            }
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.length = length;
+            this.value = value;
+            this.source = source;
+            this.resource = resource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 文件名，表单字段为 null
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        public MediaType getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return 内容的字节数，-1 表示未知
+         */
+        public long getLength() {
+            return length;
+        }
+    }
+}
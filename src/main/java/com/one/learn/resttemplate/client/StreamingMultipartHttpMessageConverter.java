@@ -0,0 +1,229 @@
+package com.one.learn.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 写出 {@link StreamingMultipartBody}，只用一个固定大小的缓冲区，内存占用与文件大小无关。
+ * <p>
+ * 所有部分的长度都已知时先算出整个请求体的长度并设置 Content-Length，否则不设置，由请求工厂使用 chunked。
+ * 只有请求工厂不缓冲请求体时才是真正的流式上传：SimpleClientHttpRequestFactory 和
+ * HttpComponentsClientHttpRequestFactory 默认都会把请求体整个缓冲在内存中再发送，需要 setBufferRequestBody(false)，
+ * 而且 RestTemplate 上不能有拦截器（拦截器需要完整的请求体字节数组）。{@link RestTemplates#createStreaming()} 已经这样配置好。
+ * <p>
+ * 声明的长度与数据源实际的长度不一致时写出失败（定长模式下请求已经无法补救），数据源中多余的数据不会被读取。
+ */
+public class StreamingMultipartHttpMessageConverter implements HttpMessageConverter<StreamingMultipartBody> {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] DASHES = {'-', '-'};
+
+    private final int bufferSize;
+
+    public StreamingMultipartHttpMessageConverter() {
+        this(64 * 1024);
+    }
+
+    /**
+     * @param bufferSize 从数据源读取、写到连接上的缓冲区大小
+     */
+    public StreamingMultipartHttpMessageConverter(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize 必须为正数");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return StreamingMultipartBody.class.isAssignableFrom(clazz)
+                && (mediaType == null || mediaType.isWildcardType() || "multipart".equalsIgnoreCase(mediaType.getType()));
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return Collections.singletonList(MediaType.MULTIPART_FORM_DATA);
+    }
+
+    @Override
+    public StreamingMultipartBody read(Class<? extends StreamingMultipartBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingMultipartBody 只能用作请求体", inputMessage);
+    }
+
+    @Override
+    public void write(StreamingMultipartBody body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        List<StreamingMultipartBody.Part> parts = body.getParts();
+        byte[] boundary = MimeTypeUtils.generateMultipartBoundary();
+        byte[][] partHeaders = new byte[parts.size()][];
+        long total = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            StreamingMultipartBody.Part part = parts.get(i);
+            partHeaders[i] = partHeaders(part, boundary);
+            if (total >= 0 && part.getLength() >= 0) {
+                total += partHeaders[i].length + part.getLength() + CRLF.length;
+            } else {
+                total = -1;
+            }
+        }
+        if (total >= 0) {
+            total += DASHES.length + boundary.length + DASHES.length + CRLF.length;
+        }
+
+        HttpHeaders headers = outputMessage.getHeaders();
+        headers.setContentType(multipartType(contentType, boundary));
+        if (total >= 0) {
+            headers.setContentLength(total);
+        }
+        long totalBytes = total;
+        if (outputMessage instanceof StreamingHttpOutputMessage) {
+            // HttpComponentsStreamingClientHttpRequest 等只能通过 setBody 写出请求体
+            ((StreamingHttpOutputMessage) outputMessage).setBody(out -> writeParts(body, partHeaders, boundary, totalBytes, out));
+        } else {
+            writeParts(body, partHeaders, boundary, totalBytes, outputMessage.getBody());
+        }
+    }
+
+    private void writeParts(StreamingMultipartBody body, byte[][] partHeaders, byte[] boundary, long total, OutputStream out)
+            throws IOException {
+        Progress progress = new Progress(body.getProgressListener(), body.getProgressInterval(), total);
+        byte[] buffer = new byte[bufferSize];
+        try {
+            List<StreamingMultipartBody.Part> parts = body.getParts();
+            for (int i = 0; i < parts.size(); i++) {
+                StreamingMultipartBody.Part part = parts.get(i);
+                out.write(partHeaders[i]);
+                progress.written(partHeaders[i].length);
+                if (part.value != null) {
+                    out.write(part.value);
+                    progress.written(part.value.length);
+                } else {
+                    try (InputStream in = part.source.open()) {
+                        copy(part, in, out, buffer, progress);
+                    }
+                }
+                out.write(CRLF);
+                progress.written(CRLF.length);
+            }
+            out.write(DASHES);
+            out.write(boundary);
+            out.write(DASHES);
+            out.write(CRLF);
+            progress.written(DASHES.length * 2 + boundary.length + CRLF.length);
+            out.flush();
+            progress.done();
+        } finally {
+            body.closeSources();
+        }
+    }
+
+    private static void copy(StreamingMultipartBody.Part part, InputStream in, OutputStream out, byte[] buffer,
+                             Progress progress) throws IOException {
+        long length = part.getLength();
+        long copied = 0;
+        while (length < 0 || copied < length) {
+            int max = length < 0 ? buffer.length : (int) Math.min(buffer.length, length - copied);
+            int n = in.read(buffer, 0, max);
+            if (n < 0) {
+                break;
+            }
+            out.write(buffer, 0, n);
+            copied += n;
+            progress.written(n);
+        }
+        if (length >= 0 && copied < length) {
+            throw new IOException("部分 " + part.getName() + " 声明的长度为 " + length + "，数据源只有 " + copied + " 字节");
+        }
+    }
+
+    /**
+     * 分隔符和部分的首部，首部按 UTF-8 编码（与浏览器相同）
+     */
+    private static byte[] partHeaders(StreamingMultipartBody.Part part, byte[] boundary) {
+        StringBuilder headers = new StringBuilder(128)
+                .append("Content-Disposition: form-data; name=\"").append(escape(part.getName())).append('"');
+        if (part.getFilename() != null) {
+            headers.append("; filename=\"").append(escape(part.getFilename())).append('"');
+        }
+        headers.append("\r\nContent-Type: ").append(part.getContentType());
+        if (part.getLength() >= 0) {
+            headers.append("\r\nContent-Length: ").append(part.getLength());
+        }
+        headers.append("\r\n\r\n");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(boundary.length + headers.length() * 3 + 4);
+        bytes.write(DASHES, 0, DASHES.length);
+        bytes.write(boundary, 0, boundary.length);
+        bytes.write(CRLF, 0, CRLF.length);
+        byte[] text = headers.toString().getBytes(StandardCharsets.UTF_8);
+        bytes.write(text, 0, text.length);
+        return bytes.toByteArray();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("名称和文件名不能包含换行: " + value);
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static MediaType multipartType(MediaType contentType, byte[] boundary) {
+        MediaType base = contentType != null && "multipart".equalsIgnoreCase(contentType.getType())
+                ? contentType : MediaType.MULTIPART_FORM_DATA;
+        Map<String, String> parameters = new LinkedHashMap<>(base.getParameters());
+        parameters.put("boundary", new String(boundary, StandardCharsets.US_ASCII));
+        return new MediaType(base, parameters);
+    }
+
+    /**
+     * 统计写出的字节数，按间隔通知监听器
+     */
+    private static final class Progress {
+        private final StreamingMultipartBody.ProgressListener listener;
+        private final long interval;
+        private final long total;
+        private final long start = System.nanoTime();
+        private long written;
+        private long nextReport;
+
+        Progress(StreamingMultipartBody.ProgressListener listener, long interval, long total) {
+            this.listener = listener;
+            this.interval = interval;
+            this.total = total;
+            this.nextReport = interval;
+        }
+
+        void written(long n) {
+            written += n;
+            if (listener != null && written >= nextReport) {
+                nextReport = (written / interval + 1) * interval;
+                listener.onProgress(new UploadProgress(written, total, System.nanoTime() - start, false));
+            }
+        }
+
+        void done() {
+            if (listener != null) {
+                listener.onProgress(new UploadProgress(written, total, System.nanoTime() - start, true));
+            }
+        }
+    }
+}
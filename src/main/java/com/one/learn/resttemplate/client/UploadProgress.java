@@ -0,0 +1,73 @@
+package com.one.learn.resttemplate.client;
+
+import java.time.Duration;
+
+/**
+ * 上传进度的快照：已写出的字节数（包括 multipart 的分隔符和各部分的首部）、总字节数和用时
+ */
+public final class UploadProgress {
+    private final long bytesWritten;
+    private final long totalBytes;
+    private final long elapsedNanos;
+    private final boolean done;
+
+    public UploadProgress(long bytesWritten, long totalBytes, long elapsedNanos, boolean done) {
+        this.bytesWritten = bytesWritten;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.done = done;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return 请求体的总长度，有部分长度未知（chunked）时为 -1
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return 从开始写出请求体到现在的时间
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * @return 平均吞吐量（字节/秒）。请求体直接写到连接上，写满发送缓冲区时会阻塞，所以反映的是实际的发送速度
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos > 0 ? bytesWritten * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @return 完成的比例 [0, 1]，总长度未知时为 -1
+     */
+    public double getFraction() {
+        if (totalBytes < 0) {
+            return -1;
+        }
+        return totalBytes == 0 ? 1 : (double) bytesWritten / totalBytes;
+    }
+
+    /**
+     * @return 请求体是否已全部写出
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadProgress{" +
+                "bytesWritten=" + bytesWritten +
+                ", totalBytes=" + totalBytes +
+                ", elapsed=" + getElapsed().toMillis() + "ms" +
+                ", bytesPerSecond=" + (long) getBytesPerSecond() +
+                ", done=" + done +
+                '}';
+    }
+}
@@ -0,0 +1,363 @@
+package com.one.learn.resttemplate.compression;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * 按需压缩的响应。写出的前 minSize 个字节先留在缓冲区里，期间不提交响应，到那时再决定是否压缩：
+ * <ul>
+ *     <li>超过 minSize（或 Content-Length 不小于 minSize）且可以压缩时，加上 Content-Encoding，去掉 Content-Length，
+ *     强 ETag 改为弱 ETag（压缩后的字节与原来的不同）</li>
+ *     <li>响应结束时还不到 minSize，或设置的 Content-Length 小于 minSize，原样写出，并带上 Content-Length</li>
+ * </ul>
+ * 可以压缩指 2xx（204、206 除外）、文本类的 Content-Type、应用没有自己设置 Content-Encoding、
+ * 不支持 Range（带 Accept-Ranges 的响应如 /product/download，压缩后字节偏移和强 ETag 都对不上，断点续传会出错）、
+ * 不是 sendfile 发送的文件、也不是异步请求。可以压缩的响应都加上 Vary: Accept-Encoding。
+ * <p>
+ * 还没决定时 flush() 不会提交响应（Jackson 等写完后总会 flush 一次）。异步请求（如 StreamingResponseBody）
+ * 在过滤器返回后才写完，没有可靠的时机写出压缩流的结尾，在异步线程中写出时不缓冲也不压缩。
+ */
+final class CompressingResponseWrapper extends HttpServletResponseWrapper {
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private enum State {
+        UNDECIDED, IDENTITY, COMPRESSING
+    }
+
+    private final HttpServletRequest request;
+    private final ContentCoding coding;
+    private final int level;
+    private final int minSize;
+    private State state = State.UNDECIDED;
+    private byte[] pending;
+    private int pendingCount;
+    /**
+     * 还没决定时应用设置的 Content-Length，-1 表示未设置
+     */
+    private long contentLength = -1;
+    private OutputStream compressor;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean finished;
+
+    CompressingResponseWrapper(HttpServletRequest request, HttpServletResponse response,
+                               ContentCoding coding, int level, int minSize) {
+        super(response);
+        this.request = request;
+        this.coding = coding;
+        this.level = level;
+        this.minSize = minSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() 已经调用过");
+        }
+        if (outputStream == null) {
+            outputStream = new BufferingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() 已经调用过");
+            }
+            outputStream = new BufferingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (state == State.UNDECIDED) {
+            contentLength = len;
+            if (len >= 0 && len < minSize) {
+                decideQuietly(false);
+            }
+        } else if (state == State.IDENTITY) {
+            super.setContentLengthLong(len);
+        }
+        // 压缩后的长度事先不知道，忽略
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value.trim()));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (state != State.UNDECIDED) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        abandonCompressor();
+        super.reset();
+        state = State.UNDECIDED;
+        pendingCount = 0;
+        contentLength = -1;
+        outputStream = null;
+        writer = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+        boolean compressing = state == State.COMPRESSING;
+        abandonCompressor();
+        super.resetBuffer();
+        pendingCount = 0;
+        if (compressing) {
+            // Content-Encoding 等首部还在，重新开始一个压缩流
+            try {
+                compressor = newCompressor();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 响应尚未提交时丢弃压缩流：结尾写进容器的缓冲区，随后被 reset 清掉，同时释放 Deflater
+     */
+    private void abandonCompressor() {
+        if (compressor != null && !isCommitted()) {
+            try {
+                compressor.close();
+            } catch (IOException e) {
+                // 写出的内容反正要被丢弃
+            }
+            compressor = null;
+        }
+    }
+
+    /**
+     * 请求处理结束时由 {@link CompressionFilter} 调用：写出缓冲的内容，压缩时写出压缩流的结尾。
+     * 什么都没有写出（比如 sendfile 或 304）时只把 Content-Length 原样传下去
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (writer != null) {
+            writer.flush();
+        }
+        if (state == State.UNDECIDED) {
+            if (pendingCount > 0 || contentLength >= 0) {
+                decide(false, true);
+            }
+        } else if (state == State.COMPRESSING) {
+            compressor.close();
+            compressor = null;
+        }
+    }
+
+    /**
+     * 异步请求在过滤器返回时还没写完，此时缓冲的内容原样写出，后面异步线程的写入直接发送
+     */
+    void startAsync() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (state == State.UNDECIDED && pendingCount > 0) {
+            decide(false, false);
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (state == State.UNDECIDED) {
+            if (contentLength < 0 && pendingCount + len < minSize && !request.isAsyncStarted()) {
+                if (pending == null) {
+                    pending = new byte[minSize];
+                }
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+                return;
+            }
+            decide(true, false);
+        }
+        target().write(b, off, len);
+    }
+
+    private void flush() throws IOException {
+        if (state == State.UNDECIDED && request.isAsyncStarted()) {
+            decide(false, false);
+        }
+        if (state != State.UNDECIDED) {
+            target().flush();
+        }
+    }
+
+    private OutputStream target() throws IOException {
+        return state == State.COMPRESSING ? compressor : getResponse().getOutputStream();
+    }
+
+    private void decideQuietly(boolean compressIfPossible) {
+        try {
+            decide(compressIfPossible, false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param compressIfPossible 数据量已经够了，可以压缩时就压缩
+     * @param complete           响应已经写完，缓冲区里就是全部内容
+     */
+    private void decide(boolean compressIfPossible, boolean complete) throws IOException {
+        boolean compressible = isCompressible();
+        if (compressible) {
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (compressible && compressIfPossible) {
+            state = State.COMPRESSING;
+            super.setHeader(HttpHeaders.CONTENT_ENCODING, coding.getName());
+            String etag = getHeader(HttpHeaders.ETAG);
+            if (etag != null && !etag.startsWith("W/")) {
+                super.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            }
+            compressor = newCompressor();
+        } else {
+            state = State.IDENTITY;
+            long length = contentLength >= 0 ? contentLength : complete ? pendingCount : -1;
+            if (length >= 0) {
+                super.setContentLengthLong(length);
+            }
+        }
+        if (pendingCount > 0) {
+            target().write(pending, 0, pendingCount);
+            pendingCount = 0;
+        }
+    }
+
+    private OutputStream newCompressor() throws IOException {
+        // 关闭压缩流只写出结尾，容器的输出流由容器关闭
+        return coding.encode(StreamUtils.nonClosing(getResponse().getOutputStream()), level, true);
+    }
+
+    private boolean isCompressible() {
+        int status = getStatus();
+        if (status < 200 || status >= 300 || status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT) {
+            return false;
+        }
+        String acceptRanges = getHeader(HttpHeaders.ACCEPT_RANGES);
+        if (getHeader(HttpHeaders.CONTENT_ENCODING) != null || (acceptRanges != null && !"none".equals(acceptRanges))
+                || request.getAttribute(SENDFILE_FILENAME) != null || request.isAsyncStarted()) {
+            return false;
+        }
+        String contentType = getContentType();
+        try {
+            return contentType != null && ContentCoding.isCompressible(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private final class BufferingOutputStream extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            CompressingResponseWrapper.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            CompressingResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            CompressingResponseWrapper.this.flush();
+        }
+
+        /**
+         * 应用关闭输出流表示响应已经写完
+         */
+        @Override
+        public void close() throws IOException {
+            finish();
+            getResponse().getOutputStream().close();
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return getResponse().getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                getResponse().getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
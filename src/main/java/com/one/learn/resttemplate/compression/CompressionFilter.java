@@ -0,0 +1,150 @@
+package com.one.learn.resttemplate.compression;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * 服务端的压缩：请求体带 Content-Encoding: gzip / deflate 时边读边解压，
+ * 客户端的 Accept-Encoding 接受时压缩足够大的文本类响应（规则见 {@link CompressingResponseWrapper}）。
+ * <p>
+ * 与 server.compression（Tomcat 的压缩）相比：可以解压请求体；压缩级别可以配置；
+ * 按实际写出的字节数而不只是 Content-Length 决定是否压缩，/product/batch 这类不设置 Content-Length 的响应也能压缩。
+ * 不认识的 Content-Encoding 响应 415，并在 Accept-Encoding 中给出支持的编码；解压后的请求体超过上限时响应 413。
+ * 压缩的 multipart 请求不支持：容器直接从原始请求体解析 multipart。
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+    private static final String SUPPORTED_ENCODINGS = "gzip, deflate";
+
+    private final int level;
+    private final int minResponseSize;
+    private final long maxRequestSize;
+
+    /**
+     * @param level           响应的压缩级别 1-9，1 最快，9 压缩率最高
+     * @param minResponseSize 响应体达到这个字节数才压缩
+     * @param maxRequestSize  压缩的请求体解压后最多的字节数
+     */
+    public CompressionFilter(int level, int minResponseSize, long maxRequestSize) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("压缩级别应为 1 到 9: " + level);
+        }
+        if (minResponseSize < 0) {
+            throw new IllegalArgumentException("minResponseSize 不能为负数: " + minResponseSize);
+        }
+        if (maxRequestSize < 0) {
+            throw new IllegalArgumentException("maxRequestSize 不能为负数: " + maxRequestSize);
+        }
+        this.level = level;
+        this.minResponseSize = minResponseSize;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    /**
+     * DeferredResult 等在异步分派中才写出响应，此时的 response 就是开始异步时传入的包装
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            chain.doFilter(request, response);
+            if (!request.isAsyncStarted() && response instanceof CompressingResponseWrapper) {
+                ((CompressingResponseWrapper) response).finish();
+            }
+            return;
+        }
+
+        DecompressingRequestWrapper decompressing = null;
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            ContentCoding coding = ContentCoding.forName(contentEncoding);
+            if (coding == null) {
+                response.setHeader(HttpHeaders.ACCEPT_ENCODING, SUPPORTED_ENCODINGS);
+                response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "不支持的 Content-Encoding: " + contentEncoding);
+                return;
+            }
+            decompressing = new DecompressingRequestWrapper(request, coding, maxRequestSize);
+            request = decompressing;
+        }
+
+        ContentCoding responseCoding = "HEAD".equals(request.getMethod())
+                ? null : ContentCoding.negotiate(Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)));
+        CompressingResponseWrapper compressing = responseCoding != null
+                ? new CompressingResponseWrapper(request, response, responseCoding, level, minResponseSize) : null;
+        try {
+            chain.doFilter(request, compressing != null ? compressing : response);
+        } catch (RequestTooLargeException e) {
+            // DispatcherServlet 之前的过滤器（如 FormContentFilter）读取请求体时超限，DispatcherServlet 中的由
+            // RequestTooLargeException.Resolver 处理
+            if (response.isCommitted()) {
+                throw e;
+            }
+            (compressing != null ? compressing : response).reset();
+            compressing = null;
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        } finally {
+            if (request.isAsyncStarted()) {
+                if (compressing != null) {
+                    // 过滤器返回前缓冲的内容原样写出，异步线程中的写入不再压缩
+                    compressing.startAsync();
+                }
+                if (decompressing != null) {
+                    releaseOnAsyncComplete(request, decompressing);
+                }
+            } else {
+                try {
+                    if (compressing != null) {
+                        compressing.finish();
+                    }
+                } finally {
+                    if (decompressing != null) {
+                        decompressing.release();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void releaseOnAsyncComplete(HttpServletRequest request, DecompressingRequestWrapper decompressing) {
+        request.getAsyncContext().addListener(new CompletionListener() {
+            @Override
+            void complete() throws IOException {
+                decompressing.release();
+            }
+        });
+    }
+
+    private abstract static class CompletionListener implements AsyncListener {
+        abstract void complete() throws IOException;
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.one.learn.resttemplate.compression;
+
+import org.springframework.http.MediaType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP 的内容编码（Content-Encoding / Accept-Encoding）：gzip 和 deflate，客户端和服务端共用。
+ * <p>
+ * 编码、解码都是流式的，只用固定大小的缓冲区。Deflater / Inflater 占用堆外内存，返回的流必须关闭。
+ */
+public enum ContentCoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+
+    ContentCoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return Content-Encoding 中使用的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param contentEncoding Content-Encoding 的值
+     * @return 对应的编码，identity、没有编码或不认识的编码返回 null
+     */
+    public static ContentCoding forName(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return GZIP;
+            case "deflate":
+                return DEFLATE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 按 Accept-Encoding 选择响应的编码，两者都接受时优先 gzip（deflate 有 zlib 和裸数据两种理解，兼容性差一些）
+     * @return 客户端不接受压缩时返回 null
+     */
+    public static ContentCoding negotiate(Collection<String> acceptEncodings) {
+        // -1 表示没有提到，此时按 * 的值处理
+        double gzip = -1;
+        double deflate = -1;
+        double any = 0;
+        for (String header : acceptEncodings) {
+            for (String item : header.split(",")) {
+                String[] parts = item.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                double q = quality(parts);
+                if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                    gzip = Math.max(gzip, q);
+                } else if ("deflate".equals(coding)) {
+                    deflate = Math.max(deflate, q);
+                } else if ("*".equals(coding)) {
+                    any = q;
+                }
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * 文本类的内容才值得压缩：text/*、JSON、NDJSON、XML 及其 +json、+xml 变体。
+     * 图片、压缩包、Smile 等二进制格式再压缩只是浪费 CPU
+     */
+    public static boolean isCompressible(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.getType();
+        String subtype = contentType.getSubtype();
+        if ("text".equalsIgnoreCase(type)) {
+            return true;
+        }
+        return "application".equalsIgnoreCase(type)
+                && ("json".equalsIgnoreCase(subtype) || "x-ndjson".equalsIgnoreCase(subtype)
+                || "xml".equalsIgnoreCase(subtype) || subtype.endsWith("+json") || subtype.endsWith("+xml"));
+    }
+
+    /**
+     * @param level     压缩级别 0-9，1 最快，9 压缩率最高，-1 为 zlib 默认（6）
+     * @param syncFlush flush() 时是否把已压缩的数据立即输出，流式响应需要
+     * @return 压缩后写入 out 的流，关闭它会写出结尾并关闭 out
+     */
+    public OutputStream encode(OutputStream out, int level, boolean syncFlush) throws IOException {
+        if (level < -1 || level > 9) {
+            throw new IllegalArgumentException("压缩级别应为 -1 到 9: " + level);
+        }
+        if (this == GZIP) {
+            return new GZIPOutputStream(out, BUFFER_SIZE, syncFlush) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE, syncFlush) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // 自己传入的 Deflater 不会被 DeflaterOutputStream 释放
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 解压 in，第一次读取时才读入头部，所以空的响应体（HEAD、304 等带着 Content-Encoding 也合法）读到的是 -1 而不是异常。
+     * deflate 按 RFC 9110 应为 zlib 格式，但有些服务器发送不带 zlib 头的裸数据，这里按头部自动识别。
+     * @return 关闭时同时关闭 in
+     */
+    public InputStream decode(InputStream in) {
+        return new LazyDecodingInputStream(in, this);
+    }
+
+    private static final class LazyDecodingInputStream extends FilterInputStream {
+        private final ContentCoding coding;
+        private Inflater inflater;
+        private boolean started;
+
+        LazyDecodingInputStream(InputStream in, ContentCoding coding) {
+            super(in);
+            this.coding = coding;
+        }
+
+        private void start() throws IOException {
+            if (started) {
+                return;
+            }
+            started = true;
+            PushbackInputStream source = new PushbackInputStream(in, 2);
+            int first = source.read();
+            if (first == -1) {
+                in = source;
+                return;
+            }
+            int second = source.read();
+            if (second != -1) {
+                source.unread(second);
+            }
+            source.unread(first);
+            if (coding == GZIP) {
+                in = new GZIPInputStream(source, BUFFER_SIZE);
+            } else {
+                // zlib 头：CM = 8，且前两个字节按大端组成的数是 31 的倍数
+                boolean zlib = second != -1 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+                inflater = new Inflater(!zlib);
+                in = new InflaterInputStream(source, inflater, BUFFER_SIZE);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            start();
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            start();
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            start();
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return started ? in.available() : 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
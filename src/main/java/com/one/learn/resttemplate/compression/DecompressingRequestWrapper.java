@@ -0,0 +1,177 @@
+package com.one.learn.resttemplate.compression;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 请求体带 Content-Encoding 的请求：读取时边读边解压，后面的处理看到的是一个没有编码、长度未知的普通请求体。
+ * 解压后超过 maxSize 字节时抛出 {@link RequestTooLargeException}（响应 413），防止很小的压缩数据解压出巨大的请求体。
+ * 不支持非阻塞读取（ReadListener）
+ */
+final class DecompressingRequestWrapper extends HttpServletRequestWrapper {
+    private final ContentCoding coding;
+    private final long maxSize;
+    private InputStream decoded;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    DecompressingRequestWrapper(HttpServletRequest request, ContentCoding coding, long maxSize) {
+        super(request);
+        this.coding = coding;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() 已经调用过");
+        }
+        return decodedStream();
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            if (inputStream != null) {
+                throw new IllegalStateException("getInputStream() 已经调用过");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            reader = new BufferedReader(new InputStreamReader(decodedStream(), charset));
+        }
+        return reader;
+    }
+
+    private ServletInputStream decodedStream() throws IOException {
+        if (inputStream == null) {
+            decoded = coding.decode(super.getInputStream());
+            inputStream = new DecodedInputStream(decoded, maxSize);
+        }
+        return inputStream;
+    }
+
+    /**
+     * 释放 Inflater，请求处理完后由 {@link CompressionFilter} 调用
+     */
+    void release() throws IOException {
+        if (decoded != null) {
+            decoded.close();
+        }
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return isHidden(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        return isHidden(name) ? -1 : super.getIntHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        List<String> names = Collections.list(super.getHeaderNames());
+        names.removeIf(DecompressingRequestWrapper::isHidden);
+        return Collections.enumeration(names);
+    }
+
+    /**
+     * Content-Encoding 和 Content-Length 描述的是压缩后的数据
+     */
+    private static boolean isHidden(String name) {
+        return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+
+    private static final class DecodedInputStream extends ServletInputStream {
+        private final InputStream in;
+        private final long maxSize;
+        private long total;
+        private boolean finished;
+
+        DecodedInputStream(InputStream in, long maxSize) {
+            this.in = in;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            finished = b == -1;
+            if (!finished) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            finished = n == -1;
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws RequestTooLargeException {
+            total += n;
+            if (total > maxSize) {
+                throw new RequestTooLargeException(maxSize);
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("压缩的请求体不支持非阻塞读取");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
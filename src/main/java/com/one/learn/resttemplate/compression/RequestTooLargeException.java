@@ -0,0 +1,57 @@
+package com.one.learn.resttemplate.compression;
+
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 压缩的请求体解压后超过 product.compression.max-request-size。
+ * <p>
+ * 读取请求体的一方通常会把它包装起来（Jackson 的 JsonMappingException、Spring 的 HttpMessageNotReadableException），
+ * 默认响应 400，由 {@link Resolver} 沿异常链找到它后改为 413。
+ */
+public class RequestTooLargeException extends IOException {
+    private final long maxSize;
+
+    public RequestTooLargeException(long maxSize) {
+        super("解压后的请求体超过 " + maxSize + " 字节");
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 排在其它 HandlerExceptionResolver 之前，异常链中有 RequestTooLargeException 时响应 413
+     */
+    public static class Resolver implements HandlerExceptionResolver, Ordered {
+        @Override
+        public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                             Object handler, Exception ex) {
+            for (Throwable t = ex; t != null; t = t.getCause() == t ? null : t.getCause()) {
+                if (t instanceof RequestTooLargeException) {
+                    if (response.isCommitted()) {
+                        return null;
+                    }
+                    try {
+                        response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, t.getMessage());
+                    } catch (IOException e) {
+                        return null;
+                    }
+                    return new ModelAndView();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
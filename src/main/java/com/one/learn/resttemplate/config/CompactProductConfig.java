@@ -0,0 +1,31 @@
+package com.one.learn.resttemplate.config;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.converter.CompactProductHttpMessageConverter;
+import com.one.learn.resttemplate.converter.ProductConverters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 注册 {@link com.one.learn.resttemplate.bean.CompactProduct} 的消息转换器，以及它与 Product 之间的类型转换
+ */
+@Configuration(proxyBeanMethods = false)
+public class CompactProductConfig implements WebMvcConfigurer {
+
+    /**
+     * 排在 Smile 转换器前面，Smile 的表示由它写出
+     */
+    @Bean
+    public CompactProductHttpMessageConverter compactProductHttpMessageConverter(
+            MappingJackson2SmileHttpMessageConverter smileConverter) {
+        return new CompactProductHttpMessageConverter(smileConverter.getObjectMapper().writerFor(Product.class));
+    }
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        ProductConverters.register(registry);
+    }
+}
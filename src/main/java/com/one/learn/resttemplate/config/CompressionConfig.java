@@ -0,0 +1,38 @@
+package com.one.learn.resttemplate.config;
+
+import com.one.learn.resttemplate.compression.CompressionFilter;
+import com.one.learn.resttemplate.compression.RequestTooLargeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * 为 /product/* 注册 {@link CompressionFilter}：解压 gzip / deflate 请求体，压缩 JSON 等文本类响应；
+ * 解压后的请求体超过上限时由 {@link RequestTooLargeException.Resolver} 响应 413。
+ * product.compression.enabled=false 时不注册
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "product.compression.enabled", matchIfMissing = true)
+public class CompressionConfig {
+
+    @Bean
+    public FilterRegistrationBean<CompressionFilter> compressionFilter(
+            @Value("${product.compression.level:6}") int level,
+            @Value("${product.compression.min-response-size:1024}") int minResponseSize,
+            @Value("${product.compression.max-request-size:104857600}") long maxRequestSize) {
+        FilterRegistrationBean<CompressionFilter> registration =
+                new FilterRegistrationBean<>(new CompressionFilter(level, minResponseSize, maxRequestSize));
+        registration.addUrlPatterns("/product/*");
+        // 在其它过滤器之前，它们读到的请求体已经解压
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public RequestTooLargeException.Resolver requestTooLargeResolver() {
+        return new RequestTooLargeException.Resolver();
+    }
+}
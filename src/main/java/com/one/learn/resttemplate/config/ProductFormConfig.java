@@ -0,0 +1,20 @@
+package com.one.learn.resttemplate.config;
+
+import com.one.learn.resttemplate.converter.ProductFormArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 没有注解的 Product 参数由 {@link ProductFormArgumentResolver} 直接解析表单，不经过 WebDataBinder
+ */
+@Configuration(proxyBeanMethods = false)
+public class ProductFormConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new ProductFormArgumentResolver());
+    }
+}
@@ -0,0 +1,20 @@
+package com.one.learn.resttemplate.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * 注册 Smile（二进制 JSON）消息转换器，请求和响应按 Accept / Content-Type 在 JSON 和 Smile 之间协商。
+ * 使用 Spring Boot 提供的 {@link Jackson2ObjectMapperBuilder}，与 JSON 转换器共用 spring.jackson.* 配置。
+ */
+@Configuration(proxyBeanMethods = false)
+public class SmileConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,50 @@
+package com.one.learn.resttemplate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcProperties;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * 只为 /product/upload 放宽 multipart 的大小上限。
+ * 容器按 Servlet 检查 multipart 上限，所以给这个路径单独注册一个 DispatcherServlet，
+ * 它与默认的 DispatcherServlet 共用同一个 ApplicationContext，处理器、拦截器都相同；
+ * 其它路径仍使用 spring.servlet.multipart.* 的上限（默认单个文件 1MB、整个请求 10MB）。
+ * 上限由 product.upload.max-file-size、product.upload.max-request-size 配置，默认 10GB
+ */
+@Configuration(proxyBeanMethods = false)
+public class UploadConfig {
+
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> uploadDispatcherServlet(
+            WebApplicationContext context, WebMvcProperties webMvcProperties, MultipartProperties multipartProperties,
+            @Value("${product.upload.max-file-size:10GB}") DataSize maxFileSize,
+            @Value("${product.upload.max-request-size:10GB}") DataSize maxRequestSize) {
+        DispatcherServlet servlet = new DispatcherServlet(context);
+        servlet.setDispatchOptionsRequest(webMvcProperties.isDispatchOptionsRequest());
+        servlet.setDispatchTraceRequest(webMvcProperties.isDispatchTraceRequest());
+        servlet.setThrowExceptionIfNoHandlerFound(webMvcProperties.isThrowExceptionIfNoHandlerFound());
+        servlet.setPublishEvents(webMvcProperties.isPublishRequestHandledEvents());
+        servlet.setEnableLoggingRequestDetails(webMvcProperties.isLogRequestDetails());
+
+        // 临时文件的位置和写入磁盘的阈值沿用 spring.servlet.multipart.*
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setLocation(multipartProperties.getLocation());
+        factory.setFileSizeThreshold(multipartProperties.getFileSizeThreshold());
+        factory.setMaxFileSize(maxFileSize);
+        factory.setMaxRequestSize(maxRequestSize);
+
+        ServletRegistrationBean<DispatcherServlet> registration =
+                new ServletRegistrationBean<>(servlet, "/product/upload");
+        registration.setName("uploadDispatcherServlet");
+        registration.setLoadOnStartup(webMvcProperties.getServlet().getLoadOnStartup());
+        registration.setMultipartConfig(factory.createMultipartConfig());
+        return registration;
+    }
+}
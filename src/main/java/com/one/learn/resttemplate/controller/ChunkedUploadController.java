@@ -0,0 +1,93 @@
+package com.one.learn.resttemplate.controller;
+
+import com.one.learn.resttemplate.upload.ChunkedUploadService;
+import com.one.learn.resttemplate.upload.ChunkedUploadStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 分块上传：创建会话，并行 PUT 各个分块，全部到齐后提交。
+ * 断线后 GET 会话状态，只重传 missingChunks 中的分块。
+ */
+@RequestMapping("/product/uploads")
+@RestController
+public class ChunkedUploadController {
+    private final ChunkedUploadService chunkedUploadService;
+
+    public ChunkedUploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    /**
+     * 创建上传会话，以表单参数传入文件名、文件大小和分块大小。会话数已达上限时返回 503
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ChunkedUploadStatus create(@RequestParam String filename, @RequestParam long size,
+                                      @RequestParam int chunkSize) throws IOException {
+        try {
+            return chunkedUploadService.create(filename, size, chunkSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ChunkedUploadStatus status(@PathVariable String id) {
+        ChunkedUploadStatus status = chunkedUploadService.status(id);
+        if (status == null) {
+            throw notFound(id);
+        }
+        return status;
+    }
+
+    /**
+     * 上传一个分块，请求体为分块的原始字节（application/octet-stream）
+     */
+    @PutMapping("/{id}/chunks/{index}")
+    public String putChunk(@PathVariable String id, @PathVariable int index, HttpServletRequest request) throws IOException {
+        boolean found;
+        try {
+            found = chunkedUploadService.writeChunk(id, index, request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        if (!found) {
+            throw notFound(id);
+        }
+        return "chunk " + index + " uploaded";
+    }
+
+    @PostMapping("/{id}/commit")
+    public String commit(@PathVariable String id) throws IOException {
+        Path file;
+        try {
+            file = chunkedUploadService.commit(id);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        if (file == null) {
+            throw notFound(id);
+        }
+        return "upload success filename: " + file.getFileName();
+    }
+
+    @DeleteMapping("/{id}")
+    public String abort(@PathVariable String id) throws IOException {
+        if (!chunkedUploadService.abort(id)) {
+            throw notFound(id);
+        }
+        return "upload " + id + " aborted";
+    }
+
+    private static ResponseStatusException notFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "上传会话不存在: " + id);
+    }
+}
@@ -1,11 +1,49 @@
 package com.one.learn.resttemplate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.one.learn.resttemplate.bean.CompactProduct;
 import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.repository.AckMode;
+import com.one.learn.resttemplate.repository.ProductRepository;
+import com.one.learn.resttemplate.repository.ProductWriteBehind;
+import com.one.learn.resttemplate.upload.FileSender;
+import com.one.learn.resttemplate.upload.StoredFile;
+import com.one.learn.resttemplate.upload.UploadStorage;
+import com.one.learn.resttemplate.util.ByteBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * @author One
@@ -15,72 +53,485 @@ import java.math.BigDecimal;
 @RestController
 public class ProductController {
     /**
-     * 返回默认的产品
+     * 批量接口列出每个产品 ETag 的响应首部
+     */
+    public static final String PRODUCT_ETAGS = "Product-ETags";
+    /**
+     * 超过这个数量的批量查询不列出 ETag，每个 ETag 约 35 字节，避免响应首部超过容器的上限（默认 8KB）
+     */
+    static final int BATCH_ETAG_LIMIT = 100;
+    private static final byte[] NULL_JSON = {'n', 'u', 'l', 'l'};
+
+    private final ProductRepository productRepository;
+    private final ProductWriteBehind productWriteBehind;
+    private final long ackTimeoutMillis;
+    private final UploadStorage uploadStorage;
+    private final ObjectMapper objectMapper;
+    /**
+     * 逐个写出数组元素时不要每个元素都 flush，由底层缓冲区决定何时真正写出
+     */
+    private final ObjectWriter productWriter;
+    private final ObjectReader productReader;
+    private final ObjectMapper smileMapper;
+    private final ObjectWriter smileProductWriter;
+    private final ObjectReader smileProductReader;
+    private final int bulkBatchSize;
+    private final int bulkMaxBatchSize;
+    private final int streamChunkSize;
+    private final ProductResponseCache productResponseCache;
+    /**
+     * get_product1 返回的常量产品，启动时序列化一次
+     */
+    private final ProductResponseCache.Entry defaultProduct;
+
+    public ProductController(ProductRepository productRepository, ProductWriteBehind productWriteBehind,
+                             @Value("${product.writer.ack-timeout-ms:5000}") long ackTimeoutMillis,
+                             @Value("${product.bulk.batch-size:1000}") int bulkBatchSize,
+                             @Value("${product.bulk.max-batch-size:10000}") int bulkMaxBatchSize,
+                             @Value("${product.stream.chunk-size:256}") int streamChunkSize,
+                             UploadStorage uploadStorage, ObjectMapper objectMapper,
+                             MappingJackson2SmileHttpMessageConverter smileConverter,
+                             ProductResponseCache productResponseCache) {
+        this.productRepository = productRepository;
+        this.productWriteBehind = productWriteBehind;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.uploadStorage = uploadStorage;
+        this.objectMapper = objectMapper;
+        this.productWriter = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.smileMapper = smileConverter.getObjectMapper();
+        this.smileProductWriter = smileMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.smileProductReader = smileMapper.readerFor(Product.class);
+        this.bulkBatchSize = bulkBatchSize;
+        this.bulkMaxBatchSize = bulkMaxBatchSize;
+        this.streamChunkSize = streamChunkSize;
+        this.productResponseCache = productResponseCache;
+        this.defaultProduct = productResponseCache.serialize(new Product(1, "ProductA", BigDecimal.valueOf(6666.0)));
+    }
+
+    /**
+     * 返回默认的产品，带 ETag，If-None-Match 匹配时响应 304
      * @return
      */
     @GetMapping({"/get-product-1", "/get_product1"})
-    public Product get_product1() {
-        return new Product(1, "ProductA", BigDecimal.valueOf(6666.0));
+    public ResponseEntity<byte[]> get_product1(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return cached(defaultProduct, ProductFormat.negotiate(accept));
     }
 
     /**
      * 返回对应id的产品
      * @param id 产品id
-     * @return 产品
+     * @return 产品，缺少 id 时响应 400，不存在时响应 404；带 ETag，If-None-Match 匹配时响应 304
      */
     @GetMapping({"/get-product-2", "/get_product2"})
-    public Product get_product2(Integer id) {
-        return new Product(id, "ProductC", BigDecimal.valueOf(6666.0));
+    public ResponseEntity<byte[]> get_product2(Integer id,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (id == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "缺少参数 id");
+        }
+        Product product = productRepository.findById(id);
+        if (product == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "编号为" + id + "的产品不存在");
+        }
+        return cached(productResponseCache.get(product), ProductFormat.negotiate(accept));
+    }
+
+    /**
+     * 直接返回缓存的 JSON 或 Smile 字节。请求头 If-None-Match 与 ETag 匹配时，
+     * {@link org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor} 响应 304 且不写出响应体
+     */
+    private static ResponseEntity<byte[]> cached(ProductResponseCache.Entry entry, ProductFormat format) {
+        ProductResponseCache.Representation representation = entry.get(format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(representation.getEtag())
+                .body(representation.getBody());
+    }
+
+    /**
+     * 批量返回产品，id 以表单参数传入，如 ?ids=1,2,3 或 ?ids=1&ids=2
+     * @param ids 产品id列表
+     */
+    @GetMapping({"/batch"})
+    public void batch(@RequestParam List<Integer> ids,
+                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                      HttpServletResponse response) throws IOException {
+        writeProducts(ids, ProductFormat.negotiate(accept), response);
+    }
+
+    /**
+     * 批量返回产品，id 以 JSON 数组的形式放在请求体中，如 [1,2,3]，也可以是 Smile 格式
+     * @param ids 产品id列表
+     */
+    @PostMapping({"/batch"})
+    public void batchPost(@RequestBody List<Integer> ids,
+                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                          HttpServletResponse response) throws IOException {
+        writeProducts(ids, ProductFormat.negotiate(accept), response);
+    }
+
+    /**
+     * 把产品逐个序列化，直接写入响应流，不在内存中构造完整的 List&lt;Product&gt;。
+     * 结果与 ids 一一对应，不存在的产品写为 null。
+     * JSON 格式且不超过 {@link #BATCH_ETAG_LIMIT} 个 id 时改为写出缓存的字节，见 {@link #writeCachedProducts}
+     */
+    private void writeProducts(List<Integer> ids, ProductFormat format, HttpServletResponse response) throws IOException {
+        response.setContentType(format.getMediaType().toString());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (format == ProductFormat.JSON && ids.size() <= BATCH_ETAG_LIMIT) {
+            writeCachedProducts(ids, response);
+            return;
+        }
+        ObjectWriter writer = productWriter(format);
+        try (JsonGenerator generator = mapper(format).getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            for (Integer id : ids) {
+                writer.writeValue(generator, findProduct(id));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * 写出与 get_product2 相同的缓存字节，并在 Product-ETags 首部中按顺序列出每个产品的 ETag（与 get_product2 的相同），
+     * 以逗号分隔，不存在的产品为空。客户端拆分批量响应后可以带上各自的 ETag，之后用 If-None-Match 验证
+     */
+    private void writeCachedProducts(List<Integer> ids, HttpServletResponse response) throws IOException {
+        ProductResponseCache.Representation[] items = new ProductResponseCache.Representation[ids.size()];
+        StringBuilder etags = new StringBuilder(ids.size() * 36);
+        for (int i = 0; i < items.length; i++) {
+            if (i > 0) {
+                etags.append(',');
+            }
+            Product product = findProduct(ids.get(i));
+            if (product != null) {
+                items[i] = productResponseCache.get(product).get(ProductFormat.JSON);
+                etags.append(items[i].getEtag());
+            }
+        }
+        response.setHeader(PRODUCT_ETAGS, etags.toString());
+        OutputStream out = response.getOutputStream();
+        out.write('[');
+        for (int i = 0; i < items.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(items[i] != null ? items[i].getBody() : NULL_JSON);
+        }
+        out.write(']');
+    }
+
+    private Product findProduct(Integer id) {
+        return id == null ? null : productRepository.findById(id);
+    }
+
+    private ObjectMapper mapper(ProductFormat format) {
+        return format == ProductFormat.SMILE ? smileMapper : objectMapper;
+    }
+
+    private ObjectWriter productWriter(ProductFormat format) {
+        return format == ProductFormat.SMILE ? smileProductWriter : productWriter;
+    }
+
+    private ObjectReader productReader(ProductFormat format) {
+        return format == ProductFormat.SMILE ? smileProductReader : productReader;
+    }
+
+    /**
+     * 按 id 升序以 NDJSON（每行一个 JSON 对象）返回产品列表。Accept 为 Smile 时返回连续的 Smile 对象。
+     * <p>
+     * 在异步线程中边查询边写出，每 chunkSize 个产品 flush 一次。写入响应流是阻塞的，
+     * 客户端读得慢时 socket 缓冲区写满，写线程随之停下，服务端不会无限制地缓存待发送的数据。
+     * @param from      最小 id（含）
+     * @param to        最大 id（含）
+     * @param limit     最多返回的个数
+     * @param chunkSize 每次 flush 的产品个数，默认取 product.stream.chunk-size
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, ProductFormat.SMILE_VALUE})
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(defaultValue = "" + Integer.MIN_VALUE) int from,
+                                                        @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int to,
+                                                        @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit,
+                                                        @RequestParam(required = false) Integer chunkSize,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        int flushEvery = chunkSize != null ? chunkSize : streamChunkSize;
+        if (limit < 0 || flushEvery <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit 不能为负数，chunkSize 必须为正数");
+        }
+        int[] ids = productRepository.findIds(from, to);
+        ProductFormat format = ProductFormat.negotiate(accept);
+        boolean ndjson = format == ProductFormat.JSON;
+        ObjectWriter writer = productWriter(format);
+        // StreamingResponseBody 不经过消息转换器，produces 不会写入响应头，需要显式指定
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper(format).getFactory().createGenerator(out)) {
+                if (ndjson) {
+                    generator.setRootValueSeparator(null);
+                }
+                int written = 0;
+                for (int i = 0; i < ids.length && written < limit; i++) {
+                    // 快照之后被删除的产品跳过
+                    Product product = productRepository.findById(ids[i]);
+                    if (product == null) {
+                        continue;
+                    }
+                    writer.writeValue(generator, product);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                    if (++written % flushEvery == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : format.getMediaType())
+                .body(body);
     }
 
     /**
-     * 把给定的产品信息以 text/plain 的形式返回
+     * 把给定的产品信息以 text/plain 的形式返回；Accept 只接受 application/json 时返回 JSON。
+     * 三个 product 接口都由 CompactProductHttpMessageConverter 直接写出
      * @param product
      * @return
      */
     @GetMapping({"/get-product-3","/get_product3"})
-    public String get_product3(Product product) {
-        return product.toString();
+    public CompactProduct get_product3(CompactProduct product) {
+        return product;
     }
 
     /**
-     * 把给定的产品以 test/plain 的形式返回
+     * 保存给定的产品并以 test/plain 的形式返回，没有 id 的产品只返回不保存
      * @param product
      * @return
      */
     @PostMapping({"/post-product-1","/post_product1"})
-    public String post_product1(Product product) {
-        return product.toString();
+    public CompactProduct post_product1(Product product) {
+        // 先准备好响应再保存，保存之后不应再有可能失败的步骤
+        CompactProduct result = CompactProduct.from(product);
+        saveIfIdentified(product);
+        return result;
     }
 
-    /** 接收json，转为 product，然后以 text/plain 返回
+    /** 接收json，转为 product 并保存，然后以 text/plain 返回
      *
      * @param product
      * @return
      */
     @PostMapping({"/post-product-2","/post_product2"})
-    public String post_product2(@RequestBody Product product) {
-        return product.toString();
+    public CompactProduct post_product2(@RequestBody Product product) {
+        // 先准备好响应再保存，保存之后不应再有可能失败的步骤
+        CompactProduct result = CompactProduct.from(product);
+        saveIfIdentified(product);
+        return result;
+    }
+
+    private void saveIfIdentified(Product product) {
+        if (product.getId() != null) {
+            productRepository.save(product);
+        }
+    }
+
+    /**
+     * 批量新增或更新产品，请求体为 JSON 数组或 NDJSON（每行一个 JSON 对象），也可以是 Smile 格式的数组或连续对象。
+     * 用 JsonParser 逐条解析，每凑满 batchSize 条保存一次，边处理边写出每批的条数和耗时，
+     * 请求体和响应都不会整个放在内存中。
+     * <p>
+     * 出错时停止处理并在结果中给出 error，之前的批次已经保存；响应尚未提交时状态码为 400。
+     * @param batchSize 每批的条数，默认取 product.bulk.batch-size，不能超过 product.bulk.max-batch-size
+     */
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, ProductFormat.SMILE_VALUE})
+    public void bulk(@RequestParam(required = false) Integer batchSize,
+                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int size = batchSize != null ? batchSize : bulkBatchSize;
+        if (size <= 0 || size > bulkMaxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "batchSize 必须在 1 到 " + bulkMaxBatchSize + " 之间");
+        }
+        ProductFormat input = ProductFormat.of(request.getContentType());
+        ProductFormat output = ProductFormat.negotiate(accept);
+        ObjectReader reader = productReader(input);
+        response.setContentType(output.getMediaType().toString());
+        long start = System.nanoTime();
+        List<Product> batch = new ArrayList<>(size);
+        int batches = 0;
+        long total = 0;
+        try (JsonParser parser = mapper(input).getFactory().createParser(request.getInputStream());
+             JsonGenerator generator = mapper(output).getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("batches");
+            String error = null;
+            try {
+                JsonToken first = parser.nextToken();
+                // JSON 数组的元素以 END_ARRAY 结束；NDJSON 是一串顶层对象，以输入结束为止
+                boolean array = first == JsonToken.START_ARRAY;
+                JsonToken token = array ? parser.nextToken() : first;
+                long batchStart = System.nanoTime();
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    Product product = reader.readValue(parser);
+                    if (product == null || product.getId() == null) {
+                        throw new IllegalArgumentException("第 " + (total + batch.size() + 1) + " 条记录缺少 id");
+                    }
+                    batch.add(product);
+                    if (batch.size() == size) {
+                        total += saveBatch(batch, batches++, batchStart, generator);
+                        batchStart = System.nanoTime();
+                    }
+                    token = parser.nextToken();
+                }
+                if (token == null && array) {
+                    throw new IllegalArgumentException("JSON 数组不完整");
+                }
+                if (!batch.isEmpty()) {
+                    total += saveBatch(batch, batches++, batchStart, generator);
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                error = e.getMessage();
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpStatus.BAD_REQUEST.value());
+                }
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("total", total);
+            generator.writeNumberField("millis", (System.nanoTime() - start) / 1_000_000.0);
+            if (error != null) {
+                generator.writeStringField("error", error);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private int saveBatch(List<Product> batch, int index, long batchStart, JsonGenerator generator) throws IOException {
+        for (Product product : batch) {
+            productRepository.save(product);
+        }
+        int count = batch.size();
+        batch.clear();
+        generator.writeStartObject();
+        generator.writeNumberField("index", index);
+        generator.writeNumberField("count", count);
+        generator.writeNumberField("millis", (System.nanoTime() - batchStart) / 1_000_000.0);
+        generator.writeEndObject();
+        return count;
     }
 
+    /**
+     * 删除产品，修改交给写线程异步执行
+     * @param ack DURABLE（默认）等待删除完成，产品不存在时返回 404；NONE 放入写队列后立即返回 202
+     */
     @DeleteMapping("/delete/{id}")
-    public String delete(@PathVariable Integer id) {
-        String result = String.format("编号为%s的产品删除成功", id);
-        System.out.println(result);
-        return result;
+    public ResponseEntity<String> delete(@PathVariable Integer id, @RequestParam(defaultValue = "DURABLE") AckMode ack) {
+        CompletableFuture<Boolean> done = submit(() -> productWriteBehind.delete(id, ack));
+        if (done == null) {
+            return ResponseEntity.accepted().body("编号为" + id + "的产品删除请求已受理");
+        }
+        if (!await(done)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "编号为" + id + "的产品不存在");
+        }
+        return ResponseEntity.ok("编号为" + id + "的产品删除成功");
     }
 
+    /**
+     * 更新产品，不存在时新增，修改交给写线程异步执行
+     * @param ack DURABLE（默认）等待更新完成；NONE 放入写队列后立即返回 202
+     */
     @PutMapping("/update")
-    public String updateByPut(Product product) {
-        String result = product.toString() + " 更新成功";
-        System.out.println(result);
-        return result;
+    public ResponseEntity<String> updateByPut(Product product, @RequestParam(defaultValue = "DURABLE") AckMode ack) {
+        if (product.getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "缺少参数 id");
+        }
+        CompletableFuture<Boolean> done = submit(() -> productWriteBehind.update(product, ack));
+        if (done == null) {
+            return ResponseEntity.accepted().body(describe(product, " 更新请求已受理"));
+        }
+        await(done);
+        return ResponseEntity.ok(describe(product, " 更新成功"));
+    }
+
+    /**
+     * 产品的文本形式加上说明，直接拼在一个缓冲区里，不经过 Product.toString() 的中间字符串
+     */
+    private static String describe(Product product, String message) {
+        return CompactProduct.from(product).writeText(new ByteBuilder(64)).appendUtf8(message).toString();
     }
 
+    private static CompletableFuture<Boolean> submit(Supplier<CompletableFuture<Boolean>> mutation) {
+        try {
+            return mutation.get();
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+    }
+
+    private boolean await(CompletableFuture<Boolean> done) {
+        try {
+            return done.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "等待写入时被中断", e);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "等待写入超时", e);
+        } catch (ExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "写入失败", e.getCause());
+        }
+    }
+
+    /**
+     * 接收上传的文件并保存到存储目录，之后可以通过 /product/download/{filename} 下载
+     */
     @PostMapping("/upload")
-    public String upload(MultipartRequest request) {
+    public String upload(MultipartRequest request) throws IOException {
         MultipartFile file = request.getFile("file");
         String originalFilename = file.getOriginalFilename();
+        try {
+            // transferTo(File) 调用 Part.write，容器的临时文件直接改名为存储目录中的临时文件，不必再复制一遍，
+            // 写完后再原子地改名为目标文件；transferTo(Path) 会经过堆内缓冲区复制整个文件
+            uploadStorage.store(originalFilename, temp -> file.transferTo(temp.toFile()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
         return "upload success filename: " + originalFilename;
     }
+
+    /**
+     * 下载已上传的文件，支持 HEAD、Range、If-Range 和条件请求。
+     * 容器支持时通过 sendfile 零拷贝发送，文件内容不经过 JVM 堆。
+     */
+    @RequestMapping(value = "/download/{filename:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void download(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            file = uploadStorage.resolve(filename);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "文件不存在: " + filename);
+        }
+        FileSender.send(file, request, response);
+    }
+
+    /**
+     * 流式上传：不经过 MultipartResolver，直接从请求体中边解析边写入存储目录，同时计算 CRC32。
+     * 内存占用只取决于缓冲区大小（product.upload.buffer-size），与文件大小无关。
+     * 需要开启 spring.servlet.multipart.resolve-lazily，否则请求体会在进入方法之前被解析掉。
+     */
+    @PostMapping("/upload-stream")
+    public String uploadStream(HttpServletRequest request) throws IOException {
+        StoredFile stored;
+        try {
+            stored = uploadStorage.storeMultipart(request.getInputStream(), request.getContentType(), "file");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        if (stored == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "缺少文件 file");
+        }
+        return "upload success filename: " + stored.getFilename()
+                + ", size: " + stored.getSize() + ", crc32: " + stored.getCrc32Hex();
+    }
 }
@@ -0,0 +1,66 @@
+package com.one.learn.resttemplate.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 产品接口支持的序列化格式：JSON 文本和 Jackson Smile 二进制格式。
+ * 需要自己写出响应体的接口（缓存的字节、流式输出）用它按 Accept 选择格式。
+ */
+public enum ProductFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(MediaType.valueOf(ProductFormat.SMILE_VALUE));
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    ProductFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * 按 Accept 中的先后和 q 值选择格式。只有明确写出 application/x-jackson-smile 才使用 Smile，
+     * 没有 Accept、通配符或者无法解析时都使用 JSON
+     */
+    public static ProductFormat negotiate(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return JSON;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.equalsTypeAndSubtype(SMILE.mediaType)) {
+                return SMILE;
+            }
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return JSON;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * @return 请求体 Content-Type 对应的格式，不是 Smile 时按 JSON 处理
+     */
+    public static ProductFormat of(String contentType) {
+        try {
+            return StringUtils.hasText(contentType)
+                    && MediaType.parseMediaType(contentType).equalsTypeAndSubtype(SMILE.mediaType) ? SMILE : JSON;
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.one.learn.resttemplate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.repository.ProductRepository;
+import com.one.learn.resttemplate.util.ConcurrentIntObjectMap;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+
+/**
+ * 缓存产品序列化后的字节（JSON 和 Smile 各一份）和对应的强 ETag，以产品 id 为键。
+ * <p>
+ * 仓库中的产品保存或删除时移除对应的缓存项，已删除的产品不会一直占用内存。
+ * 缓存项还记录了生成它的 {@link Product} 实例，查询时与仓库中的当前实例按引用比较，
+ * 与移除并发的查询也不会返回旧的内容。因此仓库中的产品实例不能被原地修改。
+ */
+@Component
+public class ProductResponseCache {
+    private final ObjectWriter jsonWriter;
+    private final ObjectWriter smileWriter;
+    private final ConcurrentIntObjectMap<Entry> entries = new ConcurrentIntObjectMap<>(16, 16);
+
+    public ProductResponseCache(ObjectMapper objectMapper, MappingJackson2SmileHttpMessageConverter smileConverter,
+                                ProductRepository productRepository) {
+        this.jsonWriter = objectMapper.writerFor(Product.class);
+        this.smileWriter = smileConverter.getObjectMapper().writerFor(Product.class);
+        productRepository.addChangeListener(this::evict);
+    }
+
+    /**
+     * @param product 仓库中的当前产品，id 不能为空
+     * @return 与该产品实例对应的缓存项，未命中或已过期时重新序列化
+     */
+    public Entry get(Product product) {
+        int id = product.getId();
+        Entry entry = entries.get(id);
+        if (entry != null && entry.product == product) {
+            return entry;
+        }
+        entry = serialize(product);
+        entries.put(id, entry);
+        return entry;
+    }
+
+    /**
+     * 移除产品的缓存项，仓库中的产品保存或删除时调用
+     */
+    public void evict(int id) {
+        entries.remove(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 序列化产品但不放入缓存，用于常量产品
+     */
+    public Entry serialize(Product product) {
+        try {
+            return new Entry(product, jsonWriter.writeValueAsBytes(product), smileWriter.writeValueAsBytes(product));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static final class Entry {
+        private final Product product;
+        private final Representation json;
+        private final Representation smile;
+
+        Entry(Product product, byte[] json, byte[] smile) {
+            this.product = product;
+            this.json = new Representation(json);
+            this.smile = new Representation(smile);
+        }
+
+        public Representation get(ProductFormat format) {
+            return format == ProductFormat.SMILE ? smile : json;
+        }
+    }
+
+    /**
+     * 一种格式的序列化结果，不同格式的 ETag 不同
+     */
+    public static final class Representation {
+        private final byte[] body;
+        private final String etag;
+
+        Representation(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+
+        /**
+         * 序列化后的字节，调用方不能修改
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.one.learn.resttemplate.converter;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.util.ByteBuilder;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把 {@link CompactProduct} 以 text/plain（与 Product.toString() 相同）或 application/json 写入响应。
+ * <p>
+ * 内容先写入线程内复用的 {@link ByteBuilder}，设置 Content-Length 后一次写出，每个请求不创建 String 和临时字节数组。
+ * 只支持写出，请求体仍按 Product 读取。
+ * <p>
+ * 给出 Smile 的 ObjectWriter 时也支持 application/x-jackson-smile：转换为 Product 后由它写出，
+ * 与其它接口的 Smile 表示相同，而不是让 Smile 转换器把 CompactProduct 的内部字段当作属性序列化。
+ */
+public class CompactProductHttpMessageConverter extends AbstractHttpMessageConverter<CompactProduct> {
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    /**
+     * 超过这个大小的缓冲区用完后不再保留，避免个别很长的 name 让每个线程都占着大数组
+     */
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024;
+    private static final ThreadLocal<ByteBuilder> BUFFER = ThreadLocal.withInitial(() -> new ByteBuilder(256));
+
+    /**
+     * 写出 Product 的 Smile 表示，为 null 时不支持 Smile
+     */
+    private final ObjectWriter smileWriter;
+
+    /**
+     * 只支持 text/plain 和 application/json
+     */
+    public CompactProductHttpMessageConverter() {
+        super(TEXT_PLAIN_UTF8, MediaType.APPLICATION_JSON);
+        this.smileWriter = null;
+    }
+
+    /**
+     * @param smileWriter 用于 Product 的 Smile ObjectWriter，如 smileMapper.writerFor(Product.class)
+     */
+    public CompactProductHttpMessageConverter(ObjectWriter smileWriter) {
+        super(TEXT_PLAIN_UTF8, MediaType.APPLICATION_JSON, SMILE);
+        this.smileWriter = smileWriter;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CompactProduct.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CompactProduct readInternal(Class<? extends CompactProduct> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取 CompactProduct", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(CompactProduct product, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        if (smileWriter != null && contentType != null && contentType.isCompatibleWith(SMILE)) {
+            byte[] smile = smileWriter.writeValueAsBytes(product.toProduct());
+            outputMessage.getHeaders().setContentLength(smile.length);
+            outputMessage.getBody().write(smile);
+            return;
+        }
+        ByteBuilder buffer = BUFFER.get().reset();
+        if (contentType != null && contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            product.writeJson(buffer);
+        } else {
+            product.writeText(buffer);
+        }
+        outputMessage.getHeaders().setContentLength(buffer.length());
+        buffer.writeTo(outputMessage.getBody());
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.bean.Product;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.FormatterRegistry;
+
+/**
+ * {@link Product} 与 {@link CompactProduct} 之间的类型转换，注册到 Spring MVC 的 ConversionService
+ */
+public final class ProductConverters {
+
+    private ProductConverters() {
+    }
+
+    public static void register(FormatterRegistry registry) {
+        registry.addConverter(new ToCompact());
+        registry.addConverter(new ToProduct());
+    }
+
+    public static class ToCompact implements Converter<Product, CompactProduct> {
+        @Override
+        public CompactProduct convert(Product source) {
+            return CompactProduct.from(source);
+        }
+    }
+
+    public static class ToProduct implements Converter<CompactProduct, Product> {
+        @Override
+        public Product convert(CompactProduct source) {
+            return source.toProduct();
+        }
+    }
+}
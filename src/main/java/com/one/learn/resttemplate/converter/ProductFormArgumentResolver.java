@@ -0,0 +1,141 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.bean.Product;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.Conventions;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.DefaultBindingErrorProcessor;
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.http.HttpServletRequest;
+import java.beans.PropertyChangeEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 处理方法中没有注解的 {@link Product} / {@link CompactProduct} 参数（如 get_product3、post_product1、updateByPut），
+ * 用 {@link ProductFormParser} 直接解析查询字符串和 application/x-www-form-urlencoded 请求体，代替 WebDataBinder。
+ * <p>
+ * 错误语义与 WebDataBinder 相同：类型转换失败时抛出 {@link BindException}（响应 400），错误信息由
+ * {@link DefaultBindingErrorProcessor} 生成。参数带注解（如 @Valid、@ModelAttribute）或后面紧跟 Errors 参数时
+ * 不处理，仍交给默认的数据绑定。
+ * <p>
+ * 请求体已被读取时（PUT / PATCH / DELETE 的表单请求体由 FormContentFilter 预先解析，或者之前调用过 getParameter），
+ * 改为从请求参数中取值，其中已包含查询字符串和请求体的参数。multipart 请求由容器解析参数，同样只按参数名取值。
+ */
+public class ProductFormArgumentResolver implements HandlerMethodArgumentResolver {
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+    private static final DefaultBindingErrorProcessor ERROR_PROCESSOR = new DefaultBindingErrorProcessor();
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        if ((type != Product.class && type != CompactProduct.class) || parameter.hasParameterAnnotations()) {
+            return false;
+        }
+        Class<?>[] types = parameter.getExecutable().getParameterTypes();
+        int next = parameter.getParameterIndex() + 1;
+        return next >= types.length || !Errors.class.isAssignableFrom(types[next]);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        ProductFormParser parser = new ProductFormParser(charset);
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.regionMatches(true, 0, "multipart/", 0, 10)) {
+            parameters(request, parser);
+        } else if (isFormBody(request, contentType)) {
+            InputStream in = request.getInputStream();
+            byte[] buffer = BUFFER.get();
+            int n = in.read(buffer);
+            if (n == -1) {
+                // 请求体为空或已被读取，请求参数中已有查询字符串和请求体的参数
+                parameters(request, parser);
+            } else {
+                query(request, parser);
+                parser.parse(buffer, 0, n);
+                readBody(in, buffer, parser);
+            }
+        } else {
+            query(request, parser);
+        }
+
+        if (parser.hasErrors()) {
+            throw bindException(parser, parameter);
+        }
+        return parameter.getParameterType() == Product.class ? parser.toProduct() : parser.toCompactProduct();
+    }
+
+    private static boolean isFormBody(HttpServletRequest request, String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method) && !"PATCH".equals(method) && !"DELETE".equals(method)) {
+            return false;
+        }
+        // 与 Tomcat 判断表单请求体的方式相同：忽略大小写比较类型，忽略参数
+        String form = MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+        if (!contentType.regionMatches(true, 0, form, 0, form.length())) {
+            return false;
+        }
+        return contentType.length() == form.length() || contentType.charAt(form.length()) == ';'
+                || Character.isWhitespace(contentType.charAt(form.length()));
+    }
+
+    private static void parameters(HttpServletRequest request, ProductFormParser parser) {
+        parser.parameter("id", request.getParameterValues("id"));
+        parser.parameter("name", request.getParameterValues("name"));
+        parser.parameter("price", request.getParameterValues("price"));
+    }
+
+    private static void query(HttpServletRequest request, ProductFormParser parser) {
+        String query = request.getQueryString();
+        if (query != null) {
+            parser.parse(query);
+            parser.endOfSource();
+        }
+    }
+
+    private static void readBody(InputStream in, byte[] buffer, ProductFormParser parser) throws IOException {
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            parser.parse(buffer, 0, n);
+        }
+        parser.endOfSource();
+    }
+
+    private static BindException bindException(ProductFormParser parser, MethodParameter parameter) {
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(parser.toProduct(),
+                Conventions.getVariableNameForParameter(parameter));
+        if (parser.getIdRejected() != null) {
+            ERROR_PROCESSOR.processPropertyAccessException(typeMismatch(result.getTarget(), "id",
+                    parser.getIdRejected(), Integer.class, parser.getIdCause()), result);
+        }
+        if (parser.getPriceRejected() != null) {
+            ERROR_PROCESSOR.processPropertyAccessException(typeMismatch(result.getTarget(), "price",
+                    parser.getPriceRejected(), BigDecimal.class, parser.getPriceCause()), result);
+        }
+        return new BindException(result);
+    }
+
+    private static TypeMismatchException typeMismatch(Object target, String field, String value,
+                                                      Class<?> requiredType, Throwable cause) {
+        return new TypeMismatchException(new PropertyChangeEvent(target, field, null, value), requiredType, cause);
+    }
+}
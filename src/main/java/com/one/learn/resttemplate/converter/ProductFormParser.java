@@ -0,0 +1,354 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.bean.Product;
+import org.springframework.util.NumberUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 一遍扫描 application/x-www-form-urlencoded 格式的键值对（查询字符串或请求体），只取出 id、name、price，
+ * 边解码边转换，不构造参数 Map，也不通过反射设置属性。
+ * <p>
+ * 结果与 WebDataBinder 绑定 Product 相同：
+ * <ul>
+ *     <li>空值转换为 null（name 为空字符串）；没有 '=' 的键值为空</li>
+ *     <li>同名参数出现多次时 id 和 price 取第一个，name 以逗号连接</li>
+ *     <li>id 和 price 的特殊写法（首尾空白、十六进制、科学计数法等）交给 {@link NumberUtils#parseNumber}</li>
+ *     <li>百分号编码不合法的键值对被忽略，与 Tomcat 解析参数时一致</li>
+ * </ul>
+ * 不支持 WebDataBinder 的字段标记前缀（"_"、"!"）。可以先后解析多个来源（先查询字符串后请求体），
+ * 每个来源结束时调用 {@link #endOfSource()}。非线程安全。
+ */
+public class ProductFormParser {
+    private static final int NONE = 0;
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int PRICE = 3;
+    /**
+     * long 可以精确表示的十进制位数
+     */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final Charset charset;
+    /**
+     * 当前来源的字符集：查询字符串为 UTF-8，请求体为构造时给出的字符集
+     */
+    private Charset sourceCharset;
+
+    private byte[] key = new byte[16];
+    private int keyLength;
+    private byte[] value = new byte[64];
+    private int valueLength;
+    private boolean inValue;
+    private boolean invalid;
+    /**
+     * 百分号转义的解析状态：0 不在转义中，1 读到 '%'，2 读到第一个十六进制位
+     */
+    private int escape;
+    private int escapeHigh;
+    private boolean empty = true;
+
+    private boolean idSeen;
+    private boolean hasId;
+    private int id;
+    private String idRejected;
+    private String name;
+    private boolean priceSeen;
+    private boolean hasPrice;
+    private long unscaledPrice;
+    private int priceScale;
+    private BigDecimal bigPrice;
+    private String priceRejected;
+    private Exception idCause;
+    private Exception priceCause;
+
+    /**
+     * @param charset 请求体的字符集
+     */
+    public ProductFormParser(Charset charset) {
+        this.charset = charset;
+        this.sourceCharset = charset;
+    }
+
+    /**
+     * 解析未解码的查询字符串，一个字符对应一个字节，按 UTF-8 解码（与 Tomcat 默认的 URIEncoding 一致）
+     */
+    public void parse(CharSequence raw) {
+        sourceCharset = StandardCharsets.UTF_8;
+        for (int i = 0, n = raw.length(); i < n; i++) {
+            accept((byte) raw.charAt(i));
+        }
+    }
+
+    /**
+     * 解析未解码的请求体，可以分多次传入
+     */
+    public void parse(byte[] raw, int offset, int length) {
+        sourceCharset = charset;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(raw[i]);
+        }
+    }
+
+    /**
+     * 当前来源结束，结束最后一个键值对
+     */
+    public void endOfSource() {
+        endPair();
+    }
+
+    /**
+     * 接收已经解码的参数值，用于 multipart 等由容器解析参数的请求
+     */
+    public void parameter(String name, String[] values) {
+        int field = field(name);
+        if (field == NONE || values == null) {
+            return;
+        }
+        sourceCharset = charset;
+        for (String v : values) {
+            byte[] bytes = v.getBytes(charset);
+            valueLength = 0;
+            ensureValue(bytes.length);
+            System.arraycopy(bytes, 0, value, 0, bytes.length);
+            valueLength = bytes.length;
+            assign(field);
+        }
+    }
+
+    private void accept(byte b) {
+        if (b == '&') {
+            endPair();
+            return;
+        }
+        empty = false;
+        if (b == '=' && !inValue) {
+            inValue = true;
+            if (escape != 0) {
+                invalid = true;
+            }
+            escape = 0;
+            return;
+        }
+        if (escape != 0) {
+            int digit = Character.digit(b, 16);
+            if (digit < 0) {
+                invalid = true;
+                escape = 0;
+            } else if (escape == 1) {
+                escapeHigh = digit;
+                escape = 2;
+                return;
+            } else {
+                escape = 0;
+                append((byte) (escapeHigh << 4 | digit));
+                return;
+            }
+        }
+        if (b == '%') {
+            escape = 1;
+        } else {
+            append(b == '+' ? (byte) ' ' : b);
+        }
+    }
+
+    private void append(byte b) {
+        if (inValue) {
+            ensureValue(1);
+            value[valueLength++] = b;
+        } else if (keyLength < key.length) {
+            key[keyLength++] = b;
+        } else {
+            // 比所有字段名都长的键，不需要保存全部内容
+            keyLength = key.length + 1;
+        }
+    }
+
+    private void endPair() {
+        if (!empty && !invalid && escape == 0) {
+            int field = keyLength == 2 && key[0] == 'i' && key[1] == 'd' ? ID
+                    : keyLength == 4 && key[0] == 'n' && key[1] == 'a' && key[2] == 'm' && key[3] == 'e' ? NAME
+                    : keyLength == 5 && key[0] == 'p' && key[1] == 'r' && key[2] == 'i' && key[3] == 'c' && key[4] == 'e' ? PRICE
+                    : NONE;
+            if (field != NONE) {
+                assign(field);
+            }
+        }
+        keyLength = 0;
+        valueLength = 0;
+        inValue = false;
+        invalid = false;
+        escape = 0;
+        empty = true;
+    }
+
+    private static int field(String name) {
+        switch (name) {
+            case "id": return ID;
+            case "name": return NAME;
+            case "price": return PRICE;
+            default: return NONE;
+        }
+    }
+
+    private void assign(int field) {
+        switch (field) {
+            case ID:
+                if (!idSeen) {
+                    idSeen = true;
+                    parseId();
+                }
+                break;
+            case NAME:
+                String s = new String(value, 0, valueLength, sourceCharset);
+                name = name == null ? s : name + "," + s;
+                break;
+            case PRICE:
+                if (!priceSeen) {
+                    priceSeen = true;
+                    parsePrice();
+                }
+                break;
+            default:
+        }
+    }
+
+    private void parseId() {
+        if (valueLength == 0) {
+            return;
+        }
+        int i = 0;
+        boolean negative = false;
+        if (value[0] == '-' || value[0] == '+') {
+            negative = value[0] == '-';
+            i = 1;
+        }
+        // 9 位以内的十进制数不会溢出 int，其余写法交给 NumberUtils
+        if (valueLength - i >= 1 && valueLength - i <= 9) {
+            int result = 0;
+            for (; i < valueLength; i++) {
+                int d = value[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                result = result * 10 + d;
+            }
+            if (i == valueLength) {
+                hasId = true;
+                id = negative ? -result : result;
+                return;
+            }
+        }
+        String text = new String(value, 0, valueLength, sourceCharset);
+        try {
+            id = NumberUtils.parseNumber(text, Integer.class);
+            hasId = true;
+        } catch (IllegalArgumentException e) {
+            idRejected = text;
+            idCause = e;
+        }
+    }
+
+    private void parsePrice() {
+        if (valueLength == 0) {
+            return;
+        }
+        int i = 0;
+        boolean negative = false;
+        if (value[0] == '-' || value[0] == '+') {
+            negative = value[0] == '-';
+            i = 1;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < valueLength; i++) {
+            byte b = value[i];
+            if (b >= '0' && b <= '9') {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i == valueLength && digits > 0 && digits <= MAX_FAST_DIGITS) {
+            hasPrice = true;
+            unscaledPrice = negative ? -unscaled : unscaled;
+            priceScale = scale;
+            return;
+        }
+        String text = new String(value, 0, valueLength, sourceCharset);
+        try {
+            BigDecimal price = NumberUtils.parseNumber(text, BigDecimal.class);
+            hasPrice = true;
+            try {
+                unscaledPrice = price.unscaledValue().longValueExact();
+                priceScale = price.scale();
+            } catch (ArithmeticException e) {
+                bigPrice = price;
+            }
+        } catch (IllegalArgumentException e) {
+            priceRejected = text;
+            priceCause = e;
+        }
+    }
+
+    private void ensureValue(int extra) {
+        if (valueLength + extra > value.length) {
+            value = Arrays.copyOf(value, Math.max(value.length * 2, valueLength + extra));
+        }
+    }
+
+    public boolean hasErrors() {
+        return idRejected != null || priceRejected != null;
+    }
+
+    /**
+     * @return id 转换失败时的原始值，没有错误时为 null
+     */
+    public String getIdRejected() {
+        return idRejected;
+    }
+
+    public Exception getIdCause() {
+        return idCause;
+    }
+
+    public String getPriceRejected() {
+        return priceRejected;
+    }
+
+    public Exception getPriceCause() {
+        return priceCause;
+    }
+
+    /**
+     * @return 价格超出 long 定点数范围，只能用 BigDecimal 表示
+     */
+    public boolean isPriceOutOfRange() {
+        return bigPrice != null;
+    }
+
+    public Product toProduct() {
+        BigDecimal price = bigPrice != null ? bigPrice
+                : hasPrice ? BigDecimal.valueOf(unscaledPrice, priceScale) : null;
+        return new Product(hasId ? id : null, name, price);
+    }
+
+    public CompactProduct toCompactProduct() {
+        if (bigPrice != null) {
+            return CompactProduct.of(hasId ? id : null, name, bigPrice);
+        }
+        return CompactProduct.of(hasId, id, name, hasPrice, unscaledPrice, priceScale);
+    }
+}
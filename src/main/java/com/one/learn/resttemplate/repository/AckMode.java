@@ -0,0 +1,15 @@
+package com.one.learn.resttemplate.repository;
+
+/**
+ * 写操作的确认方式
+ */
+public enum AckMode {
+    /**
+     * 放入写队列即返回，不等待写入
+     */
+    NONE,
+    /**
+     * 等待写线程把修改应用到仓库后再返回
+     */
+    DURABLE
+}
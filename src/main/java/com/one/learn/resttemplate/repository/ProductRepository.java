@@ -0,0 +1,108 @@
+package com.one.learn.resttemplate.repository;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.util.ConcurrentIntObjectMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+/**
+ * 内存中的产品仓库，以产品 id（基本类型 int）为键。
+ * 读操作无锁，写操作使用分段锁，见 {@link ConcurrentIntObjectMap}。
+ */
+@Repository
+public class ProductRepository {
+    private final ConcurrentIntObjectMap<Product> products;
+    private final List<IntConsumer> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param seedSize 启动时预置的产品个数，id 从 1 到 seedSize，与原先 get_product2 返回的内容一致
+     */
+    public ProductRepository(@Value("${product.repository.seed-size:1000}") int seedSize) {
+        this.products = new ConcurrentIntObjectMap<>(Math.max(seedSize, 16),
+                Runtime.getRuntime().availableProcessors() * 4);
+        for (int id = 1; id <= seedSize; id++) {
+            products.put(id, new Product(id, "ProductC", BigDecimal.valueOf(6666.0)));
+        }
+    }
+
+    /**
+     * @return 对应 id 的产品，不存在时返回 null
+     */
+    public Product findById(int id) {
+        return products.get(id);
+    }
+
+    public boolean existsById(int id) {
+        return products.containsKey(id);
+    }
+
+    /**
+     * 新增或覆盖产品
+     * @return 被覆盖的旧产品，新增时返回 null
+     */
+    public Product save(Product product) {
+        if (product.getId() == null) {
+            throw new IllegalArgumentException("产品 id 不能为空");
+        }
+        Product previous = products.put(product.getId(), product);
+        changed(product.getId());
+        return previous;
+    }
+
+    /**
+     * @return 被删除的产品，不存在时返回 null
+     */
+    public Product deleteById(int id) {
+        Product removed = products.remove(id);
+        if (removed != null) {
+            changed(id);
+        }
+        return removed;
+    }
+
+    /**
+     * 注册产品保存或删除后的回调，参数为产品 id，在写入线程中同步调用，应当很快返回
+     */
+    public void addChangeListener(IntConsumer listener) {
+        changeListeners.add(listener);
+    }
+
+    private void changed(int id) {
+        for (IntConsumer listener : changeListeners) {
+            listener.accept(id);
+        }
+    }
+
+    /**
+     * @return [from, to] 范围内所有产品 id 的快照，升序排列
+     */
+    public int[] findIds(int from, int to) {
+        int[] ids = products.keys();
+        int n = 0;
+        for (int id : ids) {
+            if (id >= from && id <= to) {
+                ids[n++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    public int count() {
+        return products.size();
+    }
+
+    /**
+     * 弱一致地遍历所有产品，顺序不确定
+     */
+    public void forEach(ConcurrentIntObjectMap.IntObjectConsumer<? super Product> action) {
+        products.forEach(action);
+    }
+}
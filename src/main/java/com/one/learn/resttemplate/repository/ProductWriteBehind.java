@@ -0,0 +1,191 @@
+package com.one.learn.resttemplate.repository;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.util.MpscBoundedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 产品修改（更新、删除）的异步写入管道。
+ * <p>
+ * 请求线程只把修改放入有界的无锁队列，由单独的写线程批量取出、应用到 {@link ProductRepository}
+ * 并记录日志，请求线程不再被同步的日志输出串行化。调用方可以选择不等待（{@link AckMode#NONE}），
+ * 或等待修改被应用后再返回（{@link AckMode#DURABLE}）。
+ */
+@Component
+public class ProductWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(ProductWriteBehind.class);
+    /**
+     * 队列为空时写线程休眠的最长时间，生产者放入元素后会主动唤醒它
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ProductRepository productRepository;
+    private final MpscBoundedQueue<Mutation> queue;
+    private final int batchSize;
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    /**
+     * 正在 submit 中的调用数，stop 等它们都完成后才让写线程退出
+     */
+    private final AtomicInteger submitting = new AtomicInteger();
+    /**
+     * 是否接受新的修改
+     */
+    private volatile boolean running;
+    /**
+     * 不会再有修改放入队列，写线程清空队列后退出
+     */
+    private volatile boolean closing;
+    private volatile Thread writer;
+
+    public ProductWriteBehind(ProductRepository productRepository,
+                              @Value("${product.writer.batch-size:64}") int batchSize,
+                              @Value("${product.writer.queue-capacity:8192}") int queueCapacity) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须为正数");
+        }
+        this.productRepository = productRepository;
+        this.batchSize = batchSize;
+        this.queue = new MpscBoundedQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        closing = false;
+        running = true;
+        writer = new Thread(this::run, "product-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止写线程，队列中剩余的修改会先被应用。
+     * 与 submit 并发时，每个修改要么被拒绝，要么在 stop 返回前被应用：先拒绝新的修改，
+     * 等已经通过检查的 submit 放入队列后，才通知写线程清空队列退出
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        while (submitting.get() != 0) {
+            Thread.yield();
+        }
+        closing = true;
+        LockSupport.unpark(writer);
+        writer.join();
+        writer = null;
+    }
+
+    /**
+     * 提交更新（不存在时新增）
+     * @return ack 为 DURABLE 时返回应用后完成的 future，结果表示产品之前是否存在；NONE 时返回 null
+     * @throws RejectedExecutionException 写队列已满
+     */
+    public CompletableFuture<Boolean> update(Product product, AckMode ack) {
+        return submit(new Mutation(product.getId(), product, ack));
+    }
+
+    /**
+     * 提交删除
+     * @return ack 为 DURABLE 时返回应用后完成的 future，结果表示产品是否存在；NONE 时返回 null
+     * @throws RejectedExecutionException 写队列已满
+     */
+    public CompletableFuture<Boolean> delete(int id, AckMode ack) {
+        return submit(new Mutation(id, null, ack));
+    }
+
+    private CompletableFuture<Boolean> submit(Mutation mutation) {
+        // 先登记再检查 running，与 stop 中先清除 running 再检查 submitting 的顺序相反，
+        // 两者至少有一方看到对方的写入：要么这里被拒绝，要么 stop 等这次放入完成
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("写线程已停止");
+            }
+            if (!queue.offer(mutation)) {
+                throw new RejectedExecutionException("写队列已满");
+            }
+            if (sleeping.get()) {
+                LockSupport.unpark(writer);
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return mutation.ack;
+    }
+
+    private void run() {
+        List<Mutation> batch = new ArrayList<>(batchSize);
+        while (!closing || !queue.isEmpty()) {
+            queue.drain(batch::add, batchSize);
+            if (batch.isEmpty()) {
+                sleeping.set(true);
+                if (!closing && queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping.set(false);
+                continue;
+            }
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Mutation> batch) {
+        for (Mutation mutation : batch) {
+            boolean existed;
+            try {
+                existed = mutation.product != null
+                        ? productRepository.save(mutation.product) != null
+                        : productRepository.deleteById(mutation.id) != null;
+            } catch (RuntimeException e) {
+                log.warn("编号为{}的产品修改失败", mutation.id, e);
+                if (mutation.ack != null) {
+                    mutation.ack.completeExceptionally(e);
+                }
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(mutation.product != null ? "{} 更新成功" : "编号为{}的产品删除成功",
+                        mutation.product != null ? mutation.product : mutation.id);
+            }
+            if (mutation.ack != null) {
+                mutation.ack.complete(existed);
+            }
+        }
+        log.trace("应用了 {} 个修改", batch.size());
+    }
+
+    private static final class Mutation {
+        final int id;
+        /**
+         * 为 null 表示删除
+         */
+        final Product product;
+        final CompletableFuture<Boolean> ack;
+
+        Mutation(int id, Product product, AckMode ack) {
+            this.id = id;
+            this.product = product;
+            this.ack = ack == AckMode.DURABLE ? new CompletableFuture<>() : null;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.one.learn.resttemplate.upload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 可续传的分块上传。
+ * <p>
+ * 创建会话时按文件大小预先分配临时文件，每个分块按 序号 * chunkSize 直接写到对应位置，
+ * 分块之间可以并行、乱序、重复上传。会话记录哪些分块已经完整写入，
+ * 客户端断线后查询会话状态，只重传缺少的分块，全部到齐后提交，临时文件改名为正式文件。
+ * <p>
+ * 超过 product.upload.session-idle-timeout-ms 没有任何请求的会话由后台线程清理，连同临时文件一起删除。
+ * 文件大小不超过 product.upload.max-file-size，分块不小于 product.upload.min-chunk-size（只有一个分块时除外），
+ * 分块数不超过 product.upload.max-chunk-count，同时存在的会话不超过 product.upload.max-sessions，
+ * 会话占用的内存和磁盘都有上限。
+ * 分块写入持有会话的读锁，提交、放弃和过期清理持有写锁，等正在写入的分块完成后才结束会话。
+ */
+@Service
+public class ChunkedUploadService {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String TEMP_PREFIX = ".chunked-";
+
+    private final UploadStorage uploadStorage;
+    private final long idleTimeoutMillis;
+    private final long maxFileSize;
+    private final int minChunkSize;
+    private final int maxChunkCount;
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    /**
+     * 剩余可以创建的会话数，会话结束时归还
+     */
+    private final Semaphore sessionPermits;
+    private ScheduledExecutorService cleaner;
+
+    public ChunkedUploadService(UploadStorage uploadStorage,
+                                @Value("${product.upload.session-idle-timeout-ms:3600000}") long idleTimeoutMillis,
+                                @Value("${product.upload.max-file-size:10GB}") DataSize maxFileSize,
+                                @Value("${product.upload.min-chunk-size:1024}") int minChunkSize,
+                                @Value("${product.upload.max-chunk-count:10000}") int maxChunkCount,
+                                @Value("${product.upload.max-sessions:100}") int maxSessions) {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis 必须为正数");
+        }
+        if (maxFileSize.isNegative() || minChunkSize <= 0 || maxChunkCount <= 0 || maxSessions <= 0) {
+            throw new IllegalArgumentException("上传会话的各项上限必须为正数");
+        }
+        this.uploadStorage = uploadStorage;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.minChunkSize = minChunkSize;
+        this.maxChunkCount = maxChunkCount;
+        this.sessionPermits = new Semaphore(maxSessions);
+    }
+
+    /**
+     * 删除上次运行遗留的临时文件（会话只保存在内存中，重启后无法续传），然后定期清理过期的会话
+     */
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (cleaner != null) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(uploadStorage.getDirectory(), TEMP_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chunked-upload-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.min(idleTimeoutMillis, TimeUnit.MINUTES.toMillis(1));
+        cleaner.scheduleWithFixedDelay(() -> {
+            try {
+                expireIdleSessions();
+            } catch (RuntimeException e) {
+                log.warn("清理上传会话失败", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+            cleaner = null;
+        }
+    }
+
+    /**
+     * 创建上传会话
+     * @throws IllegalArgumentException 参数不合法
+     * @throws IllegalStateException 会话数已达上限
+     */
+    public ChunkedUploadStatus create(String filename, long size, int chunkSize) throws IOException {
+        // 提前校验文件名，避免上传完才发现无法保存
+        uploadStorage.resolve(filename);
+        if (size < 0 || size > maxFileSize) {
+            throw new IllegalArgumentException("size 应在 0 到 " + maxFileSize + " 之间");
+        }
+        if (chunkSize <= 0 || chunkSize < minChunkSize && chunkSize < size) {
+            throw new IllegalArgumentException("chunkSize 不能小于 " + minChunkSize);
+        }
+        // 不用 (size + chunkSize - 1) / chunkSize，size 很大时会溢出
+        long chunkCount = size / chunkSize + (size % chunkSize == 0 ? 0 : 1);
+        if (chunkCount > maxChunkCount) {
+            throw new IllegalArgumentException("分块数 " + chunkCount + " 超过上限 " + maxChunkCount + "，请增大 chunkSize");
+        }
+        if (!sessionPermits.tryAcquire()) {
+            throw new IllegalStateException("上传会话过多，请稍后重试");
+        }
+        String id = UUID.randomUUID().toString();
+        Path temp = uploadStorage.getDirectory().resolve(TEMP_PREFIX + id + UploadStorage.TEMP_SUFFIX);
+        try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+            file.setLength(size);
+        } catch (IOException | RuntimeException e) {
+            sessionPermits.release();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Session session = new Session(id, filename, size, chunkSize, (int) chunkCount, temp);
+        sessions.put(id, session);
+        return session.status();
+    }
+
+    /**
+     * @return 会话状态，会话不存在时返回 null
+     */
+    public ChunkedUploadStatus status(String id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        session.touch();
+        return session.status();
+    }
+
+    /**
+     * 把一个分块写到临时文件的对应位置，分块的长度必须与会话约定的一致
+     *
+     * @return 会话不存在时返回 false
+     * @throws IllegalArgumentException 分块序号越界或长度不符
+     */
+    public boolean writeChunk(String id, int index, InputStream in) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return false;
+        }
+        if (index < 0 || index >= session.chunkCount) {
+            throw new IllegalArgumentException("分块序号越界: " + index);
+        }
+        session.lock.readLock().lock();
+        try {
+            if (session.closed) {
+                return false;
+            }
+            session.touch();
+            write(session, index, in);
+        } finally {
+            session.touch();
+            session.lock.readLock().unlock();
+        }
+        return true;
+    }
+
+    private static void write(Session session, int index, InputStream in) throws IOException {
+        long position = (long) index * session.chunkSize;
+        long expected = Math.min(session.chunkSize, session.size - position);
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(session.temp, StandardOpenOption.WRITE)) {
+            byte[] bytes = new byte[(int) Math.min(expected + 1, 64 * 1024)];
+            int n;
+            while ((n = in.read(bytes)) != -1) {
+                if (written + n > expected) {
+                    throw new IllegalArgumentException("分块 " + index + " 超过约定长度 " + expected);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, n);
+                while (buffer.hasRemaining()) {
+                    // 按位置写入，多个分块并发写同一个文件互不影响
+                    written += channel.write(buffer, position + written);
+                }
+            }
+        }
+        if (written != expected) {
+            throw new IllegalArgumentException("分块 " + index + " 长度为 " + written + "，应为 " + expected);
+        }
+        session.complete(index);
+    }
+
+    /**
+     * 所有分块都已到齐时，把临时文件改名为正式文件并结束会话。正在写入的分块（如重复上传）完成后才提交
+     *
+     * @return 正式文件的路径，会话不存在时返回 null
+     * @throws IllegalStateException 还有分块没有上传
+     */
+    public Path commit(String id) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        session.lock.writeLock().lock();
+        try {
+            if (session.closed) {
+                return null;
+            }
+            session.touch();
+            int missing = session.missingCount();
+            if (missing > 0) {
+                throw new IllegalStateException("还有 " + missing + " 个分块没有上传");
+            }
+            Path target = uploadStorage.resolve(session.filename);
+            Files.move(session.temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            close(session);
+            return target;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 放弃上传，删除临时文件
+     * @return 会话不存在时返回 false
+     */
+    public boolean abort(String id) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return false;
+        }
+        session.lock.writeLock().lock();
+        try {
+            if (session.closed) {
+                return false;
+            }
+            close(session);
+            Files.deleteIfExists(session.temp);
+            return true;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 结束空闲超过 idleTimeoutMillis 的会话并删除临时文件，正在写入分块的会话跳过
+     * @return 清理的会话数
+     */
+    public int expireIdleSessions() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (Session session : sessions.values()) {
+            if (now - session.lastAccess < TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)
+                    || !session.lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                if (session.closed || now - session.lastAccess < TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+                    continue;
+                }
+                close(session);
+                Files.deleteIfExists(session.temp);
+                expired++;
+                log.info("上传会话 {}（{}）空闲超时，已删除临时文件", session.id, session.filename);
+            } catch (IOException e) {
+                log.warn("删除临时文件 {} 失败", session.temp, e);
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 调用方持有会话的写锁
+     */
+    private void close(Session session) {
+        session.closed = true;
+        sessions.remove(session.id, session);
+        sessionPermits.release();
+    }
+
+    private static final class Session {
+        final String id;
+        final String filename;
+        final long size;
+        final int chunkSize;
+        final int chunkCount;
+        final Path temp;
+        /**
+         * 分块写入持有读锁，结束会话持有写锁
+         */
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        /**
+         * 会话已提交、放弃或过期，由 lock 的写锁修改
+         */
+        boolean closed;
+        volatile long lastAccess = System.nanoTime();
+        /**
+         * 已完整写入的分块，由 this 保护
+         */
+        private final BitSet completed;
+
+        Session(String id, String filename, long size, int chunkSize, int chunkCount, Path temp) {
+            this.id = id;
+            this.filename = filename;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = chunkCount;
+            this.temp = temp;
+            this.completed = new BitSet(chunkCount);
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        synchronized void complete(int index) {
+            completed.set(index);
+        }
+
+        synchronized int missingCount() {
+            return chunkCount - completed.cardinality();
+        }
+
+        /**
+         * 缺少的分块按连续区间给出，刚创建的会话只有一个区间
+         */
+        synchronized ChunkedUploadStatus status() {
+            List<int[]> missing = new ArrayList<>();
+            for (int from = completed.nextClearBit(0); from < chunkCount; ) {
+                int next = completed.nextSetBit(from);
+                int to = next < 0 ? chunkCount : next;
+                missing.add(new int[]{from, to - 1});
+                from = completed.nextClearBit(to);
+            }
+            return new ChunkedUploadStatus(id, filename, size, chunkSize, chunkCount, missing);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.one.learn.resttemplate.upload;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 分块上传会话的状态，missingChunks 为尚未收到的分块，按连续区间给出，每个区间是 [首个序号, 末个序号]（从 0 开始，包含两端），
+ * 连续缺少的分块只占一个区间
+ */
+public class ChunkedUploadStatus {
+    private String id;
+    private String filename;
+    private long size;
+    private int chunkSize;
+    private int chunkCount;
+    private List<int[]> missingChunks;
+
+    public ChunkedUploadStatus() {
+    }
+
+    public ChunkedUploadStatus(String id, String filename, long size, int chunkSize, int chunkCount, List<int[]> missingChunks) {
+        this.id = id;
+        this.filename = filename;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.missingChunks = missingChunks;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public List<int[]> getMissingChunks() {
+        return missingChunks;
+    }
+
+    public void setMissingChunks(List<int[]> missingChunks) {
+        this.missingChunks = missingChunks;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkedUploadStatus{" +
+                "id='" + id + '\'' +
+                ", filename='" + filename + '\'' +
+                ", size='" + size + '\'' +
+                ", chunkSize='" + chunkSize + '\'' +
+                ", chunkCount='" + chunkCount + '\'' +
+                ", missingChunks='" + (missingChunks == null ? null : missingChunks.stream().map(Arrays::toString).collect(Collectors.joining(", "))) + '\'' +
+                '}';
+    }
+}
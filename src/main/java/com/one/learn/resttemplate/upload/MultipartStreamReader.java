@@ -0,0 +1,328 @@
+package com.one.learn.resttemplate.upload;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 从输入流中逐个读取 multipart/form-data 的各个部分，只扫描一遍请求体。
+ * <p>
+ * 所有数据都经过一个固定大小的缓冲区，内存占用与请求体大小无关。
+ * 每个部分的首部必须能放进缓冲区，部分的内容通过 {@link Part#getBody()} 以流的方式读取，
+ * 调用 {@link #nextPart()} 时会跳过当前部分未读完的内容。
+ */
+public class MultipartStreamReader {
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+    private static final byte[] CRLF = {CR, LF};
+    private static final byte[] HEADER_END = {CR, LF, CR, LF};
+
+    private final InputStream in;
+    /**
+     * 部分之间的分隔符 "\r\n--" + boundary
+     */
+    private final byte[] delimiter;
+    private final byte[] buf;
+    /**
+     * 缓冲区中有效数据的范围 [head, tail)
+     */
+    private int head;
+    private int tail;
+    /**
+     * 上次扫描的结果：[head, knownEnd) 确定属于当前部分的内容，-1 表示需要重新扫描。
+     * 避免每次读取都从 head 开始重新查找分隔符
+     */
+    private int knownEnd = -1;
+    private boolean knownEndIsDelimiter;
+    private boolean eof;
+    private boolean finished;
+    private Part current;
+
+    public MultipartStreamReader(InputStream in, String boundary, int bufferSize) {
+        byte[] boundaryBytes = boundary.getBytes(StandardCharsets.ISO_8859_1);
+        this.in = in;
+        this.delimiter = new byte[boundaryBytes.length + 4];
+        delimiter[0] = CR;
+        delimiter[1] = LF;
+        delimiter[2] = DASH;
+        delimiter[3] = DASH;
+        System.arraycopy(boundaryBytes, 0, delimiter, 4, boundaryBytes.length);
+        if (bufferSize < delimiter.length * 2 + HEADER_END.length) {
+            throw new IllegalArgumentException("缓冲区太小: " + bufferSize);
+        }
+        this.buf = new byte[bufferSize];
+        // 在请求体前虚拟一个 CRLF，这样第一个分隔符和后面的分隔符可以统一处理
+        buf[0] = CR;
+        buf[1] = LF;
+        this.tail = 2;
+    }
+
+    /**
+     * 从 Content-Type 首部中取出 boundary 参数
+     * @throws IllegalArgumentException 不是 multipart/form-data 或缺少 boundary
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) {
+            throw new IllegalArgumentException("缺少 Content-Type");
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+            throw new IllegalArgumentException("不是 multipart/form-data 请求: " + contentType);
+        }
+        String boundary = mediaType.getParameter("boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IllegalArgumentException("Content-Type 中缺少 boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary;
+    }
+
+    /**
+     * 读取下一个部分，当前部分未读完的内容会被跳过
+     * @return 下一个部分，没有更多部分时返回 null
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current != null) {
+            current.skipRemaining();
+        } else {
+            // 跳过第一个分隔符之前的前言（preamble）
+            skipBody();
+        }
+        head += delimiter.length;
+        if (!ensure(2)) {
+            throw new IOException("multipart 请求体不完整");
+        }
+        if (buf[head] == DASH && buf[head + 1] == DASH) {
+            finished = true;
+            current = null;
+            return null;
+        }
+        // 分隔符所在行的剩余部分（允许有空白）直到 CRLF
+        int lineEnd;
+        while ((lineEnd = indexOf(CRLF, head)) < 0) {
+            if (!fill()) {
+                throw new IOException("multipart 请求体不完整");
+            }
+        }
+        head = lineEnd + 2;
+
+        HttpHeaders headers = readHeaders();
+        current = new Part(headers);
+        return current;
+    }
+
+    private HttpHeaders readHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        // 没有首部时，部分内容紧跟在一个空行之后
+        if (ensure(2) && buf[head] == CR && buf[head + 1] == LF) {
+            head += 2;
+            return headers;
+        }
+        int end;
+        while ((end = indexOf(HEADER_END, head)) < 0) {
+            if (head == 0 && tail == buf.length) {
+                throw new IOException("multipart 首部超过缓冲区大小 " + buf.length);
+            }
+            if (!fill()) {
+                throw new IOException("multipart 请求体不完整");
+            }
+        }
+        // 浏览器以 UTF-8 发送文件名
+        String block = new String(buf, head, end - head, StandardCharsets.UTF_8);
+        for (String line : block.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        head = end + HEADER_END.length;
+        return headers;
+    }
+
+    /**
+     * 读取当前部分的内容，遇到分隔符时返回 -1，分隔符本身留在缓冲区中
+     */
+    private int readBody(byte[] b, int off, int len) throws IOException {
+        int available = availableBody();
+        if (available <= 0) {
+            return -1;
+        }
+        int n = Math.min(len, available);
+        System.arraycopy(buf, head, b, off, n);
+        head += n;
+        return n;
+    }
+
+    private void skipBody() throws IOException {
+        int available;
+        while ((available = availableBody()) > 0) {
+            head += available;
+        }
+    }
+
+    /**
+     * @return 缓冲区中可以确定属于当前部分内容的字节数，0 表示已到分隔符
+     */
+    private int availableBody() throws IOException {
+        while (true) {
+            if (knownEnd > head || (knownEnd == head && knownEndIsDelimiter)) {
+                return knownEnd - head;
+            }
+            int index = indexOf(delimiter, head);
+            if (index >= 0) {
+                knownEnd = index;
+                knownEndIsDelimiter = true;
+                return index - head;
+            }
+            // 缓冲区末尾可能是分隔符的前半截，这部分暂时不能交出去
+            int safe = tail - head - (delimiter.length - 1);
+            if (safe > 0) {
+                knownEnd = head + safe;
+                knownEndIsDelimiter = false;
+                return safe;
+            }
+            if (!fill()) {
+                throw new IOException("multipart 请求体不完整，缺少结束分隔符");
+            }
+        }
+    }
+
+    /**
+     * 确保缓冲区中至少有 n 个字节
+     */
+    private boolean ensure(int n) throws IOException {
+        while (tail - head < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把未消费的数据移到缓冲区开头，再从输入流读入更多数据
+     * @return 输入流已结束且没有读到数据时返回 false
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        knownEnd = -1;
+        if (head > 0) {
+            System.arraycopy(buf, head, buf, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buf.length) {
+            return false;
+        }
+        int n = in.read(buf, tail, buf.length - tail);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        tail += n;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from) {
+        int last = tail - pattern.length;
+        byte first = pattern[0];
+        outer:
+        for (int i = from; i <= last; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * multipart 中的一个部分
+     */
+    public final class Part {
+        private final HttpHeaders headers;
+        private final ContentDisposition contentDisposition;
+        private final InputStream body = new PartInputStream();
+        private boolean consumed;
+
+        Part(HttpHeaders headers) {
+            this.headers = headers;
+            String disposition = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+            this.contentDisposition = disposition != null ? ContentDisposition.parse(disposition) : ContentDisposition.empty();
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return 表单字段名
+         */
+        public String getName() {
+            return contentDisposition.getName();
+        }
+
+        /**
+         * @return 上传的文件名，普通字段返回 null
+         */
+        public String getFilename() {
+            return contentDisposition.getFilename();
+        }
+
+        /**
+         * 部分的内容，只能在调用下一次 {@link MultipartStreamReader#nextPart()} 之前读取
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        private void skipRemaining() throws IOException {
+            if (!consumed) {
+                skipBody();
+                consumed = true;
+            }
+        }
+
+        private class PartInputStream extends InputStream {
+            private final byte[] one = new byte[1];
+
+            @Override
+            public int read() throws IOException {
+                int n = read(one, 0, 1);
+                return n < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (consumed || current != Part.this) {
+                    return -1;
+                }
+                if (len == 0) {
+                    return 0;
+                }
+                int n = readBody(b, off, len);
+                if (n < 0) {
+                    consumed = true;
+                }
+                return n;
+            }
+        }
+    }
+}
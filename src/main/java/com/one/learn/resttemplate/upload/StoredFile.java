@@ -0,0 +1,52 @@
+package com.one.learn.resttemplate.upload;
+
+import java.nio.file.Path;
+
+/**
+ * 已保存到磁盘的上传文件
+ */
+public class StoredFile {
+    private final String filename;
+    private final Path path;
+    private final long size;
+    private final long crc32;
+
+    public StoredFile(String filename, Path path, long size, long crc32) {
+        this.filename = filename;
+        this.path = path;
+        this.size = size;
+        this.crc32 = crc32;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCrc32() {
+        return crc32;
+    }
+
+    /**
+     * @return 8 位十六进制的 CRC32 校验和
+     */
+    public String getCrc32Hex() {
+        return String.format("%08x", crc32);
+    }
+
+    @Override
+    public String toString() {
+        return "StoredFile{" +
+                "filename='" + filename + '\'' +
+                ", size='" + size + '\'' +
+                ", crc32='" + getCrc32Hex() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.one.learn.resttemplate.upload;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 上传文件的存储目录。
+ * <p>
+ * 文件先写到同目录下的临时文件，写完后原子地改名，下载方不会读到写了一半的文件。
+ * 临时文件以 "." 开头、{@link #TEMP_SUFFIX} 结尾，这样的文件名不能用来上传或下载。
+ */
+@Component
+public class UploadStorage {
+    public static final String TEMP_SUFFIX = ".part";
+
+    private final Path directory;
+    private final int bufferSize;
+
+    public UploadStorage(@Value("${product.upload.dir:${java.io.tmpdir}/product-upload}") String directory,
+                         @Value("${product.upload.buffer-size:65536}") int bufferSize) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.bufferSize = bufferSize;
+        Files.createDirectories(this.directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 只保留文件名中最后一段，防止通过 "../" 之类的名字写到存储目录之外
+     * @return 存储目录中对应的路径
+     * @throws IllegalArgumentException 文件名不合法，或者是临时文件的名字
+     */
+    public Path resolve(String filename) {
+        if (filename == null) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty() || ".".equals(name) || "..".equals(name) || name.indexOf('\0') >= 0
+                || (name.startsWith(".") && name.endsWith(TEMP_SUFFIX))) {
+            throw new IllegalArgumentException("文件名不合法: " + filename);
+        }
+        return directory.resolve(name);
+    }
+
+    /**
+     * 解析 multipart 请求体，把名为 fieldName 的文件部分保存下来，其余部分跳过。
+     * 只使用固定大小的缓冲区，不会把请求体整个读入内存或先落到临时目录。
+     *
+     * @param contentType 请求的 Content-Type，包含 boundary
+     * @return 保存的文件，请求中没有对应的文件部分时返回 null
+     */
+    public StoredFile storeMultipart(InputStream body, String contentType, String fieldName) throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(body, MultipartStreamReader.boundaryOf(contentType), bufferSize);
+        StoredFile stored = null;
+        MultipartStreamReader.Part part;
+        while ((part = reader.nextPart()) != null) {
+            if (stored == null && fieldName.equals(part.getName()) && part.getFilename() != null) {
+                stored = store(part.getFilename(), part.getBody());
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * 把输入流写入存储目录中的文件，写入的同时计算 CRC32
+     */
+    public StoredFile store(String filename, InputStream in) throws IOException {
+        CRC32 crc32 = new CRC32();
+        long[] size = new long[1];
+        Path target = store(filename, temp -> {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] bytes = new byte[bufferSize];
+                int n;
+                while ((n = in.read(bytes)) != -1) {
+                    crc32.update(bytes, 0, n);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, n);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    size[0] += n;
+                }
+            }
+        });
+        return new StoredFile(target.getFileName().toString(), target, size[0], crc32.getValue());
+    }
+
+    /**
+     * 由 content 把内容写到存储目录中的临时文件，成功后原子地改名为 filename，失败时删除临时文件
+     * @return 保存后的路径
+     */
+    public Path store(String filename, TempFileWriter content) throws IOException {
+        Path target = resolve(filename);
+        Path temp = Files.createTempFile(directory, ".upload-", TEMP_SUFFIX);
+        try {
+            content.writeTo(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return target;
+    }
+
+    @FunctionalInterface
+    public interface TempFileWriter {
+        /**
+         * @param temp 已经创建好的空文件，可以覆盖或替换
+         */
+        void writeTo(Path temp) throws IOException;
+    }
+}
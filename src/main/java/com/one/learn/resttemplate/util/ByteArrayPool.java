@@ -0,0 +1,54 @@
+package com.one.learn.resttemplate.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 固定大小 byte[] 的有界池，用于 I/O 缓冲区：用完归还，避免每次读写都分配几十 KB 的新数组。
+ * <p>
+ * 池中没有空闲数组时新建，池满时归还的数组直接丢弃，所以池本身占用的内存不超过 capacity * bufferSize。
+ * 借出的数组内容不会清零。线程安全。
+ */
+public class ByteArrayPool {
+    private final int bufferSize;
+    private final ArrayBlockingQueue<byte[]> free;
+
+    /**
+     * @param bufferSize 每个数组的大小
+     * @param capacity   最多保留的空闲数组个数
+     */
+    public ByteArrayPool(int bufferSize, int capacity) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("bufferSize、capacity 必须为正数");
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return 一个长度为 bufferSize 的数组，用完后调用 {@link #release(byte[])}
+     */
+    public byte[] acquire() {
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * 归还数组，归还后调用方不能再使用它。大小不符的数组被忽略
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return 池中空闲的数组个数
+     */
+    public int available() {
+        return free.size();
+    }
+}
@@ -0,0 +1,245 @@
+package com.one.learn.resttemplate.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可增长的字节缓冲区，直接以 UTF-8 写入文本、整数和定点小数，不产生中间的 String。
+ * 可以通过 {@link #reset()} 反复使用，非线程安全。
+ */
+public class ByteBuilder {
+    private static final byte[] DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes;
+    private int length;
+
+    public ByteBuilder(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return bytes.length;
+    }
+
+    public ByteBuilder reset() {
+        length = 0;
+        return this;
+    }
+
+    public ByteBuilder append(byte b) {
+        ensure(1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    /**
+     * 写入只包含 ASCII 字符的文本，每个字符取低 8 位
+     */
+    public ByteBuilder appendAscii(String s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            bytes[length++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * 以 UTF-8 写入文本，不成对的代理字符写为 '?'，与 String.getBytes(UTF_8) 一致
+     */
+    public ByteBuilder appendUtf8(CharSequence s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                bytes[length++] = (byte) c;
+            } else {
+                i = appendNonAscii(s, i, c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 写入 JSON 字符串（含两侧引号），转义规则与 Jackson 2.13 写出字节时一致：
+     * 引号、反斜杠、控制字符和代理字符（逐个 char，十六进制大写）转义，其余非 ASCII 字符以 UTF-8 写出
+     */
+    public ByteBuilder appendJsonString(CharSequence s) {
+        int n = s.length();
+        ensure(n + 2);
+        bytes[length++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            ensure(6);
+            if (Character.isSurrogate(c)) {
+                bytes[length++] = '\\';
+                bytes[length++] = 'u';
+                bytes[length++] = DIGITS[c >> 12];
+                bytes[length++] = DIGITS[(c >> 8) & 0xF];
+                bytes[length++] = DIGITS[(c >> 4) & 0xF];
+                bytes[length++] = DIGITS[c & 0xF];
+                continue;
+            }
+            if (c >= 0x80) {
+                i = appendNonAscii(s, i, c);
+                continue;
+            }
+            if (c == '"' || c == '\\') {
+                bytes[length++] = '\\';
+                bytes[length++] = (byte) c;
+            } else if (c >= 0x20) {
+                bytes[length++] = (byte) c;
+            } else {
+                bytes[length++] = '\\';
+                switch (c) {
+                    case '\b': bytes[length++] = 'b'; break;
+                    case '\t': bytes[length++] = 't'; break;
+                    case '\n': bytes[length++] = 'n'; break;
+                    case '\f': bytes[length++] = 'f'; break;
+                    case '\r': bytes[length++] = 'r'; break;
+                    default:
+                        bytes[length++] = 'u';
+                        bytes[length++] = '0';
+                        bytes[length++] = '0';
+                        bytes[length++] = DIGITS[c >> 4];
+                        bytes[length++] = DIGITS[c & 0xF];
+                }
+            }
+        }
+        ensure(1);
+        bytes[length++] = '"';
+        return this;
+    }
+
+    private int appendNonAscii(CharSequence s, int i, char c) {
+        ensure(4);
+        if (c < 0x800) {
+            bytes[length++] = (byte) (0xC0 | (c >> 6));
+            bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            bytes[length++] = (byte) (0xE0 | (c >> 12));
+            bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            bytes[length++] = (byte) (0xF0 | (cp >> 18));
+            bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            bytes[length++] = '?';
+        }
+        return i;
+    }
+
+    public ByteBuilder appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(LONG_MIN, 0, LONG_MIN.length);
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        appendDigits(value, digitCount(value));
+        return this;
+    }
+
+    /**
+     * 写入定点小数 unscaled × 10^-scale，输出与 {@link BigDecimal#toString()} 相同：
+     * 一般为普通写法，如 6666.0、0.05；scale 为负或数值很小时 BigDecimal 使用科学计数法，这种少见情况直接交给 BigDecimal
+     */
+    public ByteBuilder appendDecimal(long unscaled, int scale) {
+        if (scale == 0) {
+            return appendLong(unscaled);
+        }
+        if (scale < 0 || unscaled == Long.MIN_VALUE) {
+            return appendAscii(BigDecimal.valueOf(unscaled, scale).toString());
+        }
+        long abs = Math.abs(unscaled);
+        int digits = digitCount(abs);
+        // BigDecimal.toString 在调整后的指数小于 -6 时使用科学计数法
+        if ((long) digits - 1 - scale < -6) {
+            return appendAscii(BigDecimal.valueOf(unscaled, scale).toString());
+        }
+        ensure(digits + scale + 3);
+        if (unscaled < 0) {
+            bytes[length++] = '-';
+        }
+        int integerDigits = digits - scale;
+        if (integerDigits <= 0) {
+            bytes[length++] = '0';
+            bytes[length++] = '.';
+            for (int i = integerDigits; i < 0; i++) {
+                bytes[length++] = '0';
+            }
+            appendDigits(abs, digits);
+        } else {
+            // 先写出全部数字，再把小数部分后移一位腾出小数点
+            int start = length;
+            appendDigits(abs, digits);
+            int point = start + integerDigits;
+            System.arraycopy(bytes, point, bytes, point + 1, scale);
+            bytes[point] = '.';
+            length++;
+        }
+        return this;
+    }
+
+    private void appendDigits(long value, int digits) {
+        int end = length + digits;
+        for (int pos = end - 1; pos >= length; pos--) {
+            bytes[pos] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+        length = end;
+    }
+
+    private static int digitCount(long value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    public ByteBuilder append(byte[] src, int offset, int len) {
+        ensure(len);
+        System.arraycopy(src, offset, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * @return 以 UTF-8 解码的内容
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.one.learn.resttemplate.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 以基本类型 int 为键的并发哈希表，查询时不会把键装箱成 Integer。
+ * <p>
+ * 结构与 JDK 6 的 ConcurrentHashMap 类似：整张表分为若干段（segment），
+ * 每段一把锁，写操作只锁住键所在的段（分段锁）；读操作不加锁，
+ * 依靠 volatile 的桶数组和不可变的链表结构保证可见性。
+ * <p>
+ * 不允许 null 值。遍历是弱一致的，不会抛出 ConcurrentModificationException。
+ *
+ * @param <V> 值类型
+ */
+public class ConcurrentIntObjectMap<V> {
+    private static final int MAX_SEGMENTS = 1 << 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public ConcurrentIntObjectMap() {
+        this(16, 16);
+    }
+
+    /**
+     * @param initialCapacity  预计容纳的元素个数
+     * @param concurrencyLevel 预计并发写的线程数，决定分段的个数
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntObjectMap(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("initialCapacity 不能为负数，concurrencyLevel 必须为正数");
+        }
+        int shift = 0;
+        int size = 1;
+        while (size < Math.min(concurrencyLevel, MAX_SEGMENTS)) {
+            ++shift;
+            size <<= 1;
+        }
+        this.segmentShift = 32 - shift;
+        this.segmentMask = size - 1;
+        this.segments = new Segment[size];
+
+        int perSegment = Math.min(initialCapacity, MAXIMUM_CAPACITY) / size;
+        int capacity = 2;
+        while (capacity < perSegment) {
+            capacity <<= 1;
+        }
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    /**
+     * 打散键的比特位，高位用来选段，低位用来选桶
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        // segmentShift 为 32 时只有一个段，Java 的移位会对 32 取模，这里需要单独处理
+        return segmentMask == 0 ? segments[0] : segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * 无锁读取
+     * @return 键对应的值，不存在时返回 null
+     */
+    public V get(int key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return 被替换的旧值，不存在时返回 null
+     */
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return 已存在的值；若不存在则放入 value 并返回 null
+     */
+    public V putIfAbsent(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 null
+     */
+    public V remove(int key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        long sum = 0;
+        for (Segment<V> segment : segments) {
+            sum += segment.count;
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 弱一致地遍历所有键值对，不加锁
+     */
+    public void forEach(IntObjectConsumer<? super V> action) {
+        for (Segment<V> segment : segments) {
+            AtomicReferenceArray<Node<V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<V> e = tab.get(i); e != null; e = e.next) {
+                    action.accept(e.key, e.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 当前所有键的快照，顺序不确定
+     */
+    public int[] keys() {
+        int[] keys = new int[size()];
+        int n = 0;
+        for (Segment<V> segment : segments) {
+            AtomicReferenceArray<Node<V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<V> e = tab.get(i); e != null; e = e.next) {
+                    if (n == keys.length) {
+                        keys = Arrays.copyOf(keys, Math.max(8, n * 2));
+                    }
+                    keys[n++] = e.key;
+                }
+            }
+        }
+        return n == keys.length ? keys : Arrays.copyOf(keys, n);
+    }
+
+    @FunctionalInterface
+    public interface IntObjectConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * 链表节点。除 value 外都是 final 的，删除节点时复制它前面的节点，
+     * 所以读线程拿到的链表始终是完整的。
+     */
+    private static final class Node<V> {
+        final int key;
+        final int hash;
+        volatile V value;
+        final Node<V> next;
+
+        Node(int key, int hash, V value, Node<V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<V> extends ReentrantLock {
+        private static final float LOAD_FACTOR = 0.75f;
+
+        volatile AtomicReferenceArray<Node<V>> table;
+        volatile int count;
+        private int threshold;
+
+        Segment(int capacity) {
+            setTable(new AtomicReferenceArray<>(capacity));
+        }
+
+        private void setTable(AtomicReferenceArray<Node<V>> tab) {
+            threshold = (int) (tab.length() * LOAD_FACTOR);
+            table = tab;
+        }
+
+        V get(int key, int hash) {
+            AtomicReferenceArray<Node<V>> tab = table;
+            for (Node<V> e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next) {
+                if (e.key == key) {
+                    return e.value;
+                }
+            }
+            return null;
+        }
+
+        V put(int key, int hash, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<V> first = tab.get(index);
+                for (Node<V> e = first; e != null; e = e.next) {
+                    if (e.key == key) {
+                        V old = e.value;
+                        if (!onlyIfAbsent) {
+                            e.value = value;
+                        }
+                        return old;
+                    }
+                }
+                if (count + 1 > threshold && tab.length() < MAXIMUM_CAPACITY) {
+                    tab = rehash(tab);
+                    index = hash & (tab.length() - 1);
+                    first = tab.get(index);
+                }
+                tab.set(index, new Node<>(key, hash, value, first));
+                count = count + 1;
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        V remove(int key, int hash) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<V> first = tab.get(index);
+                Node<V> e = first;
+                while (e != null && e.key != key) {
+                    e = e.next;
+                }
+                if (e == null) {
+                    return null;
+                }
+                V old = e.value;
+                Node<V> newFirst = e.next;
+                for (Node<V> p = first; p != e; p = p.next) {
+                    newFirst = new Node<>(p.key, p.hash, p.value, newFirst);
+                }
+                tab.set(index, newFirst);
+                count = count - 1;
+                return old;
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                setTable(new AtomicReferenceArray<>(table.length()));
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * 容量翻倍，复制全部节点后一次性发布新表，读线程要么看到旧表要么看到新表
+         */
+        private AtomicReferenceArray<Node<V>> rehash(AtomicReferenceArray<Node<V>> oldTab) {
+            AtomicReferenceArray<Node<V>> newTab = new AtomicReferenceArray<>(oldTab.length() << 1);
+            int mask = newTab.length() - 1;
+            for (int i = 0; i < oldTab.length(); i++) {
+                for (Node<V> e = oldTab.get(i); e != null; e = e.next) {
+                    int index = e.hash & mask;
+                    newTab.lazySet(index, new Node<>(e.key, e.hash, e.value, newTab.get(index)));
+                }
+            }
+            setTable(newTab);
+            return newTab;
+        }
+    }
+}
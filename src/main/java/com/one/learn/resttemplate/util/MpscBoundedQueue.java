@@ -0,0 +1,115 @@
+package com.one.learn.resttemplate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界、无锁的多生产者单消费者队列（环形数组，每个槽位带一个序号，参考 Dmitry Vyukov 的有界队列）。
+ * <p>
+ * 生产者通过 CAS 抢占写入位置，队列满时 {@link #offer} 立即返回 false，不会阻塞；
+ * {@link #poll} 和 {@link #drain} 只能由同一个消费者线程调用。
+ *
+ * @param <E> 元素类型
+ */
+public class MpscBoundedQueue<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    /**
+     * 槽位序号：等于写入位置时可写，等于写入位置 + 1 时可读
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 只由消费者线程读写
+     */
+    private long head;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public MpscBoundedQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity 超出范围: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    // volatile 写，保证消费者看到序号时也能看到元素
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 只能由消费者线程调用
+     * @return 队首元素，队列为空时返回 null
+     */
+    public E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E e = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return e;
+    }
+
+    /**
+     * 只能由消费者线程调用，最多取出 limit 个元素
+     * @return 取出的元素个数
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int n = 0;
+        E e;
+        while (n < limit && (e = poll()) != null) {
+            consumer.accept(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 只能由消费者线程调用
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+}
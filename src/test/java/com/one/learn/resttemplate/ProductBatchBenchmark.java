@@ -0,0 +1,75 @@
+package com.one.learn.resttemplate;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.RestTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 取回 N 个产品：N 次 get_product2 单个查询与一次大小为 N 的 batch 查询，每次操作都是取回全部 N 个产品。
+ * 服务在同一个 JVM 中以随机端口启动，不依赖外部环境。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductBatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBatchBenchmark {
+    @Param({"10", "100", "500"})
+    public int products;
+
+    private ConfigurableApplicationContext context;
+    private RestTemplate restTemplate;
+    private String singleUrl;
+    private String batchUrl;
+    private String ids;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        singleUrl = base + "/product/get_product2?id={id}";
+        batchUrl = base + "/product/batch?ids={ids}";
+        ids = IntStream.rangeClosed(1, products).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        restTemplate = RestTemplates.create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void single(Blackhole blackhole) {
+        for (int id = 1; id <= products; id++) {
+            blackhole.consume(restTemplate.getForObject(singleUrl, Product.class, id));
+        }
+    }
+
+    @Benchmark
+    public Product[] batch() {
+        return restTemplate.getForObject(batchUrl, Product[].class, ids);
+    }
+}
@@ -0,0 +1,84 @@
+package com.one.learn.resttemplate;
+
+import com.one.learn.resttemplate.client.RestTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从 /product/stream 读完 100 万个产品的 NDJSON（约 47MB）所用的时间，以及不同 chunkSize 的影响。
+ * 客户端边读边丢弃，只统计行数。每次读取耗时较长，使用单次计时；吞吐量 = 响应大小 / 每次耗时。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductStreamBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductStreamBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+
+    @Param({"1", "16", "256", "4096"})
+    public int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private RestTemplate restTemplate;
+    private String url;
+    private final byte[] buffer = new byte[64 * 1024];
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN", "product.repository.seed-size=" + PRODUCTS)
+                .run();
+        url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/product/stream?chunkSize=" + chunkSize;
+        restTemplate = RestTemplates.create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return 行数
+     */
+    @Benchmark
+    public long stream() {
+        long lines = restTemplate.execute(url, HttpMethod.GET, null, response -> {
+            InputStream body = response.getBody();
+            long count = 0;
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+        if (lines != PRODUCTS) {
+            throw new IllegalStateException("读到 " + lines + " 行，应为 " + PRODUCTS);
+        }
+        return lines;
+    }
+}
@@ -1,6 +1,10 @@
 package com.one.learn.resttemplate;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.one.learn.resttemplate.client.RestTemplates;
+import com.one.learn.resttemplate.echo.EchoServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
@@ -13,16 +17,33 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
-/** RestTemplate 基础，关注 getForObject(), getForEntity(), postForObject(), postForEntity() 的用法。 */
+/**
+ * RestTemplate 基础，关注 getForObject(), getForEntity(), postForObject(), postForEntity() 的用法。
+ * 每个示例各自创建 RestTemplate，用 {@link RestTemplates#create()} 共用转换器，与 new RestTemplate() 的行为相同。
+ */
 public class RestTemplateDemo {
+    /**
+     * 代替 httpbin.org，响应格式相同
+     */
+    private static EchoServer echo;
+
+    @BeforeClass
+    public static void startEcho() throws IOException {
+        echo = new EchoServer().start();
+    }
+
+    @AfterClass
+    public static void stopEcho() throws IOException {
+        echo.close();
+    }
 
     /**
      * 最简单的是 getForObject(url, String.class) ---> String
      */
     @Test
     public void test1() {
-        RestTemplate client = new RestTemplate();
-        String res = client.getForObject("http://httpbin.org/get", String.class);
+        RestTemplate client = RestTemplates.create();
+        String res = client.getForObject(echo.url("/get"), String.class);
         System.out.println(res);
         // 响应结果：test/resources/resttemplate-demo/test1.json
     }
@@ -33,24 +54,24 @@ public class RestTemplateDemo {
      */
     @Test
     public void test2() {
-        RestTemplate client = new RestTemplate();
-        String res = client.getForObject("http://httpbin.org/anything/{school}/{name}/",
+        RestTemplate client = RestTemplates.create();
+        String res = client.getForObject(echo.url("/anything/{school}/{name}/"),
                 String.class, "DingTao", "Jack");
         // 实际的请求url会变成
-        // "http://httpbin.org/anything/DingTao/Jack"
+        // "http://127.0.0.1:{port}/anything/DingTao/Jack"
         System.out.println(res);
     }
 
     @Test
     public void test3() {
-        RestTemplate client = new RestTemplate();
+        RestTemplate client = RestTemplates.create();
         Map<String, Object> pvs = new HashMap<>();
         pvs.put("school", "DingTao");
         pvs.put("name", "jack");
         pvs.put("id", "10086");
-        String res = client.getForObject("http://httpbin.org/anything/{school}/{name}?id={id}",
+        String res = client.getForObject(echo.url("/anything/{school}/{name}?id={id}"),
                 String.class, pvs);
-        // 实际的请求url会变成 http://httpbin.org/anything/DingTao/jack?id=10086
+        // 实际的请求url会变成 http://127.0.0.1:{port}/anything/DingTao/jack?id=10086
         System.out.println(res);
 
     }
@@ -60,24 +81,24 @@ public class RestTemplateDemo {
      */
     @Test
     public void test4() {
-        RestTemplate client = new RestTemplate();
-        JsonNode json = client.getForObject("http://httpbin.org/get", JsonNode.class);
+        RestTemplate client = RestTemplates.create();
+        JsonNode json = client.getForObject(echo.url("/get"), JsonNode.class);
         System.out.println(json);
     }
 
     @Test
     public void test5() {
-        RestTemplate client = new RestTemplate();
+        RestTemplate client = RestTemplates.create();
         // 若响应结果为 400，会抛出异常，不论 Class 参数为何
         // org.springframework.web.client.HttpClientErrorException$BadRequest: 400 BAD REQUEST
 
-        // JsonNode json = client.getForObject("http://httpbin.org/status/400", JsonNode.class);
-        // String res = client.getForObject("http://httpbin.org/status/400", String.class);
+        // JsonNode json = client.getForObject(echo.url("/status/400"), JsonNode.class);
+        // String res = client.getForObject(echo.url("/status/400"), String.class);
 
         // 201 则返回 null
-        String res = client.getForObject("http://httpbin.org/status/201", String.class);
+        String res = client.getForObject(echo.url("/status/201"), String.class);
         System.out.println(res);
-        JsonNode json = client.getForObject("http://httpbin.org/status/201", JsonNode.class);
+        JsonNode json = client.getForObject(echo.url("/status/201"), JsonNode.class);
         System.out.println(json);
 
     }
@@ -87,8 +108,8 @@ public class RestTemplateDemo {
      */
     @Test
     public void test6() {
-        RestTemplate client = new RestTemplate();
-        ResponseEntity<JsonNode> responseEntity = client.getForEntity("http://httpbin.org/get", JsonNode.class);
+        RestTemplate client = RestTemplates.create();
+        ResponseEntity<JsonNode> responseEntity = client.getForEntity(echo.url("/get"), JsonNode.class);
         System.out.println(responseEntity.getStatusCode());
         HttpHeaders headers = responseEntity.getHeaders();
         // 以良好的格式打印首部，同时看看状态行是否包含在首部内
@@ -108,10 +129,10 @@ public class RestTemplateDemo {
      */
     @Test
     public void test7() {
-        RestTemplate client = new RestTemplate();
+        RestTemplate client = RestTemplates.create();
         try {
             ResponseEntity<String> responseEntity =
-                    client.getForEntity("http://httpbin.org/status/500", String.class);
+                    client.getForEntity(echo.url("/status/500"), String.class);
             System.out.println(responseEntity.getStatusCode());
             System.out.println(responseEntity.getBody());
         } catch (Exception e) {
@@ -122,10 +143,10 @@ public class RestTemplateDemo {
 
     @Test
     public void test8() {
-        RestTemplate client = new RestTemplate();
+        RestTemplate client = RestTemplates.create();
         try {
             ResponseEntity<Object> responseEntity =
-                    client.getForEntity("http://httpbin.org/status/500", Object.class);
+                    client.getForEntity(echo.url("/status/500"), Object.class);
             System.out.println(responseEntity.getStatusCode());
             System.out.println(responseEntity.getBody());
         } catch (Exception e) {
@@ -139,9 +160,9 @@ public class RestTemplateDemo {
       */
     @Test
     public void test9(){
-        RestTemplate client = new RestTemplate();
+        RestTemplate client = RestTemplates.create();
         client.setErrorHandler(new ErrorHandler());
-        ResponseEntity<String> responseEntity = client.getForEntity("http://httpbin.org/status/400", String.class);
+        ResponseEntity<String> responseEntity = client.getForEntity(echo.url("/status/400"), String.class);
         HttpHeaders headers = responseEntity.getHeaders();
         System.out.println("===================================");
         for (String name : headers.keySet()) {
@@ -166,7 +187,7 @@ public class RestTemplateDemo {
      */
     @Test
     public void post1(){
-        String res = new RestTemplate().postForObject("http://httpbin.org/post", null, String.class);
+        String res = RestTemplates.create().postForObject(echo.url("/post"), null, String.class);
         System.out.println(res);
         // 发送的请求，感兴趣的首部
         // "Content-Type": "application/x-www-form-urlencoded",
@@ -178,8 +199,8 @@ public class RestTemplateDemo {
      */
     @Test
     public void post2(){
-        String res = new RestTemplate()
-                .postForObject("http://httpbin.org/post", "", String.class);
+        String res = RestTemplates.create()
+                .postForObject(echo.url("/post"), "", String.class);
         System.out.println(res);
     }
 
@@ -193,8 +214,8 @@ public class RestTemplateDemo {
         request.put("name", "Jack");
         request.put("age", 12);
 
-        String res = new RestTemplate()
-                .postForObject("http://httpbin.org/post", request, String.class);
+        String res = RestTemplates.create()
+                .postForObject(echo.url("/post"), request, String.class);
         System.out.println(res);
     }
     @Test
@@ -203,8 +224,8 @@ public class RestTemplateDemo {
         person.name = "Jack";
         person.birthday = new Date(8195616000L);
 
-        String res = new RestTemplate()
-                .postForObject("http://httpbin.org/post", person, String.class);
+        String res = RestTemplates.create()
+                .postForObject(echo.url("/post"), person, String.class);
         System.out.println(res);
     }
     static class Person{
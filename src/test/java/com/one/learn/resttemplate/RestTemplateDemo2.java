@@ -2,7 +2,11 @@ package com.one.learn.resttemplate;
 
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import com.one.learn.resttemplate.echo.EchoServer;
+import com.one.learn.resttemplate.echo.GoldenRequest;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
@@ -11,32 +15,54 @@ import org.springframework.http.*;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * 关注 RestTemplate 的 postForObject() 方法的 request 参数
  * 不同POJO类型，RestTemplate 是如何处理的？
  */
 public class RestTemplateDemo2 {
+    /**
+     * 原来本地启动 Fiddler 作为 HTTP 代理抓包，现在由进程内的 EchoServer 记录请求，
+     * 与 resttemplate-demo2 目录下当时抓到的报文核对
+     */
+    private static EchoServer echo;
+
     @BeforeAll
-    public static void setProxy() {
-        // 本地启动 Fiddler，它是一个 HTTP 代理，可以抓包
-        System.out.println("setup");
-        System.setProperty("http.proxyHost", "localhost");
-        System.setProperty("http.proxyPort", "8888");
+    public static void startEcho() throws IOException {
+        echo = new EchoServer().start();
+    }
+
+    @AfterAll
+    public static void stopEcho() throws IOException {
+        echo.close();
+    }
+
+    @BeforeEach
+    public void clearCaptured() {
+        echo.clear();
+    }
+
+    private static void verify(String golden) throws Exception {
+        GoldenRequest.load(golden).withDataFile().assertMatches(echo.takeRequest());
     }
 
     /**
      * 传入字符串，默认按 text/plain 发送
      */
     @Test
-    public void test1() {
+    public void test1() throws Exception {
         RestTemplate client = new RestTemplate();
-        String res = client.postForObject("http://httpbin.org/post", "hello", String.class);
+        String res = client.postForObject(echo.url("/post"), "hello", String.class);
+        verify("resttemplate-demo2/test1-req.txt");
         System.out.println(res);
     }
 
@@ -44,15 +70,16 @@ public class RestTemplateDemo2 {
      * 就和手动指定 text/plain 首部一样
      */
     @Test
-    public void test2() {
+    public void test2() throws Exception {
         RestTemplate client = new RestTemplate();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.TEXT_PLAIN);
         HttpEntity<String> reqEntity = new HttpEntity<>("hello, world", headers);
 
-        String res = client.postForObject("http://httpbin.org/post",
+        String res = client.postForObject(echo.url("/post"),
                 reqEntity, String.class);
+        verify("resttemplate-demo2/test2-req.txt");
         System.out.println(res);
     }
 
@@ -61,15 +88,16 @@ public class RestTemplateDemo2 {
      * Ans: 就发出了正常的 JSON 请求啊
      */
     @Test
-    public void test3() {
+    public void test3() throws Exception {
         RestTemplate client = new RestTemplate();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
         HttpEntity<String> reqEntity = new HttpEntity<>("{ \"name\": \"Jack\"}", headers);
 
-        String res = client.postForObject("http://httpbin.org/post",
+        String res = client.postForObject(echo.url("/post"),
                 reqEntity, String.class);
+        verify("resttemplate-demo2/test3-req.txt");
         System.out.println(res);
     }
 
@@ -89,9 +117,8 @@ public class RestTemplateDemo2 {
         headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
         HttpEntity<Map<String, String>> reqEntity = new HttpEntity<>(body, headers);
 
-        String res = client.postForObject("http://httpbin.org/post",
-                reqEntity, String.class);
-        System.out.println(res);
+        assertThrows(RestClientException.class, () -> client.postForObject(echo.url("/post"),
+                reqEntity, String.class));
     }
 
     /***
@@ -101,15 +128,16 @@ public class RestTemplateDemo2 {
      * 当然，手动写上这个首部也没问题
      */
     @Test
-    public void test5() {
+    public void test5() throws Exception {
         RestTemplate template = new RestTemplate();
         MultiValueMap<String, String> mvm = new LinkedMultiValueMap<>();
         mvm.add("name", "Jack Tang");
         mvm.add("name hello %", "Jack%&Tang");
         RequestEntity<MultiValueMap<String, String>> requestEntity = RequestEntity
-                .post("http://httpbin.org/post")
+                .post(echo.url("/post"))
                 .body(mvm);
         String res = template.exchange(requestEntity, String.class).getBody();
+        verify("resttemplate-demo2/test5-req.txt");
         System.out.println(res);
     }
 
@@ -123,16 +151,17 @@ public class RestTemplateDemo2 {
      * 指定 application/json 可以的，只是会把每个值都按数组处理了
      */
     @Test
-    public void test6() {
+    public void test6() throws Exception {
         RestTemplate template = new RestTemplate();
         MultiValueMap<String, String> mvm = new LinkedMultiValueMap<>();
         mvm.add("name", "Jack Tang");
         RequestEntity<MultiValueMap<String, String>> requestEntity = RequestEntity
-                .post("http://httpbin.org/post")
+                .post(echo.url("/post"))
                 // .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .body(mvm);
         String res = template.exchange(requestEntity, String.class).getBody();
+        verify("resttemplate-demo2/test6-req.txt");
         System.out.println(res);
     }
 
@@ -140,14 +169,15 @@ public class RestTemplateDemo2 {
      * 已经编码过的会，也会编码……，要当心
      */
     @Test
-    public void test7() {
+    public void test7() throws Exception {
         RestTemplate template = new RestTemplate();
         MultiValueMap<String, String> mvm = new LinkedMultiValueMap<>();
         mvm.add("name+hello+%25", "Jack%25%26Tang");
         RequestEntity<MultiValueMap<String, String>> requestEntity = RequestEntity
-                .post("http://httpbin.org/post")
+                .post(echo.url("/post"))
                 .body(mvm);
         String res = template.exchange(requestEntity, String.class).getBody();
+        verify("resttemplate-demo2/test7-req.txt");
         System.out.println(res);
     }
 
@@ -212,11 +242,12 @@ public class RestTemplateDemo2 {
      *
      */
     @Test
-    public void postResource(){
+    public void postResource() throws Exception {
         RestTemplate template = new RestTemplate();
 
         Resource req = new ClassPathResource("/foo.txt");
-        String res = template.postForObject("http://httpbin.org/post", req, String.class);
+        String res = template.postForObject(echo.url("/post"), req, String.class);
+        verify("resttemplate-demo2/postResource/request.txt");
     }
 
     /**
@@ -225,11 +256,12 @@ public class RestTemplateDemo2 {
      * 这其中，规律不明啊
      */
     @Test
-    public void postResource2(){
+    public void postResource2() throws Exception {
         RestTemplate template = new RestTemplate();
 
         Resource req = new ClassPathResource("/data");
-        String res = template.postForObject("http://httpbin.org/post", req, String.class);
+        String res = template.postForObject(echo.url("/post"), req, String.class);
+        verify("resttemplate-demo2/postResource2/request.txt");
     }
 
     /**
@@ -239,7 +271,7 @@ public class RestTemplateDemo2 {
     public void postResource3(){
         RestTemplate template = new RestTemplate();
         FileSystemResource resource = new FileSystemResource("src/test/resources/data");
-        String res = template.postForObject("http://httpbin.org/post", resource, String.class);
+        String res = template.postForObject(echo.url("/post"), resource, String.class);
     }
 
 }
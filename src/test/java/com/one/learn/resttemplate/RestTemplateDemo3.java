@@ -1,6 +1,14 @@
 package com.one.learn.resttemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.one.learn.resttemplate.client.RestTemplates;
+import com.one.learn.resttemplate.client.StreamingMultipartBody;
+import com.one.learn.resttemplate.echo.CapturedRequest;
+import com.one.learn.resttemplate.echo.EchoServer;
+import com.one.learn.resttemplate.echo.GoldenRequest;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
@@ -10,12 +18,20 @@ import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * 实战：实现如下三种媒体类型的请求的发送
@@ -25,14 +41,32 @@ import java.io.IOException;
  */
 public class RestTemplateDemo3 {
     /**
-     * 在本地启动 Fiddler 程序，该程序提供 http 代理，地址为 localhost:8888
-     * 它会对经过此代理的HTTP请求抓包，方便学习
+     * 原来在本地启动 Fiddler 作为 http 代理（localhost:8888）抓包，再发往 httpbin.org。
+     * 现在发往进程内的 EchoServer，由它记录收到的请求，与 demo3 目录下当时抓到的报文核对
+     */
+    private static EchoServer echo;
+    /**
+     * 抓包时 File 序列化为 JSON 的样子
      */
+    private static final String CAPTURED_PATH = "\"F:\\\\java\\\\spring-demo\\\\resttemplate\\\\src\\\\test\\\\resources\\\\data\"";
+
+    @BeforeClass
+    public static void startEcho() throws IOException {
+        echo = new EchoServer().start();
+    }
+
+    @AfterClass
+    public static void stopEcho() throws IOException {
+        echo.close();
+    }
+
     @Before
-    public void setProxy() {
-        System.out.println("set proxy");
-        System.setProperty("http.proxyHost", "localhost");
-        System.setProperty("http.proxyPort", "8888");
+    public void clearCaptured() {
+        echo.clear();
+    }
+
+    private static void verify(String golden) throws Exception {
+        GoldenRequest.load(golden).withDataFile().assertMatches(echo.takeRequest());
     }
 
     /**
@@ -40,13 +74,14 @@ public class RestTemplateDemo3 {
      * 1. 使用 MultiValueMap<String, String>  做请求体，自动按名值对处理
      */
     @Test
-    public void postNv() {
+    public void postNv() throws Exception {
         RestTemplate template = new RestTemplate();
 
         MultiValueMap<String, String> mvs = new LinkedMultiValueMap<>();
         mvs.add("name", "Jack");
 
-        String res = template.postForObject("http://httpbin.org/post", mvs, String.class);
+        String res = template.postForObject(echo.url("/post"), mvs, String.class);
+        verify("demo3/postmv/request.txt");
         System.out.println(res);
     }
     /*
@@ -68,7 +103,7 @@ public class RestTemplateDemo3 {
      */
 
     @Test
-    public void postFile() {
+    public void postFile() throws Exception {
         RestTemplate template = new RestTemplate();
 
         FileSystemResource resource = new FileSystemResource("src/test/resources/data");
@@ -81,7 +116,8 @@ public class RestTemplateDemo3 {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, ?>> entity = new HttpEntity<>(body, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        verify("demo3/postFile/request.txt");
     }
 
     /**
@@ -93,7 +129,7 @@ public class RestTemplateDemo3 {
      * 它与FileSystemResource 都有 filename 方法
      */
     @Test
-    public void postFile2() {
+    public void postFile2() throws Exception {
         RestTemplate template = new RestTemplate();
 
         Resource resource = new ClassPathResource("/data");
@@ -105,7 +141,8 @@ public class RestTemplateDemo3 {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, ?>> entity = new HttpEntity<>(body, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        verify("demo3/postfile2/request.txt");
     }
 
     /**
@@ -113,7 +150,7 @@ public class RestTemplateDemo3 {
      * 哈，报错了 org.springframework.http.converter.HttpMessageNotWritableException: Could not write request:
      * no suitable HttpMessageConverter found for request type [java.io.BufferedInputStream]
      */
-    @Test
+    @Test(expected = HttpMessageNotWritableException.class)
     public void postFile3() throws IOException {
         RestTemplate template = new RestTemplate();
 
@@ -126,7 +163,7 @@ public class RestTemplateDemo3 {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, ?>> entity = new HttpEntity<>(body, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
     }
 
     /**
@@ -136,7 +173,7 @@ public class RestTemplateDemo3 {
      * @throws IOException
      */
     @Test
-    public void postFile4() throws IOException {
+    public void postFile4() throws Exception {
         RestTemplate template = new RestTemplate();
 
         Resource resource = new ClassPathResource("/data");
@@ -148,7 +185,8 @@ public class RestTemplateDemo3 {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, ?>> entity = new HttpEntity<>(body, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        verify("demo3/postfile4/request.txt");
     }
 
     /**
@@ -158,7 +196,7 @@ public class RestTemplateDemo3 {
      * @throws IOException
      */
     @Test
-    public void postFile5() throws IOException {
+    public void postFile5() throws Exception {
         RestTemplate template = new RestTemplate();
 
         HttpEntity<Resource> file = null;
@@ -178,7 +216,8 @@ public class RestTemplateDemo3 {
         mv.add("comment", "this is a file");
         HttpEntity<MultiValueMap<String, Object>> mainBody = new HttpEntity<>(mv);
 
-        String res = template.postForObject("http://httpbin.org/post", mainBody, String.class);
+        String res = template.postForObject(echo.url("/post"), mainBody, String.class);
+        verify("demo3/postfile5/request.txt");
     }
     /*
      * 总是，发送文件，太灵活了，让我有些不知所措。
@@ -203,7 +242,7 @@ public class RestTemplateDemo3 {
 
         HttpEntity<MultiValueMap<String, Object>> mainBody = new HttpEntity<>(mv);
 
-        String res = template.postForObject("http://httpbin.org/post", mainBody, String.class);
+        String res = template.postForObject(echo.url("/post"), mainBody, String.class);
     }
 
     /**
@@ -216,7 +255,7 @@ public class RestTemplateDemo3 {
      * @throws IOException
      */
     @Test
-    public void postFile7() throws IOException {
+    public void postFile7() throws Exception {
         RestTemplate template = new RestTemplate();
 
         HttpEntity<Resource> file = null;
@@ -235,7 +274,8 @@ public class RestTemplateDemo3 {
         mv.add("file", file);
         HttpEntity<MultiValueMap<String, Object>> mainBody = new HttpEntity<>(mv);
 
-        String res = template.postForObject("http://httpbin.org/post", mainBody, String.class);
+        String res = template.postForObject(echo.url("/post"), mainBody, String.class);
+        verify("demo3/postfile7/request.txt");
     }
     //---------------------------------
     // 发送文件的各种姿势
@@ -245,10 +285,14 @@ public class RestTemplateDemo3 {
      * Ans: 不行，实际发送的是文件路径
      */
     @Test
-    public void postFile8() {
+    public void postFile8() throws Exception {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
-        String res = template.postForObject("http://httpbin.org/post", file, String.class);
+        String res = template.postForObject(echo.url("/post"), file, String.class);
+        // 抓包时的路径换成本机的绝对路径
+        GoldenRequest.load("demo3/postfile8/request.txt")
+                .replace(CAPTURED_PATH, new ObjectMapper().writeValueAsString(file))
+                .assertMatches(echo.takeRequest());
     }
 
     /**
@@ -256,10 +300,11 @@ public class RestTemplateDemo3 {
      * Ans:不行，application/octet-stream
      */
     @Test
-    public void postFile9() {
+    public void postFile9() throws Exception {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
-        String res = template.postForObject("http://httpbin.org/post", new FileSystemResource(file), String.class);
+        String res = template.postForObject(echo.url("/post"), new FileSystemResource(file), String.class);
+        verify("demo3/postfile9/request.txt");
     }
 
     /**
@@ -267,13 +312,20 @@ public class RestTemplateDemo3 {
      * Ans：不行，No HttpMessageConverter for java.io.File and content type "multipart/form-data"
      */
     @Test
-    public void postFile10() {
+    public void postFile10() throws IOException {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
         HttpEntity entity = new HttpEntity(file, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        try {
+            String res = template.postForObject(echo.url("/post"), entity, String.class);
+            fail("应当抛出 RestClientException");
+        } catch (RestClientException e) {
+            String expected = StreamUtils.copyToString(
+                    new ClassPathResource("demo3/postfile10/error.txt").getInputStream(), StandardCharsets.UTF_8);
+            assertEquals(expected.trim(), e.getMessage());
+        }
     }
 
     /**
@@ -281,13 +333,14 @@ public class RestTemplateDemo3 {
      * Ans: 请求报文不对，只是首部有变化，请求体没有自动调整，八成是预期开发者自动处理请求体？
      */
     @Test
-    public void postFile11() {
+    public void postFile11() throws Exception {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
         HttpEntity entity = new HttpEntity(new FileSystemResource(file), headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        verify("demo3/postfile11/request.txt");
     }
 
     /**
@@ -295,7 +348,7 @@ public class RestTemplateDemo3 {
      * Ans: 可以
      */
     @Test
-    public void postFile12() {
+    public void postFile12() throws Exception {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
 
@@ -306,7 +359,8 @@ public class RestTemplateDemo3 {
         multiValueMap.add("file", new FileSystemResource(file)  );
 
         HttpEntity entity = new HttpEntity(multiValueMap, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        verify("demo3/postfile12/request.txt");
     }
 
     /**
@@ -314,7 +368,7 @@ public class RestTemplateDemo3 {
      * Ans: 不行。虽然拆分了，但是按照 application/json 发送了文件路径
      */
     @Test
-    public void postFile13() {
+    public void postFile13() throws Exception {
         RestTemplate template = new RestTemplate();
         File file = new File("src/test/resources/data");
 
@@ -325,7 +379,32 @@ public class RestTemplateDemo3 {
         multiValueMap.add("file", file );
 
         HttpEntity entity = new HttpEntity(multiValueMap, headers);
-        String res = template.postForObject("http://httpbin.org/post", entity, String.class);
+        String res = template.postForObject(echo.url("/post"), entity, String.class);
+        GoldenRequest.load("demo3/postfile13/request.txt")
+                .replace(CAPTURED_PATH, new ObjectMapper().writeValueAsString(file))
+                .assertMatches(echo.takeRequest());
+    }
+
+    /**
+     * 回到 postFile3 和 postFile4：InputStream 不能直接上传，InputStreamResource 又没有文件名
+     * Ans: 用 StreamingMultipartBody 显式给出文件名和长度，RestTemplates.createStreaming() 不缓冲请求体，
+     * 边读边发，带 Content-Length
+     */
+    @Test
+    public void postFile14() throws Exception {
+        RestTemplate template = RestTemplates.createStreaming();
+
+        Resource resource = new ClassPathResource("/data");
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .part("file2", "data", resource.getInputStream(), resource.contentLength())
+                .field("comment", "This is the same binary file");
+
+        String res = template.postForObject(echo.url("/post"), body, String.class);
+        CapturedRequest request = echo.takeRequest();
+        assertEquals(request.getBody().length, request.getHeaders().getContentLength());
+        String captured = request.getBody(StandardCharsets.ISO_8859_1);
+        assertTrue(captured.contains("Content-Disposition: form-data; name=\"file2\"; filename=\"data\""));
+        assertTrue(captured.contains(StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.ISO_8859_1)));
     }
 }
 
@@ -1,6 +1,7 @@
 package com.one.learn.resttemplate;
 
 import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.ResponseExtractors;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.core.io.FileSystemResource;
@@ -9,11 +10,13 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
-import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -72,12 +75,13 @@ public class RestTemplateTests {
 
         String executeResult = restTemplate.execute(url, HttpMethod.GET, request -> {
             request.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        }, (clientHttpResponse) -> {
-            InputStream body = clientHttpResponse.getBody();
-            byte[] bytes = new byte[body.available()];
-            body.read(bytes);
-            return new String(bytes);
-        });
+        }, ResponseExtractors.withBody(64 * 1024, (body, headers) -> {
+            // available() 只是不阻塞就能读到的字节数，一次 read() 也不保证读满，必须读到流结束；
+            // withBody 限制了最多读取的字节数，避免意外的大响应占满堆
+            Charset charset = headers.getContentType() != null && headers.getContentType().getCharset() != null
+                    ? headers.getContentType().getCharset() : StandardCharsets.UTF_8;
+            return StreamUtils.copyToString(body, charset);
+        }));
         System.out.println("get_product1返回结果：" + executeResult);
         Assert.hasText(executeResult, "get_product1返回结果为空");
     }
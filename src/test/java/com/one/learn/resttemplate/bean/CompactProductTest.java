@@ -0,0 +1,65 @@
+package com.one.learn.resttemplate.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.one.learn.resttemplate.util.ByteBuilder;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * CompactProduct 的文本和 JSON 形式必须与 Product.toString() 和 Jackson 的输出逐字节相同
+ */
+public class CompactProductTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void sameOutputAsProduct() throws Exception {
+        String[] names = {"ProductC", null, "", "产品", "a\"b\\c", "tab\tnew\nline\u0001", "emoji😀", "bad\uD800"};
+        String[] prices = {null, "6666.0", "6666.00", "0", "0.05", "-1.5", "0.000001", "0.0000001", "1E+3", "123456789012.345",
+                "-0.00", "9223372036854775807", "-9223372036854775.808"};
+        Integer[] ids = {null, 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (String name : names) {
+            for (String price : prices) {
+                for (Integer id : ids) {
+                    check(new Product(id, name, price == null ? null : new BigDecimal(price)));
+                }
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            check(new Product(random.nextInt(), "P" + i, BigDecimal.valueOf(random.nextLong(), random.nextInt(12))));
+        }
+    }
+
+    private void check(Product product) throws Exception {
+        CompactProduct compact = CompactProduct.from(product);
+        // 不成对的代理字符编码为 UTF-8 时变成 '?'，所以比较编码后的结果
+        String text = new String(product.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        assertEquals(text, compact.toString());
+        assertArrayEquals(text, product.toString().getBytes(StandardCharsets.UTF_8),
+                compact.writeText(new ByteBuilder(16)).toByteArray());
+        assertArrayEquals(objectMapper.writeValueAsBytes(product), compact.writeJson(new ByteBuilder(16)).toByteArray());
+        assertEquals(product.toString(), compact.toProduct().toString());
+    }
+
+    /**
+     * 未缩放值超出 long 的价格以 BigDecimal 保存，输出仍与 Product 相同
+     */
+    @Test
+    public void priceOutOfRange() throws Exception {
+        String[] prices = {"9223372036854775808", "-9223372036854775809", "123456789012345678901234567890",
+                "1234567890.12345678901234567890", "1.23456789012345678901234567890E-40", "-98765432109876543210E+50"};
+        for (String price : prices) {
+            Product product = new Product(1, "P", new BigDecimal(price));
+            CompactProduct compact = CompactProduct.from(product);
+            assertFalse(compact.isPriceCompact());
+            assertEquals(new BigDecimal(price), compact.getPrice());
+            check(product);
+        }
+        assertTrue(CompactProduct.from(new Product(1, "P", new BigDecimal("9223372036854775807"))).isPriceCompact());
+    }
+}
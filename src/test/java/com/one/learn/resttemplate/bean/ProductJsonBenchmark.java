@@ -0,0 +1,85 @@
+package com.one.learn.resttemplate.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.one.learn.resttemplate.util.ByteBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product 的 Jackson 编码、解码：单个产品（get_product2、post_product2）和 100 个产品的列表（batch）。
+ * ObjectMapper 与 Spring Boot 一样由 Jackson2ObjectMapperBuilder 创建；
+ * compactWriteJson 是 CompactProduct 直接写 JSON 的对照组。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductJsonBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductJsonBenchmark {
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectWriter productWriter = mapper.writerFor(Product.class);
+    private final ObjectReader productReader = mapper.readerFor(Product.class);
+    private final ObjectWriter listWriter = mapper.writerFor(Product[].class);
+    private final ObjectReader listReader = mapper.readerFor(Product[].class);
+    private final ByteBuilder buffer = new ByteBuilder(256);
+
+    private Product product;
+    private CompactProduct compact;
+    private Product[] list;
+    private byte[] productJson;
+    private byte[] listJson;
+
+    @Setup
+    public void setup() throws IOException {
+        product = new Product(42, "ProductC", new BigDecimal("6666.00"));
+        compact = CompactProduct.from(product);
+        list = new Product[100];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = new Product(i + 1, "Product" + (i + 1), BigDecimal.valueOf((i + 1) * 37L, 2));
+        }
+        productJson = productWriter.writeValueAsBytes(product);
+        listJson = listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] encodeProduct() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product decodeProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws IOException {
+        return listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public Product[] decodeList() throws IOException {
+        return listReader.readValue(listJson);
+    }
+
+    @Benchmark
+    public int compactWriteJson() {
+        return compact.writeJson(buffer.reset()).length();
+    }
+}
@@ -0,0 +1,93 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.ResttemplateApplication;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 {@link AsyncProductClient#getAll(List)} 逐个读取 200 个产品的总耗时，随每个目标的并发数变化。
+ * 服务在同一个 JVM 中以随机端口启动；本机回环网络几乎没有延迟，所以每个请求由拦截器额外等待 2ms，
+ * 模拟跨机房调用的往返时间。并发数为 1 时相当于串行循环。
+ * 运行：mvn -P benchmark test -Djmh.include=AsyncProductClientBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncProductClientBenchmark {
+    private static final int PRODUCTS = 200;
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    @Param({"1", "4", "16", "64"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpComponentsClientHttpRequestFactory requestFactory;
+    private ProductClient client;
+    private AsyncRestExecutor executor;
+    private AsyncProductClient asyncClient;
+    private List<Integer> ids;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        requestFactory = PooledRequestFactories.create(new ConnectionPoolSettings().setDefaultMaxPerRoute(concurrency));
+        RestTemplate restTemplate = RestTemplates.create(requestFactory);
+        restTemplate.setInterceptors(Collections.singletonList((request, body, execution) -> {
+            try {
+                Thread.sleep(ROUND_TRIP_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return execution.execute(request, body);
+        }));
+        client = new ProductClient(restTemplate, baseUrl);
+        executor = new AsyncRestExecutor(new AsyncClientSettings()
+                .setThreads(concurrency)
+                .setMaxConcurrentPerHost(concurrency));
+        asyncClient = new AsyncProductClient(client, executor);
+        ids = new ArrayList<>();
+        for (int i = 1; i <= PRODUCTS; i++) {
+            ids.add(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        executor.close();
+        requestFactory.destroy();
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> getAll() {
+        return asyncClient.getAll(ids).join();
+    }
+}
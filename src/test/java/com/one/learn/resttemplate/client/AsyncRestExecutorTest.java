@@ -0,0 +1,110 @@
+package com.one.learn.resttemplate.client;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncRestExecutorTest {
+    private AsyncRestExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void limitsConcurrencyPerHost() throws Exception {
+        executor = new AsyncRestExecutor(new AsyncClientSettings().setThreads(8).setMaxConcurrentPerHost(2));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch slowHostFull = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            futures.add(executor.submit("slow:80", () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                slowHostFull.countDown();
+                release.await();
+                active.decrementAndGet();
+                return n;
+            }));
+        }
+        assertTrue(slowHostFull.await(5, TimeUnit.SECONDS));
+        // 慢的目标占满自己的名额时，其它目标不受影响
+        assertEquals("ok", executor.submit("fast:80", () -> "ok").get(5, TimeUnit.SECONDS));
+        release.countDown();
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(Integer.valueOf(i), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxActive.get());
+    }
+
+    @Test
+    public void deadlineFailsAndInterruptsCall() throws Exception {
+        executor = new AsyncRestExecutor(new AsyncClientSettings());
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> future = executor.submit("host:80", () -> {
+            try {
+                Thread.sleep(10_000);
+                return "late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, Duration.ofMillis(100));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledCallIsNotStarted() throws Exception {
+        executor = new AsyncRestExecutor(new AsyncClientSettings().setMaxConcurrentPerHost(1));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        CompletableFuture<Boolean> first = executor.submit("host:80", () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = executor.submit("host:80", () -> secondStarted.getAndSet(true));
+        assertTrue(second.cancel(true));
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        // 名额释放后后续的调用照常执行
+        assertEquals("next", executor.submit("host:80", () -> "next").get(5, TimeUnit.SECONDS));
+        assertFalse(secondStarted.get());
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        executor = new AsyncRestExecutor(new AsyncClientSettings().setThreads(1).setQueueCapacity(1));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit("a:80", () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit("b:80", () -> "queued");
+        CompletableFuture<String> rejected = executor.submit("c:80", () -> "rejected");
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,129 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.upload.UploadStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "product.upload.dir=${java.io.tmpdir}/chunked-upload-test")
+public class ChunkedUploadClientTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    UploadStorage uploadStorage;
+
+    RestTemplate restTemplate = new RestTemplate();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ChunkedUploadClient client;
+    Path file;
+    byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        client = new ChunkedUploadClient(restTemplate, "http://localhost:" + port, executor, 3);
+        // 最后一个分块不满
+        data = new byte[CHUNK_SIZE * 10 + 123];
+        new Random(7).nextBytes(data);
+        file = folder.newFile("chunked.bin").toPath();
+        Files.write(file, data);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void upload() throws IOException {
+        String result = client.upload(file, CHUNK_SIZE);
+        assertEquals("upload success filename: chunked.bin", result);
+        assertArrayEquals(data, Files.readAllBytes(uploadStorage.resolve("chunked.bin")));
+    }
+
+    @Test
+    public void resumeOnlySendsMissingChunks() throws IOException {
+        ChunkedUploadSession status = client.create(file, CHUNK_SIZE);
+        assertEquals(11, status.getChunkCount());
+        // 模拟中断前已经传完的两个分块
+        for (int index : new int[]{0, 7}) {
+            byte[] chunk = Arrays.copyOfRange(data, index * CHUNK_SIZE, (index + 1) * CHUNK_SIZE);
+            restTemplate.exchange("http://localhost:" + port + "/product/uploads/{id}/chunks/{index}",
+                    HttpMethod.PUT, new HttpEntity<>(chunk), String.class, status.getId(), index);
+        }
+        ChunkedUploadSession afterCrash = restTemplate.getForObject("http://localhost:" + port + "/product/uploads/{id}",
+                ChunkedUploadSession.class, status.getId());
+        assertEquals(2, afterCrash.getMissingChunks().size());
+        assertArrayEquals(new int[]{1, 6}, afterCrash.getMissingChunks().get(0));
+        assertArrayEquals(new int[]{8, 10}, afterCrash.getMissingChunks().get(1));
+
+        client.resume(status.getId(), file);
+        assertArrayEquals(data, Files.readAllBytes(uploadStorage.resolve("chunked.bin")));
+    }
+
+    /**
+     * 创建会话之后源文件变短：分块读不到足够的数据时失败，而不是一直循环
+     */
+    @Test(timeout = 30_000)
+    public void truncatedSourceFails() throws IOException {
+        ChunkedUploadSession status = client.create(file, CHUNK_SIZE);
+        Files.write(file, Arrays.copyOf(data, CHUNK_SIZE * 5));
+        try {
+            client.resume(status.getId(), file);
+            fail("源文件被截断时不能提交");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void commitWithMissingChunks() throws IOException {
+        ChunkedUploadSession status = client.create(file, CHUNK_SIZE);
+        try {
+            restTemplate.postForObject("http://localhost:" + port + "/product/uploads/{id}/commit",
+                    null, String.class, status.getId());
+            fail("缺少分块时不能提交");
+        } catch (HttpClientErrorException e) {
+            assertEquals(409, e.getRawStatusCode());
+        }
+    }
+
+    @Test
+    public void rejectWrongChunkLength() throws IOException {
+        ChunkedUploadSession status = client.create(file, CHUNK_SIZE);
+        try {
+            restTemplate.exchange("http://localhost:" + port + "/product/uploads/{id}/chunks/{index}",
+                    HttpMethod.PUT, new HttpEntity<>(new byte[10]), String.class, status.getId(), 0);
+            fail("分块长度不符时应当拒绝");
+        } catch (HttpClientErrorException e) {
+            assertEquals(400, e.getRawStatusCode());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.compression.ContentCoding;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompressionInterceptorTest {
+    private static final String URL = "http://localhost/product/batch";
+    private static final String BODY = String.join(",", Collections.nCopies(100, "{\"id\":1,\"name\":\"ProductC\"}"));
+
+    private final List<MockClientHttpRequest> requests = new ArrayList<>();
+    private MockClientHttpResponse response;
+    private RestTemplate restTemplate;
+    private CompressionInterceptor compression;
+
+    @Before
+    public void setUp() {
+        compression = new CompressionInterceptor(6, 1024);
+        restTemplate = RestTemplates.create((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(response);
+            requests.add(request);
+            return request;
+        });
+        restTemplate.setInterceptors(Collections.singletonList(compression));
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = ContentCoding.GZIP.encode(bytes, 6, false)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void decompressesResponse() throws IOException {
+        response = new MockClientHttpResponse(gzip(BODY), HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        assertEquals(BODY, restTemplate.getForObject(URL, String.class));
+        assertEquals("gzip, deflate", requests.get(0).getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals(1, compression.getDecompressedResponseCount());
+    }
+
+    @Test
+    public void callerAcceptEncodingLeftAlone() throws IOException {
+        byte[] compressed = gzip(BODY);
+        response = new MockClientHttpResponse(compressed, HttpStatus.OK);
+        response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        byte[] body = restTemplate.exchange(URL, HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class).getBody();
+        assertArrayEquals("调用方自己解压", compressed, body);
+        assertEquals(0, compression.getDecompressedResponseCount());
+    }
+
+    @Test
+    public void compressesLargeJsonRequest() throws IOException {
+        response = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.postForObject(URL, new HttpEntity<>("[" + BODY + "]", headers), String.class);
+
+        MockClientHttpRequest sent = requests.get(0);
+        assertEquals("gzip", sent.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] wire = sent.getBodyAsBytes();
+        assertEquals(wire.length, sent.getHeaders().getContentLength());
+        try (InputStream in = ContentCoding.GZIP.decode(new ByteArrayInputStream(wire))) {
+            assertEquals("[" + BODY + "]", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+        assertEquals(1, compression.getCompressedRequestCount());
+        assertTrue(compression.getRequestBytesSaved() > 0);
+    }
+
+    @Test
+    public void smallOrBinaryRequestSentAsIs() {
+        response = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        HttpHeaders json = new HttpHeaders();
+        json.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.postForObject(URL, new HttpEntity<>("[1,2,3]", json), String.class);
+        HttpHeaders binary = new HttpHeaders();
+        binary.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        restTemplate.postForObject(URL, new HttpEntity<>(BODY.getBytes(StandardCharsets.UTF_8), binary), String.class);
+
+        for (MockClientHttpRequest sent : requests) {
+            assertNull(sent.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        }
+        assertEquals(0, compression.getCompressedRequestCount());
+    }
+}
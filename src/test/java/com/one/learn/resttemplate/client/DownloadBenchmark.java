@@ -0,0 +1,97 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.ResttemplateApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 从 /product/download 下载大文件：getForObject(url, byte[].class) 与 {@link ResponseExtractors} 的
+ * toFile（写到磁盘）、process（计算 CRC32，不落盘）。每次下载耗时较长，使用单次计时；吞吐量 = 文件大小 / 每次耗时。
+ * byte[] 需要把整个文件放进堆（还要复制一次），1GB 时每次分配约 2GB，-Xmx3g 就会内存溢出，所以以 -Xmx4g 运行。
+ * 服务在同一个 JVM 中以随机端口启动，由 Tomcat sendfile 发送文件，服务端几乎不分配内存。
+ * 运行：mvn -P benchmark test -Djmh.include=DownloadBenchmark；
+ * 每次下载分配的内存需要直接运行 org.openjdk.jmh.Main DownloadBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DownloadBenchmark {
+    @Param({"67108864", "1073741824"})
+    public int fileSize;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private Path target;
+    private String url;
+    private RestTemplate restTemplate;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("download-benchmark");
+        Path uploaded = Files.createDirectory(directory.resolve("uploaded"));
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN", "product.upload.dir=" + uploaded)
+                .run();
+        url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/product/download/product.bin";
+        byte[] block = new byte[1024 * 1024];
+        new Random(1).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(uploaded.resolve("product.bin"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (int written = 0; written < fileSize; written += block.length) {
+                channel.write(ByteBuffer.wrap(block, 0, Math.min(block.length, fileSize - written)));
+            }
+        }
+        target = directory.resolve("downloaded.bin");
+        restTemplate = RestTemplates.create();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int byteArray() {
+        return restTemplate.getForObject(url, byte[].class).length;
+    }
+
+    @Benchmark
+    public long toFile() {
+        return restTemplate.execute(url, HttpMethod.GET, null, ResponseExtractors.toFile(target));
+    }
+
+    @Benchmark
+    public long processCrc32() {
+        CRC32 crc32 = new CRC32();
+        restTemplate.execute(url, HttpMethod.GET, null, ResponseExtractors.process(crc32::update));
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,91 @@
+package com.one.learn.resttemplate.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.echo.EchoServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RestTemplate 经本机回环网络到 {@link EchoServer} 的一次往返，比较两种请求工厂。
+ * 与 httpbin.org 不同，结果里没有外网延迟，主要是客户端、TCP 回环和 EchoServer 生成 JSON 的开销；
+ * EchoServer 不记录请求。
+ * <p>
+ * simple（HttpURLConnection）发送 POST 时首部和请求体分两次写出，又没有关闭 Nagle 算法，请求体要等服务端的延迟 ACK，
+ * 每次多出 1~10 毫秒；HttpComponents 默认设置 TCP_NODELAY，没有这个问题。
+ * 运行：mvn -P benchmark test -Djmh.include=EchoRoundTripBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EchoRoundTripBenchmark {
+    @Param({"simple", "httpcomponents"})
+    public String factory;
+
+    private EchoServer echo;
+    private HttpComponentsClientHttpRequestFactory httpComponents;
+    private RestTemplate restTemplate;
+    private String getUrl;
+    private String postUrl;
+    private Product product;
+
+    @Setup
+    public void setup() throws IOException {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        echo = new EchoServer().start();
+        echo.setCapture(false);
+        ClientHttpRequestFactory requestFactory;
+        if ("httpcomponents".equals(factory)) {
+            httpComponents = new HttpComponentsClientHttpRequestFactory();
+            requestFactory = httpComponents;
+        } else {
+            requestFactory = new SimpleClientHttpRequestFactory();
+        }
+        restTemplate = new RestTemplate(requestFactory);
+        getUrl = echo.url("/get");
+        postUrl = echo.url("/post");
+        product = new Product(42, "ProductC", new BigDecimal("6666.0"));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (httpComponents != null) {
+            httpComponents.destroy();
+        }
+        echo.close();
+    }
+
+    @Benchmark
+    public JsonNode get() {
+        return restTemplate.getForObject(getUrl, JsonNode.class);
+    }
+
+    @Benchmark
+    public JsonNode postJson() {
+        return restTemplate.postForObject(postUrl, product, JsonNode.class);
+    }
+}
@@ -0,0 +1,189 @@
+package com.one.learn.resttemplate.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HttpCacheInterceptorTest {
+    private static final String URL = "http://localhost/product/get_product2?id=1";
+
+    /**
+     * 按顺序返回的响应，每个请求取一个
+     */
+    private final Deque<MockClientHttpResponse> responses = new ArrayDeque<>();
+    /**
+     * 实际发出的请求
+     */
+    private final List<MockClientHttpRequest> requests = new ArrayList<>();
+    private RestTemplate restTemplate;
+    private HttpCacheInterceptor cache;
+
+    @Before
+    public void setUp() {
+        cache = new HttpCacheInterceptor(1024 * 1024);
+        restTemplate = RestTemplates.create((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(responses.removeFirst());
+            requests.add(request);
+            return request;
+        });
+        restTemplate.setInterceptors(Collections.singletonList(cache));
+    }
+
+    private MockClientHttpResponse respond(HttpStatus status, String body, String... headers) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), status);
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        for (int i = 0; i < headers.length; i += 2) {
+            response.getHeaders().add(headers[i], headers[i + 1]);
+        }
+        responses.add(response);
+        return response;
+    }
+
+    @Test
+    public void freshResponseServedWithoutRequest() {
+        respond(HttpStatus.OK, "one", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals(1, requests.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void revalidatesWithEtag() {
+        respond(HttpStatus.OK, "one", HttpHeaders.ETAG, "\"a\"");
+        respond(HttpStatus.NOT_MODIFIED, "");
+        respond(HttpStatus.OK, "two", HttpHeaders.ETAG, "\"b\"");
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals("\"a\"", requests.get(1).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals("two", restTemplate.getForObject(URL, String.class));
+        assertEquals("\"a\"", requests.get(2).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(3, requests.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getRevalidationCount());
+        assertEquals(1, cache.getNotModifiedCount());
+    }
+
+    @Test
+    public void revalidatesWithLastModified() {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+        respond(HttpStatus.OK, "one", HttpHeaders.LAST_MODIFIED, lastModified, HttpHeaders.CACHE_CONTROL, "no-cache");
+        respond(HttpStatus.NOT_MODIFIED, "", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals(lastModified, requests.get(1).getHeaders().getFirst(HttpHeaders.IF_MODIFIED_SINCE));
+        // 304 带来的 max-age 更新了缓存项
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals(2, requests.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void noStoreAndErrorsAreNotCached() {
+        respond(HttpStatus.OK, "one", HttpHeaders.CACHE_CONTROL, "no-store", HttpHeaders.ETAG, "\"a\"");
+        respond(HttpStatus.OK, "two", HttpHeaders.ETAG, "\"b\"");
+        respond(HttpStatus.NOT_FOUND, "");
+        respond(HttpStatus.OK, "three", HttpHeaders.ETAG, "\"c\"");
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals(0, cache.size());
+        assertEquals("two", restTemplate.getForObject(URL, String.class));
+        assertEquals(1, cache.size());
+        try {
+            restTemplate.getForObject(URL, String.class);
+            fail();
+        } catch (HttpClientErrorException.NotFound expected) {
+        }
+        assertEquals(0, cache.size());
+        assertEquals("three", restTemplate.getForObject(URL, String.class));
+        assertNull(requests.get(3).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    public void unsafeMethodInvalidates() {
+        respond(HttpStatus.OK, "one", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        respond(HttpStatus.OK, "posted");
+        respond(HttpStatus.OK, "two", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        assertEquals("one", restTemplate.getForObject(URL, String.class));
+        assertEquals("posted", restTemplate.postForObject(URL, "x", String.class));
+        assertEquals("two", restTemplate.getForObject(URL, String.class));
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void varyMismatchIsMiss() {
+        respond(HttpStatus.OK, "json", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Accept");
+        respond(HttpStatus.OK, "text", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Accept");
+        HttpHeaders json = new HttpHeaders();
+        json.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        assertEquals("json", restTemplate.exchange(URL, HttpMethod.GET,
+                new HttpEntity<>(json), String.class).getBody());
+        assertEquals("text", restTemplate.getForObject(URL, String.class));
+        assertEquals("text", restTemplate.getForObject(URL, String.class));
+        assertEquals(2, requests.size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinBudget() {
+        cache = new HttpCacheInterceptor(2000);
+        restTemplate.setInterceptors(Collections.singletonList(cache));
+        char[] filler = new char[600];
+        Arrays.fill(filler, 'x');
+        String body = new String(filler);
+        for (int i = 0; i < 3; i++) {
+            respond(HttpStatus.OK, body + i, HttpHeaders.CACHE_CONTROL, "max-age=60");
+        }
+        restTemplate.getForObject(URL + "&n=0", String.class);
+        restTemplate.getForObject(URL + "&n=1", String.class);
+        // 访问 n=0 后 n=1 最久未使用，放入 n=2 时被淘汰
+        restTemplate.getForObject(URL + "&n=0", String.class);
+        restTemplate.getForObject(URL + "&n=2", String.class);
+        assertEquals(2, cache.size());
+        assertTrue(cache.getCurrentBytes() <= 2000);
+
+        respond(HttpStatus.OK, body + 1, HttpHeaders.CACHE_CONTROL, "max-age=60");
+        restTemplate.getForObject(URL + "&n=0", String.class);
+        restTemplate.getForObject(URL + "&n=1", String.class);
+        assertEquals(4, requests.size());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void responseLargerThanBudgetPassesThrough() {
+        cache = new HttpCacheInterceptor(1000);
+        restTemplate.setInterceptors(Collections.singletonList(cache));
+        char[] filler = new char[10_000];
+        Arrays.fill(filler, 'y');
+        String body = new String(filler);
+        // 没有 Content-Length，读到超出预算时才放弃缓存
+        respond(HttpStatus.OK, body, HttpHeaders.CACHE_CONTROL, "max-age=60");
+        assertEquals(body, restTemplate.getForObject(URL, String.class));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCurrentBytes());
+    }
+}
@@ -0,0 +1,183 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.bean.Product;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MicroBatchInterceptorTest {
+    private static final String URL = "http://localhost/product/get_product2?id={id}";
+
+    /**
+     * 实际发出的请求，如 "POST /product/batch [1,2]"、"GET /product/get_product2?id=1"
+     */
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(64);
+    private volatile boolean batchSupported = true;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 模拟的服务端：奇数 id 的产品存在，偶数 id 不存在
+     */
+    private RestTemplate restTemplate(MicroBatchInterceptor interceptor) {
+        RestTemplate restTemplate = RestTemplates.create((uri, method) -> new MockClientHttpRequest(method, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() {
+                String path = uri.getRawPath();
+                if (method == HttpMethod.POST && path.endsWith("/batch")) {
+                    String ids = getBodyAsString();
+                    requests.add("POST " + path + " " + ids);
+                    if (!batchSupported) {
+                        return new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND);
+                    }
+                    StringBuilder json = new StringBuilder("[");
+                    for (String id : ids.substring(1, ids.length() - 1).split(",")) {
+                        json.append(json.length() > 1 ? "," : "").append(product(Integer.parseInt(id)));
+                    }
+                    return json(json.append(']').toString());
+                }
+                requests.add(method + " " + path + "?" + uri.getRawQuery());
+                String product = product(Integer.parseInt(uri.getRawQuery().substring(3)));
+                return product.equals("null") ? new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND) : json(product);
+            }
+        });
+        restTemplate.setInterceptors(Collections.singletonList(interceptor));
+        return restTemplate;
+    }
+
+    private static String product(int id) {
+        return id % 2 == 0 ? "null" : "{\"id\":" + id + ",\"name\":\"P[" + id + "]\",\"price\":" + id + ".50}";
+    }
+
+    private static MockClientHttpResponse json(String body) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response;
+    }
+
+    /**
+     * 多个线程同时查询 id 1..threads，返回每个线程得到的产品，不存在时为 null
+     */
+    private List<Product> concurrentLookups(RestTemplate restTemplate, int threads) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<Product>> futures = new ArrayList<>();
+        for (int i = 1; i <= threads; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return restTemplate.getForObject(URL, Product.class, id);
+                } catch (HttpClientErrorException.NotFound e) {
+                    return null;
+                }
+            }));
+        }
+        List<Product> products = new ArrayList<>();
+        for (Future<Product> future : futures) {
+            products.add(future.get(20, TimeUnit.SECONDS));
+        }
+        return products;
+    }
+
+    private static void assertProducts(List<Product> products) {
+        for (int i = 0; i < products.size(); i++) {
+            int id = i + 1;
+            if (id % 2 == 0) {
+                assertNull(products.get(i));
+            } else {
+                assertEquals("Product{id='" + id + "', name='P[" + id + "]', price='" + id + ".50'}",
+                        products.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentLookupsShareBatches() throws Exception {
+        MicroBatchInterceptor interceptor = new MicroBatchInterceptor(100, Duration.ofMillis(200));
+        List<Product> products = concurrentLookups(restTemplate(interceptor), 50);
+        assertProducts(products);
+        assertTrue(requests.toString(), requests.size() <= 5);
+        assertTrue(requests.stream().allMatch(r -> r.startsWith("POST /product/batch")));
+        assertEquals(50, interceptor.getBatchedLookupCount());
+        assertEquals(requests.size(), interceptor.getBatchCount());
+    }
+
+    @Test
+    public void fullBatchIsSentWithoutWaiting() throws Exception {
+        MicroBatchInterceptor interceptor = new MicroBatchInterceptor(10, Duration.ofSeconds(30));
+        long start = System.nanoTime();
+        assertProducts(concurrentLookups(restTemplate(interceptor), 10));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void singleLookupIsSentAsIs() {
+        MicroBatchInterceptor interceptor = new MicroBatchInterceptor(100, Duration.ofMillis(1));
+        RestTemplate restTemplate = restTemplate(interceptor);
+        assertEquals(Integer.valueOf(7), restTemplate.getForObject(URL, Product.class, 7).getId());
+        assertEquals(Collections.singletonList("GET /product/get_product2?id=7"), requests);
+        assertEquals(0, interceptor.getBatchCount());
+    }
+
+    @Test
+    public void fallsBackWhenBatchEndpointIsMissing() throws Exception {
+        batchSupported = false;
+        MicroBatchInterceptor interceptor = new MicroBatchInterceptor(100, Duration.ofMillis(200));
+        RestTemplate restTemplate = restTemplate(interceptor);
+        List<Product> products = concurrentLookups(restTemplate, 20);
+        assertProducts(products);
+        long batches = requests.stream().filter(r -> r.startsWith("POST")).count();
+        assertEquals(batches, interceptor.getBatchCount());
+        assertEquals(20, interceptor.getFallbackCount());
+        assertEquals(batches + 20, requests.size());
+
+        // 之后不再尝试批量
+        requests.clear();
+        concurrentLookups(restTemplate, 20);
+        assertEquals(20, requests.size());
+        assertTrue(requests.stream().allMatch(r -> r.startsWith("GET")));
+    }
+
+    @Test
+    public void splitKeepsRawElementBytes() throws Exception {
+        String[] elements = {"{\"id\":1,\"name\":\"a,]}[\\\"\",\"price\":1E+3}", "null", "{\"nested\":{\"x\":[1,2]}}", "[]"};
+        String array = "[" + String.join(", ", elements) + "]";
+        List<byte[]> split = MicroBatchInterceptor.split(array.getBytes(StandardCharsets.UTF_8), elements.length);
+        assertEquals(elements[0], new String(split.get(0), StandardCharsets.UTF_8));
+        assertNull(split.get(1));
+        assertEquals(elements[2], new String(split.get(2), StandardCharsets.UTF_8));
+        assertEquals(elements[3], new String(split.get(3), StandardCharsets.UTF_8));
+        try {
+            MicroBatchInterceptor.split("[1]".getBytes(StandardCharsets.UTF_8), 2);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.one.learn.resttemplate.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.support.AllEncompassingFormHttpMessageConverter;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RestTemplate 上传文件（/product/upload）时 FormHttpMessageConverter 写出 multipart 请求体的开销：
+ * 一个文件和三个表单字段，写到丢弃数据的输出流，不包含网络。
+ * 使用与 RestTemplate 默认相同的 AllEncompassingFormHttpMessageConverter。
+ * 运行：mvn -P benchmark test -Djmh.include=MultipartWriteBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultipartWriteBenchmark {
+    @Param({"1024", "1048576"})
+    private int fileSize;
+
+    private final AllEncompassingFormHttpMessageConverter converter = new AllEncompassingFormHttpMessageConverter();
+    private final DiscardingMessage message = new DiscardingMessage();
+    private MultiValueMap<String, Object> parts;
+
+    @Setup
+    public void setup() {
+        parts = new LinkedMultiValueMap<>();
+        parts.add("id", "1");
+        parts.add("name", "ProductC");
+        parts.add("price", "6666.0");
+        parts.add("file", new ByteArrayResource(new byte[fileSize]) {
+            @Override
+            public String getFilename() {
+                return "product.bin";
+            }
+        });
+    }
+
+    @Benchmark
+    public long writeMultipart() throws IOException {
+        message.headers.clear();
+        message.written = 0;
+        converter.write(parts, MediaType.MULTIPART_FORM_DATA, message);
+        return message.written;
+    }
+
+    private static class DiscardingMessage implements HttpOutputMessage {
+        final HttpHeaders headers = new HttpHeaders();
+        long written;
+        final OutputStream body = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+        };
+
+        @Override
+        public OutputStream getBody() {
+            return StreamUtils.nonClosing(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.echo.EchoServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PooledRequestFactoriesTest {
+    private EchoServer echo;
+    private HttpComponentsClientHttpRequestFactory factory;
+
+    @Before
+    public void setUp() throws IOException {
+        echo = new EchoServer().start();
+        echo.setCapture(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.destroy();
+        }
+        echo.close();
+    }
+
+    @Test
+    public void connectionsAreReusedWithinRouteLimit() throws Exception {
+        factory = PooledRequestFactories.create(new ConnectionPoolSettings()
+                .setMaxPerRoute("http://127.0.0.1:" + echo.getPort(), 4));
+        RestTemplate restTemplate = new RestTemplate(factory);
+        String url = echo.url("/get");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                futures.add(executor.submit(() -> restTemplate.getForObject(url, String.class)));
+            }
+            for (Future<String> future : futures) {
+                assertNotNull(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400, echo.getRequestCount());
+        // 8 个线程共用 4 个连接
+        assertTrue("connections: " + echo.getConnectionCount(), echo.getConnectionCount() <= 4);
+    }
+
+    @Test
+    public void keepAliveStrategy() {
+        ConnectionKeepAliveStrategy strategy = PooledRequestFactories.keepAliveStrategy(30_000);
+        assertEquals(30_000, strategy.getKeepAliveDuration(response(null), null));
+        assertEquals(5_000, strategy.getKeepAliveDuration(response("timeout=5, max=100"), null));
+        assertEquals(30_000, strategy.getKeepAliveDuration(response("timeout=60"), null));
+        assertEquals(30_000, strategy.getKeepAliveDuration(response("timeout=abc"), null));
+    }
+
+    private static HttpResponse response(String keepAlive) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (keepAlive != null) {
+            response.addHeader("Keep-Alive", keepAlive);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,130 @@
+package com.one.learn.resttemplate.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.echo.CapturedRequest;
+import com.one.learn.resttemplate.echo.EchoServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * PreparedRequest 发出的请求应当与 RestTemplate 对应方法发出的相同
+ */
+public class PreparedRequestTest {
+    private final RestTemplate restTemplate = new RestTemplate();
+    private EchoServer echo;
+
+    @Before
+    public void setUp() throws IOException {
+        echo = new EchoServer().start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        echo.close();
+    }
+
+    @Test
+    public void getSameAsGetForObject() throws Exception {
+        String template = echo.url("/anything/product/{name}?id={id}&q=a b");
+        JsonNode expected = restTemplate.getForObject(template, JsonNode.class, "Product C", 101);
+        PreparedRequest<JsonNode> prepared = PreparedRequest.builder(restTemplate, HttpMethod.GET, template)
+                .build(JsonNode.class);
+        JsonNode actual = prepared.execute("Product C", 101);
+
+        assertSameRequest(echo.takeRequest(), echo.takeRequest());
+        assertEquals(expected.get("args"), actual.get("args"));
+        assertEquals("a b", actual.get("args").get("q").asText());
+    }
+
+    @Test
+    public void postJsonSameAsPostForObject() throws Exception {
+        Product product = new Product(42, "ProductC", new BigDecimal("6666.0"));
+        String expected = restTemplate.postForObject(echo.url("/post"), product, String.class);
+        PreparedRequest<String> prepared = PreparedRequest.builder(restTemplate, HttpMethod.POST, echo.url("/post"))
+                .body(Product.class, null)
+                .build(String.class);
+        String actual = prepared.executeWithBody(product);
+
+        assertSameRequest(echo.takeRequest(), echo.takeRequest());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void postFormWithContentType() throws Exception {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("name", "Jack Tang");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.set("X-Trace", "1");
+        restTemplate.postForObject(echo.url("/post"), new HttpEntity<>(form, headers), JsonNode.class);
+        PreparedRequest<JsonNode> prepared = PreparedRequest.builder(restTemplate, HttpMethod.POST, echo.url("/post"))
+                .header("X-Trace", "1")
+                .body(MultiValueMap.class, MediaType.APPLICATION_FORM_URLENCODED)
+                .build(JsonNode.class);
+        JsonNode json = prepared.executeWithBody(form);
+
+        assertSameRequest(echo.takeRequest(), echo.takeRequest());
+        assertEquals("Jack Tang", json.get("form").get("name").asText());
+    }
+
+    @Test
+    public void genericResponseAndNamedVariables() throws Exception {
+        PreparedRequest<Map<String, Object>> prepared = PreparedRequest.builder(restTemplate, HttpMethod.GET,
+                echo.url("/get?id={id}")).build(new ParameterizedTypeReference<Map<String, Object>>() {
+        });
+        Map<String, Object> json = prepared.execute(Collections.singletonMap("id", 7));
+        assertEquals(Collections.singletonMap("id", "7"), json.get("args"));
+        assertEquals("/get?id=7", echo.takeRequest().getTarget());
+    }
+
+    @Test
+    public void valuesAreEncodedStrictly() throws Exception {
+        PreparedRequest<Void> prepared = PreparedRequest.builder(restTemplate, HttpMethod.GET,
+                echo.url("/anything/{path}?q={q}")).build(Void.class);
+        assertNull(prepared.execute("a/b", "x&y=z"));
+        assertEquals("/anything/a%2Fb?q=x%26y%3Dz", echo.takeRequest().getTarget());
+        assertFalse(prepared.getHeaders().containsKey(HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    public void errorsGoThroughRestTemplate() {
+        PreparedRequest<String> prepared = PreparedRequest.builder(restTemplate, HttpMethod.GET,
+                echo.url("/status/{code}")).build(String.class);
+        try {
+            prepared.execute(404);
+            fail();
+        } catch (HttpClientErrorException.NotFound e) {
+            // 与 getForObject 相同的异常
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingVariable() {
+        PreparedRequest.builder(restTemplate, HttpMethod.GET, echo.url("/get?id={id}")).build(String.class).execute();
+    }
+
+    private static void assertSameRequest(CapturedRequest expected, CapturedRequest actual) {
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertEquals(expected.getTarget(), actual.getTarget());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+        assertArrayEquals(expected.getBody(), actual.getBody());
+    }
+}
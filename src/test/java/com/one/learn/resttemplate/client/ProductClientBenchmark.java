@@ -0,0 +1,74 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.ResttemplateApplication;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 8 个线程通过 ProductClient 并发读取产品的吞吐量（请求/秒），比较连接池与 SimpleClientHttpRequestFactory。
+ * 服务在同一个 JVM 中以随机端口启动。
+ * <p>
+ * SimpleClientHttpRequestFactory 依赖 JDK 的 keep-alive 缓存，每个目标只保留 5 个空闲连接，
+ * 并发超过 5 时不断新建和关闭连接；连接池按目标保持 8 个连接一直复用。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductClientBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ProductClientBenchmark {
+    @Param({"simple", "pooled"})
+    public String factory;
+
+    private ConfigurableApplicationContext context;
+    private ProductClient client;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        if ("pooled".equals(factory)) {
+            client = new ProductClient(baseUrl, new ConnectionPoolSettings().setDefaultMaxPerRoute(8));
+        } else {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setConnectTimeout(2_000);
+            requestFactory.setReadTimeout(10_000);
+            client = new ProductClient(new RestTemplate(requestFactory), baseUrl);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Product get() {
+        return client.get(1);
+    }
+}
@@ -0,0 +1,188 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.bean.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ProductClientTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @LocalServerPort
+    int port;
+
+    ProductClient client;
+
+    @Before
+    public void setUp() {
+        client = new ProductClient("http://localhost:" + port, new ConnectionPoolSettings());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Test
+    public void crud() {
+        assertEquals("ProductA", client.getDefault().getName());
+
+        Product product = new Product(9001, "ProductX", new BigDecimal("12.50"));
+        assertEquals(product.toString(), client.save(product).toString());
+        assertEquals(product.toString(), client.get(9001).toString());
+
+        client.update(new Product(9001, "ProductY", new BigDecimal("13")));
+        assertEquals("ProductY", client.get(9001).getName());
+
+        List<Product> products = client.getAll(Arrays.asList(9001, 987654));
+        assertEquals("ProductY", products.get(0).getName());
+        assertNull(products.get(1));
+
+        assertTrue(client.delete(9001));
+        assertFalse(client.delete(9001));
+        assertNull(client.get(9001));
+    }
+
+    @Test
+    public void asyncGetAllKeepsRequestOrder() throws Exception {
+        try (AsyncRestExecutor executor = new AsyncRestExecutor(new AsyncClientSettings().setMaxConcurrentPerHost(4))) {
+            AsyncProductClient async = new AsyncProductClient(client, executor);
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 50; i > 0; i--) {
+                ids.add(i);
+            }
+            ids.add(987654);
+            List<Product> products = async.getAll(ids).get(10, TimeUnit.SECONDS);
+            assertEquals(ids.size(), products.size());
+            for (int i = 0; i < 50; i++) {
+                assertEquals(ids.get(i), products.get(i).getId());
+            }
+            assertNull(products.get(50));
+        }
+    }
+
+    @Test
+    public void concurrentGetsAreBatched() throws Exception {
+        MicroBatchInterceptor batching = new MicroBatchInterceptor(100, Duration.ofMillis(100));
+        RestTemplate restTemplate = RestTemplates.create();
+        restTemplate.setInterceptors(Collections.singletonList(batching));
+        ProductClient batched = new ProductClient(restTemplate, "http://localhost:" + port);
+        ExecutorService executor = Executors.newFixedThreadPool(40);
+        try {
+            List<Future<Product>> futures = new ArrayList<>();
+            for (int i = 1; i <= 40; i++) {
+                int id = i == 40 ? 987654 : i;
+                futures.add(executor.submit(() -> batched.get(id)));
+            }
+            for (int i = 0; i < 39; i++) {
+                assertEquals(client.get(i + 1).toString(), futures.get(i).get(10, TimeUnit.SECONDS).toString());
+            }
+            assertNull(futures.get(39).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(40, batching.getBatchedLookupCount());
+        assertTrue(batching.getBatchCount() <= 4);
+    }
+
+    /**
+     * 缓存放在批量合并前面：合并得到的响应带有 ETag，被缓存保存，之后的读取只验证
+     */
+    @Test
+    public void batchedReadsAreCached() throws Exception {
+        HttpCacheInterceptor cache = new HttpCacheInterceptor(1024 * 1024);
+        MicroBatchInterceptor batching = new MicroBatchInterceptor(100, Duration.ofMillis(100));
+        RestTemplate restTemplate = RestTemplates.create();
+        restTemplate.setInterceptors(Arrays.asList(cache, batching));
+        ProductClient cached = new ProductClient(restTemplate, "http://localhost:" + port);
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            List<Future<Product>> futures = new ArrayList<>();
+            for (int i = 1; i <= 20; i++) {
+                int id = 100 + i;
+                futures.add(executor.submit(() -> cached.get(id)));
+            }
+            for (Future<Product> future : futures) {
+                assertNotNull(future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(20, batching.getBatchedLookupCount());
+
+        for (int i = 1; i <= 20; i++) {
+            assertEquals(Integer.valueOf(100 + i), cached.get(100 + i).getId());
+        }
+        assertEquals(20, cache.getNotModifiedCount());
+        assertEquals(20, batching.getBatchedLookupCount());
+    }
+
+    @Test
+    public void cachedReadsRevalidateWithEtag() {
+        HttpCacheInterceptor cache = new HttpCacheInterceptor(1024 * 1024);
+        RestTemplate restTemplate = RestTemplates.create();
+        restTemplate.setInterceptors(Collections.singletonList(cache));
+        ProductClient cached = new ProductClient(restTemplate, "http://localhost:" + port);
+
+        client.save(new Product(9002, "ProductX", new BigDecimal("1")));
+        assertEquals("ProductX", cached.get(9002).getName());
+        assertEquals("ProductX", cached.get(9002).getName());
+        assertEquals(1, cache.getNotModifiedCount());
+
+        client.update(new Product(9002, "ProductY", new BigDecimal("2")));
+        assertEquals("ProductY", cached.get(9002).getName());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getRevalidationCount());
+        assertEquals(1, cache.getNotModifiedCount());
+        client.delete(9002);
+    }
+
+    @Test
+    public void downloadWritesToFile() throws IOException {
+        byte[] data = new byte[3 * 1024 * 1024 + 5];
+        new Random(3).nextBytes(data);
+        RestTemplates.createStreaming().postForObject(client.getBaseUrl() + "/product/upload",
+                new StreamingMultipartBody().part("file", "download-test.bin", new ByteArrayInputStream(data), data.length),
+                String.class);
+
+        Path target = folder.getRoot().toPath().resolve("downloaded.bin");
+        assertEquals(data.length, client.download("download-test.bin", target));
+        assertArrayEquals(data, Files.readAllBytes(target));
+        try {
+            client.download("no-such-file.bin", target);
+            fail("文件不存在时应当返回 404");
+        } catch (HttpClientErrorException.NotFound e) {
+            // 目标文件保持不变
+            assertArrayEquals(data, Files.readAllBytes(target));
+        }
+    }
+}
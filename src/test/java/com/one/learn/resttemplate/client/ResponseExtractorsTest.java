@@ -0,0 +1,114 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.util.ByteArrayPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class ResponseExtractorsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayPool pool = new ByteArrayPool(1024, 4);
+
+    @Test
+    public void toFileReplacesTarget() throws IOException {
+        byte[] data = randomBytes(100_000);
+        Path target = folder.getRoot().toPath().resolve("download.bin");
+        Files.write(target, new byte[]{1, 2, 3});
+
+        long written = ResponseExtractors.toFile(target, pool).extractData(response(data, data.length));
+
+        assertEquals(data.length, written);
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals("只有目标文件，没有残留的临时文件", 1, folder.getRoot().list().length);
+        assertEquals(1, pool.available());
+    }
+
+    @Test
+    public void toFileKeepsTargetWhenTruncated() throws IOException {
+        byte[] data = randomBytes(5000);
+        Path target = folder.getRoot().toPath().resolve("download.bin");
+        Files.write(target, new byte[]{1, 2, 3});
+        try {
+            // 声明的长度比实际收到的多，相当于连接提前断开
+            ResponseExtractors.toFile(target, pool).extractData(response(data, data.length + 1));
+            fail("响应体不完整，应当失败");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(String.valueOf(data.length + 1)));
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void processReusesOneBuffer() throws IOException {
+        byte[] data = randomBytes(10_000);
+        CRC32 crc32 = new CRC32();
+        long total = ResponseExtractors.process(crc32::update, pool).extractData(response(data, -1));
+
+        CRC32 expected = new CRC32();
+        expected.update(data);
+        assertEquals(data.length, total);
+        assertEquals(expected.getValue(), crc32.getValue());
+        assertEquals(1, pool.available());
+    }
+
+    @Test
+    public void withBodyStopsAtContentLength() throws IOException {
+        byte[] data = "{\"id\":1}trailing".getBytes();
+        String body = ResponseExtractors.withBody(1024, (in, headers) -> StreamUtils.copyToString(in, headers.getContentType().getCharset()))
+                .extractData(response(data, 8));
+        assertEquals("{\"id\":1}", body);
+    }
+
+    @Test
+    public void withBodyRejectsOversizedBody() throws IOException {
+        byte[] data = randomBytes(2000);
+        try {
+            ResponseExtractors.withBody(1000, (in, headers) -> StreamUtils.copyToByteArray(in)).extractData(response(data, -1));
+            fail("没有 Content-Length 时读到上限应当失败");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1000"));
+        }
+        try {
+            ResponseExtractors.withBody(1000, (in, headers) -> {
+                fail("Content-Length 超过上限时不应读取");
+                return null;
+            }).extractData(response(data, data.length));
+            fail("Content-Length 超过上限应当失败");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2000"));
+        }
+        // 恰好等于上限时正常读取
+        byte[] exact = ResponseExtractors.withBody(2000, (in, headers) -> StreamUtils.copyToByteArray(in))
+                .extractData(response(data, -1));
+        assertArrayEquals(data, exact);
+    }
+
+    private static MockClientHttpResponse response(byte[] data, long contentLength) {
+        MockClientHttpResponse response = new MockClientHttpResponse(data, HttpStatus.OK);
+        response.getHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+        if (contentLength >= 0) {
+            response.getHeaders().setContentLength(contentLength);
+        }
+        return response;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
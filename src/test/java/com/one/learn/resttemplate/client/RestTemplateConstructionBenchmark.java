@@ -0,0 +1,78 @@
+package com.one.learn.resttemplate.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建 RestTemplate 的开销，以及新建的 RestTemplate 发出第一个请求（读取 JSON 格式的 Product）的耗时：
+ * new RestTemplate() 每次新建转换器和 ObjectMapper，第一次读 Product 还要生成反序列化器；
+ * {@link RestTemplates#create()} 共用转换器。请求工厂直接返回预先准备好的响应，不包含网络。
+ * 运行：mvn -P benchmark test -Djmh.include=RestTemplateConstructionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestTemplateConstructionBenchmark {
+    private static final String URL = "http://localhost:8080/product/get_product2?id={id}";
+    private static final byte[] PRODUCT_JSON = "{\"id\":42,\"name\":\"ProductC\",\"price\":6666.0}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ClientHttpRequestFactory requestFactory;
+
+    @Setup
+    public void setup() {
+        // 没有 Spring Boot 的日志配置时 logback 默认输出 DEBUG，RestTemplate 每个请求都会打印几行日志
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        requestFactory = (uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            MockClientHttpResponse response = new MockClientHttpResponse(PRODUCT_JSON, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.setResponse(response);
+            return request;
+        };
+    }
+
+    @Benchmark
+    public RestTemplate create() {
+        return new RestTemplate(requestFactory);
+    }
+
+    @Benchmark
+    public RestTemplate createShared() {
+        return RestTemplates.create(requestFactory);
+    }
+
+    @Benchmark
+    public Product createAndFirstCall() {
+        return new RestTemplate(requestFactory).getForObject(URL, Product.class, 42);
+    }
+
+    @Benchmark
+    public Product createSharedAndFirstCall() {
+        return RestTemplates.create(requestFactory).getForObject(URL, Product.class, 42);
+    }
+}
@@ -0,0 +1,115 @@
+package com.one.learn.resttemplate.client;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RestTemplate 自身处理一次请求的开销：URI 模板展开、根据消息转换器生成 Accept、写请求体和读响应体。
+ * 请求工厂直接返回预先准备好的响应，不包含网络和服务端。*Prepared 为对应的 {@link PreparedRequest}。
+ * 运行：mvn -P benchmark test -Djmh.include=RestTemplateRequestBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestTemplateRequestBenchmark {
+    private static final String BASE = "http://localhost:8080/product";
+    private static final byte[] PRODUCT_JSON = "{\"id\":42,\"name\":\"ProductC\",\"price\":6666.0}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRODUCT_TEXT = "Product{id='42', name='ProductC', price='6666.0'}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private RestTemplate restTemplate;
+    private Product product;
+    private RequestEntity<Void> prepared;
+    private PreparedRequest<Product> preparedGet;
+    private PreparedRequest<String> preparedPost;
+
+    @Setup
+    public void setup() {
+        // 没有 Spring Boot 的日志配置时 logback 默认输出 DEBUG，RestTemplate 每个请求都会打印几行日志
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        restTemplate = new RestTemplate((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            boolean json = uri.getPath().endsWith("get_product2");
+            MockClientHttpResponse response = new MockClientHttpResponse(json ? PRODUCT_JSON : PRODUCT_TEXT, HttpStatus.OK);
+            response.getHeaders().setContentType(json ? MediaType.APPLICATION_JSON : MediaType.TEXT_PLAIN);
+            request.setResponse(response);
+            return request;
+        });
+        product = new Product(42, "ProductC", new BigDecimal("6666.0"));
+        prepared = RequestEntity.get(URI.create(BASE + "/get_product2?id=42")).accept(MediaType.APPLICATION_JSON).build();
+        preparedGet = PreparedRequest.builder(restTemplate, HttpMethod.GET, BASE + "/get_product2?id={id}")
+                .build(Product.class);
+        preparedPost = PreparedRequest.builder(restTemplate, HttpMethod.POST, BASE + "/post_product2")
+                .body(Product.class, null)
+                .build(String.class);
+    }
+
+    @Benchmark
+    public Product getWithUriTemplate() {
+        return restTemplate.getForObject(BASE + "/get_product2?id={id}", Product.class, 42);
+    }
+
+    @Benchmark
+    public Product getWithRequestEntity() {
+        return restTemplate.exchange(prepared, Product.class).getBody();
+    }
+
+    @Benchmark
+    public Product getPrepared() {
+        return preparedGet.execute(42);
+    }
+
+    @Benchmark
+    public String postJson() {
+        return restTemplate.postForObject(BASE + "/post_product2", product, String.class);
+    }
+
+    @Benchmark
+    public String postJsonPrepared() {
+        return preparedPost.executeWithBody(product);
+    }
+
+    @Benchmark
+    public String postForm() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("id", "42");
+        form.add("name", "ProductC");
+        form.add("price", "6666.0");
+        return restTemplate.postForObject(BASE + "/post_product1",
+                new HttpEntity<>(form, headers), String.class);
+    }
+}
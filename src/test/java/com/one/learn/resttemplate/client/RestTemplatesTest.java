@@ -0,0 +1,45 @@
+package com.one.learn.resttemplate.client;
+
+import org.junit.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RestTemplatesTest {
+
+    @Test
+    public void sameConvertersAsDefault() {
+        List<HttpMessageConverter<?>> expected = new RestTemplate().getMessageConverters();
+        List<HttpMessageConverter<?>> actual = RestTemplates.create().getMessageConverters();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(expected.get(i).getSupportedMediaTypes(), actual.get(i).getSupportedMediaTypes());
+        }
+    }
+
+    @Test
+    public void instancesShareConverters() {
+        RestTemplate first = RestTemplates.create();
+        RestTemplate second = RestTemplates.create();
+        assertNotSame(first.getMessageConverters(), second.getMessageConverters());
+        for (int i = 0; i < first.getMessageConverters().size(); i++) {
+            assertSame(first.getMessageConverters().get(i), second.getMessageConverters().get(i));
+        }
+        MappingJackson2HttpMessageConverter json = RestTemplates.findJsonConverter(first.getMessageConverters());
+        assertSame(RestTemplates.objectMapper(), json.getObjectMapper());
+
+        // 修改一个实例的转换器列表不影响其它实例
+        first.getMessageConverters().clear();
+        assertEquals(RestTemplates.messageConverters().size(), second.getMessageConverters().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedListIsUnmodifiable() {
+        RestTemplates.messageConverters().clear();
+    }
+}
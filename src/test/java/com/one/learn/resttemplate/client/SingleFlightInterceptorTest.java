@@ -0,0 +1,195 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.bean.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightInterceptorTest {
+    private static final String URL = "http://localhost/product/get_product2?id={id}";
+    private static final int THREADS = 64;
+
+    private SingleFlightInterceptor singleFlight = new SingleFlightInterceptor();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private volatile HttpStatus status = HttpStatus.OK;
+    private volatile boolean timeout;
+    /**
+     * 上游请求返回前要等到的合并请求数
+     */
+    private volatile int expectedCoalesced = THREADS - 1;
+    private RestTemplate restTemplate;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        // 上游请求一直等到其余线程都合并进来才返回，保证这些请求确实是并发的
+        restTemplate = RestTemplates.create((uri, method) -> new MockClientHttpRequest(method, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() throws IOException {
+                upstreamCalls.incrementAndGet();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (singleFlight.getCoalescedCount() < expectedCoalesced && System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+                if (timeout) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                // 带凭据时返回该用户自己的数据
+                String user = getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+                String name = user != null ? user : "ProductC";
+                byte[] body = ("{\"id\":7,\"name\":\"" + name + "\",\"price\":6666.0}").getBytes(StandardCharsets.UTF_8);
+                MockClientHttpResponse response = new MockClientHttpResponse(body, status);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return response;
+            }
+        });
+        restTemplate.setInterceptors(Collections.singletonList(singleFlight));
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<Future<Product>> concurrentGets() {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<Product>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return restTemplate.getForObject(URL, Product.class, 7);
+            }));
+        }
+        return results;
+    }
+
+    @Test
+    public void concurrentIdenticalGetsShareOneRequest() throws Exception {
+        for (Future<Product> result : concurrentGets()) {
+            assertEquals("Product{id='7', name='ProductC', price='6666.0'}", result.get(10, TimeUnit.SECONDS).toString());
+        }
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, singleFlight.getUpstreamCount());
+        assertEquals(THREADS - 1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+
+        // 完成后的请求重新发出
+        restTemplate.getForObject(URL, Product.class, 7);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    public void errorStatusIsSharedAndHandledPerCaller() throws Exception {
+        status = HttpStatus.NOT_FOUND;
+        for (Future<Product> result : concurrentGets()) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof HttpClientErrorException.NotFound);
+            }
+        }
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    public void failureIsSharedByWaiters() throws Exception {
+        timeout = true;
+        for (Future<Product> result : concurrentGets()) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ResourceAccessException);
+                assertTrue(e.getCause().getMessage().contains("Read timed out"));
+            }
+        }
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void differentKeyHeadersAreNotCoalesced() throws Exception {
+        expectedCoalesced = THREADS - 2;
+        HttpHeaders smile = new HttpHeaders();
+        smile.set(HttpHeaders.ACCEPT, "application/x-jackson-smile");
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean json = i % 2 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                if (json) {
+                    return restTemplate.getForObject(URL, String.class, 7);
+                }
+                return restTemplate.exchange(URL, HttpMethod.GET, new HttpEntity<>(smile), String.class, 7);
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(20, TimeUnit.SECONDS);
+        }
+        // 两组请求各自合并，但两组之间不合并
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(THREADS - 2, singleFlight.getCoalescedCount());
+    }
+
+    /**
+     * 凭据不同的请求不会合并，每个用户只拿到自己的响应；只指定 Accept 作为区分首部时也是如此
+     */
+    @Test
+    public void differentCredentialsAreNotCoalesced() throws Exception {
+        assertCredentialsSeparated();
+
+        singleFlight = new SingleFlightInterceptor(HttpHeaders.ACCEPT);
+        restTemplate.setInterceptors(Collections.singletonList(singleFlight));
+        upstreamCalls.set(0);
+        assertCredentialsSeparated();
+    }
+
+    private void assertCredentialsSeparated() throws Exception {
+        expectedCoalesced = THREADS - 2;
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<Product>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.AUTHORIZATION, i % 2 == 0 ? "alice" : "bob");
+            results.add(executor.submit(() -> {
+                start.await();
+                return restTemplate.exchange(URL, HttpMethod.GET, new HttpEntity<>(headers), Product.class, 7).getBody();
+            }));
+        }
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(i % 2 == 0 ? "alice" : "bob", results.get(i).get(20, TimeUnit.SECONDS).getName());
+        }
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(THREADS - 2, singleFlight.getCoalescedCount());
+    }
+}
@@ -0,0 +1,132 @@
+package com.one.learn.resttemplate.client;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.controller.ProductFormat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class SmileRestTemplatesTest {
+    private static final MediaType SMILE = MediaType.valueOf(ProductFormat.SMILE_VALUE);
+
+    @LocalServerPort
+    int port;
+
+    RestTemplate smile = SmileRestTemplates.create();
+    RestTemplate json = new RestTemplate();
+
+    @Test
+    public void negotiatesSmileForSingleProduct() {
+        String url = "http://localhost:" + port + "/product/get_product2?id={id}";
+        ResponseEntity<Product> smileResponse = smile.getForEntity(url, Product.class, 7);
+        assertEquals(SMILE, smileResponse.getHeaders().getContentType());
+        assertEquals("Product{id='7', name='ProductC', price='6666.0'}", smileResponse.getBody().toString());
+
+        ResponseEntity<Product> jsonResponse = json.getForEntity(url, Product.class, 7);
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(jsonResponse.getHeaders().getContentType()));
+        assertNotEquals("不同表示的 ETag 不同",
+                smileResponse.getHeaders().getETag(), jsonResponse.getHeaders().getETag());
+    }
+
+    @Test
+    public void smileRequestAndResponseBodies() {
+        String base = "http://localhost:" + port + "/product";
+        Product[] products = smile.postForObject(base + "/batch", Arrays.asList(1, -1, 2), Product[].class);
+        assertEquals(3, products.length);
+        assertNull(products[1]);
+        assertEquals(Integer.valueOf(2), products[2].getId());
+
+        String text = smile.postForObject(base + "/post_product2",
+                new Product(1, "ProductS", new BigDecimal("1.5")), String.class);
+        assertEquals("Product{id='1', name='ProductS', price='1.5'}", text);
+    }
+
+    /**
+     * get_product3、post_product1、post_product2 返回 CompactProduct，Smile 表示必须与 Product 相同
+     */
+    @Test
+    public void smileForCompactProductEndpoints() {
+        String base = "http://localhost:" + port + "/product";
+        ResponseEntity<Product> get = smile.getForEntity(base + "/get_product3?id=3&name=P3&price=1.25", Product.class);
+        assertEquals(SMILE, get.getHeaders().getContentType());
+        assertEquals("Product{id='3', name='P3', price='1.25'}", get.getBody().toString());
+
+        Product noId = smile.getForObject(base + "/get_product3?name=P", Product.class);
+        assertNull("缺少的 id 仍是 null，不是 0", noId.getId());
+        assertNull(noId.getPrice());
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("name", "P1");
+        form.add("price", "123456789012345678901234567890.5");
+        Product posted = smile.postForObject(base + "/post_product1", form, Product.class);
+        assertEquals(new BigDecimal("123456789012345678901234567890.5"), posted.getPrice());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(SMILE));
+        ResponseEntity<Product> json2 = json.exchange(base + "/post_product2", HttpMethod.POST,
+                new HttpEntity<>(new Product(null, "P2", new BigDecimal("2.50")), headers), Product.class);
+        assertEquals(SMILE, json2.getHeaders().getContentType());
+        assertEquals("Product{id='null', name='P2', price='2.50'}", json2.getBody().toString());
+    }
+
+    @Test
+    public void smileStream() {
+        ObjectMapper mapper = SmileRestTemplates.smileObjectMapper();
+        List<Product> products = smile.execute("http://localhost:" + port + "/product/stream?from=10&to=14",
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(Arrays.asList(SMILE)),
+                response -> {
+                    assertEquals(SMILE, response.getHeaders().getContentType());
+                    List<Product> result = new ArrayList<>();
+                    try (MappingIterator<Product> iterator = mapper.readerFor(Product.class)
+                            .readValues(response.getBody())) {
+                        iterator.forEachRemaining(result::add);
+                    }
+                    return result;
+                });
+        assertEquals(5, products.size());
+        assertEquals(Integer.valueOf(14), products.get(4).getId());
+    }
+
+    @Test
+    public void smileBulk() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(SMILE);
+        List<Product> products = Arrays.asList(
+                new Product(2001, "Bulk", BigDecimal.ONE), new Product(2002, "Bulk", BigDecimal.TEN));
+        String result = json.postForObject("http://localhost:" + port + "/product/bulk",
+                new HttpEntity<>(toSmile(products), headers), String.class);
+        assertTrue(result, result.contains("\"total\":2"));
+        assertEquals("Bulk", smile.getForObject("http://localhost:" + port + "/product/get_product2?id=2002",
+                Product.class).getName());
+    }
+
+    private static byte[] toSmile(Object value) {
+        try {
+            return SmileRestTemplates.smileObjectMapper().writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.upload.MultipartStreamReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class StreamingMultipartHttpMessageConverterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final StreamingMultipartHttpMessageConverter converter = new StreamingMultipartHttpMessageConverter(1024);
+
+    @Test
+    public void writesPartsWithContentLength() throws IOException {
+        byte[] data = randomBytes(10_000);
+        byte[] channelData = randomBytes(3000);
+        Path file = folder.newFile("product.json").toPath();
+        Files.write(file, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .field("comment", "中文说明")
+                .part("file", "data.bin", new ByteArrayInputStream(data), data.length)
+                .part("channel", "中文文件名.txt", Channels.newChannel(new ByteArrayInputStream(channelData)), channelData.length)
+                .file("json", file);
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        assertTrue(converter.canWrite(StreamingMultipartBody.class, null));
+        converter.write(body, null, message);
+
+        assertEquals(message.getBodyAsBytes().length, message.getHeaders().getContentLength());
+        MultipartStreamReader reader = reader(message);
+        MultipartStreamReader.Part part = reader.nextPart();
+        assertEquals("comment", part.getName());
+        assertNull(part.getFilename());
+        assertEquals("中文说明", StreamUtils.copyToString(part.getBody(), StandardCharsets.UTF_8));
+
+        part = reader.nextPart();
+        assertEquals("file", part.getName());
+        assertEquals("data.bin", part.getFilename());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, part.getHeaders().getContentType());
+        assertArrayEquals(data, StreamUtils.copyToByteArray(part.getBody()));
+
+        part = reader.nextPart();
+        assertEquals("中文文件名.txt", part.getFilename());
+        assertEquals(MediaType.TEXT_PLAIN, part.getHeaders().getContentType());
+        assertArrayEquals(channelData, StreamUtils.copyToByteArray(part.getBody()));
+
+        part = reader.nextPart();
+        assertEquals("product.json", part.getFilename());
+        assertEquals(MediaType.APPLICATION_JSON, part.getHeaders().getContentType());
+        assertEquals("{\"id\":1}", StreamUtils.copyToString(part.getBody(), StandardCharsets.UTF_8));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    public void unknownLengthOmitsContentLength() throws IOException {
+        byte[] data = randomBytes(5000);
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .part("file", "data.bin", new ByteArrayInputStream(data), -1);
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, MediaType.MULTIPART_FORM_DATA, message);
+
+        assertEquals(-1, message.getHeaders().getContentLength());
+        MultipartStreamReader.Part part = reader(message).nextPart();
+        assertArrayEquals(data, StreamUtils.copyToByteArray(part.getBody()));
+    }
+
+    @Test
+    public void reportsProgress() throws IOException {
+        byte[] data = randomBytes(100_000);
+        List<UploadProgress> reports = new ArrayList<>();
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .part("file", "data.bin", new ByteArrayInputStream(data), data.length)
+                .onProgress(reports::add, 10_000);
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, null, message);
+
+        long total = message.getBodyAsBytes().length;
+        assertEquals(total / 10_000 + 1, reports.size());
+        for (int i = 0; i < reports.size() - 1; i++) {
+            assertFalse(reports.get(i).isDone());
+            assertTrue(reports.get(i).getBytesWritten() < reports.get(i + 1).getBytesWritten());
+        }
+        UploadProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.isDone());
+        assertEquals(total, last.getBytesWritten());
+        assertEquals(total, last.getTotalBytes());
+        assertEquals(1.0, last.getFraction(), 0);
+    }
+
+    @Test
+    public void shortSourceFailsAndClosesSources() throws IOException {
+        AtomicBoolean firstClosed = new AtomicBoolean();
+        AtomicBoolean secondClosed = new AtomicBoolean();
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .part("file", "a.bin", closeTracking(new byte[100], firstClosed), 200)
+                .part("file", "b.bin", closeTracking(new byte[100], secondClosed), 100);
+
+        try {
+            converter.write(body, null, new MockHttpOutputMessage());
+            fail("数据源比声明的长度短，应当失败");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("200"));
+        }
+        assertTrue(firstClosed.get());
+        // 没有读到的数据源也要关闭
+        assertTrue(secondClosed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void filePartRequiresFilename() {
+        new StreamingMultipartBody().part("file", null, new ByteArrayInputStream(new byte[0]), 0);
+    }
+
+    private static MultipartStreamReader reader(MockHttpOutputMessage message) {
+        String boundary = MultipartStreamReader.boundaryOf(message.getHeaders().getContentType().toString());
+        return new MultipartStreamReader(new ByteArrayInputStream(message.getBodyAsBytes()), boundary, 4096);
+    }
+
+    private static InputStream closeTracking(byte[] data, AtomicBoolean closed) {
+        return new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
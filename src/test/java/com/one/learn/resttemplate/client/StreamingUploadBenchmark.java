@@ -0,0 +1,94 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.ResttemplateApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向 /product/upload 上传磁盘上的文件：默认 RestTemplate 的 FileSystemResource（请求体整个缓冲在内存中再发送）
+ * 与 {@link StreamingMultipartBody}（不缓冲，定长模式边读边发）。
+ * 服务在同一个 JVM 中以随机端口启动。
+ * 运行：mvn -P benchmark test -Djmh.include=StreamingUploadBenchmark；
+ * 每次上传分配的内存（包括服务端的分配）需要直接运行 org.openjdk.jmh.Main StreamingUploadBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingUploadBenchmark {
+    @Param({"1048576", "67108864"})
+    public int fileSize;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private Path file;
+    private String url;
+    private RestTemplate buffering;
+    private RestTemplate streaming;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("streaming-upload-benchmark");
+        context = new SpringApplicationBuilder(ResttemplateApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "product.upload.dir=" + directory.resolve("uploaded"))
+                .run();
+        url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/product/upload";
+        file = directory.resolve("product.bin");
+        byte[] block = new byte[64 * 1024];
+        new Random(1).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (int written = 0; written < fileSize; written += block.length) {
+                channel.write(ByteBuffer.wrap(block, 0, Math.min(block.length, fileSize - written)));
+            }
+        }
+        buffering = RestTemplates.create();
+        streaming = RestTemplates.createStreaming();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String bufferedResource() {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("file", new FileSystemResource(file));
+        return buffering.postForObject(url, parts, String.class);
+    }
+
+    @Benchmark
+    public String streamingBody() throws IOException {
+        return streaming.postForObject(url, new StreamingMultipartBody().file("file", file), String.class);
+    }
+}
@@ -0,0 +1,162 @@
+package com.one.learn.resttemplate.client;
+
+import com.one.learn.resttemplate.upload.UploadStorage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用 {@link StreamingMultipartBody} 向 /product/upload 上传超过 multipart 默认上限（1MB）的文件，
+ * 数据源边生成边发送，不在客户端内存中保存
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "product.upload.dir=${java.io.tmpdir}/streaming-upload-test")
+public class StreamingUploadTest {
+    private static final long SIZE = 24L * 1024 * 1024 + 7;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    UploadStorage uploadStorage;
+
+    @Test
+    public void fixedLengthUpload() throws IOException {
+        List<UploadProgress> reports = new ArrayList<>();
+        StreamingMultipartBody body = new StreamingMultipartBody()
+                .field("comment", "streaming")
+                .part("file", "fixed.bin", new PatternInputStream(SIZE), SIZE)
+                .onProgress(reports::add, 4 * 1024 * 1024);
+
+        String result = RestTemplates.createStreaming()
+                .postForObject("http://localhost:" + port + "/product/upload", body, String.class);
+
+        assertEquals("upload success filename: fixed.bin", result);
+        assertStored("fixed.bin");
+        UploadProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.isDone());
+        assertEquals(last.getTotalBytes(), last.getBytesWritten());
+        assertTrue(last.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void chunkedUploadWithHttpComponents() throws Exception {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        RestTemplate restTemplate = RestTemplates.createStreaming(requestFactory);
+        try (ReadableByteChannel channel = new PatternInputStream(SIZE).channel()) {
+            // 长度未知，使用 chunked
+            StreamingMultipartBody body = new StreamingMultipartBody().part("file", "chunked.bin", channel, -1);
+            String result = restTemplate.postForObject("http://localhost:" + port + "/product/upload", body, String.class);
+            assertEquals("upload success filename: chunked.bin", result);
+        } finally {
+            requestFactory.destroy();
+        }
+        assertStored("chunked.bin");
+    }
+
+    /**
+     * 大的上限只对 /product/upload 生效，其它路径仍是默认的 1MB：
+     * 超过上限的 multipart 请求体不被解析，其中的参数也就取不到
+     */
+    @Test
+    public void otherPathsKeepDefaultLimit() throws IOException {
+        String url = "http://localhost:" + port + "/product/post_product1";
+        StreamingMultipartBody small = new StreamingMultipartBody()
+                .field("name", "ProductC")
+                .part("file", "small.bin", new PatternInputStream(1024), 1024);
+        assertEquals("Product{id='null', name='ProductC', price='null'}",
+                RestTemplates.createStreaming().postForObject(url, small, String.class));
+
+        long size = 2L * 1024 * 1024;
+        StreamingMultipartBody large = new StreamingMultipartBody()
+                .field("name", "ProductC")
+                .part("file", "large.bin", new PatternInputStream(size), size);
+        assertEquals("Product{id='null', name='null', price='null'}",
+                RestTemplates.createStreaming().postForObject(url, large, String.class));
+    }
+
+    private void assertStored(String filename) throws IOException {
+        Path stored = uploadStorage.resolve(filename);
+        CRC32 actual = new CRC32();
+        long size = 0;
+        try (InputStream in = Channels.newInputStream(FileChannel.open(stored, StandardOpenOption.READ))) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                actual.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        assertEquals(SIZE, size);
+        assertEquals(PatternInputStream.crc32(SIZE), actual.getValue());
+    }
+
+    /**
+     * 按位置生成内容的输入流，不占用与长度相当的内存
+     */
+    static final class PatternInputStream extends InputStream {
+        private final long size;
+        private long position;
+
+        PatternInputStream(long size) {
+            this.size = size;
+        }
+
+        static byte at(long position) {
+            return (byte) (position * 31 + (position >>> 11));
+        }
+
+        static long crc32(long size) throws IOException {
+            CRC32 crc32 = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            try (PatternInputStream in = new PatternInputStream(size)) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    crc32.update(buffer, 0, n);
+                }
+            }
+            return crc32.getValue();
+        }
+
+        ReadableByteChannel channel() {
+            return Channels.newChannel(this);
+        }
+
+        @Override
+        public int read() {
+            return position < size ? at(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= size) {
+                return -1;
+            }
+            int n = (int) Math.min(len, size - position);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = at(position++);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.one.learn.resttemplate.compression;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.RestTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩级别与 /product/batch 响应大小的关系：每组参数在 Setup 中打印原始字节数和压缩后的字节数（线上传输的字节），
+ * 基准测量压缩（服务端）和解压（客户端）一次所用的 CPU 时间。
+ * 产品的 id、名称、价格各不相同，比全部相同的产品更接近真实数据，压缩率也更保守。
+ * 运行：mvn -P benchmark test -Djmh.include=CompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"10", "100", "1000"})
+    public int products;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private byte[] json;
+    private byte[] compressed;
+    private final CountingOutputStream sink = new CountingOutputStream();
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws IOException {
+        List<Product> list = new ArrayList<>();
+        for (int i = 1; i <= products; i++) {
+            list.add(new Product(i, "Product" + i, BigDecimal.valueOf(i * 37L, 2)));
+        }
+        json = RestTemplates.objectMapper().writeValueAsBytes(list);
+        compressed = gzip();
+        System.out.printf("%nproducts=%d level=%d  %,d -> %,d bytes (%.1fx)%n",
+                products, level, json.length, compressed.length, (double) json.length / compressed.length);
+    }
+
+    private byte[] gzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = ContentCoding.GZIP.encode(bytes, level, false)) {
+            out.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        sink.count = 0;
+        try (OutputStream out = ContentCoding.GZIP.encode(sink, level, false)) {
+            out.write(json);
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        long total = 0;
+        try (InputStream in = ContentCoding.GZIP.decode(new ByteArrayInputStream(compressed))) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 只统计字节数，排除复制到 ByteArrayOutputStream 的开销
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
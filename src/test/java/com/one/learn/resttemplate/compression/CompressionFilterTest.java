@@ -0,0 +1,216 @@
+package com.one.learn.resttemplate.compression;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.CompressionInterceptor;
+import com.one.learn.resttemplate.client.RestTemplates;
+import com.one.learn.resttemplate.upload.FileSender;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 通过 HttpURLConnection 访问：它不会自己发送 Accept-Encoding，也不会自动解压，看到的就是线上的字节
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "product.compression.max-request-size=65536")
+public class CompressionFilterTest {
+    private static final ParameterizedTypeReference<List<Product>> PRODUCT_LIST =
+            new ParameterizedTypeReference<List<Product>>() {
+            };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @LocalServerPort
+    int port;
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private static List<Integer> ids(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    /**
+     * 原样取回响应：首部和未解压的响应体
+     */
+    private static final class RawResponse {
+        HttpHeaders headers;
+        byte[] body;
+    }
+
+    private RawResponse getRaw(String path, String acceptEncoding) {
+        RawResponse raw = new RawResponse();
+        RestTemplates.create().execute(url(path), HttpMethod.GET,
+                request -> {
+                    if (acceptEncoding != null) {
+                        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+                    }
+                },
+                response -> {
+                    raw.headers = response.getHeaders();
+                    raw.body = StreamUtils.copyToByteArray(response.getBody());
+                    return null;
+                });
+        return raw;
+    }
+
+    @Test
+    public void batchCompressedOnlyWhenAccepted() throws IOException {
+        String path = "/product/batch?ids=" + String.join(",", Collections.nCopies(200, "1"));
+        RawResponse plain = getRaw(path, null);
+        RawResponse gzip = getRaw(path, "gzip, deflate");
+
+        assertNull(plain.headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzip.headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzip.headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertTrue(gzip.headers.getVary().contains(HttpHeaders.ACCEPT));
+        assertTrue("压缩后 " + gzip.body.length + " 字节，原来 " + plain.body.length, gzip.body.length * 8 < plain.body.length);
+        try (InputStream in = ContentCoding.GZIP.decode(new ByteArrayInputStream(gzip.body))) {
+            assertArrayEquals(plain.body, StreamUtils.copyToByteArray(in));
+        }
+    }
+
+    @Test
+    public void deflateWhenPreferred() {
+        RawResponse deflate = getRaw("/product/batch?ids=" + String.join(",", Collections.nCopies(200, "1")),
+                "gzip;q=0.5, deflate");
+        assertEquals("deflate", deflate.headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void smallResponseSentAsIs() {
+        RawResponse small = getRaw("/product/get_product2?id=1", "gzip");
+        assertNull(small.headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(small.body.length, small.headers.getContentLength());
+        assertFalse("没有压缩时 ETag 仍是强 ETag", small.headers.getETag().startsWith("W/"));
+    }
+
+    @Test
+    public void streamNotCompressed() {
+        RawResponse stream = getRaw("/product/stream?limit=200", "gzip");
+        assertNull(stream.headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(200, new String(stream.body, StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    @Test
+    public void interceptorRoundTrip() {
+        CompressionInterceptor compression = new CompressionInterceptor(6, 256);
+        RestTemplate restTemplate = RestTemplates.create();
+        restTemplate.setInterceptors(Collections.singletonList(compression));
+
+        List<Integer> ids = ids(500);
+        List<Product> products = restTemplate.exchange(url("/product/batch"), HttpMethod.POST,
+                new HttpEntity<>(ids), PRODUCT_LIST).getBody();
+
+        assertEquals(ids.size(), products.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(ids.get(i), products.get(i).getId());
+        }
+        assertEquals("gzip 请求体由服务端解压", 1, compression.getCompressedRequestCount());
+        assertEquals(1, compression.getDecompressedResponseCount());
+    }
+
+    @Test
+    public void unsupportedContentEncodingRejected() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpHeaders.CONTENT_ENCODING, "br");
+        try {
+            RestTemplates.create().postForObject(url("/product/batch"), new HttpEntity<>("[1]", headers), String.class);
+            fail();
+        } catch (HttpClientErrorException e) {
+            assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getStatusCode());
+            assertEquals("gzip, deflate", e.getResponseHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        }
+    }
+
+    /**
+     * 没有 sendfile 时文件由 FileSender 写入响应流，带 Accept-Ranges 的响应不压缩，保持强 ETag，If-Range 续传才能匹配
+     */
+    @Test
+    public void rangeCapableResponseSentAsIs() throws Exception {
+        Path file = folder.newFile("download.txt").toPath();
+        byte[] content = String.join("\n", Collections.nCopies(500, "0123456789")).getBytes(StandardCharsets.US_ASCII);
+        Files.write(file, content);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/download/download.txt");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new CompressionFilter(6, 1024, 65536).doFilter(request, response,
+                (req, res) -> FileSender.send(file, (HttpServletRequest) req, (HttpServletResponse) res));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(response.getHeader(HttpHeaders.ETAG).startsWith("W/"));
+        assertEquals(content.length, response.getContentLengthLong());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = ContentCoding.GZIP.encode(bytes, 9, false)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void postGzip(HttpMethod method, String path, MediaType contentType, String body) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try {
+            RestTemplates.create().exchange(url(path), method, new HttpEntity<>(gzip(body), headers), String.class);
+            fail();
+        } catch (HttpClientErrorException e) {
+            assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+        }
+    }
+
+    /**
+     * 压缩后只有几百字节、解压后超过 product.compression.max-request-size 的请求体
+     */
+    @Test
+    public void decompressedRequestTooLarge() throws IOException {
+        String ids = "[" + String.join(",", Collections.nCopies(40_000, "1")) + "]";
+        postGzip(HttpMethod.POST, "/product/batch", MediaType.APPLICATION_JSON, ids);
+        // PUT 的表单请求体在 DispatcherServlet 之前由 FormContentFilter 读取
+        postGzip(HttpMethod.PUT, "/product/update", MediaType.APPLICATION_FORM_URLENCODED,
+                "id=1&name=" + String.join("", Collections.nCopies(70_000, "a")));
+    }
+}
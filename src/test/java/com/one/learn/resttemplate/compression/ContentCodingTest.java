@@ -0,0 +1,106 @@
+package com.one.learn.resttemplate.compression;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ContentCodingTest {
+    private static final byte[] JSON = repeat("{\"id\":1,\"name\":\"ProductC\",\"price\":6666.0},", 200);
+
+    private static byte[] repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(ContentCoding coding, byte[] data, int level) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = coding.encode(bytes, level, false)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decode(ContentCoding coding, byte[] data) throws IOException {
+        try (InputStream in = coding.decode(new ByteArrayInputStream(data))) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        for (ContentCoding coding : ContentCoding.values()) {
+            byte[] compressed = encode(coding, JSON, 6);
+            assertTrue(coding + " 应该明显变小", compressed.length * 8 < JSON.length);
+            assertArrayEquals(JSON, decode(coding, compressed));
+        }
+        byte[] gzip = encode(ContentCoding.GZIP, JSON, 1);
+        assertEquals(0x1f, gzip[0] & 0xff);
+        assertEquals(0x8b, gzip[1] & 0xff);
+    }
+
+    @Test
+    public void emptyBodyDecodesToNothing() throws IOException {
+        for (ContentCoding coding : ContentCoding.values()) {
+            assertEquals(0, decode(coding, new byte[0]).length);
+        }
+    }
+
+    @Test
+    public void rawDeflateAccepted() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(6, true);
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(JSON);
+        } finally {
+            deflater.end();
+        }
+        assertArrayEquals(JSON, decode(ContentCoding.DEFLATE, bytes.toByteArray()));
+    }
+
+    @Test
+    public void forName() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.forName(" x-gzip"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.forName("Deflate"));
+        assertNull(ContentCoding.forName("identity"));
+        assertNull(ContentCoding.forName("br"));
+        assertNull(ContentCoding.forName(null));
+    }
+
+    @Test
+    public void negotiate() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate(Collections.singletonList("gzip, deflate, br")));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate(Collections.singletonList("gzip;q=0.5, deflate")));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate(Arrays.asList("br", "deflate")));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate(Collections.singletonList("*")));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate(Collections.singletonList("*, gzip;q=0")));
+        assertNull(ContentCoding.negotiate(Collections.singletonList("identity")));
+        assertNull(ContentCoding.negotiate(Collections.emptyList()));
+    }
+
+    @Test
+    public void compressibleTypes() {
+        assertTrue(ContentCoding.isCompressible(MediaType.APPLICATION_JSON));
+        assertTrue(ContentCoding.isCompressible(MediaType.APPLICATION_NDJSON));
+        assertTrue(ContentCoding.isCompressible(MediaType.TEXT_PLAIN));
+        assertTrue(ContentCoding.isCompressible(MediaType.APPLICATION_PROBLEM_JSON));
+        assertFalse(ContentCoding.isCompressible(MediaType.APPLICATION_OCTET_STREAM));
+        assertFalse(ContentCoding.isCompressible(MediaType.parseMediaType("application/x-jackson-smile")));
+        assertFalse(ContentCoding.isCompressible(null));
+    }
+}
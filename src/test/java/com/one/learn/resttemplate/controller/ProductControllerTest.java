@@ -0,0 +1,287 @@
+package com.one.learn.resttemplate.controller;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.repository.ProductRepository;
+import com.one.learn.resttemplate.upload.UploadStorage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ProductController 的接口测试，经过与运行时相同的过滤器和消息转换器。
+ * 各个测试共用同一个仓库，修改数据时使用各自的 id
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProductControllerTest {
+    private static final String WIDE_PRICE = "123456789012345678901234567890";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UploadStorage uploadStorage;
+
+    /**
+     * 未缩放值超出 long 的价格照常保存和返回，不能在保存之后才失败
+     */
+    @Test
+    public void outOfRangePrice() throws Exception {
+        mockMvc.perform(get("/product/get_product3?id=5000&name=Wide&price=" + WIDE_PRICE))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product{id='5000', name='Wide', price='" + WIDE_PRICE + "'}"));
+
+        mockMvc.perform(post("/product/post_product1").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .content("id=5001&name=Wide&price=" + WIDE_PRICE))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product{id='5001', name='Wide', price='" + WIDE_PRICE + "'}"));
+        assertEquals(new BigDecimal(WIDE_PRICE), productRepository.findById(5001).getPrice());
+
+        mockMvc.perform(post("/product/post_product2").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":5002,\"name\":\"Wide\",\"price\":" + WIDE_PRICE + ".5}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product{id='5002', name='Wide', price='" + WIDE_PRICE + ".5'}"));
+
+        mockMvc.perform(put("/product/update").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .content("id=5003&name=Wide&price=-" + WIDE_PRICE))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product{id='5003', name='Wide', price='-" + WIDE_PRICE + "'} 更新成功"));
+        Product updated = productRepository.findById(5003);
+        assertEquals(new BigDecimal("-" + WIDE_PRICE), updated.getPrice());
+    }
+
+    /**
+     * PUT 的表单请求体已由 FormContentFilter 解析，ack 和产品参数都从请求体中取到
+     */
+    @Test
+    public void ackInPutBody() throws Exception {
+        mockMvc.perform(put("/product/update").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .content("id=5004&name=Async&price=1.5&ack=NONE"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().string("Product{id='5004', name='Async', price='1.5'} 更新请求已受理"));
+
+        mockMvc.perform(put("/product/update").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .content("id=5005&name=Mixed&price=2&ack=DURABLE"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product{id='5005', name='Mixed', price='2'} 更新成功"));
+        assertEquals("Mixed", productRepository.findById(5005).getName());
+    }
+
+    private static String product(int id) {
+        return "{\"id\":" + id + ",\"name\":\"Bulk" + id + "\",\"price\":1.5}";
+    }
+
+    @Test
+    public void bulkArray() throws Exception {
+        mockMvc.perform(post("/product/bulk?batchSize=2").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + product(5101) + "," + product(5102) + "," + product(5103) + ","
+                                + product(5104) + "," + product(5105) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batches[*].index").value(contains(0, 1, 2)))
+                .andExpect(jsonPath("$.batches[*].count").value(contains(2, 2, 1)))
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.error").doesNotExist());
+        for (int id = 5101; id <= 5105; id++) {
+            assertEquals("Bulk" + id, productRepository.findById(id).getName());
+        }
+    }
+
+    @Test
+    public void bulkNdjson() throws Exception {
+        mockMvc.perform(post("/product/bulk?batchSize=2").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(product(5111) + "\n" + product(5112) + "\n" + product(5113) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batches[*].count").value(contains(2, 1)))
+                .andExpect(jsonPath("$.total").value(3));
+        assertEquals("Bulk5113", productRepository.findById(5113).getName());
+    }
+
+    /**
+     * 中途出错时停止处理，之前凑满的批次已经保存
+     */
+    @Test
+    public void bulkMalformed() throws Exception {
+        mockMvc.perform(post("/product/bulk?batchSize=2").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(product(5121) + "\n" + product(5122) + "\n" + product(5123) + "\n{\"id\":5124,\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.batches[*].count").value(contains(2)))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        assertNotNull(productRepository.findById(5122));
+        assertNull("未凑满的批次不保存", productRepository.findById(5123));
+
+        mockMvc.perform(post("/product/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + product(5125) + ",{\"name\":\"NoId\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.total").value(0))
+                .andExpect(jsonPath("$.error").value("第 2 条记录缺少 id"));
+        assertNull(productRepository.findById(5125));
+    }
+
+    @Test
+    public void bulkEmpty() throws Exception {
+        mockMvc.perform(post("/product/bulk").contentType(MediaType.APPLICATION_NDJSON).content(""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batches").isEmpty())
+                .andExpect(jsonPath("$.total").value(0));
+        mockMvc.perform(post("/product/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    public void bulkBatchSizeBounds() throws Exception {
+        mockMvc.perform(post("/product/bulk?batchSize=0").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/product/bulk?batchSize=2147483647").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 结果与请求的 id 一一对应，保持请求中的顺序，不存在的 id 为 null
+     */
+    @Test
+    public void batchKeepsOrder() throws Exception {
+        for (int id = 6001; id <= 6003; id++) {
+            productRepository.save(new Product(id, "Batch" + id, BigDecimal.valueOf(id)));
+        }
+        mockMvc.perform(get("/product/batch?ids=6003,6099,6001,6003"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[{\"id\":6003,\"name\":\"Batch6003\",\"price\":6003},null,"
+                        + "{\"id\":6001,\"name\":\"Batch6001\",\"price\":6001},{\"id\":6003}]"))
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[1]").value(nullValue()));
+
+        mockMvc.perform(post("/product/batch").contentType(MediaType.APPLICATION_JSON).content("[6099,6002,null]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[null,{\"id\":6002,\"name\":\"Batch6002\",\"price\":6002},null]", true));
+
+        mockMvc.perform(post("/product/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+
+    /**
+     * JSON 批量响应在 Product-ETags 中按顺序列出与 get_product2 相同的 ETag，id 过多时不列出
+     */
+    @Test
+    public void batchListsEtags() throws Exception {
+        productRepository.save(new Product(6011, "Etag6011", BigDecimal.ONE));
+        productRepository.save(new Product(6012, "Etag6012", BigDecimal.ONE));
+        String etag6011 = mockMvc.perform(get("/product/get_product2?id=6011"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String etag6012 = mockMvc.perform(get("/product/get_product2?id=6012"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/product/batch").contentType(MediaType.APPLICATION_JSON).content("[6012,6098,6011]"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ProductController.PRODUCT_ETAGS, etag6012 + ",," + etag6011))
+                .andExpect(content().json("[{\"id\":6012,\"name\":\"Etag6012\",\"price\":1},null,"
+                        + "{\"id\":6011,\"name\":\"Etag6011\",\"price\":1}]", true));
+
+        StringBuilder ids = new StringBuilder("[6011");
+        for (int i = 0; i < ProductController.BATCH_ETAG_LIMIT; i++) {
+            ids.append(",6011");
+        }
+        mockMvc.perform(post("/product/batch").contentType(MediaType.APPLICATION_JSON).content(ids.append(']').toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ProductController.PRODUCT_ETAGS))
+                .andExpect(jsonPath("$.length()").value(ProductController.BATCH_ETAG_LIMIT + 1));
+    }
+
+    private String stream(String query) throws Exception {
+        MvcResult result = mockMvc.perform(get("/product/stream" + query))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 每行一个 JSON 对象，按 id 升序，from / to 包含在内，limit 限制个数
+     */
+    @Test
+    public void streamNdjson() throws Exception {
+        for (int id = 6110; id > 6100; id--) {
+            productRepository.save(new Product(id, "Stream" + id, BigDecimal.ONE));
+        }
+        String body = stream("?from=6102&to=6108&limit=5&chunkSize=2");
+        assertTrue("最后一行也以换行结束", body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(5, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("{\"id\":" + (6102 + i) + ",\"name\":\"Stream" + (6102 + i) + "\",\"price\":1}", lines[i]);
+        }
+
+        assertEquals(7, stream("?from=6102&to=6108").split("\n").length);
+        assertEquals("", stream("?from=6108&to=6102"));
+        assertEquals("", stream("?from=6101&to=6110&limit=0"));
+    }
+
+    @Test
+    public void streamRejectsBadBounds() throws Exception {
+        mockMvc.perform(get("/product/stream?limit=-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/product/stream?chunkSize=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/product/stream?from=abc")).andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 上传的文件经 transferTo(File) 即 Part.write 改名到存储目录，不经过 transferTo(Path) 复制
+     */
+    @Test
+    public void uploadMovesContainerFile() throws Exception {
+        MockMultipartFile file = spy(new MockMultipartFile("file", "move-test.txt",
+                MediaType.TEXT_PLAIN_VALUE, "moved".getBytes(StandardCharsets.US_ASCII)));
+        mockMvc.perform(multipart("/product/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(content().string("upload success filename: move-test.txt"));
+
+        verify(file).transferTo(any(File.class));
+        verify(file, never()).transferTo(any(Path.class));
+        Path stored = uploadStorage.resolve("move-test.txt");
+        try {
+            assertEquals("moved", new String(Files.readAllBytes(stored), StandardCharsets.US_ASCII));
+        } finally {
+            Files.deleteIfExists(stored);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.one.learn.resttemplate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.SmileRestTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 和 Smile 两种格式下 Product 的编码、解码耗时，分别测量单个产品（get_product2）和 1000 个产品的列表（batch）。
+ * 序列化后的大小：单个产品 JSON 43 字节、Smile 39 字节；列表 JSON 约 44KB、Smile 约 24KB。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductFormatBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductFormatBenchmark {
+    @Param({"json", "smile"})
+    public String format;
+
+    private ObjectWriter productWriter;
+    private ObjectReader productReader;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private Product product;
+    private Product[] list;
+    private byte[] productBytes;
+    private byte[] listBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = "smile".equals(format)
+                ? SmileRestTemplates.smileObjectMapper() : Jackson2ObjectMapperBuilder.json().build();
+        productWriter = mapper.writerFor(Product.class);
+        productReader = mapper.readerFor(Product.class);
+        listWriter = mapper.writerFor(Product[].class);
+        listReader = mapper.readerFor(Product[].class);
+        product = new Product(42, "ProductC", new BigDecimal("6666.00"));
+        list = new Product[1000];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = new Product(i + 1, "Product" + (i + 1), BigDecimal.valueOf((i + 1) * 37L, 2));
+        }
+        productBytes = productWriter.writeValueAsBytes(product);
+        listBytes = listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] encodeSingle() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product decodeSingle() throws IOException {
+        return productReader.readValue(productBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws IOException {
+        return listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public Product[] decodeList() throws IOException {
+        return listReader.readValue(listBytes);
+    }
+}
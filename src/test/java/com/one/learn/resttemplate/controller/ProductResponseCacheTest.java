@@ -0,0 +1,66 @@
+package com.one.learn.resttemplate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.repository.ProductRepository;
+import org.junit.Test;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ProductResponseCacheTest {
+    private final ProductRepository repository = new ProductRepository(0);
+    private final ProductResponseCache cache =
+            new ProductResponseCache(new ObjectMapper(), new MappingJackson2SmileHttpMessageConverter(), repository);
+
+    @Test
+    public void hitReturnsSameBytes() {
+        Product product = new Product(1, "ProductC", BigDecimal.valueOf(6666.0));
+        ProductResponseCache.Entry first = cache.get(product);
+        ProductResponseCache.Representation json = first.get(ProductFormat.JSON);
+        assertEquals("{\"id\":1,\"name\":\"ProductC\",\"price\":6666.0}",
+                new String(json.getBody(), StandardCharsets.UTF_8));
+        assertTrue(json.getEtag().startsWith("\"") && json.getEtag().endsWith("\""));
+        assertNotEquals(json.getEtag(), first.get(ProductFormat.SMILE).getEtag());
+        assertSame("同一个实例命中缓存，不重新序列化", first, cache.get(product));
+    }
+
+    /**
+     * 仓库中的实例被替换后缓存项失效；内容相同时 ETag 也相同
+     */
+    @Test
+    public void replacedInstanceInvalidates() {
+        ProductResponseCache.Entry first = cache.get(new Product(1, "ProductC", BigDecimal.ONE));
+        ProductResponseCache.Entry same = cache.get(new Product(1, "ProductC", BigDecimal.ONE));
+        assertNotSame(first, same);
+        assertEquals(first.get(ProductFormat.JSON).getEtag(), same.get(ProductFormat.JSON).getEtag());
+
+        ProductResponseCache.Entry changed = cache.get(new Product(1, "ProductD", BigDecimal.ONE));
+        assertNotEquals(first.get(ProductFormat.JSON).getEtag(), changed.get(ProductFormat.JSON).getEtag());
+        assertEquals(1, cache.size());
+
+        cache.evict(1);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * 仓库中保存或删除产品时立即移除缓存项，不等下一次查询
+     */
+    @Test
+    public void repositoryWritesEvict() {
+        Product product = new Product(2, "ProductC", BigDecimal.ONE);
+        repository.save(product);
+        cache.get(product);
+        cache.get(new Product(3, "ProductC", BigDecimal.ONE));
+        assertEquals(2, cache.size());
+
+        repository.save(new Product(2, "ProductD", BigDecimal.ONE));
+        assertEquals(1, cache.size());
+        repository.save(new Product(3, "ProductC", BigDecimal.ONE));
+        repository.deleteById(3);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,102 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * get_product3 / post_product1 这类接口写出一个产品的开销：
+ * 原来的 Product.toString() + StringHttpMessageConverter，与 CompactProduct + CompactProductHttpMessageConverter。
+ * 每次都新建 Product（对应请求参数绑定），所以也单独给出只创建 Product 的基线。
+ * 每个请求分配的字节数看 -prof gc 的 gc.alloc.rate.norm。
+ * 运行：直接运行 org.openjdk.jmh.Main CompactProductAllocationBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactProductAllocationBenchmark {
+    private final StringHttpMessageConverter stringConverter = new StringHttpMessageConverter();
+    private final CompactProductHttpMessageConverter compactConverter = new CompactProductHttpMessageConverter();
+    private final DiscardingMessage message = new DiscardingMessage();
+    private int i;
+
+    private Product newProduct() {
+        // 每次新建 BigDecimal：BigDecimal.toString() 会缓存结果，重复使用同一个实例会低估原来的开销
+        i++;
+        return new Product(i, "ProductC", BigDecimal.valueOf(666600 + i, 2));
+    }
+
+    @Benchmark
+    public Product baseline() {
+        return newProduct();
+    }
+
+    @Benchmark
+    public long toStringConverter() throws IOException {
+        message.headers.clear();
+        stringConverter.write(newProduct().toString(), MediaType.TEXT_PLAIN, message);
+        return message.written;
+    }
+
+    @Benchmark
+    public long compactConverter() throws IOException {
+        message.headers.clear();
+        compactConverter.write(CompactProduct.from(newProduct()), MediaType.TEXT_PLAIN, message);
+        return message.written;
+    }
+
+    @Benchmark
+    public long compactOnly() throws IOException {
+        message.headers.clear();
+        i++;
+        compactConverter.write(CompactProduct.of(i, "ProductC", 666600 + i, 2), MediaType.TEXT_PLAIN, message);
+        return message.written;
+    }
+
+    private static class DiscardingMessage implements HttpOutputMessage {
+        final HttpHeaders headers = new HttpHeaders();
+        long written;
+        final OutputStream body = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+        };
+
+        @Override
+        public OutputStream getBody() {
+            return StreamUtils.nonClosing(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.CompactProduct;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.support.ConfigurableWebBindingInitializer;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ServletModelAttributeMethodProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.ServletRequestDataBinderFactory;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较绑定 get_product3 / post_product1 的 Product 参数的两种方式：
+ * 默认的 WebDataBinder（ServletModelAttributeMethodProcessor）与 {@link ProductFormArgumentResolver}。
+ * <p>
+ * WebDataBinder 一组的请求参数已经预先放进 MockHttpServletRequest，不包含容器解析参数的开销，是偏保守的比较；
+ * ProductFormArgumentResolver 一组每次都从原始查询字符串或请求体解析。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductFormBindingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductFormBindingBenchmark {
+    private static final String FORM = "id=1&name=ProductA&price=6666.0";
+
+    private final ServletModelAttributeMethodProcessor binderProcessor = new ServletModelAttributeMethodProcessor(true);
+    private final ProductFormArgumentResolver resolver = new ProductFormArgumentResolver();
+    private WebDataBinderFactory binderFactory;
+    private MethodParameter productParameter;
+    private MethodParameter compactParameter;
+    private ServletWebRequest getRequest;
+    private ServletWebRequest postRequest;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        ConfigurableWebBindingInitializer initializer = new ConfigurableWebBindingInitializer();
+        initializer.setConversionService(new DefaultFormattingConversionService());
+        binderFactory = new ServletRequestDataBinderFactory(null, initializer);
+        productParameter = new MethodParameter(Handlers.class.getMethod("product", Product.class), 0);
+        compactParameter = new MethodParameter(Handlers.class.getMethod("compact", CompactProduct.class), 0);
+
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/product/get_product3");
+        get.setQueryString(FORM);
+        get.addParameter("id", "1");
+        get.addParameter("name", "ProductA");
+        get.addParameter("price", "6666.0");
+        getRequest = new ServletWebRequest(get);
+
+        MockHttpServletRequest post = new FormBodyRequest(FORM.getBytes(StandardCharsets.US_ASCII));
+        post.setContentType("application/x-www-form-urlencoded");
+        postRequest = new ServletWebRequest(post);
+    }
+
+    @Benchmark
+    public Object dataBinder() throws Exception {
+        return binderProcessor.resolveArgument(productParameter, new ModelAndViewContainer(), getRequest, binderFactory);
+    }
+
+    @Benchmark
+    public Object resolverProduct() throws Exception {
+        return resolver.resolveArgument(productParameter, null, getRequest, null);
+    }
+
+    @Benchmark
+    public Object resolverCompactProduct() throws Exception {
+        return resolver.resolveArgument(compactParameter, null, getRequest, null);
+    }
+
+    @Benchmark
+    public Object resolverFormBody() throws Exception {
+        return resolver.resolveArgument(productParameter, null, postRequest, null);
+    }
+
+    /**
+     * 每次都返回新的请求体流。MockHttpServletRequest 的流只实现了逐字节的 read()，
+     * 这里与 Tomcat 的 CoyoteInputStream 一样支持按块读取
+     */
+    private static class FormBodyRequest extends MockHttpServletRequest {
+        private final byte[] body;
+
+        FormBodyRequest(byte[] body) {
+            super("POST", "/product/post_product1");
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    public static class Handlers {
+        public void product(Product product) {
+        }
+
+        public void compact(CompactProduct product) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.one.learn.resttemplate.converter;
+
+import com.one.learn.resttemplate.bean.Product;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * 期望值取自默认的 WebDataBinder 对相同查询字符串的绑定结果
+ */
+public class ProductFormParserTest {
+
+    @Test
+    public void sameResultAsDataBinder() {
+        check("id=1&name=ProductA&price=6666.0", "Product{id='1', name='ProductA', price='6666.0'}");
+        check("id=1&id=2&name=a&name=b&price=1&price=2", "Product{id='1', name='a,b', price='1'}");
+        check("id=%201%20", "Product{id='1', name='null', price='null'}");
+        check("id=0x10&price=1e3", "Product{id='16', name='null', price='1E+3'}");
+        check("id=&price=&name=", "Product{id='null', name='', price='null'}");
+        check("ID=3&idx=1&productName=x", "Product{id='null', name='null', price='null'}");
+        check("name=a+b%2Bc", "Product{id='null', name='a b+c', price='null'}");
+        check("name=%E4%BA%A7%E5%93%81", "Product{id='null', name='产品', price='null'}");
+        check("name=%zz&id=5&price=%4", "Product{id='5', name='null', price='null'}");
+        check("id&name", "Product{id='null', name='', price='null'}");
+        check("&&id=4&", "Product{id='4', name='null', price='null'}");
+        check("price=-0.050&id=-12", "Product{id='-12', name='null', price='-0.050'}");
+        check("price=123456789012345678901.5", "Product{id='null', name='null', price='123456789012345678901.5'}");
+    }
+
+    @Test
+    public void rejectedValues() {
+        ProductFormParser parser = parse("id=ab&price=abc&name=x");
+        assertTrue(parser.hasErrors());
+        assertEquals("ab", parser.getIdRejected());
+        assertEquals("abc", parser.getPriceRejected());
+
+        parser = parse("id=99999999999");
+        assertEquals("99999999999", parser.getIdRejected());
+        assertNotNull(parser.getIdCause());
+
+        parser = parse("price=92233720368547758080");
+        assertFalse(parser.hasErrors());
+        assertTrue(parser.isPriceOutOfRange());
+        assertEquals(parser.toProduct().toString(), parser.toCompactProduct().toString());
+    }
+
+    @Test
+    public void bodyInChunks() {
+        byte[] body = "name=%E4%BA%A7%E5%93%81&price=12.5&id=42".getBytes(StandardCharsets.US_ASCII);
+        // 逐字节传入，转义和键值对都会被拆开
+        ProductFormParser parser = new ProductFormParser(StandardCharsets.UTF_8);
+        for (int i = 0; i < body.length; i++) {
+            parser.parse(body, i, 1);
+        }
+        parser.endOfSource();
+        assertEquals("Product{id='42', name='产品', price='12.5'}", parser.toProduct().toString());
+        assertEquals(parser.toProduct().toString(), parser.toCompactProduct().toString());
+    }
+
+    @Test
+    public void queryThenBody() {
+        ProductFormParser parser = new ProductFormParser(StandardCharsets.UTF_8);
+        parser.parse("id=8&name");
+        parser.endOfSource();
+        byte[] body = "=q&id=9&name=x".getBytes(StandardCharsets.US_ASCII);
+        parser.parse(body, 0, body.length);
+        parser.endOfSource();
+        // 查询字符串的最后一个键值对不会和请求体的第一个拼在一起
+        assertEquals("Product{id='8', name=',x', price='null'}", parser.toProduct().toString());
+    }
+
+    @Test
+    public void decodedParameters() {
+        ProductFormParser parser = new ProductFormParser(StandardCharsets.UTF_8);
+        parser.parameter("id", new String[]{"3"});
+        parser.parameter("name", new String[]{"产品", "b"});
+        parser.parameter("price", null);
+        parser.parameter("other", new String[]{"1"});
+        assertEquals("Product{id='3', name='产品,b', price='null'}", parser.toProduct().toString());
+    }
+
+    private static void check(String query, String expected) {
+        ProductFormParser parser = parse(query);
+        assertFalse(query, parser.hasErrors());
+        Product product = parser.toProduct();
+        assertEquals(query, expected, product.toString());
+        assertEquals(query, expected, parser.toCompactProduct().toString());
+    }
+
+    private static ProductFormParser parse(String query) {
+        ProductFormParser parser = new ProductFormParser(StandardCharsets.UTF_8);
+        parser.parse(query);
+        parser.endOfSource();
+        return parser;
+    }
+}
@@ -0,0 +1,82 @@
+package com.one.learn.resttemplate.echo;
+
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.Charset;
+
+/**
+ * EchoServer 收到的一个完整请求：请求行、首部（保留客户端发送的大小写和顺序）和解码后的请求体
+ * （chunked 请求体已经合并）
+ */
+public final class CapturedRequest {
+    private final String method;
+    private final String target;
+    private final String version;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String remoteAddress;
+
+    CapturedRequest(String method, String target, String version, HttpHeaders headers, byte[] body, String remoteAddress) {
+        this.method = method;
+        this.target = target;
+        this.version = version;
+        this.headers = headers;
+        this.body = body;
+        this.remoteAddress = remoteAddress;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return 请求行中的目标，通常为路径加查询字符串；经过代理时为绝对 URL
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public String getPath() {
+        String path = target;
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            int slash = path.indexOf('/', scheme + 3);
+            path = slash >= 0 ? path.substring(slash) : "/";
+        }
+        int query = path.indexOf('?');
+        return query >= 0 ? path.substring(0, query) : path;
+    }
+
+    /**
+     * @return 未解码的查询字符串，没有时为 null
+     */
+    public String getQuery() {
+        int query = target.indexOf('?');
+        return query >= 0 ? target.substring(query + 1) : null;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBody(Charset charset) {
+        return new String(body, charset);
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + target + " " + version + " " + headers + " (" + body.length + " bytes)";
+    }
+}
@@ -0,0 +1,534 @@
+package com.one.learn.resttemplate.echo;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的 httpbin.org 替代品，供客户端示例和基准测试离线使用。
+ * <p>
+ * 基于 NIO：一个线程阻塞 accept，连接轮流分给若干个 Selector 线程，每个连接的读、解析、响应都在所属的线程中完成。
+ * 支持 keep-alive、管线化、Content-Length 和 chunked 请求体、Expect: 100-continue、HEAD 和 Connection: close。
+ * 响应格式见 {@link HttpbinHandler}。
+ * <p>
+ * 每个请求默认记录为 {@link CapturedRequest}，通过 {@link #takeRequest()} 按到达顺序取出，用于核对客户端实际发出的报文；
+ * 压测时用 {@link #setCapture(boolean)} 关闭记录。只监听 127.0.0.1。
+ */
+public class EchoServer implements Closeable {
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_CAPTURED = 1024;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpbinHandler handler = new HttpbinHandler();
+    private final BlockingQueue<CapturedRequest> captured = new LinkedBlockingQueue<>(MAX_CAPTURED);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+    private volatile boolean capture = true;
+
+    private ServerSocketChannel server;
+    private Thread acceptor;
+    private Worker[] workers;
+    private volatile boolean running;
+
+    /**
+     * 在随机端口上启动，使用一个 I/O 线程
+     */
+    public EchoServer start() throws IOException {
+        return start(0, 1);
+    }
+
+    /**
+     * @param port      端口，0 表示随机端口
+     * @param ioThreads Selector 线程数
+     */
+    public synchronized EchoServer start(int port, int ioThreads) throws IOException {
+        if (running) {
+            throw new IllegalStateException("EchoServer 已经启动");
+        }
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        workers = new Worker[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            workers[i] = new Worker(Selector.open());
+            Thread thread = new Thread(workers[i], "echo-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "echo-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                connectionCount.incrementAndGet();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @param path 以 '/' 开头的路径，可以带查询字符串和 URI 模板变量
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + getPort() + path;
+    }
+
+    public void setCapture(boolean capture) {
+        this.capture = capture;
+    }
+
+    /**
+     * 取出最早记录的请求，最多等待 5 秒
+     *
+     * @throws IllegalStateException 超时没有收到请求
+     */
+    public CapturedRequest takeRequest() throws InterruptedException {
+        CapturedRequest request = captured.poll(5, TimeUnit.SECONDS);
+        if (request == null) {
+            throw new IllegalStateException("5 秒内没有收到请求");
+        }
+        return request;
+    }
+
+    /**
+     * 丢弃已经记录的请求
+     */
+    public void clear() {
+        captured.clear();
+    }
+
+    /**
+     * @return 启动以来处理的请求数，包括没有记录的
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return 启动以来接受的连接数，用来观察客户端是否复用连接
+     */
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        server.close();
+        for (Worker worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void record(CapturedRequest request) {
+        requestCount.incrementAndGet();
+        if (capture) {
+            // 没有人取的时候丢弃最早的记录，不让长时间运行的压测占满内存
+            while (!captured.offer(request)) {
+                captured.poll();
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private volatile boolean stopped;
+
+        Worker(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            stopped = true;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        Connection connection = new Connection(channel);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Selector 出错，关闭这个线程的所有连接
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个连接的解析状态，只在所属的 Selector 线程中访问
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private final Queue<ByteBuffer> output = new ArrayDeque<>();
+        private SelectionKey key;
+
+        private byte[] in = new byte[8192];
+        private int inLength;
+
+        /**
+         * 当前请求首部解析后的状态，首部未读完时 headers 为 null
+         */
+        private String method;
+        private String target;
+        private String version;
+        private HttpHeaders headers;
+        private int bodyStart;
+        private long contentLength;
+        private boolean chunked;
+        private boolean continueSent;
+        /**
+         * chunked 请求体的解析位置和已解码的内容
+         */
+        private int chunkPos;
+        private ByteArrayOutputStream chunkedBody;
+        private boolean closeAfterWrite;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        }
+
+        void read() throws IOException {
+            if (inLength == in.length) {
+                in = Arrays.copyOf(in, in.length * 2);
+            }
+            int n = channel.read(ByteBuffer.wrap(in, inLength, in.length - inLength));
+            if (n < 0) {
+                close();
+                return;
+            }
+            inLength += n;
+            while (!closeAfterWrite && process()) {
+                // 管线化的请求可能已经在缓冲区里
+            }
+            flush();
+        }
+
+        /**
+         * @return 处理了一个完整的请求
+         */
+        private boolean process() throws IOException {
+            if (headers == null && !parseHeaders()) {
+                return false;
+            }
+            byte[] body;
+            int consumed;
+            if (chunked) {
+                body = readChunked();
+                if (body == null) {
+                    sendContinue();
+                    return false;
+                }
+                consumed = chunkPos;
+            } else {
+                if (inLength - bodyStart < contentLength) {
+                    sendContinue();
+                    ensureCapacity(bodyStart + contentLength);
+                    return false;
+                }
+                consumed = bodyStart + (int) contentLength;
+                body = Arrays.copyOfRange(in, bodyStart, consumed);
+            }
+            CapturedRequest request = new CapturedRequest(method, target, version, headers, body, remoteAddress);
+            boolean keepAlive = keepAlive();
+            record(request);
+            respond(request, keepAlive);
+
+            System.arraycopy(in, consumed, in, 0, inLength - consumed);
+            inLength -= consumed;
+            headers = null;
+            chunkedBody = null;
+            continueSent = false;
+            if (!keepAlive) {
+                closeAfterWrite = true;
+            }
+            return true;
+        }
+
+        private boolean parseHeaders() throws IOException {
+            int end = indexOfHeaderEnd();
+            if (end < 0) {
+                if (inLength >= MAX_HEADER_SIZE) {
+                    badRequest();
+                }
+                return false;
+            }
+            String head = new String(in, 0, end, StandardCharsets.ISO_8859_1);
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                badRequest();
+                return false;
+            }
+            HttpHeaders parsed = new HttpHeaders();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    badRequest();
+                    return false;
+                }
+                parsed.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+            method = requestLine[0];
+            target = requestLine[1];
+            version = requestLine[2];
+            bodyStart = end + 4;
+            String transferEncoding = parsed.getFirst(HttpHeaders.TRANSFER_ENCODING);
+            chunked = transferEncoding != null && transferEncoding.toLowerCase().contains("chunked");
+            contentLength = 0;
+            if (!chunked && parsed.getFirst(HttpHeaders.CONTENT_LENGTH) != null) {
+                try {
+                    contentLength = Long.parseLong(parsed.getFirst(HttpHeaders.CONTENT_LENGTH));
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+                if (contentLength < 0 || contentLength > Integer.MAX_VALUE - 8 - bodyStart) {
+                    badRequest();
+                    return false;
+                }
+            }
+            chunkPos = bodyStart;
+            chunkedBody = chunked ? new ByteArrayOutputStream() : null;
+            headers = parsed;
+            return true;
+        }
+
+        private int indexOfHeaderEnd() {
+            for (int i = 3; i < inLength; i++) {
+                if (in[i] == '\n' && in[i - 1] == '\r' && in[i - 2] == '\n' && in[i - 3] == '\r') {
+                    return i - 3;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 从 chunkPos 继续解码 chunked 请求体，已经解码的块移入 chunkedBody
+         *
+         * @return 请求体读完时返回完整内容，否则返回 null
+         */
+        private byte[] readChunked() throws IOException {
+            while (true) {
+                int lineEnd = indexOfCrlf(chunkPos);
+                if (lineEnd < 0) {
+                    return null;
+                }
+                String sizeLine = new String(in, chunkPos, lineEnd - chunkPos, StandardCharsets.ISO_8859_1);
+                int semicolon = sizeLine.indexOf(';');
+                int size;
+                try {
+                    size = Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("chunk 大小不合法：" + sizeLine);
+                }
+                if (size == 0) {
+                    // 跳过 trailer，以空行结束
+                    int pos = lineEnd + 2;
+                    while (true) {
+                        int trailerEnd = indexOfCrlf(pos);
+                        if (trailerEnd < 0) {
+                            return null;
+                        }
+                        if (trailerEnd == pos) {
+                            chunkPos = trailerEnd + 2;
+                            return chunkedBody.toByteArray();
+                        }
+                        pos = trailerEnd + 2;
+                    }
+                }
+                int dataStart = lineEnd + 2;
+                if (inLength < dataStart + size + 2) {
+                    ensureCapacity(dataStart + size + 2L);
+                    return null;
+                }
+                chunkedBody.write(in, dataStart, size);
+                // 已解码的块不再需要，移出缓冲区
+                int next = dataStart + size + 2;
+                System.arraycopy(in, next, in, bodyStart, inLength - next);
+                inLength -= next - bodyStart;
+                chunkPos = bodyStart;
+            }
+        }
+
+        private int indexOfCrlf(int from) {
+            for (int i = from + 1; i < inLength; i++) {
+                if (in[i] == '\n' && in[i - 1] == '\r') {
+                    return i - 1;
+                }
+            }
+            return -1;
+        }
+
+        private void ensureCapacity(long size) {
+            if (size > in.length) {
+                in = Arrays.copyOf(in, (int) Math.max(size, in.length * 2L));
+            }
+        }
+
+        private void sendContinue() throws IOException {
+            if (!continueSent && "100-continue".equalsIgnoreCase(headers.getFirst(HttpHeaders.EXPECT))) {
+                continueSent = true;
+                output.add(ByteBuffer.wrap(CONTINUE));
+            }
+        }
+
+        private boolean keepAlive() {
+            String connection = headers.getFirst(HttpHeaders.CONNECTION);
+            if (connection != null && connection.equalsIgnoreCase("close")) {
+                return false;
+            }
+            return !"HTTP/1.0".equals(version) || (connection != null && connection.equalsIgnoreCase("keep-alive"));
+        }
+
+        private void respond(CapturedRequest request, boolean keepAlive) {
+            HttpbinHandler.Response response;
+            try {
+                response = handler.handle(request);
+            } catch (IOException | RuntimeException e) {
+                response = HttpbinHandler.Response.text(HttpStatus.INTERNAL_SERVER_ERROR.value(), String.valueOf(e));
+            }
+            write(response, keepAlive, "HEAD".equals(request.getMethod()));
+        }
+
+        private void badRequest() {
+            write(HttpbinHandler.Response.text(HttpStatus.BAD_REQUEST.value(), "Bad Request"), false, false);
+            closeAfterWrite = true;
+            headers = null;
+            inLength = 0;
+        }
+
+        private void write(HttpbinHandler.Response response, boolean keepAlive, boolean head) {
+            HttpStatus status = HttpStatus.resolve(response.status);
+            StringBuilder sb = new StringBuilder(160)
+                    .append("HTTP/1.1 ").append(response.status).append(' ')
+                    .append(status != null ? status.getReasonPhrase() : "Unknown").append("\r\n")
+                    .append("Server: echo\r\n");
+            if (response.contentType != null) {
+                sb.append("Content-Type: ").append(response.contentType).append("\r\n");
+            }
+            sb.append("Content-Length: ").append(response.body.length).append("\r\n")
+                    .append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n");
+            byte[] header = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+            if (head || response.body.length == 0) {
+                output.add(ByteBuffer.wrap(header));
+            } else {
+                byte[] message = Arrays.copyOf(header, header.length + response.body.length);
+                System.arraycopy(response.body, 0, message, header.length, response.body.length);
+                output.add(ByteBuffer.wrap(message));
+            }
+        }
+
+        void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = output.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                output.poll();
+            }
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
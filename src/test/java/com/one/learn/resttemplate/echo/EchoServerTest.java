@@ -0,0 +1,154 @@
+package com.one.learn.resttemplate.echo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class EchoServerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private EchoServer echo;
+
+    @Before
+    public void setUp() throws IOException {
+        echo = new EchoServer().start(0, 2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        echo.close();
+    }
+
+    @Test
+    public void getLikeHttpbin() throws Exception {
+        // 用 URI 避免 RestTemplate 再次编码 '%'
+        JsonNode json = new RestTemplate().getForObject(URI.create(echo.url("/get?a=1&a=2&b=%E4%BD%A0")), JsonNode.class);
+        assertEquals("[\"1\",\"2\"]", json.get("args").get("a").toString());
+        assertEquals("你", json.get("args").get("b").asText());
+        assertEquals("127.0.0.1", json.get("origin").asText());
+        assertEquals(echo.url("/get?a=1&a=2&b=%E4%BD%A0"), json.get("url").asText());
+        assertNull(json.get("data"));
+
+        CapturedRequest request = echo.takeRequest();
+        assertEquals("GET", request.getMethod());
+        assertEquals("/get", request.getPath());
+        assertEquals("a=1&a=2&b=%E4%BD%A0", request.getQuery());
+    }
+
+    @Test
+    public void postBodies() throws Exception {
+        RestTemplate template = new RestTemplate();
+        JsonNode json = template.postForObject(echo.url("/post"), "{\"name\":\"Jack\"}", JsonNode.class);
+        assertEquals("{\"name\":\"Jack\"}", json.get("data").asText());
+        assertEquals("Jack", json.get("json").get("name").asText());
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("name", "Jack Tang");
+        json = template.postForObject(echo.url("/anything/form"), form, JsonNode.class);
+        assertEquals("Jack Tang", json.get("form").get("name").asText());
+        assertEquals("POST", json.get("method").asText());
+
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("comment", "hello");
+        parts.add("file", new ByteArrayResource(new byte[]{(byte) 0x80, 1, 2}) {
+            @Override
+            public String getFilename() {
+                return "data";
+            }
+        });
+        json = template.postForObject(echo.url("/post"), parts, JsonNode.class);
+        assertEquals("hello", json.get("form").get("comment").asText());
+        assertEquals("data:application/octet-stream;base64,gAEC", json.get("files").get("file").asText());
+    }
+
+    @Test
+    public void statusAndMethod() throws Exception {
+        assertEquals("HTTP/1.1 418 I'm a teapot", exchange("GET /status/418 HTTP/1.1\r\nHost: x\r\n\r\n").split("\r\n")[0]);
+        assertTrue(exchange("POST /get HTTP/1.1\r\nHost: x\r\nContent-Length: 0\r\n\r\n").startsWith("HTTP/1.1 405 "));
+        assertTrue(exchange("GET /nothing HTTP/1.1\r\nHost: x\r\n\r\n").startsWith("HTTP/1.1 404 "));
+    }
+
+    @Test
+    public void chunkedPipelinedAndKeepAlive() throws Exception {
+        String requests = "POST /post HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\n\r\n"
+                + "GET /get HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "HEAD /get HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n";
+        String responses = exchange(requests);
+        assertEquals(3, responses.split("HTTP/1.1 200 OK").length - 1);
+        assertTrue(responses.contains("\"data\": \"hello, world\""));
+        assertTrue(responses.endsWith("Connection: close\r\n\r\n"));
+
+        assertEquals("hello, world", echo.takeRequest().getBody(StandardCharsets.UTF_8));
+        assertEquals("GET", echo.takeRequest().getMethod());
+        assertEquals("HEAD", echo.takeRequest().getMethod());
+        assertEquals(3, echo.getRequestCount());
+    }
+
+    @Test
+    public void expectContinue() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", echo.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write(("PUT /put HTTP/1.1\r\nHost: x\r\nExpect: 100-continue\r\nContent-Length: 2\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            byte[] interim = new byte[25];
+            int n = 0;
+            while (n < interim.length) {
+                n += in.read(interim, n, interim.length - n);
+            }
+            assertEquals("HTTP/1.1 100 Continue\r\n\r\n", new String(interim, StandardCharsets.US_ASCII));
+            out.write("ok".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertEquals("ok", echo.takeRequest().getBody(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void captureCanBeDisabled() throws Exception {
+        echo.setCapture(false);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_PLAIN);
+        new RestTemplate().postForObject(echo.url("/post"), new HttpEntity<>("x", headers), String.class);
+        echo.setCapture(true);
+        new RestTemplate().getForObject(echo.url("/get"), String.class);
+        assertEquals("/get", echo.takeRequest().getPath());
+        assertEquals(2, echo.getRequestCount());
+    }
+
+    /**
+     * 发送原始报文，读到服务端关闭连接为止，所以最后一个请求要带 Connection: close
+     */
+    private String exchange(String requests) throws IOException {
+        if (!requests.contains("Connection: close")) {
+            requests = requests.substring(0, requests.length() - 2) + "Connection: close\r\n\r\n";
+        }
+        try (Socket socket = new Socket("127.0.0.1", echo.getPort())) {
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = socket.getInputStream().read(buffer)) != -1) {
+                response.write(buffer, 0, n);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.one.learn.resttemplate.echo;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * src/test/resources 中用 Fiddler 抓到的请求报文（如 demo3/postFile/request.txt），用来核对 {@link EchoServer} 收到的请求。
+ * <p>
+ * 这些文件是当时经代理发往 httpbin.org、用 Java 8 和更早的 Spring 抓的，保存时换行变成了 LF，
+ * 二进制内容的非 ASCII 字节也丢了，所以只比较与示例有关的部分：
+ * <ul>
+ *     <li>请求方法；不比较请求目标（经代理时为绝对 URL，test2-req.txt 中还少了 /post）</li>
+ *     <li>Content-Type，multipart 的 boundary 是随机的，只比较类型</li>
+ *     <li>Accept 中的类型按原顺序都要出现；新版本多出的类型（如引入 jackson-dataformat-smile 后的
+ *     application/x-jackson-smile）不算差异</li>
+ *     <li>请求体，换行统一为 LF，boundary 替换为同一个占位符；二进制文件用 {@link #withDataFile()} 换回原始内容</li>
+ * </ul>
+ * 不比较 Host、User-Agent、Connection、Content-Length 和 Accept-Charset（Spring 5.2 起 StringHttpMessageConverter
+ * 默认不再写出 Accept-Charset）。Content-Length 另外检查与实际请求体一致。
+ */
+public final class GoldenRequest {
+    /**
+     * 抓包文件中 data 文件的两种样子：Fiddler 以文本保存时丢掉了非 ASCII 字节；resttemplate-demo2/postResource2
+     * 直接写了 "...（乱码）"。以 ISO-8859-1 表示原始字节
+     */
+    private static final String[] DATA_AS_SAVED = {
+            "\u0006       s .\n \u00d4\u009d\u00da\u00b4I",
+            latin1("...（乱码）".getBytes(StandardCharsets.UTF_8))
+    };
+    private static final String BOUNDARY = "<boundary>";
+
+    private final String path;
+    private final String method;
+    private final HttpHeaders headers;
+    /**
+     * 以 ISO-8859-1 解码，一个字符对应一个字节
+     */
+    private String body;
+
+    private GoldenRequest(String path, String method, HttpHeaders headers, String body) {
+        this.path = path;
+        this.method = method;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * @param path 类路径中的文件，如 demo3/postFile/request.txt
+     */
+    public static GoldenRequest load(String path) throws IOException {
+        String text;
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            text = latin1(StreamUtils.copyToByteArray(in));
+        }
+        int end = text.indexOf("\n\n");
+        if (end < 0) {
+            throw new IllegalArgumentException(path + " 不是完整的请求报文");
+        }
+        String[] lines = text.substring(0, end).split("\n");
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+        return new GoldenRequest(path, lines[0].split(" ")[0], headers, text.substring(end + 2));
+    }
+
+    /**
+     * 把请求体中抓包时的文本换成当前环境下的文本，如 File 序列化出的绝对路径
+     */
+    public GoldenRequest replace(String golden, String actual) {
+        String from = latin1(golden.getBytes(StandardCharsets.UTF_8));
+        if (!body.contains(from)) {
+            throw new IllegalArgumentException(path + " 中没有 " + golden);
+        }
+        body = body.replace(from, latin1(actual.getBytes(StandardCharsets.UTF_8)));
+        return this;
+    }
+
+    /**
+     * 把保存时损坏的 data 文件换回 src/test/resources/data 的原始内容
+     */
+    public GoldenRequest withDataFile() throws IOException {
+        String data;
+        try (InputStream in = new ClassPathResource("data").getInputStream()) {
+            data = latin1(StreamUtils.copyToByteArray(in));
+        }
+        for (String saved : DATA_AS_SAVED) {
+            body = body.replace(saved, data);
+        }
+        return this;
+    }
+
+    public void assertMatches(CapturedRequest actual) {
+        String message = path + ": ";
+        assertEquals(message + "method", method, actual.getMethod());
+
+        MediaType expectedType = contentType(headers);
+        MediaType actualType = contentType(actual.getHeaders());
+        String expectedBody = body;
+        String actualBody = latin1(actual.getBody()).replace("\r\n", "\n");
+        if (expectedType != null && actualType != null && expectedType.getParameter("boundary") != null) {
+            assertEquals(message + "Content-Type", expectedType.getType() + "/" + expectedType.getSubtype(),
+                    actualType.getType() + "/" + actualType.getSubtype());
+            assertTrue(message + "Content-Type 缺少 boundary", actualType.getParameter("boundary") != null);
+            expectedBody = expectedBody.replace(expectedType.getParameter("boundary"), BOUNDARY);
+            actualBody = actualBody.replace(actualType.getParameter("boundary"), BOUNDARY);
+        } else {
+            assertEquals(message + "Content-Type", expectedType, actualType);
+        }
+
+        assertAcceptContains(message, headers.getAccept(), actual.getHeaders().getAccept());
+        assertEquals(message + "body", expectedBody, actualBody);
+        if (actual.getHeaders().getFirst(HttpHeaders.TRANSFER_ENCODING) == null) {
+            assertEquals(message + "Content-Length", actual.getBody().length, actual.getHeaders().getContentLength());
+        }
+    }
+
+    private static MediaType contentType(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        return value != null ? MediaType.parseMediaType(value) : null;
+    }
+
+    private static void assertAcceptContains(String message, List<MediaType> expected, List<MediaType> actual) {
+        Iterator<MediaType> remaining = actual.iterator();
+        for (MediaType type : expected) {
+            boolean found = false;
+            while (remaining.hasNext() && !found) {
+                found = remaining.next().equals(type);
+            }
+            if (!found) {
+                fail(message + "Accept " + actual + " 应按顺序包含 " + expected);
+            }
+        }
+    }
+
+    private static String latin1(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
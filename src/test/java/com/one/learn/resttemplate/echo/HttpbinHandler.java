@@ -0,0 +1,255 @@
+package com.one.learn.resttemplate.echo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.one.learn.resttemplate.upload.MultipartStreamReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按 httpbin.org 的格式生成响应，支持 /get、/post、/put、/patch、/delete、/anything 和 /status/{code}。
+ * 响应中的字段与 httpbin 相同：args、data、files、form、headers、json、method、origin、url，按字母顺序排列。
+ */
+class HttpbinHandler {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectWriter writer = mapper.writer(new HttpbinPrettyPrinter());
+
+    Response handle(CapturedRequest request) throws IOException {
+        String path = request.getPath();
+        String method = request.getMethod();
+        if (path.startsWith("/status/")) {
+            int status;
+            try {
+                status = Integer.parseInt(path.substring("/status/".length()));
+            } catch (NumberFormatException e) {
+                return Response.text(HttpStatus.BAD_REQUEST.value(), "Invalid status code");
+            }
+            if (status < 100 || status > 599) {
+                return Response.text(HttpStatus.BAD_REQUEST.value(), "Invalid status code");
+            }
+            return new Response(status, null, new byte[0]);
+        }
+        boolean anything = path.equals("/anything") || path.startsWith("/anything/");
+        if (!anything) {
+            String expected = path.length() > 1 ? path.substring(1).toUpperCase() : "";
+            boolean known = expected.equals("GET") || expected.equals("POST") || expected.equals("PUT")
+                    || expected.equals("PATCH") || expected.equals("DELETE");
+            if (!known) {
+                return Response.text(HttpStatus.NOT_FOUND.value(), "Not Found");
+            }
+            boolean head = expected.equals("GET") && method.equals("HEAD");
+            if (!expected.equals(method) && !head) {
+                return Response.text(HttpStatus.METHOD_NOT_ALLOWED.value(), "Method Not Allowed");
+            }
+        }
+        boolean withBody = anything || !path.equals("/get");
+        ObjectNode root = mapper.createObjectNode();
+        root.set("args", params(request.getQuery(), StandardCharsets.UTF_8));
+        if (withBody) {
+            addBody(root, request);
+        }
+        Map<String, String> headers = new TreeMap<>();
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            headers.put(titleCase(header.getKey()), String.join(",", header.getValue()));
+        }
+        root.set("headers", mapper.valueToTree(headers));
+        if (withBody) {
+            // addBody 已经按顺序放好了 data、files、form，json 在 headers 之后
+            root.set("json", root.remove("json"));
+        }
+        if (anything) {
+            root.put("method", method);
+        }
+        root.put("origin", request.getRemoteAddress());
+        String host = request.getHeaders().getFirst("Host");
+        root.put("url", request.getTarget().contains("://") ? request.getTarget()
+                : "http://" + (host != null ? host : "localhost") + request.getTarget());
+        return new Response(HttpStatus.OK.value(), MediaType.APPLICATION_JSON_VALUE, writer.writeValueAsBytes(root));
+    }
+
+    private void addBody(ObjectNode root, CapturedRequest request) throws IOException {
+        byte[] body = request.getBody();
+        String contentType = request.getHeaders().getFirst("Content-Type");
+        MediaType mediaType = null;
+        if (contentType != null) {
+            try {
+                mediaType = MediaType.parseMediaType(contentType);
+            } catch (IllegalArgumentException e) {
+                // 当作没有 Content-Type
+            }
+        }
+        ObjectNode files = mapper.createObjectNode();
+        ObjectNode form = mapper.createObjectNode();
+        String data = "";
+        JsonNode json = null;
+        if (mediaType != null && MediaType.APPLICATION_FORM_URLENCODED.includes(mediaType)) {
+            Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+            form = params(new String(body, StandardCharsets.ISO_8859_1), charset);
+        } else if (mediaType != null && MediaType.MULTIPART_FORM_DATA.includes(mediaType)
+                && mediaType.getParameter("boundary") != null) {
+            readMultipart(contentType, body, files, form);
+        } else {
+            data = text(body, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            if (body.length > 0) {
+                try {
+                    json = mapper.readTree(body);
+                } catch (IOException e) {
+                    // 不是 JSON
+                }
+            }
+        }
+        root.put("data", data);
+        root.set("files", files);
+        root.set("form", form);
+        root.set("json", json);
+    }
+
+    private void readMultipart(String contentType, byte[] body, ObjectNode files, ObjectNode form) throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body),
+                MultipartStreamReader.boundaryOf(contentType), 8192);
+        MultipartStreamReader.Part part;
+        while ((part = reader.nextPart()) != null) {
+            byte[] content = StreamUtils.copyToByteArray(part.getBody());
+            String name = part.getName() != null ? part.getName() : "";
+            if (part.getFilename() != null) {
+                MediaType partType = part.getHeaders().getContentType();
+                add(files, name, text(content, partType != null ? partType.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE));
+            } else {
+                add(form, name, new String(content, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * 能按 UTF-8 解码的内容以文本返回，否则与 httpbin 一样返回 data URI
+     */
+    private static String text(byte[] content, String contentType) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(content)).toString();
+        } catch (CharacterCodingException e) {
+            return "data:" + contentType + ";base64," + Base64.getEncoder().encodeToString(content);
+        }
+    }
+
+    private ObjectNode params(String query, Charset charset) throws UnsupportedEncodingException {
+        ObjectNode params = mapper.createObjectNode();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            add(params, decode(name, charset), decode(value, charset));
+        }
+        return params;
+    }
+
+    private static String decode(String s, Charset charset) throws UnsupportedEncodingException {
+        try {
+            return URLDecoder.decode(s, charset.name());
+        } catch (IllegalArgumentException e) {
+            return s;
+        }
+    }
+
+    /**
+     * 同名的值出现多次时与 httpbin 一样改为数组
+     */
+    private static void add(ObjectNode node, String name, String value) {
+        JsonNode existing = node.get(name);
+        if (existing == null) {
+            node.put(name, value);
+        } else if (existing.isArray()) {
+            node.withArray(name).add(value);
+        } else {
+            node.putArray(name).add(existing.asText()).add(value);
+        }
+    }
+
+    private static String titleCase(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+            upper = c == '-';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 与 httpbin（Python json.dumps(indent=2)）相同的格式："key": value，空对象写为 {}
+     */
+    private static class HttpbinPrettyPrinter extends DefaultPrettyPrinter {
+        HttpbinPrettyPrinter() {
+        }
+
+        HttpbinPrettyPrinter(HttpbinPrettyPrinter base) {
+            super(base);
+        }
+
+        @Override
+        public HttpbinPrettyPrinter createInstance() {
+            return new HttpbinPrettyPrinter(this);
+        }
+
+        @Override
+        public void writeObjectFieldValueSeparator(JsonGenerator g) throws IOException {
+            g.writeRaw(": ");
+        }
+
+        @Override
+        public void writeEndObject(JsonGenerator g, int nrOfEntries) throws IOException {
+            if (nrOfEntries == 0) {
+                if (!_objectIndenter.isInline()) {
+                    --_nesting;
+                }
+                g.writeRaw('}');
+                return;
+            }
+            super.writeEndObject(g, nrOfEntries);
+        }
+    }
+
+    static final class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response text(int status, String text) {
+            return new Response(status, MediaType.TEXT_PLAIN_VALUE, text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.one.learn.resttemplate.load;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 一个负载测试客户端：独占一个线程、一个 RestTemplate 和它的连接，场景中的随机数也来自这里。
+ * 连接池只保留两个连接，客户端之间不共享连接。
+ */
+public class LoadClient implements Closeable {
+    private final int index;
+    private final String baseUrl;
+    private final Random random;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    public LoadClient(int index, String baseUrl) {
+        this.index = index;
+        this.baseUrl = baseUrl;
+        this.random = new Random(index);
+        this.httpClient = HttpClientBuilder.create()
+                .setMaxConnPerRoute(2)
+                .setMaxConnTotal(2)
+                .disableAutomaticRetries()
+                .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout(5000);
+        factory.setReadTimeout(30000);
+        this.restTemplate = new RestTemplate(factory);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return 服务地址，如 http://localhost:8080
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.one.learn.resttemplate.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 用多个客户端线程按权重混合执行场景，每个客户端同一时刻只有一个请求。
+ * <ul>
+ *     <li>开环（{@link Mode#OPEN}）：按总速率 rate 预先排定每个请求的发送时刻，客户端 i 负责第 i、i+n、i+2n… 个。
+ *     前一个请求拖延时后面的请求立即补发，响应时间从计划发送时刻算起，因此服务端停顿期间本应发出的请求
+ *     也计入了等待时间，不会出现协调遗漏（coordinated omission）；同时记录从实际发送时刻算起的服务时间作为对照。</li>
+ *     <li>闭环（{@link Mode#CLOSED}）：每个客户端收到响应后立即发送下一个请求，只能测得服务时间，
+ *     报告时用 {@link Histogram#copyCorrectedForCoordinatedOmission(long)} 补上停顿期间缺失的样本。</li>
+ * </ul>
+ * 预热阶段照常发送请求但不记录。各客户端的直方图分别记录，结束后再合并，记录时没有线程间竞争。
+ */
+public class LoadGenerator {
+    /**
+     * 直方图可以记录的最大值，更大的值按这个值记录
+     */
+    private static final long MAX_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public enum Mode {
+        OPEN, CLOSED
+    }
+
+    private final List<LoadScenario> scenarios;
+    private final int[] cumulativeWeights;
+
+    public LoadGenerator(List<LoadScenario> scenarios) {
+        this.scenarios = scenarios;
+        this.cumulativeWeights = new int[scenarios.size()];
+        int total = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            total += scenarios.get(i).getWeight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * @param rate 开环模式下所有客户端合计的每秒请求数，闭环模式忽略
+     */
+    public LoadResult run(Mode mode, List<LoadClient> clients, int rate, long warmupNanos, long durationNanos)
+            throws InterruptedException {
+        if (mode == Mode.OPEN && rate <= 0) {
+            throw new IllegalArgumentException("开环模式需要指定速率");
+        }
+        List<Map<String, LoadResult.Stats>> perClient = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(clients.size());
+        // 留出启动线程的时间，所有客户端使用同一个起点
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        for (LoadClient client : clients) {
+            Map<String, LoadResult.Stats> stats = newStats();
+            perClient.add(stats);
+            Thread thread = new Thread(() -> {
+                try {
+                    if (mode == Mode.OPEN) {
+                        long interval = TimeUnit.SECONDS.toNanos(1) * clients.size() / rate;
+                        long first = start + TimeUnit.SECONDS.toNanos(1) * client.getIndex() / rate;
+                        runOpen(client, stats, first, interval, measureFrom, end);
+                    } else {
+                        runClosed(client, stats, start, measureFrom, end);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + client.getIndex());
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        done.await();
+
+        Map<String, LoadResult.Stats> merged = newStats();
+        for (Map<String, LoadResult.Stats> stats : perClient) {
+            stats.forEach((name, s) -> merged.get(name).add(s));
+        }
+        return new LoadResult(mode, clients.size(), mode == Mode.OPEN ? rate : 0, durationNanos, merged);
+    }
+
+    private void runOpen(LoadClient client, Map<String, LoadResult.Stats> stats,
+                         long first, long interval, long measureFrom, long end) {
+        for (long intended = first; intended < end; intended += interval) {
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            LoadScenario scenario = pick(client);
+            long sent = System.nanoTime();
+            Exception error = execute(scenario, client);
+            long finished = System.nanoTime();
+            if (intended >= measureFrom) {
+                stats.get(scenario.getName()).record(finished - intended, finished - sent, error);
+            }
+        }
+    }
+
+    private void runClosed(LoadClient client, Map<String, LoadResult.Stats> stats,
+                           long start, long measureFrom, long end) {
+        long now;
+        while ((now = System.nanoTime()) < start) {
+            LockSupport.parkNanos(start - now);
+        }
+        long sent;
+        while ((sent = System.nanoTime()) < end) {
+            LoadScenario scenario = pick(client);
+            Exception error = execute(scenario, client);
+            long finished = System.nanoTime();
+            if (sent >= measureFrom) {
+                stats.get(scenario.getName()).record(finished - sent, finished - sent, error);
+            }
+        }
+    }
+
+    private static Exception execute(LoadScenario scenario, LoadClient client) {
+        try {
+            scenario.run(client);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private LoadScenario pick(LoadClient client) {
+        int r = client.getRandom().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= r) {
+            i++;
+        }
+        return scenarios.get(i);
+    }
+
+    private Map<String, LoadResult.Stats> newStats() {
+        Map<String, LoadResult.Stats> stats = new LinkedHashMap<>();
+        for (LoadScenario scenario : scenarios) {
+            stats.put(scenario.getName(), new LoadResult.Stats(MAX_NANOS));
+        }
+        return stats;
+    }
+}
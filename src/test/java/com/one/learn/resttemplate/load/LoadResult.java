@@ -0,0 +1,158 @@
+package com.one.learn.resttemplate.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次负载测试的结果：每个场景的响应时间、服务时间直方图（纳秒）和错误数，以及生成报告
+ */
+public class LoadResult {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadGenerator.Mode mode;
+    private final int clients;
+    private final int rate;
+    private final long durationNanos;
+    private final Map<String, Stats> scenarios;
+
+    LoadResult(LoadGenerator.Mode mode, int clients, int rate, long durationNanos, Map<String, Stats> scenarios) {
+        this.mode = mode;
+        this.clients = clients;
+        this.rate = rate;
+        this.durationNanos = durationNanos;
+        this.scenarios = scenarios;
+    }
+
+    public LoadGenerator.Mode getMode() {
+        return mode;
+    }
+
+    public Map<String, Stats> getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * @return 所有场景合计
+     */
+    public Stats getTotal() {
+        Stats total = new Stats(scenarios.values().iterator().next().responseTime.getHighestTrackableValue());
+        scenarios.values().forEach(total::add);
+        return total;
+    }
+
+    /**
+     * 不受协调遗漏影响的合计延迟：开环模式为从计划发送时刻算起的响应时间；
+     * 闭环模式以服务时间中位数作为期望的请求间隔，补上长时间停顿期间本应发出的请求。
+     * 补上的样本代表所有场景的请求，所以只对合计校正，不按场景校正
+     */
+    public Histogram correctedLatency() {
+        Stats total = getTotal();
+        if (mode == LoadGenerator.Mode.OPEN) {
+            return total.responseTime;
+        }
+        return total.serviceTime.copyCorrectedForCoordinatedOmission(expectedInterval(total));
+    }
+
+    private static long expectedInterval(Stats total) {
+        return total.serviceTime.getValueAtPercentile(50);
+    }
+
+    public void print(PrintStream out) {
+        double seconds = durationNanos / 1e9;
+        out.printf("== %s 模式：%d 个客户端，%s测量 %.0f 秒%n", mode == LoadGenerator.Mode.OPEN ? "开环" : "闭环",
+                clients, rate > 0 ? "目标速率 " + rate + " 请求/秒，" : "", seconds);
+        if (mode == LoadGenerator.Mode.OPEN) {
+            out.println("-- 响应时间（从计划发送时刻算起，不受协调遗漏影响），毫秒");
+            printHeader(out);
+            for (Map.Entry<String, Stats> entry : scenarios.entrySet()) {
+                printRow(out, entry.getKey(), entry.getValue(), entry.getValue().responseTime, seconds);
+            }
+            printRow(out, "TOTAL", getTotal(), getTotal().responseTime, seconds);
+        }
+        out.println("-- 服务时间（从实际发送时刻算起），毫秒");
+        printHeader(out);
+        for (Map.Entry<String, Stats> entry : scenarios.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue(), entry.getValue().serviceTime, seconds);
+        }
+        printRow(out, "TOTAL", getTotal(), getTotal().serviceTime, seconds);
+        if (mode == LoadGenerator.Mode.CLOSED) {
+            out.printf("-- 校正协调遗漏后的合计延迟（期望间隔取服务时间中位数 %.3f ms），毫秒%n",
+                    expectedInterval(getTotal()) / NANOS_PER_MILLI);
+            printHeader(out);
+            printRow(out, "TOTAL", getTotal(), correctedLatency(), seconds);
+        }
+        for (Map.Entry<String, Stats> entry : scenarios.entrySet()) {
+            if (entry.getValue().firstError != null) {
+                out.printf("首个错误 %s: %s%n", entry.getKey(), entry.getValue().firstError);
+            }
+        }
+        out.println();
+    }
+
+    private static void printHeader(PrintStream out) {
+        out.printf("%-16s %8s %6s %9s %9s %9s %9s %9s %9s%n",
+                "scenario", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max");
+    }
+
+    private static void printRow(PrintStream out, String name, Stats stats, Histogram h, double seconds) {
+        out.printf("%-16s %8d %6d %9.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                name, stats.serviceTime.getTotalCount(), stats.errors, stats.serviceTime.getTotalCount() / seconds,
+                millis(h, 50), millis(h, 90), millis(h, 99), millis(h, 99.9), h.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private static double millis(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 一个场景的统计。成功的请求才记录延迟，失败的只计数并保留第一个错误
+     */
+    public static class Stats {
+        private final Histogram responseTime;
+        private final Histogram serviceTime;
+        private long errors;
+        private String firstError;
+
+        Stats(long maxNanos) {
+            this.responseTime = new Histogram(maxNanos, 3);
+            this.serviceTime = new Histogram(maxNanos, 3);
+        }
+
+        void record(long responseNanos, long serviceNanos, Exception error) {
+            if (error != null) {
+                errors++;
+                if (firstError == null) {
+                    firstError = error.toString();
+                }
+                return;
+            }
+            long max = responseTime.getHighestTrackableValue();
+            responseTime.recordValue(Math.min(responseNanos, max));
+            serviceTime.recordValue(Math.min(serviceNanos, max));
+        }
+
+        void add(Stats other) {
+            responseTime.add(other.responseTime);
+            serviceTime.add(other.serviceTime);
+            errors += other.errors;
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+
+        public long getCount() {
+            return serviceTime.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public Histogram getServiceTime() {
+            return serviceTime;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.one.learn.resttemplate.load;
+
+/**
+ * 负载测试中的一种请求，按权重与其它场景混合执行
+ */
+public final class LoadScenario {
+    private final String name;
+    private final int weight;
+    private final Action action;
+
+    public LoadScenario(String name, int weight, Action action) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("权重必须为正数: " + weight);
+        }
+        this.name = name;
+        this.weight = weight;
+        this.action = action;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    void run(LoadClient client) throws Exception {
+        action.run(client);
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        /**
+         * 执行一次请求，响应不符合预期时抛出异常，计为错误
+         */
+        void run(LoadClient client) throws Exception;
+    }
+}
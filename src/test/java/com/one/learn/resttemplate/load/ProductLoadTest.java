@@ -0,0 +1,237 @@
+package com.one.learn.resttemplate.load;
+
+import com.one.learn.resttemplate.bean.Product;
+import com.one.learn.resttemplate.client.ChunkedUploadSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 端到端负载测试：在同一个 JVM 中以随机端口启动服务，多个 RestTemplate 客户端并发调用全部 /product 接口，
+ * 依次以开环和闭环模式运行，输出吞吐量和延迟分位数，报告保存在 target/load-test 下。
+ * <p>
+ * 运行：mvn -P load-test test，可以用系统属性调整：
+ * load.clients（客户端数，默认 8）、load.rate（开环模式每秒请求数，默认 200）、
+ * load.warmup-seconds（默认 5）、load.duration-seconds（默认 20）、load.mode（open、closed 或 open,closed）。
+ * <p>
+ * 读请求只访问预置的产品（id 1 到 500），写请求使用 100000 以上的 id，互不影响；
+ * 删除的产品可能已被删除过，404 也视为正常响应。
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "product.upload.dir=${java.io.tmpdir}/product-load-test")
+public class ProductLoadTest {
+    private static final int CLIENTS = Integer.getInteger("load.clients", 8);
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 20);
+    private static final String MODES = System.getProperty("load.mode", "open,closed");
+    private static final Path REPORT_DIR = Paths.get(System.getProperty("load.report-dir", "target/load-test"));
+
+    private static final int READ_IDS = 500;
+    private static final int WRITE_ID_BASE = 100_000;
+    private static final int WRITE_IDS = 1000;
+    private static final MediaType NDJSON = MediaType.APPLICATION_NDJSON;
+
+    @LocalServerPort
+    int port;
+
+    private final List<LoadClient> clients = new ArrayList<>();
+    private byte[] file;
+
+    @Before
+    public void setUp() {
+        String baseUrl = "http://localhost:" + port;
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new LoadClient(i, baseUrl));
+        }
+        file = new byte[4096];
+        new Random(1).nextBytes(file);
+        // 下载场景使用的文件
+        upload(clients.get(0).getRestTemplate(), baseUrl + "/product/upload", "load-seed.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (LoadClient client : clients) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void allEndpoints() throws Exception {
+        Files.createDirectories(REPORT_DIR);
+        LoadGenerator generator = new LoadGenerator(scenarios());
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        List<LoadResult> results = new ArrayList<>();
+        try (PrintStream out = new PrintStream(report, true, "UTF-8")) {
+            for (String name : MODES.split(",")) {
+                LoadGenerator.Mode mode = LoadGenerator.Mode.valueOf(name.trim().toUpperCase());
+                LoadResult result = generator.run(mode, clients, RATE,
+                        TimeUnit.SECONDS.toNanos(WARMUP_SECONDS), TimeUnit.SECONDS.toNanos(DURATION_SECONDS));
+                result.print(out);
+                results.add(result);
+                // 完整的分位数分布，可以用 HdrHistogram 的 plotFiles.html 画图
+                try (PrintStream hgrm = new PrintStream(
+                        REPORT_DIR.resolve(mode.name().toLowerCase() + ".hgrm").toFile(), "UTF-8")) {
+                    result.correctedLatency().outputPercentileDistribution(hgrm, 1e6);
+                }
+            }
+        }
+        String text = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        Files.write(REPORT_DIR.resolve("report.txt"), report.toByteArray());
+        System.out.println(text);
+
+        for (LoadResult result : results) {
+            result.getScenarios().forEach((name, stats) -> {
+                assertEquals(result.getMode() + " " + name + " 出现错误", 0, stats.getErrors());
+                assertTrue(result.getMode() + " " + name + " 没有执行", stats.getCount() > 0);
+            });
+        }
+    }
+
+    private List<LoadScenario> scenarios() {
+        return Arrays.asList(
+                new LoadScenario("get-product-1", 10, c -> assertNotNull(
+                        c.getRestTemplate().getForObject(url(c, "/product/get_product1"), Product.class))),
+                new LoadScenario("get-product-2", 20, c -> assertNotNull(
+                        c.getRestTemplate().getForObject(url(c, "/product/get_product2?id={id}"), Product.class, readId(c)))),
+                new LoadScenario("get-product-3", 10, c -> assertNotNull(
+                        c.getRestTemplate().getForObject(url(c, "/product/get_product3?id={id}&name={name}&price={price}"),
+                                String.class, readId(c), "ProductC", "9.99"))),
+                new LoadScenario("post-product-1", 5, c -> assertNotNull(
+                        c.getRestTemplate().postForObject(url(c, "/product/post_product1"), form(writeProduct(c)), String.class))),
+                new LoadScenario("post-product-2", 5, c -> assertNotNull(
+                        c.getRestTemplate().postForObject(url(c, "/product/post_product2"), writeProduct(c), String.class))),
+                new LoadScenario("batch-get", 5, c -> assertEquals(10,
+                        c.getRestTemplate().getForObject(url(c, "/product/batch?ids={ids}"), Product[].class, readIds(c)).length)),
+                new LoadScenario("batch-post", 5, c -> assertEquals(10,
+                        c.getRestTemplate().postForObject(url(c, "/product/batch"), readIds(c).split(","), Product[].class).length)),
+                new LoadScenario("stream", 3, c -> assertNotNull(c.getRestTemplate().exchange(
+                        RequestEntity.get(URI.create(url(c, "/product/stream?from=" + readId(c) + "&limit=50")))
+                                .accept(NDJSON).build(), String.class).getBody())),
+                new LoadScenario("bulk", 2, c -> assertNotNull(c.getRestTemplate().postForObject(
+                        url(c, "/product/bulk"), writeProducts(c, 20), String.class))),
+                new LoadScenario("update", 5, c -> c.getRestTemplate().exchange(
+                        url(c, "/product/update"), HttpMethod.PUT, form(writeProduct(c)), String.class)),
+                new LoadScenario("delete", 3, c -> {
+                    try {
+                        c.getRestTemplate().delete(url(c, "/product/delete/{id}"), writeId(c));
+                    } catch (HttpClientErrorException.NotFound e) {
+                        // 已经删除过
+                    }
+                }),
+                new LoadScenario("upload", 2, c -> upload(c.getRestTemplate(), url(c, "/product/upload"),
+                        "load-" + c.getIndex() + ".bin")),
+                new LoadScenario("upload-stream", 2, c -> upload(c.getRestTemplate(), url(c, "/product/upload-stream"),
+                        "load-stream-" + c.getIndex() + ".bin")),
+                new LoadScenario("download", 5, c -> assertEquals(file.length,
+                        c.getRestTemplate().getForObject(url(c, "/product/download/load-seed.bin"), byte[].class).length)),
+                new LoadScenario("chunked-upload", 1, this::chunkedUpload),
+                new LoadScenario("chunked-abort", 1, c -> {
+                    ChunkedUploadSession status = createUpload(c, "load-abort-" + c.getIndex() + ".bin");
+                    c.getRestTemplate().delete(url(c, "/product/uploads/{id}"), status.getId());
+                }));
+    }
+
+    private void chunkedUpload(LoadClient c) {
+        RestTemplate restTemplate = c.getRestTemplate();
+        ChunkedUploadSession status = createUpload(c, "load-chunked-" + c.getIndex() + ".bin");
+        int half = file.length / 2;
+        restTemplate.put(url(c, "/product/uploads/{id}/chunks/{index}"), Arrays.copyOfRange(file, 0, half), status.getId(), 0);
+        restTemplate.put(url(c, "/product/uploads/{id}/chunks/{index}"), Arrays.copyOfRange(file, half, file.length),
+                status.getId(), 1);
+        assertTrue(restTemplate.getForObject(url(c, "/product/uploads/{id}"), ChunkedUploadSession.class, status.getId())
+                .getMissingChunks().isEmpty());
+        assertNotNull(restTemplate.postForObject(url(c, "/product/uploads/{id}/commit"), null, String.class, status.getId()));
+    }
+
+    private ChunkedUploadSession createUpload(LoadClient c, String filename) {
+        return c.getRestTemplate().postForObject(url(c, "/product/uploads?filename={filename}&size={size}&chunkSize={chunkSize}"),
+                null, ChunkedUploadSession.class, filename, file.length, file.length / 2);
+    }
+
+    private void upload(RestTemplate restTemplate, String url, String filename) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("file", new ByteArrayResource(file) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        });
+        assertNotNull(restTemplate.postForObject(url, parts, String.class));
+    }
+
+    private static String url(LoadClient c, String path) {
+        return c.getBaseUrl() + path;
+    }
+
+    private static int readId(LoadClient c) {
+        return 1 + c.getRandom().nextInt(READ_IDS);
+    }
+
+    private static String readIds(LoadClient c) {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            ids.append(i == 0 ? "" : ",").append(readId(c));
+        }
+        return ids.toString();
+    }
+
+    private static int writeId(LoadClient c) {
+        return WRITE_ID_BASE + c.getRandom().nextInt(WRITE_IDS);
+    }
+
+    private static Product writeProduct(LoadClient c) {
+        return new Product(writeId(c), "Load" + c.getIndex(), BigDecimal.valueOf(c.getRandom().nextInt(100_000), 2));
+    }
+
+    private static List<Product> writeProducts(LoadClient c, int n) {
+        List<Product> products = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            products.add(writeProduct(c));
+        }
+        return products;
+    }
+
+    private static HttpEntity<MultiValueMap<String, String>> form(Product product) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("id", String.valueOf(product.getId()));
+        form.add("name", product.getName());
+        form.add("price", product.getPrice().toPlainString());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        return new HttpEntity<>(form, headers);
+    }
+}
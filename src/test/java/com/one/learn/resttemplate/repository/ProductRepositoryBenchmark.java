@@ -0,0 +1,68 @@
+package com.one.learn.resttemplate.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductRepository 随机读的吞吐量随线程数的变化。读操作无锁，理想情况下吞吐量随线程数近似线性增长，
+ * 分别用 1、2、4 个线程和与 CPU 核数相同的线程数测量，结果中 ops/us 是所有线程合计的吞吐量。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductRepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private ProductRepository repository;
+
+    @Setup
+    public void setup() {
+        repository = new ProductRepository(size);
+    }
+
+    private Object findById() {
+        return repository.findById(ThreadLocalRandom.current().nextInt(size) + 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object findById_1t() {
+        return findById();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object findById_2t() {
+        return findById();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object findById_4t() {
+        return findById();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object findById_maxt() {
+        return findById();
+    }
+}
@@ -0,0 +1,61 @@
+package com.one.learn.resttemplate.repository;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.one.learn.resttemplate.bean.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入管道的批大小对 DURABLE 确认延迟的影响：8 个线程并发提交更新并等待确认，
+ * SampleTime 模式给出每次提交的延迟分布（p50、p99 等），吞吐量由平均延迟和线程数得出。
+ * 运行：mvn -P benchmark test -Djmh.include=ProductWriteBehindBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ProductWriteBehindBenchmark {
+    @Param({"1", "8", "64", "512"})
+    public int batchSize;
+
+    private ProductWriteBehind writeBehind;
+
+    @Setup
+    public void setup() {
+        // 没有 Spring Boot 的日志配置时 logback 默认输出 DEBUG，逐条日志会掩盖真正的开销
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        writeBehind = new ProductWriteBehind(new ProductRepository(1000), batchSize, 8192);
+        writeBehind.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        writeBehind.stop();
+    }
+
+    @Benchmark
+    public Boolean durableUpdate() {
+        int id = ThreadLocalRandom.current().nextInt(1000) + 1;
+        return writeBehind.update(new Product(id, "Product" + id, BigDecimal.ONE), AckMode.DURABLE).join();
+    }
+}
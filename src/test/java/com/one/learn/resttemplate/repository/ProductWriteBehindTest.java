@@ -0,0 +1,102 @@
+package com.one.learn.resttemplate.repository;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.one.learn.resttemplate.bean.Product;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProductWriteBehindTest {
+    private static final Logger LOG = (Logger) LoggerFactory.getLogger(ProductWriteBehind.class);
+    private static Level level;
+
+    /**
+     * 没有 Spring Boot 的日志配置时 logback 默认输出 DEBUG，每个修改一行
+     */
+    @BeforeClass
+    public static void quiet() {
+        level = LOG.getLevel();
+        LOG.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restore() {
+        LOG.setLevel(level);
+    }
+
+    @Test
+    public void durableUpdateAndDelete() throws Exception {
+        ProductRepository repository = new ProductRepository(10);
+        ProductWriteBehind writeBehind = new ProductWriteBehind(repository, 4, 16);
+        writeBehind.start();
+        try {
+            Product product = new Product(3, "ProductX", BigDecimal.ONE);
+            assertTrue(writeBehind.update(product, AckMode.DURABLE).get(5, TimeUnit.SECONDS));
+            assertSame(product, repository.findById(3));
+            assertTrue(writeBehind.delete(3, AckMode.DURABLE).get(5, TimeUnit.SECONDS));
+            assertFalse(writeBehind.delete(3, AckMode.DURABLE).get(5, TimeUnit.SECONDS));
+            assertNull(repository.findById(3));
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    /**
+     * stop 与提交同时进行：每个修改要么被拒绝，要么在 stop 返回时已经应用，不会留在队列里无人处理
+     */
+    @Test
+    public void stopDuringSubmit() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            ProductRepository repository = new ProductRepository(0);
+            ProductWriteBehind writeBehind = new ProductWriteBehind(repository, 8, 1 << 16);
+            writeBehind.start();
+            int threads = 4;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch started = new CountDownLatch(threads);
+            List<Future<List<CompletableFuture<Boolean>>>> submitters = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * 1_000_000;
+                submitters.add(pool.submit(() -> {
+                    List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+                    started.countDown();
+                    for (int i = 0; ; i++) {
+                        try {
+                            accepted.add(writeBehind.update(new Product(base + i, "P", BigDecimal.ONE), AckMode.DURABLE));
+                        } catch (RejectedExecutionException e) {
+                            if (!"写线程已停止".equals(e.getMessage())) {
+                                // 队列满，稍后重试
+                                Thread.yield();
+                                continue;
+                            }
+                            return accepted;
+                        }
+                    }
+                }));
+            }
+            started.await();
+            writeBehind.stop();
+            pool.shutdown();
+            for (Future<List<CompletableFuture<Boolean>>> submitter : submitters) {
+                for (CompletableFuture<Boolean> ack : submitter.get(10, TimeUnit.SECONDS)) {
+                    assertTrue("stop 返回后所有被接受的修改都已应用", ack.isDone());
+                    assertFalse(ack.get());
+                }
+            }
+        }
+    }
+}
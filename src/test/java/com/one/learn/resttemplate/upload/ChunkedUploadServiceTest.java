@@ -0,0 +1,204 @@
+package com.one.learn.resttemplate.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ChunkedUploadServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadStorage uploadStorage;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() throws IOException {
+        uploadStorage = new UploadStorage(folder.getRoot().getPath(), 4096);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ChunkedUploadService service(long idleTimeoutMillis) {
+        return new ChunkedUploadService(uploadStorage, idleTimeoutMillis, DataSize.ofKilobytes(10), 4, 100, 3);
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(uploadStorage.getDirectory())) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void idleSessionExpires() throws Exception {
+        ChunkedUploadService service = service(50);
+        String idle = service.create("idle.bin", 100, 10).getId();
+        Thread.sleep(100);
+        String fresh = service.create("fresh.bin", 100, 10).getId();
+        assertEquals(2, files());
+
+        assertEquals(1, service.expireIdleSessions());
+        assertNull(service.status(idle));
+        assertNotNull(service.status(fresh));
+        assertEquals(1, files());
+        assertFalse(service.writeChunk(idle, 0, new ByteArrayInputStream(new byte[10])));
+    }
+
+    @Test
+    public void leftoversRemovedOnStart() throws Exception {
+        service(60_000).create("old.bin", 100, 10);
+        Files.write(uploadStorage.resolve("kept.bin"), new byte[1]);
+        ChunkedUploadService restarted = service(60_000);
+        restarted.start();
+        try {
+            assertEquals(1, files());
+            assertTrue(Files.exists(uploadStorage.resolve("kept.bin")));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    public void temporaryFilesNotAddressable() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        String id = service.create("hidden.bin", 100, 10).getId();
+        try {
+            uploadStorage.resolve(".chunked-" + id + ".part");
+            fail("临时文件不能下载");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            uploadStorage.resolve(".upload-1.part");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals("a.part", uploadStorage.resolve("a.part").getFileName().toString());
+    }
+
+    /**
+     * 正在写入分块时放弃上传：等分块写完才删除临时文件，之后的分块不再写入
+     */
+    @Test
+    public void abortWaitsForChunkInFlight() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        String id = service.create("race.bin", 20, 10).getId();
+        PipedOutputStream client = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(client);
+        Future<Boolean> chunk = executor.submit(() -> service.writeChunk(id, 0, body));
+        client.write(new byte[5]);
+        client.flush();
+        while (body.available() > 0) {
+            Thread.sleep(1);
+        }
+
+        Future<Boolean> abort = executor.submit(() -> service.abort(id));
+        Thread.sleep(100);
+        assertFalse("分块写完之前不能结束会话", abort.isDone());
+        assertEquals(1, files());
+
+        client.write(new byte[5]);
+        client.close();
+        assertTrue(chunk.get(5, TimeUnit.SECONDS));
+        assertTrue(abort.get(5, TimeUnit.SECONDS));
+        assertEquals(0, files());
+        assertFalse(service.writeChunk(id, 1, new ByteArrayInputStream(new byte[10])));
+        assertNull(service.commit(id));
+    }
+
+    @Test
+    public void commitAfterAllChunks() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        String id = service.create("done.bin", 15, 10).getId();
+        assertTrue(service.writeChunk(id, 1, new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+        try {
+            service.commit(id);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(service.writeChunk(id, 0, new ByteArrayInputStream(new byte[10])));
+        Path target = service.commit(id);
+        assertEquals(15, Files.size(target));
+        assertEquals(1, files());
+        assertFalse(service.abort(id));
+    }
+
+    @Test
+    public void missingChunksAsRanges() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        ChunkedUploadStatus status = service.create("ranges.bin", 95, 10);
+        assertEquals(10, status.getChunkCount());
+        assertEquals(1, status.getMissingChunks().size());
+        assertArrayEquals(new int[]{0, 9}, status.getMissingChunks().get(0));
+
+        for (int index : new int[]{0, 3, 4, 9}) {
+            int length = index == 9 ? 5 : 10;
+            assertTrue(service.writeChunk(status.getId(), index, new ByteArrayInputStream(new byte[length])));
+        }
+        List<int[]> missing = service.status(status.getId()).getMissingChunks();
+        assertEquals(2, missing.size());
+        assertArrayEquals(new int[]{1, 2}, missing.get(0));
+        assertArrayEquals(new int[]{5, 8}, missing.get(1));
+    }
+
+    /**
+     * 文件大小、分块大小和分块数超出上限时拒绝，不分配内存和临时文件
+     */
+    @Test
+    public void rejectOversizedSessions() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        assertRejected(service, 10 * 1024 + 1, 1024);
+        // (size + chunkSize - 1) 会溢出为负数
+        assertRejected(service, Long.MAX_VALUE, Integer.MAX_VALUE);
+        assertRejected(service, 100, 3);
+        assertRejected(service, 1000, 4);
+        assertRejected(service, -1, 10);
+        assertEquals(0, files());
+
+        // 只有一个分块时不受最小分块大小限制
+        assertEquals(1, service.create("tiny.bin", 2, 2).getChunkCount());
+        assertEquals(100, service.create("max.bin", 400, 4).getChunkCount());
+    }
+
+    private void assertRejected(ChunkedUploadService service, long size, int chunkSize) throws IOException {
+        try {
+            service.create("rejected.bin", size, chunkSize);
+            fail("size=" + size + ", chunkSize=" + chunkSize);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void sessionCountLimited() throws Exception {
+        ChunkedUploadService service = service(60_000);
+        String first = service.create("a.bin", 10, 10).getId();
+        service.create("b.bin", 10, 10);
+        service.create("c.bin", 10, 10);
+        try {
+            service.create("d.bin", 10, 10);
+            fail("会话数已达上限");
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(service.abort(first));
+        assertNotNull(service.create("d.bin", 10, 10));
+    }
+}
@@ -0,0 +1,130 @@
+package com.one.learn.resttemplate.upload;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class FileSenderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.newFile("foo.txt").toPath();
+        Files.write(file, "0123456789".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileSender.send(file, request, response);
+        return response;
+    }
+
+    @Test
+    public void fullFile() throws IOException {
+        MockHttpServletResponse response = send(new MockHttpServletRequest("GET", "/"));
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(10, response.getContentLengthLong());
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    public void head() throws IOException {
+        MockHttpServletResponse response = send(new MockHttpServletRequest("HEAD", "/"));
+        assertEquals(200, response.getStatus());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void ranges() throws IOException {
+        assertRange("bytes=2-4", "bytes 2-4/10", "234");
+        assertRange("bytes=7-", "bytes 7-9/10", "789");
+        assertRange("bytes=-3", "bytes 7-9/10", "789");
+        assertRange("bytes=5-100", "bytes 5-9/10", "56789");
+    }
+
+    private void assertRange(String range, String contentRange, String body) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, range);
+        MockHttpServletResponse response = send(request);
+        assertEquals(206, response.getStatus());
+        assertEquals(contentRange, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(body.length(), response.getContentLengthLong());
+        assertEquals(body, response.getContentAsString());
+    }
+
+    @Test
+    public void unsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        MockHttpServletResponse response = send(request);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void multipleRangesServeFullFile() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+        MockHttpServletResponse response = send(request);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    public void ifRange() throws IOException {
+        String etag = send(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, send(request).getStatus());
+
+        // 文件已变化，返回完整内容
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = send(request);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    public void notModified() throws IOException {
+        String etag = send(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = send(request);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void sendfile() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        MockHttpServletResponse response = send(request);
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(5L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+}
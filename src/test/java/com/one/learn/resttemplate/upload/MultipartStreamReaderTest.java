@@ -0,0 +1,148 @@
+package com.one.learn.resttemplate.upload;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class MultipartStreamReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] data = randomBytes(100_000);
+
+    /**
+     * 用 RestTemplate 使用的 FormHttpMessageConverter 生成请求体，保证格式与真实客户端一致
+     */
+    private static MockHttpOutputMessage multipart(byte[] data) throws IOException {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("comment", "This is a binary file");
+        body.add("file", new ByteArrayResource(data) {
+            @Override
+            public String getFilename() {
+                return "data.bin";
+            }
+        });
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        new FormHttpMessageConverter().write(body, MediaType.MULTIPART_FORM_DATA, message);
+        return message;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        // 放入一些 CRLF 和短横线，检验分隔符的半截匹配
+        for (int i = 0; i < size; i += 997) {
+            bytes[i] = '\r';
+            if (i + 1 < size) {
+                bytes[i + 1] = '\n';
+            }
+            if (i + 2 < size) {
+                bytes[i + 2] = '-';
+            }
+        }
+        return bytes;
+    }
+
+    @Test
+    public void readParts() throws IOException {
+        // 各种缓冲区大小，包括比文件小得多的
+        for (int bufferSize : new int[]{160, 1000, 8192, 1 << 20}) {
+            MockHttpOutputMessage message = multipart(data);
+            String boundary = MultipartStreamReader.boundaryOf(message.getHeaders().getContentType().toString());
+            MultipartStreamReader reader = new MultipartStreamReader(
+                    new TrickleInputStream(message.getBodyAsBytes()), boundary, bufferSize);
+
+            MultipartStreamReader.Part comment = reader.nextPart();
+            assertEquals("comment", comment.getName());
+            assertNull(comment.getFilename());
+            assertEquals("This is a binary file", StreamUtils.copyToString(comment.getBody(), StandardCharsets.UTF_8));
+
+            MultipartStreamReader.Part file = reader.nextPart();
+            assertEquals("file", file.getName());
+            assertEquals("data.bin", file.getFilename());
+            assertArrayEquals("bufferSize=" + bufferSize, data, StreamUtils.copyToByteArray(file.getBody()));
+
+            assertNull(reader.nextPart());
+        }
+    }
+
+    @Test
+    public void skipUnreadParts() throws IOException {
+        MockHttpOutputMessage message = multipart(data);
+        String boundary = MultipartStreamReader.boundaryOf(message.getHeaders().getContentType().toString());
+        MultipartStreamReader reader = new MultipartStreamReader(
+                new ByteArrayInputStream(message.getBodyAsBytes()), boundary, 256);
+        assertEquals("comment", reader.nextPart().getName());
+        MultipartStreamReader.Part file = reader.nextPart();
+        assertEquals("file", file.getName());
+        assertEquals(data[0], (byte) file.getBody().read());
+        assertNull(reader.nextPart());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBody() throws IOException {
+        MockHttpOutputMessage message = multipart(data);
+        byte[] body = message.getBodyAsBytes();
+        String boundary = MultipartStreamReader.boundaryOf(message.getHeaders().getContentType().toString());
+        MultipartStreamReader reader = new MultipartStreamReader(
+                new ByteArrayInputStream(body, 0, body.length - 10), boundary, 4096);
+        while (reader.nextPart() != null) {
+            // 读到最后一部分时应当报错
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notMultipart() {
+        MultipartStreamReader.boundaryOf(MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    @Test
+    public void storeMultipart() throws IOException {
+        UploadStorage storage = new UploadStorage(folder.getRoot().getPath(), 4096);
+        MockHttpOutputMessage message = multipart(data);
+        StoredFile stored = storage.storeMultipart(new ByteArrayInputStream(message.getBodyAsBytes()),
+                message.getHeaders().getContentType().toString(), "file");
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        assertEquals("data.bin", stored.getFilename());
+        assertEquals(data.length, stored.getSize());
+        assertEquals(crc32.getValue(), stored.getCrc32());
+        assertArrayEquals(data, Files.readAllBytes(stored.getPath()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTraversal() throws IOException {
+        new UploadStorage(folder.getRoot().getPath(), 4096).resolve("../");
+    }
+
+    /**
+     * 每次最多返回 7 个字节，模拟网络上零散到达的数据
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.one.learn.resttemplate.upload;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class UploadStorageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadStorage uploadStorage;
+
+    @Before
+    public void setUp() throws IOException {
+        uploadStorage = new UploadStorage(folder.getRoot().getPath(), 4096);
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(uploadStorage.getDirectory())) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void storeReplacesAtomically() throws IOException {
+        Path target = uploadStorage.store("a.txt", temp -> Files.write(temp, "old".getBytes(StandardCharsets.US_ASCII)));
+        uploadStorage.store("a.txt", temp -> {
+            // 写入过程中目标文件仍是旧的内容
+            assertEquals("old", new String(Files.readAllBytes(target), StandardCharsets.US_ASCII));
+            Files.write(temp, "new".getBytes(StandardCharsets.US_ASCII));
+        });
+        assertEquals("new", new String(Files.readAllBytes(target), StandardCharsets.US_ASCII));
+        assertEquals(1, files());
+    }
+
+    /**
+     * 写到一半失败时不留下目标文件，也不留下临时文件
+     */
+    @Test
+    public void failedStoreLeavesNothing() throws IOException {
+        try {
+            uploadStorage.store("b.txt", temp -> {
+                Files.write(temp, "partial".getBytes(StandardCharsets.US_ASCII));
+                throw new IOException("连接断开");
+            });
+            fail();
+        } catch (IOException expected) {
+        }
+        assertFalse(Files.exists(uploadStorage.resolve("b.txt")));
+        assertEquals(0, files());
+    }
+}
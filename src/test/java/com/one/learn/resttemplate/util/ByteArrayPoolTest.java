@@ -0,0 +1,34 @@
+package com.one.learn.resttemplate.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void reusesReleasedBuffers() {
+        ByteArrayPool pool = new ByteArrayPool(1024, 2);
+        byte[] first = pool.acquire();
+        assertEquals(1024, first.length);
+        pool.release(first);
+        assertEquals(1, pool.available());
+        assertSame(first, pool.acquire());
+        assertEquals(0, pool.available());
+    }
+
+    @Test
+    public void boundedAndIgnoresForeignBuffers() {
+        ByteArrayPool pool = new ByteArrayPool(16, 2);
+        byte[] a = pool.acquire();
+        byte[] b = pool.acquire();
+        byte[] c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals("池满时归还的数组被丢弃", 2, pool.available());
+        pool.acquire();
+        pool.release(new byte[8]);
+        assertEquals(1, pool.available());
+    }
+}
@@ -0,0 +1,90 @@
+package com.one.learn.resttemplate.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentIntObjectMapTest {
+
+    @Test
+    public void putGetRemove() {
+        ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>();
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.putIfAbsent(1, "c"));
+        assertEquals("b", map.get(1));
+        assertNull(map.get(2));
+        assertEquals(1, map.size());
+        assertEquals("b", map.remove(1));
+        assertNull(map.remove(1));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * 单个段、初始容量很小，迫使多次扩容，并在冲突链的中间删除节点
+     */
+    @Test
+    public void growAndRemoveInsideChain() {
+        ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>(0, 1);
+        for (int i = -500; i < 500; i++) {
+            map.put(i, i * 10);
+        }
+        assertEquals(1000, map.size());
+        for (int i = -500; i < 500; i += 2) {
+            assertEquals(Integer.valueOf(i * 10), map.remove(i));
+        }
+        assertEquals(500, map.size());
+        for (int i = -500; i < 500; i++) {
+            Integer v = map.get(i);
+            if ((i & 1) == 0) {
+                assertNull(v);
+            } else {
+                assertEquals(Integer.valueOf(i * 10), v);
+            }
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals(500, keys.length);
+        assertEquals(-499, keys[0]);
+        assertEquals(499, keys[499]);
+    }
+
+    @Test
+    public void concurrentWriters() throws Exception {
+        ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>(16, 4);
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    map.put(base + i, base + i);
+                    // 读线程在写入的同时读取，读不到已写入的值说明可见性有问题
+                    assertEquals(Integer.valueOf(base + i), map.get(base + i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        // 工作线程中的断言失败由 get() 以 ExecutionException 抛出
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(threads * perThread, map.size());
+        map.forEach((key, value) -> assertEquals(key, value.intValue()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.one.learn.resttemplate.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class MpscBoundedQueueTest {
+
+    @Test
+    public void fifoAndBounded() {
+        MpscBoundedQueue<Integer> queue = new MpscBoundedQueue<>(3);
+        assertEquals(4, queue.capacity());
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse("队列已满", queue.offer(4));
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * 多个生产者并发写入，单个消费者取出，每个元素恰好出现一次，且同一生产者的元素保持顺序
+     */
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscBoundedQueue<long[]> queue = new MpscBoundedQueue<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    long[] e = {producer, i};
+                    while (!queue.offer(e)) {
+                        Thread.yield();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        long[] next = new long[producers];
+        int received = 0;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (received < producers * perProducer) {
+            long[] e = queue.poll();
+            if (e == null) {
+                assertTrue("超时", System.currentTimeMillis() < deadline);
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[(int) e[0]]++, e[1]);
+            received++;
+        }
+        assertNull(queue.poll());
+    }
+}